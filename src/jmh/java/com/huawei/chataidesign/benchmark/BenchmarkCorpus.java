@@ -0,0 +1,51 @@
+package com.huawei.chataidesign.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试语料
+ *
+ * 从 benchmark/intent-corpus.tsv 读取用户输入，每行为 语料类别<TAB>用户输入。
+ */
+final class BenchmarkCorpus {
+
+    private static final String LOCATION = "benchmark/intent-corpus.tsv";
+
+    private BenchmarkCorpus() {}
+
+    /**
+     * 读取指定类别的语料，类别为 all 时返回全部语料
+     */
+    static String[] load(String category) {
+        InputStream input = BenchmarkCorpus.class.getClassLoader().getResourceAsStream(LOCATION);
+        if (input == null) {
+            throw new IllegalStateException("Benchmark corpus not found: " + LOCATION);
+        }
+        List<String> inputs = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (line.startsWith("#") || tab < 0) {
+                    continue;
+                }
+                if ("all".equals(category) || category.equals(line.substring(0, tab))) {
+                    inputs.add(line.substring(tab + 1));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("No benchmark inputs for category: " + category);
+        }
+        return inputs.toArray(new String[0]);
+    }
+}
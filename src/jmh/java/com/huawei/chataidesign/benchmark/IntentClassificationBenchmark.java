@@ -0,0 +1,67 @@
+package com.huawei.chataidesign.benchmark;
+
+import com.huawei.chataidesign.entity.IntentClassification;
+import com.huawei.chataidesign.entity.IntentType;
+import com.huawei.chataidesign.utils.IdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 意图识别结果创建基准测试
+ *
+ * 对比识别结果的两种创建方式：原做法用 UUID.randomUUID() 生成ID、构造时即生成 LocalDateTime 再逐个设置字段；
+ * 现做法与 ModelBasedIntentRecognitionServiceImpl 一致，使用线程本地随机数生成ID、共享意图模板中的字符串，
+ * 处理时间推迟到读取时生成。templateSerialized 模拟结果被序列化返回时读取处理时间。
+ * 每个线程各自持有状态，多线程运行时可观察 SecureRandom 的争用。
+ * 运行：mvn -Pjmh test-compile exec:exec -Djmh.include=IntentClassificationBenchmark -Djmh.args="-t 8 -prof gc"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IntentClassificationBenchmark {
+
+    private static final IntentType[] INTENTS = IntentType.values();
+    private static final String SUGGESTED_ACTION = "已识别您的需求，正在为您准备相关回答";
+
+    private String[] inputs;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        inputs = BenchmarkCorpus.load("all");
+    }
+
+    @Benchmark
+    public IntentClassification setters() {
+        index++;
+        IntentType intent = INTENTS[index % INTENTS.length];
+        IntentClassification classification = new IntentClassification(intent, 0.9, inputs[index % inputs.length]);
+        classification.setIntentId(UUID.randomUUID().toString());
+        classification.setProcessedAt(LocalDateTime.now());
+        classification.setIntentDescription(intent.getDisplayName());
+        classification.setSuggestedAction(SUGGESTED_ACTION);
+        return classification;
+    }
+
+    @Benchmark
+    public IntentClassification template() {
+        index++;
+        IntentType intent = INTENTS[index % INTENTS.length];
+        return new IntentClassification(IdGenerator.fastUuid(), intent, 0.9, inputs[index % inputs.length],
+                intent.getDisplayName(), SUGGESTED_ACTION);
+    }
+
+    @Benchmark
+    public LocalDateTime templateSerialized() {
+        return template().getProcessedAt();
+    }
+}
@@ -0,0 +1,82 @@
+package com.huawei.chataidesign.benchmark;
+
+import com.huawei.chataidesign.config.IntentRecognitionConfig;
+import com.huawei.chataidesign.entity.IntentClassification;
+import com.huawei.chataidesign.service.impl.ModelBasedIntentRecognitionServiceImpl;
+import com.huawei.chataidesign.service.intent.IntentResultCache;
+import com.huawei.chataidesign.service.intent.IntentTelemetry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 意图识别基准测试
+ *
+ * 在不启动 Spring 容器的情况下装配 ModelBasedIntentRecognitionServiceImpl，使用 classpath 上的分类模型和默认关键词规则，
+ * 关闭大模型兜底，测量 recognizeIntent 在中文、英文、中英混合语料上的吞吐量；cache=false 时每次都走本地识别。
+ * 更新关键词规则或分类模型后与基线的 jmh-result.json 对比吞吐量和 gc.alloc.rate.norm。
+ * 运行：mvn -Pjmh test-compile exec:exec -Djmh.include=IntentRecognitionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class IntentRecognitionBenchmark {
+
+    @Param({"zh", "en", "mixed"})
+    private String corpus;
+
+    @Param({"false", "true"})
+    private boolean cache;
+
+    private ModelBasedIntentRecognitionServiceImpl service;
+    private String[] inputs;
+    private int inputIndex;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        IntentRecognitionConfig config = new IntentRecognitionConfig();
+        config.getCache().setEnabled(cache);
+        config.getClassifier().setLlmFallbackEnabled(false);
+
+        IntentResultCache intentResultCache = new IntentResultCache();
+        ReflectionTestUtils.setField(intentResultCache, "intentRecognitionConfig", config);
+        ReflectionTestUtils.setField(intentResultCache, "meterRegistry", meterRegistry);
+        intentResultCache.init();
+
+        IntentTelemetry intentTelemetry = new IntentTelemetry();
+        ReflectionTestUtils.setField(intentTelemetry, "intentRecognitionConfig", config);
+        ReflectionTestUtils.setField(intentTelemetry, "meterRegistry", meterRegistry);
+        intentTelemetry.init();
+
+        service = new ModelBasedIntentRecognitionServiceImpl();
+        ReflectionTestUtils.setField(service, "defaultConfidenceThreshold", 0.7);
+        ReflectionTestUtils.setField(service, "intentRecognitionConfig", config);
+        ReflectionTestUtils.setField(service, "intentResultCache", intentResultCache);
+        ReflectionTestUtils.setField(service, "intentTelemetry", intentTelemetry);
+        ReflectionTestUtils.setField(service, "resourceLoader", new DefaultResourceLoader());
+        service.init();
+
+        inputs = BenchmarkCorpus.load(corpus);
+    }
+
+    @Benchmark
+    public IntentClassification recognizeIntent() {
+        return service.recognizeIntent(nextInput(), null);
+    }
+
+    private String nextInput() {
+        inputIndex = (inputIndex + 1) % inputs.length;
+        return inputs[inputIndex];
+    }
+}
@@ -0,0 +1,113 @@
+package com.huawei.chataidesign.benchmark;
+
+import com.huawei.chataidesign.config.IntentRecognitionConfig;
+import com.huawei.chataidesign.config.IntentRecognitionConfig.KeywordRule;
+import com.huawei.chataidesign.entity.IntentType;
+import com.huawei.chataidesign.service.intent.KeywordAutomaton;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 意图关键词匹配基准测试
+ *
+ * 对比关键词自动机单次扫描与逐个 String.contains 的单次识别耗时，关键词数从几十增长到几千。
+ * 运行：mvn -Pjmh test-compile exec:exec -Djmh.include=KeywordAutomatonBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class KeywordAutomatonBenchmark {
+
+    private static final String[] INPUTS = {
+            "我想学习Java编程，应该从哪里开始？",
+            "Spring Boot中的@Autowired注解是如何工作的？",
+            "Java面试经常问哪些多线程问题？",
+            "我想做一个电商项目，有什么建议吗？",
+            "你好",
+            "线上服务偶尔出现 OutOfMemoryError，堆转储里大部分是 byte 数组，应该从哪些方面排查内存泄漏？"
+    };
+
+    private static final IntentType[] INTENTS = {
+            IntentType.LEARNING_PATH, IntentType.PROJECT_GUIDANCE, IntentType.INTERVIEW_PREPARATION,
+            IntentType.TECHNICAL_QUESTION, IntentType.GREETING
+    };
+
+    @Param({"50", "500", "5000"})
+    private int keywordCount;
+
+    private KeywordAutomaton automaton;
+    private String[] keywords;
+    private int[] keywordIntents;
+    private int inputIndex;
+
+    @Setup
+    public void setUp() {
+        List<KeywordRule> rules = new ArrayList<>(new IntentRecognitionConfig().getKeywordRules());
+        Random random = new Random(42);
+        int existing = rules.stream().mapToInt(rule -> rule.getKeywords().size()).sum();
+        for (int i = existing; i < keywordCount; i++) {
+            rules.add(KeywordRule.of(INTENTS[i % INTENTS.length], 1.0, randomKeyword(random)));
+        }
+        automaton = new KeywordAutomaton(rules);
+
+        List<String> flatKeywords = new ArrayList<>();
+        List<Integer> flatIntents = new ArrayList<>();
+        for (KeywordRule rule : rules) {
+            for (String keyword : rule.getKeywords()) {
+                flatKeywords.add(keyword.toLowerCase());
+                flatIntents.add(rule.getIntent().ordinal());
+            }
+        }
+        keywords = flatKeywords.toArray(new String[0]);
+        keywordIntents = flatIntents.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Benchmark
+    public IntentType automaton() {
+        return automaton.scan(nextInput()).best();
+    }
+
+    /**
+     * 原实现的做法：每个关键词对输入做一次完整查找
+     */
+    @Benchmark
+    public double[] containsChain() {
+        String input = nextInput().toLowerCase();
+        double[] scores = new double[IntentType.values().length];
+        for (int i = 0; i < keywords.length; i++) {
+            if (input.contains(keywords[i])) {
+                scores[keywordIntents[i]] += 1.0;
+            }
+        }
+        return scores;
+    }
+
+    private String nextInput() {
+        inputIndex = (inputIndex + 1) % INPUTS.length;
+        return INPUTS[inputIndex];
+    }
+
+    /**
+     * 两到四个常用汉字组成的关键词，与真实输入共享字符以产生部分匹配
+     */
+    private static String randomKeyword(Random random) {
+        String alphabet = "学习项目面试技术问题如何开发编程数据库线程内存框架架构设计性能优化部署测试";
+        int length = 2 + random.nextInt(3);
+        StringBuilder keyword = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            keyword.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return keyword.toString();
+    }
+}
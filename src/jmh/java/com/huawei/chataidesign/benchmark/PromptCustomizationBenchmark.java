@@ -0,0 +1,55 @@
+package com.huawei.chataidesign.benchmark;
+
+import com.huawei.chataidesign.entity.IntentClassification;
+import com.huawei.chataidesign.entity.IntentType;
+import com.huawei.chataidesign.service.chat.IntentPromptCustomizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 提示词定制基准测试
+ *
+ * 测量 EnhancedAiChatServiceImpl.customizeMessageByIntent 所用的 IntentPromptCustomizer.customize，
+ * 意图在带提示和不带提示的类型间轮换，输入取自基准测试语料。
+ * 运行：mvn -Pjmh test-compile exec:exec -Djmh.include=PromptCustomizationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PromptCustomizationBenchmark {
+
+    private static final IntentType[] INTENTS = {
+            IntentType.LEARNING_PATH, IntentType.TECHNICAL_QUESTION, IntentType.INTERVIEW_PREPARATION,
+            IntentType.GREETING, IntentType.CODE_REVIEW, IntentType.OTHER
+    };
+
+    @Param({"zh", "en", "mixed"})
+    private String corpus;
+
+    private String[] inputs;
+    private IntentClassification[] intents;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        inputs = BenchmarkCorpus.load(corpus);
+        intents = new IntentClassification[INTENTS.length];
+        for (int i = 0; i < INTENTS.length; i++) {
+            intents[i] = new IntentClassification(INTENTS[i], 0.9, null);
+        }
+    }
+
+    @Benchmark
+    public String customize() {
+        index++;
+        return IntentPromptCustomizer.customize(intents[index % intents.length], inputs[index % inputs.length]);
+    }
+}
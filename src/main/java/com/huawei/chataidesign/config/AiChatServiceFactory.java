@@ -1,17 +1,38 @@
 package com.huawei.chataidesign.config;
 
+import com.huawei.chataidesign.repository.memory.BoundedChatMemoryStore;
+import com.huawei.chataidesign.repository.memory.MeteredChatMemory;
+import com.huawei.chataidesign.repository.memory.TokenBudgetChatMemory;
 import com.huawei.chataidesign.service.AiChatService;
+import com.huawei.chataidesign.service.IntentRecognitionService;
+import com.huawei.chataidesign.service.chat.AdaptiveConcurrencyLimiter;
+import com.huawei.chataidesign.service.chat.SemanticResponseCache;
+import com.huawei.chataidesign.service.impl.ConcurrencyLimitedAiChatService;
+import com.huawei.chataidesign.service.impl.SemanticCachingAiChatService;
+import com.huawei.chataidesign.service.impl.SingleFlightAiChatService;
+import dev.langchain4j.community.model.dashscope.QwenChatModel;
+import dev.langchain4j.community.model.dashscope.QwenStreamingChatModel;
 import dev.langchain4j.mcp.McpToolProvider;
 import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
 
 import dev.langchain4j.service.AiServices;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.Resource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 @Configuration
 public class AiChatServiceFactory {
@@ -26,19 +47,166 @@ public class AiChatServiceFactory {
 
     @Resource
     private McpToolProvider mcpToolProvider;
+
+    @Resource
+    private ChatMemoryStore chatMemoryStore;
+
+    @Resource
+    private BoundedChatMemoryStore localChatMemoryStore;
+
+    @Resource
+    private ChatMemoryConfig chatMemoryConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private SemanticCacheConfig semanticCacheConfig;
+
+    @Resource
+    private SemanticResponseCache semanticResponseCache;
+
+    @Resource
+    private IntentRecognitionService intentRecognitionService;
+
+    @Resource
+    private ModelRoutingConfig modelRoutingConfig;
+
+    @Resource
+    private SingleFlightConfig singleFlightConfig;
+
+    @Resource
+    private ModelConcurrencyConfig modelConcurrencyConfig;
+
+    @Value("${langchain4j.community.dashscope.chat-model.api-key:}")
+    private String dashscopeApiKey;
+
     @Bean
     public AiChatService aiChatService() {
-        ChatMemory chatMemory = MessageWindowChatMemory.builder()
-                .maxMessages(20)
-                .build();
         AiChatService aiChatService = AiServices.builder(AiChatService.class)
                 .chatModel(qwenChatModel)
                 .streamingChatModel(qwenStreamingChatModel)
-                .chatMemory(chatMemory)
-                .chatMemoryProvider(memoryId -> MessageWindowChatMemory.withMaxMessages(20))
+                .chatMemoryProvider(chatMemoryProvider())
                 .contentRetriever(contentRetriever)
                 .toolProvider(mcpToolProvider)
                 .build();
+        // 会话被淘汰时同步释放 AiServices 内部按 memoryId 缓存的 ChatMemory 实例，会话本身保留在存储中
+        AiChatService largeAiChatService = aiChatService;
+        localChatMemoryStore.addEvictionListener(
+                memoryId -> MeteredChatMemory.evictCachedInstance(largeAiChatService, memoryId));
+        // 限流放在最内层，紧贴模型调用：命中语义缓存或合并到其他请求的提问不占名额；
+        // 但接口层在建立 SSE 响应前按名额提前拒绝，过载时这类提问也会收到 503，见 AIStreamController.admit
+        if (modelConcurrencyConfig.isEnabled()) {
+            aiChatService = new ConcurrencyLimitedAiChatService(aiChatService, largeModelLimiter());
+        }
+        if (semanticCacheConfig.isEnabled()) {
+            aiChatService = new SemanticCachingAiChatService(
+                    aiChatService,
+                    semanticResponseCache,
+                    intentRecognitionService,
+                    chatMemoryStore,
+                    loadSystemPrompt(),
+                    semanticCacheConfig.getReplayChunkChars());
+        }
+        // 合并放在语义缓存外层：缓存未命中时，同一时刻的相同提问只会有一个请求去查缓存和调用模型
+        if (singleFlightConfig.isEnabled()) {
+            aiChatService = new SingleFlightAiChatService(
+                    aiChatService,
+                    chatMemoryStore,
+                    loadSystemPrompt(),
+                    singleFlightConfig.getMaxInFlight(),
+                    meterRegistry);
+        }
         return aiChatService;
     }
+
+    /**
+     * 小模型聊天服务：供意图路由把简单问题交给小模型，不做检索也不挂工具，与大模型共用会话记忆
+     * 不作为按类型注入的候选，避免与 aiChatService 冲突，使用方按名称注入
+     */
+    @Bean(autowireCandidate = false)
+    public AiChatService smallAiChatService() {
+        ModelRoutingConfig.SmallModelConfig small = modelRoutingConfig.getSmallModel();
+        String apiKey = small.getApiKey() != null && !small.getApiKey().isBlank() ? small.getApiKey() : dashscopeApiKey;
+        AiChatService smallAiChatService = AiServices.builder(AiChatService.class)
+                .chatModel(QwenChatModel.builder()
+                        .apiKey(apiKey)
+                        .modelName(small.getModelName())
+                        .temperature(small.getTemperature())
+                        .maxTokens(small.getMaxTokens())
+                        .build())
+                .streamingChatModel(QwenStreamingChatModel.builder()
+                        .apiKey(apiKey)
+                        .modelName(small.getModelName())
+                        .temperature(small.getTemperature())
+                        .maxTokens(small.getMaxTokens())
+                        .build())
+                .chatMemoryProvider(chatMemoryProvider())
+                .build();
+        localChatMemoryStore.addEvictionListener(
+                memoryId -> MeteredChatMemory.evictCachedInstance(smallAiChatService, memoryId));
+        if (modelConcurrencyConfig.isEnabled()) {
+            return new ConcurrencyLimitedAiChatService(smallAiChatService, smallModelLimiter());
+        }
+        return smallAiChatService;
+    }
+
+    /**
+     * 大模型调用的并发限流器，接口层据此在建立 SSE 响应前提前拒绝
+     */
+    @Bean
+    public AdaptiveConcurrencyLimiter largeModelLimiter() {
+        return new AdaptiveConcurrencyLimiter("large", modelConcurrencyConfig, meterRegistry);
+    }
+
+    /**
+     * 小模型调用的并发限流器，与大模型分开计算名额
+     */
+    @Bean(autowireCandidate = false)
+    public AdaptiveConcurrencyLimiter smallModelLimiter() {
+        return new AdaptiveConcurrencyLimiter("small", modelConcurrencyConfig, meterRegistry);
+    }
+
+    /**
+     * 消息统一落在有界存储中，ChatMemory 本身只是无状态的视图，多个聊天服务可共用同一会话；
+     * 不经模型直接回复的路径也通过它写入会话，与模型调用走同样的窗口和 token 预算淘汰
+     */
+    @Bean
+    public ChatMemoryProvider chatMemoryProvider() {
+        DistributionSummary promptTokens = DistributionSummary.builder("chat.memory.prompt.tokens")
+                .description("每次请求携带的会话上下文 token 估算值")
+                .tag("mode", chatMemoryConfig.getMode())
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Counter compactions = meterRegistry.counter("chat.memory.compactions");
+        return memoryId -> new MeteredChatMemory(createChatMemory(memoryId, compactions), promptTokens);
+    }
+
+    private String loadSystemPrompt() {
+        try {
+            return new ClassPathResource("system-prompt.txt").getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to load system-prompt.txt", e);
+        }
+    }
+
+    /**
+     * 根据配置的记忆模式创建会话记忆
+     */
+    private ChatMemory createChatMemory(Object memoryId, Counter compactions) {
+        if ("token-budget".equalsIgnoreCase(chatMemoryConfig.getMode())) {
+            return new TokenBudgetChatMemory(
+                    memoryId,
+                    chatMemoryStore,
+                    chatMemoryConfig.getMaxTokens(),
+                    chatMemoryConfig.getKeepRecentMessages(),
+                    chatMemoryConfig.getSummaryMaxChars(),
+                    compactions);
+        }
+        return MessageWindowChatMemory.builder()
+                .id(memoryId)
+                .maxMessages(chatMemoryConfig.getMaxMessages())
+                .chatMemoryStore(chatMemoryStore)
+                .build();
+    }
 }
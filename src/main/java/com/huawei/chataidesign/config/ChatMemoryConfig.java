@@ -0,0 +1,102 @@
+package com.huawei.chataidesign.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 会话记忆配置类
+ * 用于管理 AiServices 会话记忆的存储方式与容量上限
+ */
+@Component
+@Data
+@ConfigurationProperties(prefix = "chat.memory")
+public class ChatMemoryConfig {
+
+    /**
+     * 每个会话保留的最大消息数
+     */
+    private int maxMessages = 20;
+
+    /**
+     * 记忆模式：window 按消息条数截断；token-budget 按 token 预算压缩
+     */
+    private String mode = "window";
+
+    /**
+     * token-budget 模式下会话上下文的 token 上限
+     */
+    private int maxTokens = 4000;
+
+    /**
+     * token-budget 模式下原样保留的最近消息条数
+     */
+    private int keepRecentMessages = 6;
+
+    /**
+     * token-budget 模式下历史摘要的最大字符数
+     */
+    private int summaryMaxChars = 800;
+
+    /**
+     * 存储类型：local 仅本地内存；redis 本地热数据层 + Redis 持久层
+     */
+    private String store = "local";
+
+    /**
+     * 本地存储配置
+     */
+    private LocalConfig local = new LocalConfig();
+
+    /**
+     * Redis 存储配置
+     */
+    private RedisTierConfig redis = new RedisTierConfig();
+
+    /**
+     * 本地存储配置内部类
+     */
+    @Data
+    public static class LocalConfig {
+        /**
+         * 最大会话数，超过后按最近最少使用淘汰
+         */
+        private int maxConversations = 10000;
+
+        /**
+         * 所有会话消息的估算总字节数上限
+         */
+        private long maxBytes = 64L * 1024 * 1024;
+
+        /**
+         * 会话空闲过期时间（分钟）
+         */
+        private int ttlMinutes = 60;
+    }
+
+    /**
+     * Redis 存储配置内部类
+     */
+    @Data
+    public static class RedisTierConfig {
+        /**
+         * 会话在 Redis 中的 key 前缀
+         */
+        private String keyPrefix = "chat:memory:";
+
+        /**
+         * 会话在 Redis 中的过期时间（秒）
+         */
+        private long ttlSeconds = 7 * 24 * 60 * 60;
+
+        /**
+         * 异步刷写间隔（毫秒）
+         */
+        private long flushIntervalMillis = 200;
+
+        /**
+         * 每个管道批次最多写入的会话数
+         */
+        private int flushBatchSize = 100;
+    }
+}
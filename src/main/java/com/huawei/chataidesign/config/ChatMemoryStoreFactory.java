@@ -0,0 +1,64 @@
+package com.huawei.chataidesign.config;
+
+import com.huawei.chataidesign.repository.memory.BoundedChatMemoryStore;
+import com.huawei.chataidesign.repository.memory.TieredChatMemoryStore;
+import com.huawei.chataidesign.repository.redis.RedisRepository;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Configuration
+public class ChatMemoryStoreFactory {
+    @Resource
+    private ChatMemoryConfig chatMemoryConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private RedisRepository redisRepository;
+
+    /**
+     * 本地有界会话存储（热数据层）
+     */
+    @Bean
+    public BoundedChatMemoryStore localChatMemoryStore() {
+        ChatMemoryConfig.LocalConfig local = chatMemoryConfig.getLocal();
+        log.info("Local chat memory store initialized with maxConversations={}, maxBytes={}, ttl={} minutes",
+                local.getMaxConversations(), local.getMaxBytes(), local.getTtlMinutes());
+        return new BoundedChatMemoryStore(
+                local.getMaxConversations(),
+                local.getMaxBytes(),
+                TimeUnit.MINUTES.toMillis(local.getTtlMinutes()),
+                meterRegistry);
+    }
+
+    /**
+     * AiServices 使用的会话存储
+     */
+    @Bean
+    @Primary
+    public ChatMemoryStore chatMemoryStore(BoundedChatMemoryStore localChatMemoryStore) {
+        if (!"redis".equalsIgnoreCase(chatMemoryConfig.getStore())) {
+            return localChatMemoryStore;
+        }
+        ChatMemoryConfig.RedisTierConfig redis = chatMemoryConfig.getRedis();
+        log.info("Tiered chat memory store initialized with keyPrefix={}, flushInterval={}ms, batchSize={}",
+                redis.getKeyPrefix(), redis.getFlushIntervalMillis(), redis.getFlushBatchSize());
+        return new TieredChatMemoryStore(
+                localChatMemoryStore,
+                redisRepository,
+                redis.getKeyPrefix(),
+                redis.getTtlSeconds(),
+                redis.getFlushBatchSize(),
+                redis.getFlushIntervalMillis(),
+                meterRegistry);
+    }
+}
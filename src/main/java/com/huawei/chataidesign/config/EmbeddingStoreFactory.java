@@ -0,0 +1,45 @@
+package com.huawei.chataidesign.config;
+
+import com.huawei.chataidesign.repository.embedding.HnswEmbeddingStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+@Slf4j
+@Configuration
+public class EmbeddingStoreFactory {
+    @Resource
+    private VectorStoreConfig vectorStoreConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 进程内 HNSW 向量库，启动时从索引文件恢复，关闭时保存
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean(name = "embeddingStore")
+    @ConditionalOnProperty(prefix = "rag.vector-store", name = "type", havingValue = "hnsw", matchIfMissing = true)
+    public HnswEmbeddingStore embeddingStore() {
+        String indexPath = vectorStoreConfig.getIndexPath();
+        Path path = indexPath == null || indexPath.isBlank() ? null : Paths.get(indexPath);
+        HnswEmbeddingStore store = new HnswEmbeddingStore(
+                vectorStoreConfig.getM(),
+                vectorStoreConfig.getEfConstruction(),
+                vectorStoreConfig.getEfSearch(),
+                path,
+                meterRegistry);
+        store.load();
+        log.info("HNSW embedding store initialized with m={}, efConstruction={}, efSearch={}, {} vectors",
+                vectorStoreConfig.getM(), vectorStoreConfig.getEfConstruction(), vectorStoreConfig.getEfSearch(),
+                store.size());
+        return store;
+    }
+}
@@ -1,9 +1,13 @@
 package com.huawei.chataidesign.config;
 
+import com.huawei.chataidesign.entity.IntentType;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * 意图识别配置类
  * 用于管理意图识别相关的配置参数
@@ -24,20 +28,58 @@ public class IntentRecognitionConfig {
     private CacheConfig cache = new CacheConfig();
     
     /**
-     * 默认置信度阈值
+     * 批量识别配置
+     */
+    private BatchConfig batch = new BatchConfig();
+    
+    /**
+     * 本地分类模型配置
+     */
+    private ClassifierConfig classifier = new ClassifierConfig();
+    
+    /**
+     * 遥测配置
+     */
+    private TelemetryConfig telemetry = new TelemetryConfig();
+    
+    /**
+     * 默认置信度阈值，本地识别低于该值时才调用大模型
      */
     private double defaultConfidenceThreshold = 0.7;
     
+    /**
+     * 关键词识别达到最高置信度所需的得分，得分不足时置信度按比例降低，单个低权重关键词不会越过置信度阈值
+     */
+    private double keywordFullConfidenceScore = 2.0;
+    
     /**
      * 最大输入长度限制
      */
     private int maxInputLength = 1000;
     
+    /**
+     * 流式对话中等待意图识别的最长时间（毫秒），超时则按原始问题回答
+     */
+    private long streamTimeoutMillis = 500;
+    
     /**
      * 日志级别
      */
     private String logLevel = "INFO";
     
+    /**
+     * 关键词规则，编译为一个多模式匹配自动机；规则顺序决定得分相同时的意图优先级
+     */
+    private List<KeywordRule> keywordRules = new ArrayList<>(List.of(
+            KeywordRule.of(IntentType.LEARNING_PATH, 2.0, "学习", "路线"),
+            KeywordRule.of(IntentType.LEARNING_PATH, 1.0, "学"),
+            KeywordRule.of(IntentType.PROJECT_GUIDANCE, 2.0, "项目", "练手"),
+            KeywordRule.of(IntentType.INTERVIEW_PREPARATION, 2.0, "面试", "求职"),
+            KeywordRule.of(IntentType.TECHNICAL_QUESTION, 1.0, "技术"),
+            KeywordRule.of(IntentType.TECHNICAL_QUESTION, 0.5, "问题", "怎么", "如何"),
+            KeywordRule.of(IntentType.GREETING, 1.0, "你好", "hello", "hi")
+    ));
+    
     /**
      * 缓存配置内部类
      */
@@ -57,6 +99,119 @@ public class IntentRecognitionConfig {
          * 缓存最大条目数
          */
         private int maxSize = 10000;
+        
+        /**
+         * 是否启用 Redis 共享缓存，多实例部署时共享识别结果
+         */
+        private boolean redisEnabled = false;
+        
+        /**
+         * Redis 缓存键前缀
+         */
+        private String redisKeyPrefix = "intent:result:";
+    }
+    
+    /**
+     * 批量识别配置内部类
+     */
+    @Data
+    public static class BatchConfig {
+        /**
+         * 单次 JSON 数组请求允许的最大输入条数，更大的批量请使用 NDJSON 流式接口
+         */
+        private int maxBatchSize = 1000;
+        
+        /**
+         * 每个任务处理的输入条数
+         */
+        private int chunkSize = 32;
+        
+        /**
+         * 批量识别线程数
+         */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        
+        /**
+         * 等待执行的任务上限，队列满时由提交线程自己执行
+         */
+        private int queueCapacity = 256;
+    }
+    
+    /**
+     * 本地分类模型配置内部类
+     */
+    @Data
+    public static class ClassifierConfig {
+        /**
+         * 是否启用本地 n-gram 分类模型，未启用时只使用关键词规则
+         */
+        private boolean enabled = true;
+        
+        /**
+         * 模型文件位置，由测试源码中的 IntentClassifierTrainer 离线训练生成
+         */
+        private String modelPath = "classpath:intent/intent-model.bin";
+        
+        /**
+         * 本地识别置信度不足时是否调用大模型
+         * 默认关闭：种子样本训练出的模型对样本外输入置信度普遍偏低，开启后大部分请求都会同步调用大模型
+         */
+        private boolean llmFallbackEnabled = false;
+        
+        /**
+         * 调用大模型识别的最长等待时间（毫秒），超时则使用本地识别结果
+         */
+        private long llmFallbackTimeoutMillis = 1500;
+    }
+    
+    /**
+     * 遥测配置
+     */
+    @Data
+    public static class TelemetryConfig {
+        /**
+         * 置信度低于该值的输入计入低置信度样本
+         */
+        private double lowConfidenceThreshold = 0.7;
+        
+        /**
+         * 低置信度样本的采样率，每 N 个保留 1 个
+         */
+        private int sampleRate = 1;
+        
+        /**
+         * 低置信度样本环形缓冲区容量，向上取整为 2 的幂
+         */
+        private int ringBufferSize = 1024;
+    }
+    
+    /**
+     * 关键词规则：一组关键词及其所属意图和权重
+     */
+    @Data
+    public static class KeywordRule {
+        /**
+         * 所属意图
+         */
+        private IntentType intent;
+        
+        /**
+         * 每个命中关键词累加到意图上的权重
+         */
+        private double weight = 1.0;
+        
+        /**
+         * 关键词，忽略大小写
+         */
+        private List<String> keywords = new ArrayList<>();
+        
+        public static KeywordRule of(IntentType intent, double weight, String... keywords) {
+            KeywordRule rule = new KeywordRule();
+            rule.setIntent(intent);
+            rule.setWeight(weight);
+            rule.setKeywords(new ArrayList<>(List.of(keywords)));
+            return rule;
+        }
     }
     
     /**
@@ -64,7 +219,10 @@ public class IntentRecognitionConfig {
      */
     public boolean isValid() {
         return defaultConfidenceThreshold >= 0.0 && defaultConfidenceThreshold <= 1.0 &&
+               keywordFullConfidenceScore > 0 &&
                maxInputLength > 0 &&
-               cache.ttlMinutes > 0;
+               cache.ttlMinutes > 0 &&
+               batch.maxBatchSize > 0 && batch.chunkSize > 0 && batch.parallelism > 0 &&
+               keywordRules.stream().allMatch(rule -> rule.intent != null && rule.weight > 0);
     }
 }
\ No newline at end of file
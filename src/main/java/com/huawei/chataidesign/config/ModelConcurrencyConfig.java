@@ -0,0 +1,60 @@
+package com.huawei.chataidesign.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 模型调用并发限流的配置类
+ * 并发上限按 AIMD 自适应：首字延迟正常时缓慢增加，超时、被限流或首字过慢时按比例收缩
+ */
+@Component
+@Data
+@ConfigurationProperties(prefix = "chat.model-concurrency")
+public class ModelConcurrencyConfig {
+
+    /**
+     * 是否限制模型调用并发
+     */
+    private boolean enabled = true;
+
+    /**
+     * 初始并发上限
+     */
+    private int initialLimit = 16;
+
+    /**
+     * 并发上限的下界
+     */
+    private int minLimit = 2;
+
+    /**
+     * 并发上限的上界
+     */
+    private int maxLimit = 128;
+
+    /**
+     * 过载时并发上限乘以该系数
+     */
+    private double backoffRatio = 0.9;
+
+    /**
+     * 首字延迟超过该值视为过载（毫秒）
+     */
+    private long latencyThresholdMillis = 15000;
+
+    /**
+     * 等待队列总长度，排满后新请求直接返回 503
+     */
+    private int maxQueueSize = 200;
+
+    /**
+     * 单个用户在等待队列中的请求数上限
+     */
+    private int maxQueuePerUser = 4;
+
+    /**
+     * 排队等待的最长时间（毫秒），超时返回 503
+     */
+    private long maxQueueWaitMillis = 10000;
+}
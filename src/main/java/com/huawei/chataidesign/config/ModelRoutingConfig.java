@@ -0,0 +1,124 @@
+package com.huawei.chataidesign.config;
+
+import com.huawei.chataidesign.entity.IntentType;
+import com.huawei.chataidesign.entity.ModelRoute;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 按意图路由模型的配置类
+ */
+@Component
+@Data
+@ConfigurationProperties(prefix = "chat.model-routing")
+public class ModelRoutingConfig {
+
+    /**
+     * 是否按意图路由模型，关闭时所有请求都走大模型
+     */
+    private boolean enabled = true;
+
+    /**
+     * 意图置信度低于该值时不信任路由表，走大模型
+     */
+    private double minConfidence = 0.75;
+
+    /**
+     * 走模板路由的输入最多字符数（归一化后），更长的输入视为夹带了真实问题，改走大模型
+     */
+    private int templateMaxChars = 12;
+
+    /**
+     * 未单独配置的意图使用的路由
+     */
+    private ModelRoute defaultRoute = ModelRoute.LARGE;
+
+    /**
+     * 各意图的路由
+     */
+    private Map<IntentType, ModelRoute> routes = defaultRoutes();
+
+    /**
+     * 模板路由的回复内容，路由为模板但未配置回复的意图改走小模型
+     */
+    private Map<IntentType, String> templates = defaultTemplates();
+
+    /**
+     * 各路由每千 token 的估算费用（元），用于费用指标
+     */
+    private Map<ModelRoute, Double> costPerThousandTokens = defaultCosts();
+
+    /**
+     * 小模型配置
+     */
+    private SmallModelConfig smallModel = new SmallModelConfig();
+
+    /**
+     * 获取意图对应的路由
+     */
+    public ModelRoute routeOf(IntentType intentType) {
+        ModelRoute route = intentType != null ? routes.get(intentType) : null;
+        return route != null ? route : defaultRoute;
+    }
+
+    @Data
+    public static class SmallModelConfig {
+
+        /**
+         * 小模型名称
+         */
+        private String modelName = "qwen-turbo";
+
+        /**
+         * 小模型的 API Key，为空时使用大模型的 API Key
+         */
+        private String apiKey;
+
+        /**
+         * 采样温度
+         */
+        private Float temperature = 0.7f;
+
+        /**
+         * 最大输出 token 数
+         */
+        private Integer maxTokens = 1024;
+    }
+
+    private static Map<IntentType, ModelRoute> defaultRoutes() {
+        Map<IntentType, ModelRoute> routes = new EnumMap<>(IntentType.class);
+        // 寒暄和意图不明确时只需引导用户说明需求，本地模板即可
+        routes.put(IntentType.GREETING, ModelRoute.TEMPLATE);
+        routes.put(IntentType.UNCLEAR, ModelRoute.TEMPLATE);
+        // 简单问答交给小模型
+        routes.put(IntentType.FEEDBACK, ModelRoute.SMALL);
+        routes.put(IntentType.SYSTEM_QUERY, ModelRoute.SMALL);
+        routes.put(IntentType.JOB_SEARCH, ModelRoute.SMALL);
+        // 需要推理或结合知识库的意图使用大模型
+        routes.put(IntentType.TECHNICAL_QUESTION, ModelRoute.LARGE);
+        routes.put(IntentType.CODE_REVIEW, ModelRoute.LARGE);
+        routes.put(IntentType.DEBUGGING_HELP, ModelRoute.LARGE);
+        return routes;
+    }
+
+    private static Map<IntentType, String> defaultTemplates() {
+        Map<IntentType, String> templates = new EnumMap<>(IntentType.class);
+        templates.put(IntentType.GREETING,
+                "你好！我是编程学习小助手，可以帮你规划学习路线、推荐练手项目、优化简历和准备面试。请问你想了解哪方面的内容？");
+        templates.put(IntentType.UNCLEAR,
+                "我还不太确定你想了解什么。能再具体说说吗？比如想学习的技术方向、正在做的项目，或者准备面试的岗位。");
+        return templates;
+    }
+
+    private static Map<ModelRoute, Double> defaultCosts() {
+        Map<ModelRoute, Double> costs = new EnumMap<>(ModelRoute.class);
+        costs.put(ModelRoute.TEMPLATE, 0.0);
+        costs.put(ModelRoute.SMALL, 0.0006);
+        costs.put(ModelRoute.LARGE, 0.004);
+        return costs;
+    }
+}
@@ -1,19 +1,29 @@
 package com.huawei.chataidesign.config;
 
-import dev.langchain4j.data.document.Document;
-import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
-import dev.langchain4j.data.document.splitter.DocumentByParagraphSplitter;
+import com.huawei.chataidesign.repository.lexical.Bm25Index;
+import com.huawei.chataidesign.repository.redis.RedisRepository;
+import com.huawei.chataidesign.service.rag.Bm25ContentRetriever;
+import com.huawei.chataidesign.service.rag.CachingEmbeddingModel;
+import com.huawei.chataidesign.service.rag.EmbeddingPipeline;
+import com.huawei.chataidesign.service.rag.HybridContentRetriever;
+import com.huawei.chataidesign.service.rag.PrefetchingContentRetriever;
+import com.huawei.chataidesign.service.rag.QueryRoutingContentRetriever;
+import com.huawei.chataidesign.service.rag.RagIngestionService;
+import com.huawei.chataidesign.service.rag.ReadinessAwareContentRetriever;
+import com.huawei.chataidesign.thread.ThreadPool;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
 import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.Resource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class RagConfig {
@@ -23,34 +33,110 @@ public class RagConfig {
     @Resource
     private EmbeddingStore<TextSegment> embeddingStore;
 
+    @Resource
+    private RagIngestionConfig ragIngestionConfig;
+
+    @Resource
+    private RagRetrievalConfig ragRetrievalConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private RedisRepository redisRepository;
+
+    /**
+     * 查询向量化模型：在向量模型前加一层查询向量缓存，重复或相同的提问不再远程向量化
+     * 不作为按类型注入的候选，避免与 qwenEmbeddingModel 冲突，使用方按名称注入
+     */
+    @Bean(autowireCandidate = false)
+    public EmbeddingModel queryEmbeddingModel() {
+        RagRetrievalConfig.QueryEmbeddingCacheConfig cache = ragRetrievalConfig.getQueryEmbeddingCache();
+        if (!cache.isEnabled()) {
+            return qwenEmbeddingModel;
+        }
+        return new CachingEmbeddingModel(
+                qwenEmbeddingModel,
+                cache.getMaxEntries(),
+                TimeUnit.MINUTES.toMillis(cache.getTtlMinutes()),
+                cache.isRedisEnabled() ? redisRepository : null,
+                cache.getRedisKeyPrefix(),
+                cache.getRedisTtlSeconds(),
+                meterRegistry);
+    }
+
+    /**
+     * 关键词倒排索引，与向量库共用片段ID，由入库流程增量维护
+     */
     @Bean
-    public ContentRetriever contentRetriever() {
+    public Bm25Index bm25Index() {
+        return new Bm25Index();
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public EmbeddingPipeline embeddingPipeline() {
+        return new EmbeddingPipeline(qwenEmbeddingModel, ragIngestionConfig.getEmbedding(), meterRegistry);
+    }
+
+    @Bean
+    public RagIngestionService ragIngestionService(EmbeddingPipeline embeddingPipeline, Bm25Index bm25Index) {
+        return new RagIngestionService(embeddingPipeline, embeddingStore, bm25Index, ragIngestionConfig);
+    }
+
+    /**
+     * 内容检索器：按本轮识别出的意图决定是否检索、返回片段数和文档范围
+     */
+    @Bean
+    public QueryRoutingContentRetriever contentRetriever(PrefetchingContentRetriever prefetchingContentRetriever) {
+        return new QueryRoutingContentRetriever(prefetchingContentRetriever, ragRetrievalConfig, meterRegistry);
+    }
+
+    /**
+     * 预取检索器：对话入口可在意图识别的同时预取检索结果
+     */
+    @Bean
+    public PrefetchingContentRetriever prefetchingContentRetriever(RagIngestionService ragIngestionService,
+                                                                   Bm25Index bm25Index) {
+        EmbeddingModel queryEmbeddingModel = queryEmbeddingModel();
+        // 按意图路由时先多取候选，再按意图过滤文档范围并截断
+        int maxResults = ragRetrievalConfig.getIntentRouting().isEnabled()
+                ? Math.max(ragRetrievalConfig.getMaxResults(), ragRetrievalConfig.getIntentRouting().getCandidates())
+                : ragRetrievalConfig.getMaxResults();
         // ------ RAG ------
-        // 1. 加载文档
-        List<Document> documents = FileSystemDocumentLoader.loadDocuments("src/main/resources/rag-docs");
-        // 2. 文档切割：将每个文档按每段进行分割，最大 1000 字符，每次重叠最多 200 个字符
-        DocumentByParagraphSplitter paragraphSplitter = new DocumentByParagraphSplitter(1000, 200);
-        // 3. 自定义文档加载器
-        EmbeddingStoreIngestor ingestor = EmbeddingStoreIngestor.builder()
-                .documentSplitter(paragraphSplitter)
-                // 为了提高搜索质量，为每个 TextSegment 添加文档名称
-                .textSegmentTransformer(textSegment -> TextSegment.from(
-                        textSegment.metadata().getString("file_name") + "\n" + textSegment.text(),
-                        textSegment.metadata()
-                ))
-                // 使用指定的向量模型
-                .embeddingModel(qwenEmbeddingModel)
-                .embeddingStore(embeddingStore)
-                .build();
-        // 加载文档
-        ingestor.ingest(documents);
-        // 4. 自定义内容查询器
-        ContentRetriever contentRetriever = EmbeddingStoreContentRetriever.builder()
+        // 1. 增量入库由 RagIngestionRunner 在后台执行：只为新增或修改的片段调用向量模型，其余向量从本地快照恢复
+        // 2. 自定义内容查询器，入库完成前返回部分结果
+        if (!ragRetrievalConfig.isHybridEnabled()) {
+            ContentRetriever contentRetriever = EmbeddingStoreContentRetriever.builder()
+                    .embeddingStore(embeddingStore)
+                    .embeddingModel(queryEmbeddingModel)
+                    .maxResults(maxResults) // 最多返回的检索结果数
+                    .minScore(ragRetrievalConfig.getMinScore()) // 过滤掉相关度低于阈值的结果
+                    .build();
+            return prefetching(new ReadinessAwareContentRetriever(contentRetriever, ragIngestionService.getProgress()));
+        }
+        // 3. 混合检索：向量检索与关键词检索各取候选，按倒数排名融合
+        ContentRetriever vectorRetriever = EmbeddingStoreContentRetriever.builder()
                 .embeddingStore(embeddingStore)
-                .embeddingModel(qwenEmbeddingModel)
-                .maxResults(5) // 最多 5 个检索结果
-                .minScore(0.75) // 过滤掉分数小于 0.75 的结果
+                .embeddingModel(queryEmbeddingModel)
+                .maxResults(ragRetrievalConfig.getCandidatesPerRetriever())
+                .minScore(ragRetrievalConfig.getMinScore())
                 .build();
-        return contentRetriever;
+        ContentRetriever lexicalRetriever = new Bm25ContentRetriever(
+                bm25Index, ragRetrievalConfig.getCandidatesPerRetriever(), ragRetrievalConfig.getLexicalMinScore());
+        Map<String, ContentRetriever> retrievers = new LinkedHashMap<>();
+        retrievers.put("vector", vectorRetriever);
+        retrievers.put("bm25", lexicalRetriever);
+        ContentRetriever hybridRetriever = new HybridContentRetriever(
+                retrievers, maxResults, ragRetrievalConfig.getRrfK(), meterRegistry);
+        return prefetching(new ReadinessAwareContentRetriever(hybridRetriever, ragIngestionService.getProgress()));
+    }
+
+    private PrefetchingContentRetriever prefetching(ContentRetriever retriever) {
+        return new PrefetchingContentRetriever(
+                retriever,
+                ThreadPool.getInstance(),
+                ragRetrievalConfig.getPrefetchTimeoutMillis(),
+                TimeUnit.SECONDS.toMillis(ragRetrievalConfig.getPrefetchRetentionSeconds()),
+                meterRegistry);
     }
 }
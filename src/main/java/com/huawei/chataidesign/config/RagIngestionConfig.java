@@ -0,0 +1,83 @@
+package com.huawei.chataidesign.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * RAG 文档入库配置类
+ */
+@Component
+@Data
+@ConfigurationProperties(prefix = "rag.ingestion")
+public class RagIngestionConfig {
+
+    /**
+     * 知识库文档目录
+     */
+    private String docsPath = "src/main/resources/rag-docs";
+
+    /**
+     * 入库清单与向量快照的存放目录
+     */
+    private String snapshotDir = "data/rag";
+
+    /**
+     * 每个文本片段的最大字符数
+     */
+    private int maxSegmentChars = 1000;
+
+    /**
+     * 相邻文本片段的最大重叠字符数
+     */
+    private int maxOverlapChars = 200;
+
+    /**
+     * 是否在后台线程中入库，关闭后在启动阶段同步入库
+     */
+    private boolean async = true;
+
+    /**
+     * 是否以入库完成作为就绪条件，默认只在健康检查中展示进度
+     */
+    private boolean gateReadiness = false;
+
+    /**
+     * 向量化流水线配置
+     */
+    private EmbeddingConfig embedding = new EmbeddingConfig();
+
+    @Data
+    public static class EmbeddingConfig {
+
+        /**
+         * 每次请求向量模型的片段数，DashScope text-embedding-v3 单次最多 10 条
+         */
+        private int batchSize = 10;
+
+        /**
+         * 同时进行的向量化请求数
+         */
+        private int parallelism = 4;
+
+        /**
+         * 每秒最多发起的向量化请求数，小于等于0表示不限制
+         */
+        private double requestsPerSecond = 20;
+
+        /**
+         * 单个批次的最大尝试次数（含首次）
+         */
+        private int maxAttempts = 4;
+
+        /**
+         * 首次重试前的等待时间，之后按指数增长
+         */
+        private long initialBackoffMillis = 500;
+
+        /**
+         * 重试等待时间上限
+         */
+        private long maxBackoffMillis = 10000;
+    }
+}
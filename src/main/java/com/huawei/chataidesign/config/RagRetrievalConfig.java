@@ -0,0 +1,172 @@
+package com.huawei.chataidesign.config;
+
+import com.huawei.chataidesign.entity.IntentType;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RAG 检索配置类
+ */
+@Component
+@Data
+@ConfigurationProperties(prefix = "rag.retrieval")
+public class RagRetrievalConfig {
+
+    /**
+     * 最终返回给模型的最大片段数
+     */
+    private int maxResults = 5;
+
+    /**
+     * 向量检索的最低相关度
+     */
+    private double minScore = 0.75;
+
+    /**
+     * 是否融合关键词检索结果
+     */
+    private boolean hybridEnabled = true;
+
+    /**
+     * 融合前每路检索的候选数
+     */
+    private int candidatesPerRetriever = 10;
+
+    /**
+     * 关键词检索的最低 BM25 分数，过滤只命中常见词的片段
+     */
+    private double lexicalMinScore = 1.0;
+
+    /**
+     * 倒数排名融合的平滑常数
+     */
+    private int rrfK = 60;
+
+    /**
+     * 模型调用时等待预取检索结果的最长时间（毫秒），超时则不带上下文回答
+     */
+    private long prefetchTimeoutMillis = 3000;
+
+    /**
+     * 未被消费的预取结果保留时间（秒）
+     */
+    private long prefetchRetentionSeconds = 30;
+
+    /**
+     * 查询向量缓存配置
+     */
+    private QueryEmbeddingCacheConfig queryEmbeddingCache = new QueryEmbeddingCacheConfig();
+
+    /**
+     * 按意图路由检索的配置
+     */
+    private IntentRoutingConfig intentRouting = new IntentRoutingConfig();
+
+    @Data
+    public static class QueryEmbeddingCacheConfig {
+
+        /**
+         * 是否缓存查询向量
+         */
+        private boolean enabled = true;
+
+        /**
+         * 本地最多缓存的向量数
+         */
+        private int maxEntries = 10000;
+
+        /**
+         * 本地缓存过期时间（分钟）
+         */
+        private long ttlMinutes = 24 * 60;
+
+        /**
+         * 是否启用 Redis 第二级缓存
+         */
+        private boolean redisEnabled = false;
+
+        /**
+         * Redis 键前缀
+         */
+        private String redisKeyPrefix = "rag:query-embedding:";
+
+        /**
+         * Redis 缓存过期时间（秒），默认 7 天
+         */
+        private long redisTtlSeconds = 7 * 24 * 3600;
+    }
+
+    @Data
+    public static class IntentRoutingConfig {
+
+        /**
+         * 是否按意图决定是否检索、返回片段数和检索的文档范围
+         */
+        private boolean enabled = true;
+
+        /**
+         * 按意图过滤前的候选片段数，需不少于各意图的返回片段数
+         */
+        private int candidates = 15;
+
+        /**
+         * 各意图的检索规则，未配置的意图按默认片段数检索全部文档
+         */
+        private Map<IntentType, IntentRetrievalRule> rules = defaultRules();
+
+        private static Map<IntentType, IntentRetrievalRule> defaultRules() {
+            Map<IntentType, IntentRetrievalRule> rules = new EnumMap<>(IntentType.class);
+            // 寒暄、反馈和系统使用问题与知识库无关
+            rules.put(IntentType.GREETING, IntentRetrievalRule.disabled());
+            rules.put(IntentType.FEEDBACK, IntentRetrievalRule.disabled());
+            rules.put(IntentType.SYSTEM_QUERY, IntentRetrievalRule.disabled());
+            rules.put(IntentType.UNCLEAR, IntentRetrievalRule.disabled());
+            rules.put(IntentType.LEARNING_PATH,
+                    IntentRetrievalRule.of(4, "java编程学习路线.md", "大模型Agent学习路线.md"));
+            rules.put(IntentType.PROJECT_GUIDANCE, IntentRetrievalRule.of(3, "java项目学习建议.md"));
+            rules.put(IntentType.INTERVIEW_PREPARATION,
+                    IntentRetrievalRule.of(5, "程序员常见面试题.md", "大模型Agent常见面试题.md", "求职指南.md"));
+            rules.put(IntentType.JOB_SEARCH, IntentRetrievalRule.of(3, "求职指南.md"));
+            rules.put(IntentType.RESUME_OPTIMIZATION, IntentRetrievalRule.of(3, "求职指南.md"));
+            return rules;
+        }
+    }
+
+    @Data
+    public static class IntentRetrievalRule {
+
+        /**
+         * 是否检索
+         */
+        private boolean enabled = true;
+
+        /**
+         * 返回片段数，为空时使用 maxResults
+         */
+        private Integer maxResults;
+
+        /**
+         * 只保留来自这些文档的片段，为空表示不限；范围内没有结果时退回全部文档的结果
+         */
+        private List<String> fileNames = new ArrayList<>();
+
+        public static IntentRetrievalRule disabled() {
+            IntentRetrievalRule rule = new IntentRetrievalRule();
+            rule.setEnabled(false);
+            return rule;
+        }
+
+        public static IntentRetrievalRule of(int maxResults, String... fileNames) {
+            IntentRetrievalRule rule = new IntentRetrievalRule();
+            rule.setMaxResults(maxResults);
+            rule.setFileNames(new ArrayList<>(List.of(fileNames)));
+            return rule;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.huawei.chataidesign.config;
+
+import com.huawei.chataidesign.entity.IntentType;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 语义响应缓存配置类
+ */
+@Component
+@Data
+@ConfigurationProperties(prefix = "chat.semantic-cache")
+public class SemanticCacheConfig {
+
+    /**
+     * 是否启用语义缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 命中所需的最小余弦相似度
+     */
+    private double similarityThreshold = 0.95;
+
+    /**
+     * 缓存最大条目数
+     */
+    private int maxEntries = 2000;
+
+    /**
+     * 未单独配置的意图使用的过期时间（分钟）
+     */
+    private int defaultTtlMinutes = 60;
+
+    /**
+     * 各意图的过期时间（分钟），0 表示该意图不缓存
+     */
+    private Map<IntentType, Integer> intentTtlMinutes = defaultIntentTtlMinutes();
+
+    /**
+     * 回放缓存答案时每个分片的字符数
+     */
+    private int replayChunkChars = 16;
+
+    /**
+     * 获取意图对应的过期时间（分钟）
+     */
+    public int ttlMinutesOf(IntentType intentType) {
+        Integer ttl = intentType != null ? intentTtlMinutes.get(intentType) : null;
+        return ttl != null ? ttl : defaultTtlMinutes;
+    }
+
+    private static Map<IntentType, Integer> defaultIntentTtlMinutes() {
+        Map<IntentType, Integer> ttl = new EnumMap<>(IntentType.class);
+        // 知识库覆盖的稳定问题缓存更久
+        ttl.put(IntentType.LEARNING_PATH, 24 * 60);
+        ttl.put(IntentType.INTERVIEW_PREPARATION, 24 * 60);
+        ttl.put(IntentType.JOB_SEARCH, 24 * 60);
+        ttl.put(IntentType.PROJECT_GUIDANCE, 12 * 60);
+        ttl.put(IntentType.TECHNICAL_QUESTION, 6 * 60);
+        // 依赖用户具体代码或上下文的意图不缓存
+        ttl.put(IntentType.CODE_REVIEW, 0);
+        ttl.put(IntentType.DEBUGGING_HELP, 0);
+        ttl.put(IntentType.RESUME_OPTIMIZATION, 0);
+        ttl.put(IntentType.FEEDBACK, 0);
+        ttl.put(IntentType.UNCLEAR, 0);
+        return ttl;
+    }
+}
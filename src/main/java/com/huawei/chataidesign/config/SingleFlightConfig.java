@@ -0,0 +1,24 @@
+package com.huawei.chataidesign.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 相同提问合并生成的配置类
+ */
+@Component
+@Data
+@ConfigurationProperties(prefix = "chat.single-flight")
+public class SingleFlightConfig {
+
+    /**
+     * 是否合并生成：新会话中归一化后相同、意图相同的并发提问共用一次上游生成
+     */
+    private boolean enabled = true;
+
+    /**
+     * 同时进行中的合并生成数上限，超出后新的提问不再参与合并
+     */
+    private int maxInFlight = 1024;
+}
@@ -0,0 +1,102 @@
+package com.huawei.chataidesign.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * SSE 流式输出配置类
+ */
+@Component
+@Data
+@ConfigurationProperties(prefix = "chat.sse")
+public class SseStreamConfig {
+
+    /**
+     * 是否把模型输出的片段合并成帧再发送，关闭时每个片段单独发送一个事件
+     */
+    private boolean coalesceEnabled = true;
+
+    /**
+     * 合并时间窗口（毫秒），帧中第一个片段最多等待这么久就发送
+     */
+    private long coalesceWindowMillis = 20;
+
+    /**
+     * 帧内累计字符数达到该值时不等时间窗口立即发送
+     */
+    private int maxFrameChars = 256;
+
+    /**
+     * 单个流的最长持续时间（分钟），超时后发送错误事件并结束
+     */
+    private long timeoutMinutes = 5;
+
+    /**
+     * 是否在弹性线程池上订阅模型流，避免检索、记忆读取等阻塞调用占用 Tomcat 工作线程
+     */
+    private boolean offloadEnabled = true;
+
+    /**
+     * SSE 写出线程池配置
+     */
+    private WriterConfig writer = new WriterConfig();
+
+    /**
+     * 断线续传配置
+     */
+    private ReplayConfig replay = new ReplayConfig();
+
+    @Data
+    public static class WriterConfig {
+
+        /**
+         * 运行在 Java 21 及以上时是否改用虚拟线程，每次写出一个虚拟线程，不受线程池大小限制
+         */
+        private boolean virtualThreads = true;
+
+        /**
+         * 平台线程池线程数，线程按需创建、空闲后回收；只有全部线程都在写出时才进入队列
+         */
+        private int poolSize = 256;
+
+        /**
+         * 平台线程池队列容量
+         */
+        private int queueCapacity = 10000;
+    }
+
+    @Data
+    public static class ReplayConfig {
+
+        /**
+         * 是否为 /api/ai/stream 的回答分配事件ID并缓存已生成的帧，客户端断线后可凭 Last-Event-ID 续传
+         */
+        private boolean enabled = true;
+
+        /**
+         * 每路流最多缓存的帧数，超出后覆盖最早的帧
+         */
+        private int maxFramesPerStream = 4096;
+
+        /**
+         * 生成结束后缓存保留的时间（秒）
+         */
+        private long retentionSeconds = 120;
+
+        /**
+         * 所有流缓存的字符总数上限，超出时先淘汰已结束的流，再淘汰无人接收的流
+         */
+        private long maxTotalChars = 8_000_000;
+
+        /**
+         * 生成结束时是否把完整回答写入 Redis，重连落到其他实例时仍可续传
+         */
+        private boolean redisEnabled = false;
+
+        /**
+         * Redis key 前缀
+         */
+        private String redisKeyPrefix = "chat:sse:stream:";
+    }
+}
@@ -0,0 +1,39 @@
+package com.huawei.chataidesign.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 向量库配置类
+ */
+@Component
+@Data
+@ConfigurationProperties(prefix = "rag.vector-store")
+public class VectorStoreConfig {
+
+    /**
+     * 向量库类型：hnsw 使用进程内 HNSW 索引，其他值表示由外部提供名为 embeddingStore 的 Bean
+     */
+    private String type = "hnsw";
+
+    /**
+     * 每层每个节点的最大邻居数
+     */
+    private int m = 16;
+
+    /**
+     * 建图时的候选集大小
+     */
+    private int efConstruction = 200;
+
+    /**
+     * 检索时的候选集大小，调大提高召回率，调小降低延迟
+     */
+    private int efSearch = 100;
+
+    /**
+     * 索引文件路径，为空时不持久化
+     */
+    private String indexPath = "data/rag/hnsw.idx";
+}
@@ -3,15 +3,29 @@ package com.huawei.chataidesign.config;
 import com.huawei.chataidesign.config.interceptor.AuthenticationInterceptor;
 import com.huawei.chataidesign.config.interceptor.RequestLoggingInterceptor;
 import com.huawei.chataidesign.config.interceptor.UserInfoInterceptor;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
 @Configuration
 public class WebMvcConfig implements WebMvcConfigurer {
 
+    /**
+     * 虚拟线程从 Java 21 起可用
+     */
+    private static final int VIRTUAL_THREADS_FEATURE_VERSION = 21;
+
     @Resource
     private RequestLoggingInterceptor requestLoggingInterceptor;
 
@@ -21,6 +35,11 @@ public class WebMvcConfig implements WebMvcConfigurer {
     @Resource
     private AuthenticationInterceptor authenticationInterceptor;
 
+    @Resource
+    private SseStreamConfig sseStreamConfig;
+
+    private AsyncTaskExecutor sseWriteExecutor;
+
 
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
@@ -46,4 +65,49 @@ public class WebMvcConfig implements WebMvcConfigurer {
                 .allowedHeaders("*")
                 .allowCredentials(true);
     }
+
+    /**
+     * 异步请求（SSE 流）的写出线程池和超时
+     * Flux 返回值的每个元素都在该线程池上阻塞写出，默认的 applicationTaskExecutor 线程数太少，
+     * 数千路并发流时写出会排队，首字延迟随之升高
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        sseWriteExecutor = createSseWriteExecutor();
+        configurer.setTaskExecutor(sseWriteExecutor);
+        // 比流本身的超时多留一分钟，保证先由流发送超时错误事件
+        configurer.setDefaultTimeout(TimeUnit.MINUTES.toMillis(sseStreamConfig.getTimeoutMinutes() + 1));
+    }
+
+    /**
+     * 不注册为 Bean，避免 Spring Boot 因存在 Executor Bean 而不再创建 applicationTaskExecutor
+     */
+    private AsyncTaskExecutor createSseWriteExecutor() {
+        SseStreamConfig.WriterConfig writer = sseStreamConfig.getWriter();
+        if (writer.isVirtualThreads() && Runtime.version().feature() >= VIRTUAL_THREADS_FEATURE_VERSION) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("sse-write-");
+            executor.setVirtualThreads(true);
+            log.info("SSE writes use virtual threads");
+            return executor;
+        }
+        // 线程池只在队列满后才扩到最大线程数，核心线程数等于最大线程数才能让慢客户端的写出不在队列中排队，
+        // 空闲的核心线程允许超时回收
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("sse-write-");
+        executor.setCorePoolSize(writer.getPoolSize());
+        executor.setMaxPoolSize(writer.getPoolSize());
+        executor.setQueueCapacity(writer.getQueueCapacity());
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        log.info("SSE writes use a thread pool with size={}, queue={}", writer.getPoolSize(), writer.getQueueCapacity());
+        return executor;
+    }
+
+    @PreDestroy
+    public void shutdownSseWriteExecutor() {
+        if (sseWriteExecutor instanceof ThreadPoolTaskExecutor executor) {
+            executor.shutdown();
+        }
+    }
 }
@@ -1,18 +1,26 @@
 package com.huawei.chataidesign.controller;
 
+import com.huawei.chataidesign.config.SseStreamConfig;
 import com.huawei.chataidesign.entity.request.IntentPromptReq;
 import com.huawei.chataidesign.entity.request.PromptReq;
 import com.huawei.chataidesign.entity.response.CommonResponse;
+import com.huawei.chataidesign.exception.ChatAiDesignException;
 import com.huawei.chataidesign.service.AiChatService;
 import com.huawei.chataidesign.service.EnhancedAiChatService;
+import com.huawei.chataidesign.service.chat.AdaptiveConcurrencyLimiter;
+import com.huawei.chataidesign.service.chat.ResumableStreamRegistry;
+import com.huawei.chataidesign.service.chat.SseFrameCoalescer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.Duration;
 
@@ -27,17 +35,40 @@ public class AIStreamController {
     @Resource
     private EnhancedAiChatService enhancedAiChatService;
 
+    @Resource
+    private SseFrameCoalescer sseFrameCoalescer;
+
+    @Resource
+    private SseStreamConfig sseStreamConfig;
+
+    @Resource
+    private ResumableStreamRegistry resumableStreamRegistry;
+
+    @Resource
+    private AdaptiveConcurrencyLimiter largeModelLimiter;
+
     @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    @Operation(summary = "AI流式聊天", description = "传统的流式AI聊天接口")
+    @Operation(summary = "AI流式聊天", description = "传统的流式AI聊天接口，断线后带 Last-Event-ID 重新请求可从断点续传")
     public Flux<ServerSentEvent<String>> streamAIResponseWithChatService(
-            @RequestBody @Parameter(description = "聊天请求") PromptReq promptReq) {
+            @RequestBody @Parameter(description = "聊天请求") PromptReq promptReq,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        if (lastEventId != null && resumableStreamRegistry.isEnabled()) {
+            return resumeStream(lastEventId);
+        }
         log.info("Received AI stream request with prompt: {}", promptReq.getPrompt());
-        return aiChatService.chatWithStream(promptReq.getMemoryId(), promptReq.getPrompt())
-                .map(chunk -> ServerSentEvent
+        String caller = admit();
+        Flux<String> frames = aiChatService.chatWithStream(promptReq.getMemoryId(), promptReq.getPrompt())
+                .contextWrite(AdaptiveConcurrencyLimiter.withCaller(caller))
+                .transform(this::offload)
+                .transform(sseFrameCoalescer::coalesce);
+        Flux<ServerSentEvent<String>> events = resumableStreamRegistry.isEnabled()
+                ? resumableStreamRegistry.start(frames, caller).map(this::toEvent)
+                : frames.map(chunk -> ServerSentEvent
                         .<String>builder()
                         .data(chunk)
-                        .build())
-                .timeout(Duration.ofMinutes(5)) // 设置较长的超时时间
+                        .build());
+        return events
+                .timeout(Duration.ofMinutes(sseStreamConfig.getTimeoutMinutes())) // 设置较长的超时时间
                 .onErrorResume(throwable -> {
                     log.error("Error during streaming", throwable);
                     return Flux.just(ServerSentEvent.<String>builder()
@@ -46,6 +77,31 @@ public class AIStreamController {
                             .build());
                 });
     }
+
+    @GetMapping(value = "/stream/resume", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "AI流式聊天续传", description = "按 Last-Event-ID 补发断线期间生成的内容，供 EventSource 自动重连使用")
+    public Flux<ServerSentEvent<String>> resumeStream(
+            @RequestHeader("Last-Event-ID") @Parameter(description = "最后收到的事件ID") String lastEventId) {
+        log.info("Resuming AI stream from event: {}", lastEventId);
+        Flux<ResumableStreamRegistry.StreamFrame> frames;
+        try {
+            frames = resumableStreamRegistry.resume(lastEventId, AdaptiveConcurrencyLimiter.currentCaller());
+        } catch (ChatAiDesignException e) {
+            // 建立 SSE 响应前返回 400/403/410，EventSource 据此停止重连，而不是当作可重试的错误
+            log.warn("Cannot resume stream from event {}: {}", lastEventId, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.valueOf(e.getErrorCode()), e.getMessage());
+        }
+        return frames
+                .map(this::toEvent)
+                .timeout(Duration.ofMinutes(sseStreamConfig.getTimeoutMinutes()))
+                .onErrorResume(throwable -> {
+                    log.warn("Failed to resume stream from event {}: {}", lastEventId, throwable.getMessage());
+                    return Flux.just(ServerSentEvent.<String>builder()
+                            .event("error")
+                            .data("Error occurred during streaming: " + throwable.getMessage())
+                            .build());
+                });
+    }
     
     @PostMapping(value = "/stream-with-intent", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     @Operation(summary = "带意图识别的AI流式聊天", description = "集成意图识别的流式AI聊天接口")
@@ -56,12 +112,16 @@ public class AIStreamController {
         // 如果启用了意图识别，则使用增强版服务
         if (intentPromptReq.getEnableIntentRecognition() != null && 
             intentPromptReq.getEnableIntentRecognition()) {
+            // 意图路由可能不调用大模型，这里不提前拒绝，只传递调用方
             return enhancedAiChatService.chatWithIntentRecognition(intentPromptReq)
+                    .contextWrite(AdaptiveConcurrencyLimiter.withCaller(AdaptiveConcurrencyLimiter.currentCaller()))
+                    .transform(this::offload)
+                    .transform(sseFrameCoalescer::coalesce)
                     .map(chunk -> ServerSentEvent
                             .<String>builder()
                             .data(chunk)
                             .build())
-                    .timeout(Duration.ofMinutes(5))
+                    .timeout(Duration.ofMinutes(sseStreamConfig.getTimeoutMinutes()))
                     .onErrorResume(throwable -> {
                         log.error("Error during intent-aware streaming", throwable);
                         return Flux.just(ServerSentEvent.<String>builder()
@@ -71,12 +131,16 @@ public class AIStreamController {
                     });
         } else {
             // 否则回退到普通聊天
+            String caller = admit();
             return aiChatService.chatWithStream(intentPromptReq.getMemoryId(), intentPromptReq.getPrompt())
+                    .contextWrite(AdaptiveConcurrencyLimiter.withCaller(caller))
+                    .transform(this::offload)
+                    .transform(sseFrameCoalescer::coalesce)
                     .map(chunk -> ServerSentEvent
                             .<String>builder()
                             .data(chunk)
                             .build())
-                    .timeout(Duration.ofMinutes(5))
+                    .timeout(Duration.ofMinutes(sseStreamConfig.getTimeoutMinutes()))
                     .onErrorResume(throwable -> {
                         log.error("Error during streaming", throwable);
                         return Flux.just(ServerSentEvent.<String>builder()
@@ -102,4 +166,33 @@ public class AIStreamController {
             return org.springframework.http.ResponseEntity.status(500).body(errorResponse);
         }
     }
+
+    /**
+     * 在请求线程上取出调用方用户，随流传给模型调用的限流器；大模型名额已满且排不上队时直接返回 503，
+     * SSE 响应一旦建立状态码就固定为 200，之后的拒绝只能以 error 事件返回。
+     * 这里的判断是悲观的：它发生在语义缓存和请求合并之前，过载时本可由缓存命中或合并回答的请求也会被拒绝；
+     * 要先查缓存就得在请求线程上计算向量，过载时这部分开销反而更不划算
+     */
+    private String admit() {
+        String caller = AdaptiveConcurrencyLimiter.currentCaller();
+        if (largeModelLimiter.wouldReject(caller)) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Model is overloaded, please retry later");
+        }
+        return caller;
+    }
+
+    /**
+     * 在弹性线程池上订阅模型流：检索、读取会话记忆等阻塞调用发生在订阅时，
+     * 不放到 Tomcat 工作线程上，请求线程返回 Flux 后立即释放
+     */
+    private Flux<String> offload(Flux<String> chunks) {
+        return sseStreamConfig.isOffloadEnabled() ? chunks.subscribeOn(Schedulers.boundedElastic()) : chunks;
+    }
+
+    private ServerSentEvent<String> toEvent(ResumableStreamRegistry.StreamFrame frame) {
+        return ServerSentEvent.<String>builder()
+                .id(frame.eventId())
+                .data(frame.data())
+                .build();
+    }
 }
@@ -5,14 +5,17 @@ import com.huawei.chataidesign.entity.request.IntentPromptReq;
 import com.huawei.chataidesign.entity.response.IntentResponse;
 import com.huawei.chataidesign.service.EnhancedAiChatService;
 import com.huawei.chataidesign.service.IntentRecognitionService;
+import com.huawei.chataidesign.service.intent.IntentTelemetry;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * 意图识别控制器
@@ -30,6 +33,9 @@ public class IntentRecognitionController {
     @Resource
     private EnhancedAiChatService enhancedAiChatService;
     
+    @Resource
+    private IntentTelemetry intentTelemetry;
+    
     @PostMapping("/recognize")
     @Operation(summary = "意图识别", description = "识别用户输入的意图类型")
     public ResponseEntity<IntentResponse<IntentClassification>> recognizeIntent(
@@ -68,6 +74,10 @@ public class IntentRecognitionController {
             
             return ResponseEntity.ok(response);
             
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected batch intent recognition request: {}", e.getMessage());
+            IntentResponse<IntentClassification[]> errorResponse = new IntentResponse<>(400, e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
         } catch (Exception e) {
             log.error("Failed to batch recognize intents", e);
             IntentResponse<IntentClassification[]> errorResponse = 
@@ -76,6 +86,20 @@ public class IntentRecognitionController {
         }
     }
     
+    @PostMapping(value = "/batch-recognize/stream",
+            consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "流式批量意图识别", description = "逐行读取 NDJSON 输入并逐行返回识别结果，不受批量条数上限限制")
+    public ResponseEntity<StreamingResponseBody> batchRecognizeIntentsStream(HttpServletRequest request) {
+        log.info("Received streaming batch intent recognition request");
+        StreamingResponseBody body = output -> {
+            long start = System.currentTimeMillis();
+            long count = intentRecognitionService.recognizeIntents(request.getInputStream(), output);
+            log.info("Streamed {} intent recognition results in {} ms", count, System.currentTimeMillis() - start);
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
     @GetMapping("/types")
     @Operation(summary = "获取支持的意图类型", description = "返回系统支持的所有意图类型及其描述")
     public ResponseEntity<IntentResponse<String>> getIntentTypes() {
@@ -108,6 +132,12 @@ public class IntentRecognitionController {
         }
     }
     
+    @GetMapping("/telemetry")
+    @Operation(summary = "获取意图识别遥测", description = "返回按策略和意图统计的结果数、各策略平均耗时和置信度分布")
+    public ResponseEntity<IntentResponse<IntentTelemetry.Snapshot>> getTelemetry() {
+        return ResponseEntity.ok(new IntentResponse<>(200, "Success", intentTelemetry.snapshot()));
+    }
+    
     @DeleteMapping("/cache")
     @Operation(summary = "清除意图识别缓存", description = "清除意图识别服务的缓存数据")
     public ResponseEntity<IntentResponse<String>> clearCache() {
@@ -1,12 +1,20 @@
 package com.huawei.chataidesign.entity;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+
 import java.io.Serializable;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 /**
  * 意图分类结果实体类
  * 用于存储用户输入的意图识别结果
+ *
+ * 创建时只记录毫秒时间戳，处理时间在首次读取（如序列化）时才转换为 LocalDateTime。
  */
 @Data
 public class IntentClassification implements Serializable {
@@ -44,10 +52,17 @@ public class IntentClassification implements Serializable {
     private String entities;
     
     /**
-     * 处理时间
+     * 处理时间，首次读取时由 processedAtMillis 生成
      */
     private LocalDateTime processedAt;
     
+    /**
+     * 创建时的毫秒时间戳
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private long processedAtMillis;
+    
     /**
      * 是否需要进一步确认
      */
@@ -59,7 +74,7 @@ public class IntentClassification implements Serializable {
     private String suggestedAction;
     
     public IntentClassification() {
-        this.processedAt = LocalDateTime.now();
+        this.processedAtMillis = System.currentTimeMillis();
         this.needsConfirmation = false;
     }
     
@@ -69,4 +84,19 @@ public class IntentClassification implements Serializable {
         this.confidence = confidence;
         this.userInput = userInput;
     }
+    
+    public IntentClassification(String intentId, IntentType primaryIntent, Double confidence, String userInput,
+                                String intentDescription, String suggestedAction) {
+        this(primaryIntent, confidence, userInput);
+        this.intentId = intentId;
+        this.intentDescription = intentDescription;
+        this.suggestedAction = suggestedAction;
+    }
+    
+    public LocalDateTime getProcessedAt() {
+        if (processedAt == null) {
+            processedAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(processedAtMillis), ZoneId.systemDefault());
+        }
+        return processedAt;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.huawei.chataidesign.entity;
+
+import lombok.Getter;
+
+/**
+ * 模型路由枚举
+ * 定义按意图选择的回答方式
+ */
+@Getter
+public enum ModelRoute {
+
+    TEMPLATE("template", "本地模板回复"),
+    SMALL("small", "小模型"),
+    LARGE("large", "大模型");
+
+    private final String code;
+    private final String displayName;
+
+    ModelRoute(String code, String displayName) {
+        this.code = code;
+        this.displayName = displayName;
+    }
+}
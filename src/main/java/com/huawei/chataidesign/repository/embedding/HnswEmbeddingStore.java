@@ -0,0 +1,1007 @@
+package com.huawei.chataidesign.repository.embedding;
+
+import com.huawei.chataidesign.utils.JacksonUtil;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 基于 HNSW 图的进程内近似最近邻向量库
+ *
+ * 向量归一化后按节点顺序存放在分块的 float[] 中，邻接表为每个节点一个 int[]，不为向量创建对象；
+ * 检索复杂度约为 O(log n)，通过 efSearch 在召回率与延迟之间取舍。
+ * 删除采用墓碑标记，被删节点仍参与图导航但不出现在结果中，墓碑过多时整体重建。
+ * 支持以内存映射文件持久化，重启后无需重新建图。
+ */
+@Slf4j
+public class HnswEmbeddingStore implements EmbeddingStore<TextSegment>, AutoCloseable {
+
+    /**
+     * 索引文件头："HNSW"
+     */
+    private static final int FILE_MAGIC = 0x484E5357;
+    private static final int FILE_VERSION = 1;
+
+    /**
+     * 每个向量分块容纳的节点数，避免百万级向量时分配单个超大数组
+     */
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final int MAX_LEVEL = 16;
+
+    /**
+     * 墓碑占比超过该值时重建索引
+     */
+    private static final double REBUILD_DELETED_RATIO = 0.5;
+
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final Path indexPath;
+    private final Timer searchLatency;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<VisitedSet> visited = ThreadLocal.withInitial(VisitedSet::new);
+
+    private int dimension;
+    private int count;
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private float[][] vectorChunks = new float[0][];
+    private int[][] links = new int[0][];
+    private int[] levels = new int[0];
+    private String[] ids = new String[0];
+    private TextSegment[] segments = new TextSegment[0];
+    private final BitSet deleted = new BitSet();
+    private final Map<String, Integer> nodeById = new HashMap<>();
+    private volatile boolean dirty;
+
+    /**
+     * @param m 每层每个节点的最大邻居数，第0层为 2m
+     * @param efConstruction 建图时的候选集大小，越大图质量越高、写入越慢
+     * @param efSearch 检索时的候选集大小，越大召回率越高、检索越慢
+     * @param indexPath 索引文件路径，为 null 时不持久化
+     * @param meterRegistry 指标注册表
+     */
+    public HnswEmbeddingStore(int m, int efConstruction, int efSearch, Path indexPath, MeterRegistry meterRegistry) {
+        this.m = Math.max(2, m);
+        this.maxM0 = this.m * 2;
+        this.efConstruction = Math.max(this.m, efConstruction);
+        this.efSearch = Math.max(1, efSearch);
+        this.levelMultiplier = 1 / Math.log(this.m);
+        this.indexPath = indexPath;
+        this.searchLatency = Timer.builder("rag.vector.search.latency")
+                .tag("store", "hnsw")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("rag.vector.size", this, HnswEmbeddingStore::size)
+                .tag("store", "hnsw")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), List.of(textSegment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> newIds = new ArrayList<>(embeddings.size());
+        for (int i = 0; i < embeddings.size(); i++) {
+            newIds.add(UUID.randomUUID().toString());
+        }
+        addAll(newIds, embeddings, null);
+        return newIds;
+    }
+
+    /**
+     * 批量写入，ID 已存在且向量相同时只更新文本片段，向量不同时替换旧节点
+     */
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+        if (ids.size() != embeddings.size() || (embedded != null && embedded.size() != ids.size())) {
+            throw new IllegalArgumentException("ids, embeddings and embedded must have the same size");
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                insert(ids.get(i), normalize(embeddings.get(i).vector()), embedded == null ? null : embedded.get(i));
+            }
+            rebuildIfFragmented();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            for (String id : ids) {
+                Integer node = nodeById.remove(id);
+                if (node != null) {
+                    markDeleted(node);
+                }
+            }
+            rebuildIfFragmented();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        lock.writeLock().lock();
+        try {
+            for (int node = 0; node < count; node++) {
+                if (!deleted.get(node) && segments[node] != null && filter.test(segments[node].metadata())) {
+                    nodeById.remove(ids[node]);
+                    markDeleted(node);
+                }
+            }
+            rebuildIfFragmented();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            reset();
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        long start = System.nanoTime();
+        float[] query = normalize(request.queryEmbedding().vector());
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || query.length != dimension) {
+                return new EmbeddingSearchResult<>(List.of());
+            }
+            int maxResults = request.maxResults();
+            int ep = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                ep = greedySearch(query, ep, level);
+            }
+            int ef = Math.max(efSearch, maxResults);
+            while (true) {
+                long[] found = searchLayer(query, ep, ef, 0);
+                List<EmbeddingMatch<TextSegment>> matches = collect(found, maxResults, request.minScore(), request.filter());
+                boolean belowMinScore = found.length > 0
+                        && relevance(found[found.length - 1]) < request.minScore();
+                if (matches.size() >= maxResults || belowMinScore || ef >= count) {
+                    return new EmbeddingSearchResult<>(matches);
+                }
+                // 墓碑或过滤条件导致结果不足，扩大候选集重新检索
+                ef = Math.min(count, ef * 4);
+            }
+        } finally {
+            lock.readLock().unlock();
+            searchLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 有效向量数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 从索引文件加载，文件不存在或格式不兼容时返回 false
+     */
+    public boolean load() {
+        if (indexPath == null || !Files.exists(indexPath)) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try (MappedReader in = new MappedReader(indexPath)) {
+            if (in.getInt() != FILE_MAGIC || in.getInt() != FILE_VERSION) {
+                log.warn("Ignoring HNSW index {} with unknown format", indexPath);
+                return false;
+            }
+            int fileDimension = in.getInt();
+            int fileM = in.getInt();
+            if (fileM != m) {
+                log.warn("Ignoring HNSW index {} built with m={}, current m={}", indexPath, fileM, m);
+                return false;
+            }
+            reset();
+            dimension = fileDimension;
+            int fileCount = in.getInt();
+            int fileEntryPoint = in.getInt();
+            int fileMaxLevel = in.getInt();
+            ensureCapacity(fileCount);
+            for (int node = 0; node < fileCount; node += CHUNK_SIZE) {
+                int nodes = Math.min(CHUNK_SIZE, fileCount - node);
+                in.getFloats(vectorChunks[node >>> CHUNK_BITS], 0, nodes * dimension);
+            }
+            for (int node = 0; node < fileCount; node++) {
+                levels[node] = in.getInt();
+                int[] nodeLinks = new int[in.getInt()];
+                in.getInts(nodeLinks);
+                links[node] = nodeLinks;
+            }
+            for (int node = 0; node < fileCount; node++) {
+                ids[node] = new String(in.getBytes(), StandardCharsets.UTF_8);
+                if (in.getByte() == 1) {
+                    String text = new String(in.getBytes(), StandardCharsets.UTF_8);
+                    Map<?, ?> metadata = JacksonUtil.OBJECT_MAPPER.readValue(in.getBytes(), Map.class);
+                    segments[node] = TextSegment.from(text, Metadata.from(toStringKeys(metadata)));
+                }
+                if (in.getByte() == 1) {
+                    deleted.set(node);
+                    deletedCount++;
+                } else {
+                    nodeById.put(ids[node], node);
+                }
+            }
+            count = fileCount;
+            entryPoint = fileEntryPoint;
+            maxLevel = fileMaxLevel;
+            dirty = false;
+            log.info("Loaded HNSW index {} with {} vectors of dimension {}", indexPath, count - deletedCount, dimension);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to load HNSW index {}, starting empty", indexPath, e);
+            reset();
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 写入索引文件，先写临时文件再原子替换
+     */
+    public void save() throws IOException {
+        if (indexPath == null) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            if (indexPath.getParent() != null) {
+                Files.createDirectories(indexPath.getParent());
+            }
+            Path tmp = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+            try (MappedWriter out = new MappedWriter(tmp)) {
+                out.putInt(FILE_MAGIC);
+                out.putInt(FILE_VERSION);
+                out.putInt(dimension);
+                out.putInt(m);
+                out.putInt(count);
+                out.putInt(entryPoint);
+                out.putInt(maxLevel);
+                for (int node = 0; node < count; node += CHUNK_SIZE) {
+                    int nodes = Math.min(CHUNK_SIZE, count - node);
+                    out.putFloats(vectorChunks[node >>> CHUNK_BITS], 0, nodes * dimension);
+                }
+                for (int node = 0; node < count; node++) {
+                    out.putInt(levels[node]);
+                    out.putInt(links[node].length);
+                    out.putInts(links[node]);
+                }
+                for (int node = 0; node < count; node++) {
+                    out.putBytes(ids[node].getBytes(StandardCharsets.UTF_8));
+                    TextSegment segment = segments[node];
+                    out.putByte(segment == null ? (byte) 0 : (byte) 1);
+                    if (segment != null) {
+                        out.putBytes(segment.text().getBytes(StandardCharsets.UTF_8));
+                        out.putBytes(JacksonUtil.OBJECT_MAPPER.writeValueAsBytes(segment.metadata().toMap()));
+                    }
+                    out.putByte(deleted.get(node) ? (byte) 1 : (byte) 0);
+                }
+            }
+            Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+            log.info("Saved HNSW index {} with {} vectors", indexPath, count - deletedCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 关闭时持久化未保存的修改
+     */
+    @Override
+    public void close() {
+        if (!dirty) {
+            return;
+        }
+        try {
+            save();
+        } catch (IOException e) {
+            log.warn("Failed to save HNSW index {}", indexPath, e);
+        }
+    }
+
+    private void insert(String id, float[] vector, TextSegment segment) {
+        if (dimension == 0) {
+            dimension = vector.length;
+        } else if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected dimension " + dimension + " but got " + vector.length);
+        }
+        dirty = true;
+        Integer existing = nodeById.get(id);
+        if (existing != null) {
+            if (sameVector(existing, vector)) {
+                segments[existing] = segment;
+                return;
+            }
+            markDeleted(existing);
+        }
+
+        int node = count;
+        ensureCapacity(node + 1);
+        System.arraycopy(vector, 0, vectorChunks[node >>> CHUNK_BITS], (node & CHUNK_MASK) * dimension, dimension);
+        int level = randomLevel();
+        levels[node] = level;
+        links[node] = new int[linkOffset(level + 1)];
+        ids[node] = id;
+        segments[node] = segment;
+        nodeById.put(id, node);
+        count++;
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+        int ep = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            ep = greedySearch(vector, ep, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            long[] candidates = searchLayer(vector, ep, efConstruction, l);
+            int[] neighbours = selectNeighbours(candidates, m);
+            int offset = linkOffset(l);
+            links[node][offset] = neighbours.length;
+            System.arraycopy(neighbours, 0, links[node], offset + 1, neighbours.length);
+            for (int neighbour : neighbours) {
+                connect(neighbour, node, l);
+            }
+            ep = nodeOf(candidates[0]);
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * 为已有节点增加一条边，超出容量时用启发式重新挑选邻居
+     */
+    private void connect(int from, int to, int level) {
+        int[] nodeLinks = links[from];
+        int offset = linkOffset(level);
+        int size = nodeLinks[offset];
+        int capacity = level == 0 ? maxM0 : m;
+        if (size < capacity) {
+            nodeLinks[offset + 1 + size] = to;
+            nodeLinks[offset] = size + 1;
+            return;
+        }
+        long[] candidates = new long[size + 1];
+        for (int i = 0; i < size; i++) {
+            int neighbour = nodeLinks[offset + 1 + i];
+            candidates[i] = encode(distance(from, neighbour), neighbour);
+        }
+        candidates[size] = encode(distance(from, to), to);
+        Arrays.sort(candidates);
+        int[] selected = selectNeighbours(candidates, capacity);
+        nodeLinks[offset] = selected.length;
+        System.arraycopy(selected, 0, nodeLinks, offset + 1, selected.length);
+    }
+
+    /**
+     * 启发式挑选邻居：候选点离目标比离已选邻居都近时才选入，使边分布在不同方向上；
+     * 名额未满时再按距离补入被淘汰的候选点
+     *
+     * @param candidates 按距离升序排列的候选点
+     */
+    private int[] selectNeighbours(long[] candidates, int max) {
+        int[] selected = new int[Math.min(max, candidates.length)];
+        int size = 0;
+        long[] pruned = new long[candidates.length];
+        int prunedSize = 0;
+        for (long candidate : candidates) {
+            if (size == selected.length) {
+                break;
+            }
+            int node = nodeOf(candidate);
+            float distanceToTarget = distanceOf(candidate);
+            boolean diverse = true;
+            for (int i = 0; i < size; i++) {
+                if (distance(node, selected[i]) < distanceToTarget) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[size++] = node;
+            } else {
+                pruned[prunedSize++] = candidate;
+            }
+        }
+        for (int i = 0; i < prunedSize && size < selected.length; i++) {
+            selected[size++] = nodeOf(pruned[i]);
+        }
+        return size == selected.length ? selected : Arrays.copyOf(selected, size);
+    }
+
+    private int greedySearch(float[] query, int ep, int level) {
+        float best = distance(query, ep);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] nodeLinks = links[ep];
+            int offset = linkOffset(level);
+            int size = nodeLinks[offset];
+            for (int i = 1; i <= size; i++) {
+                int neighbour = nodeLinks[offset + i];
+                float d = distance(query, neighbour);
+                if (d < best) {
+                    best = d;
+                    ep = neighbour;
+                    changed = true;
+                }
+            }
+        }
+        return ep;
+    }
+
+    /**
+     * 在指定层做束搜索
+     *
+     * @return 按距离升序排列的最多 ef 个候选点
+     */
+    private long[] searchLayer(float[] query, int ep, int ef, int level) {
+        VisitedSet seen = visited.get();
+        seen.reset(count);
+        LongHeap candidates = new LongHeap(ef * 2, false);
+        LongHeap results = new LongHeap(ef + 1, true);
+        long start = encode(distance(query, ep), ep);
+        candidates.push(start);
+        results.push(start);
+        seen.visit(ep);
+        while (!candidates.isEmpty()) {
+            long current = candidates.pop();
+            if (results.size() >= ef && current > results.peek()) {
+                break;
+            }
+            int[] nodeLinks = links[nodeOf(current)];
+            int offset = linkOffset(level);
+            int size = nodeLinks[offset];
+            for (int i = 1; i <= size; i++) {
+                int neighbour = nodeLinks[offset + i];
+                if (!seen.visit(neighbour)) {
+                    continue;
+                }
+                long encoded = encode(distance(query, neighbour), neighbour);
+                if (results.size() < ef || encoded < results.peek()) {
+                    candidates.push(encoded);
+                    results.push(encoded);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        return results.toSortedArray();
+    }
+
+    private List<EmbeddingMatch<TextSegment>> collect(long[] found, int maxResults, double minScore, Filter filter) {
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(Math.min(found.length, maxResults));
+        for (long candidate : found) {
+            if (matches.size() >= maxResults) {
+                break;
+            }
+            double score = relevance(candidate);
+            if (score < minScore) {
+                break;
+            }
+            int node = nodeOf(candidate);
+            if (deleted.get(node)) {
+                continue;
+            }
+            TextSegment segment = segments[node];
+            if (filter != null && (segment == null || !filter.test(segment.metadata()))) {
+                continue;
+            }
+            matches.add(new EmbeddingMatch<>(score, ids[node], Embedding.from(vectorOf(node)), segment));
+        }
+        return matches;
+    }
+
+    private void markDeleted(int node) {
+        if (!deleted.get(node)) {
+            deleted.set(node);
+            deletedCount++;
+            dirty = true;
+        }
+    }
+
+    /**
+     * 墓碑过多会降低检索效率，此时用有效节点重建整个图
+     */
+    private void rebuildIfFragmented() {
+        if (count == 0 || deletedCount < count * REBUILD_DELETED_RATIO) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        List<String> liveIds = new ArrayList<>(count - deletedCount);
+        List<float[]> liveVectors = new ArrayList<>(count - deletedCount);
+        List<TextSegment> liveSegments = new ArrayList<>(count - deletedCount);
+        for (int node = 0; node < count; node++) {
+            if (!deleted.get(node)) {
+                liveIds.add(ids[node]);
+                liveVectors.add(vectorOf(node));
+                liveSegments.add(segments[node]);
+            }
+        }
+        reset();
+        for (int i = 0; i < liveIds.size(); i++) {
+            insert(liveIds.get(i), liveVectors.get(i), liveSegments.get(i));
+        }
+        log.info("Rebuilt HNSW index with {} live vectors in {} ms", liveIds.size(), System.currentTimeMillis() - start);
+    }
+
+    private void reset() {
+        dimension = 0;
+        count = 0;
+        deletedCount = 0;
+        entryPoint = -1;
+        maxLevel = -1;
+        vectorChunks = new float[0][];
+        links = new int[0][];
+        levels = new int[0];
+        ids = new String[0];
+        segments = new TextSegment[0];
+        deleted.clear();
+        nodeById.clear();
+    }
+
+    private void ensureCapacity(int nodes) {
+        if (nodes <= 0) {
+            return;
+        }
+        if (levels.length < nodes) {
+            int capacity = Math.max(nodes, Math.max(16, levels.length * 2));
+            levels = Arrays.copyOf(levels, capacity);
+            links = Arrays.copyOf(links, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            segments = Arrays.copyOf(segments, capacity);
+        }
+        int lastChunk = (nodes - 1) >>> CHUNK_BITS;
+        if (vectorChunks.length <= lastChunk) {
+            vectorChunks = Arrays.copyOf(vectorChunks, lastChunk + 1);
+        }
+        for (int chunk = 0; chunk <= lastChunk; chunk++) {
+            int needed = (chunk < lastChunk ? CHUNK_SIZE : ((nodes - 1) & CHUNK_MASK) + 1) * dimension;
+            float[] current = vectorChunks[chunk];
+            if (current == null || current.length < needed) {
+                // 最后一个分块按需倍增，语料很小时不预先占用整块内存
+                int length = chunk < lastChunk
+                        ? CHUNK_SIZE * dimension
+                        : Math.min(CHUNK_SIZE * dimension, Math.max(needed, current == null ? 0 : current.length * 2));
+                vectorChunks[chunk] = current == null ? new float[length] : Arrays.copyOf(current, length);
+            }
+        }
+    }
+
+    private int linkOffset(int level) {
+        return level == 0 ? 0 : maxM0 + 1 + (level - 1) * (m + 1);
+    }
+
+    private int randomLevel() {
+        double level = -Math.log(1 - ThreadLocalRandom.current().nextDouble()) * levelMultiplier;
+        return Math.min(MAX_LEVEL, (int) level);
+    }
+
+    private boolean sameVector(int node, float[] vector) {
+        float[] chunk = vectorChunks[node >>> CHUNK_BITS];
+        int base = (node & CHUNK_MASK) * dimension;
+        for (int i = 0; i < dimension; i++) {
+            if (Math.abs(chunk[base + i] - vector[i]) > 1e-6f) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private float[] vectorOf(int node) {
+        int base = (node & CHUNK_MASK) * dimension;
+        return Arrays.copyOfRange(vectorChunks[node >>> CHUNK_BITS], base, base + dimension);
+    }
+
+    /**
+     * 余弦距离，向量已归一化，取值 [0, 2]
+     */
+    private float distance(float[] query, int node) {
+        return Math.max(0f, 1f - dot(query, 0, vectorChunks[node >>> CHUNK_BITS], (node & CHUNK_MASK) * dimension));
+    }
+
+    private float distance(int a, int b) {
+        return Math.max(0f, 1f - dot(vectorChunks[a >>> CHUNK_BITS], (a & CHUNK_MASK) * dimension,
+                vectorChunks[b >>> CHUNK_BITS], (b & CHUNK_MASK) * dimension));
+    }
+
+    /**
+     * 点积，使用多个独立累加器打破浮点加法的依赖链，检索耗时主要在这里
+     */
+    private float dot(float[] a, int baseA, float[] b, int baseB) {
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        int i = 0;
+        int bound = dimension & ~3;
+        for (; i < bound; i += 4) {
+            s0 += a[baseA + i] * b[baseB + i];
+            s1 += a[baseA + i + 1] * b[baseB + i + 1];
+            s2 += a[baseA + i + 2] * b[baseB + i + 2];
+            s3 += a[baseA + i + 3] * b[baseB + i + 3];
+        }
+        for (; i < dimension; i++) {
+            s0 += a[baseA + i] * b[baseB + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private static double relevance(long encoded) {
+        return RelevanceScore.fromCosineSimilarity(1 - distanceOf(encoded));
+    }
+
+    private static float[] normalize(float[] vector) {
+        float[] normalized = vector.clone();
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        if (norm > 0) {
+            for (int i = 0; i < normalized.length; i++) {
+                normalized[i] = (float) (normalized[i] / norm);
+            }
+        }
+        return normalized;
+    }
+
+    private static Map<String, Object> toStringKeys(Map<?, ?> map) {
+        Map<String, Object> result = new HashMap<>(map.size());
+        map.forEach((key, value) -> result.put(String.valueOf(key), value));
+        return result;
+    }
+
+    /**
+     * 距离与节点编号编码为一个 long：距离非负，其 IEEE 754 位模式与大小顺序一致，
+     * 因此直接比较 long 即按距离排序，避免为候选点创建对象
+     */
+    private static long encode(float distance, int node) {
+        return ((long) Float.floatToIntBits(distance) << 32) | (node & 0xFFFFFFFFL);
+    }
+
+    private static int nodeOf(long encoded) {
+        return (int) encoded;
+    }
+
+    private static float distanceOf(long encoded) {
+        return Float.intBitsToFloat((int) (encoded >>> 32));
+    }
+
+    /**
+     * 基于 long 数组的二叉堆
+     */
+    private static final class LongHeap {
+        private long[] heap;
+        private int size;
+        private final boolean max;
+
+        LongHeap(int capacity, boolean max) {
+            this.heap = new long[Math.max(4, capacity)];
+            this.max = max;
+        }
+
+        void push(long value) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(value, heap[parent])) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = value;
+        }
+
+        long pop() {
+            long top = heap[0];
+            long last = heap[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                    child++;
+                }
+                if (!before(heap[child], last)) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return top;
+        }
+
+        long peek() {
+            return heap[0];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long[] toSortedArray() {
+            long[] sorted = Arrays.copyOf(heap, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        private boolean before(long a, long b) {
+            return max ? a > b : a < b;
+        }
+    }
+
+    /**
+     * 访问标记，按代数复用数组，每次检索无需清零
+     */
+    private static final class VisitedSet {
+        private int[] marks = new int[0];
+        private int generation;
+
+        void reset(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[Math.max(capacity, marks.length * 2)];
+                generation = 0;
+            }
+            generation++;
+            if (generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        /**
+         * @return 首次访问返回 true
+         */
+        boolean visit(int node) {
+            if (marks[node] == generation) {
+                return false;
+            }
+            marks[node] = generation;
+            return true;
+        }
+    }
+
+    /**
+     * 以滑动窗口方式内存映射写入文件，单个映射不超过窗口大小
+     */
+    private static final class MappedWriter implements Closeable {
+        private static final long WINDOW = 64L << 20;
+
+        private final FileChannel channel;
+        private MappedByteBuffer buffer;
+        private long windowStart;
+
+        MappedWriter(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, WINDOW);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putByte(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            putInt(bytes.length);
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        void putInts(int[] values) throws IOException {
+            int offset = 0;
+            while (offset < values.length) {
+                ensure(Integer.BYTES);
+                int n = Math.min(values.length - offset, buffer.remaining() / Integer.BYTES);
+                buffer.asIntBuffer().put(values, offset, n);
+                buffer.position(buffer.position() + n * Integer.BYTES);
+                offset += n;
+            }
+        }
+
+        void putFloats(float[] values, int offset, int length) throws IOException {
+            int end = offset + length;
+            while (offset < end) {
+                ensure(Float.BYTES);
+                int n = Math.min(end - offset, buffer.remaining() / Float.BYTES);
+                buffer.asFloatBuffer().put(values, offset, n);
+                buffer.position(buffer.position() + n * Float.BYTES);
+                offset += n;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                long position = windowStart + buffer.position();
+                buffer.force();
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.max(WINDOW, bytes));
+                windowStart = position;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            long end = windowStart + buffer.position();
+            buffer.force();
+            // 映射会把文件扩展到窗口末尾，截掉多余部分
+            channel.truncate(end);
+            channel.close();
+        }
+    }
+
+    /**
+     * 以滑动窗口方式内存映射读取文件
+     */
+    private static final class MappedReader implements Closeable {
+        private static final long WINDOW = 64L << 20;
+
+        private final FileChannel channel;
+        private final long fileSize;
+        private MappedByteBuffer buffer;
+        private long windowStart;
+
+        MappedReader(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            fileSize = channel.size();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(fileSize, WINDOW));
+        }
+
+        int getInt() throws IOException {
+            ensure(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        byte getByte() throws IOException {
+            ensure(1);
+            return buffer.get();
+        }
+
+        byte[] getBytes() throws IOException {
+            byte[] bytes = new byte[getInt()];
+            ensure(bytes.length);
+            buffer.get(bytes);
+            return bytes;
+        }
+
+        void getInts(int[] values) throws IOException {
+            int offset = 0;
+            while (offset < values.length) {
+                ensure(Integer.BYTES);
+                int n = Math.min(values.length - offset, buffer.remaining() / Integer.BYTES);
+                buffer.asIntBuffer().get(values, offset, n);
+                buffer.position(buffer.position() + n * Integer.BYTES);
+                offset += n;
+            }
+        }
+
+        void getFloats(float[] values, int offset, int length) throws IOException {
+            int end = offset + length;
+            while (offset < end) {
+                ensure(Float.BYTES);
+                int n = Math.min(end - offset, buffer.remaining() / Float.BYTES);
+                buffer.asFloatBuffer().get(values, offset, n);
+                buffer.position(buffer.position() + n * Float.BYTES);
+                offset += n;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                long position = windowStart + buffer.position();
+                if (position + bytes > fileSize) {
+                    throw new EOFException("Unexpected end of HNSW index file");
+                }
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(fileSize - position, Math.max(WINDOW, bytes)));
+                windowStart = position;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
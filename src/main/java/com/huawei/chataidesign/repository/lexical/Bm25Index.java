@@ -0,0 +1,148 @@
+package com.huawei.chataidesign.repository.lexical;
+
+import com.huawei.chataidesign.utils.TextTokenizer;
+import dev.langchain4j.data.segment.TextSegment;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 基于 BM25 打分的本地倒排索引
+ *
+ * 与向量库使用相同的片段ID，随入库增量写入和删除；
+ * 只在内存中维护，启动时由入库流程从本地清单重建，无需调用模型。
+ */
+public class Bm25Index {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * key 为词项，value 为 片段ID -> 词频
+     */
+    private final Map<String, Map<String, Integer>> postings = new HashMap<>();
+    private final Map<String, IndexedSegment> segments = new HashMap<>();
+    private long totalLength;
+
+    /**
+     * 写入片段，ID 已存在时替换
+     */
+    public void add(String id, TextSegment segment) {
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        List<String> tokens = TextTokenizer.tokenize(segment.text());
+        for (String token : tokens) {
+            termFrequencies.merge(token, 1, Integer::sum);
+        }
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            termFrequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, key -> new HashMap<>()).put(id, frequency));
+            segments.put(id, new IndexedSegment(segment, tokens.size(), termFrequencies.keySet()));
+            totalLength += tokens.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除片段
+     */
+    public void removeAll(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            ids.forEach(this::removeInternal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 检索
+     *
+     * @param query 查询文本
+     * @param maxResults 最多返回的结果数
+     * @param minScore 最低 BM25 分数
+     * @return 按分数降序排列的结果
+     */
+    public List<Match> search(String query, int maxResults, double minScore) {
+        Set<String> terms = new LinkedHashSet<>(TextTokenizer.tokenize(query));
+        lock.readLock().lock();
+        try {
+            int documentCount = segments.size();
+            if (documentCount == 0 || terms.isEmpty()) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / documentCount;
+            Map<String, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                Map<String, Integer> posting = postings.get(term);
+                if (posting == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documentCount - posting.size() + 0.5) / (posting.size() + 0.5));
+                posting.forEach((id, frequency) -> {
+                    double length = segments.get(id).length();
+                    double tf = frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+                    scores.merge(id, idf * tf, Double::sum);
+                });
+            }
+            List<Match> matches = new ArrayList<>();
+            scores.forEach((id, score) -> {
+                if (score >= minScore) {
+                    matches.add(new Match(id, segments.get(id).segment(), score));
+                }
+            });
+            matches.sort((a, b) -> Double.compare(b.score(), a.score()));
+            return matches.size() > maxResults ? new ArrayList<>(matches.subList(0, maxResults)) : matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 已索引的片段数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeInternal(String id) {
+        IndexedSegment existing = segments.remove(id);
+        if (existing == null) {
+            return;
+        }
+        totalLength -= existing.length();
+        for (String term : existing.terms()) {
+            Map<String, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * 检索结果
+     */
+    public record Match(String id, TextSegment segment, double score) {
+    }
+
+    private record IndexedSegment(TextSegment segment, int length, Set<String> terms) {
+    }
+}
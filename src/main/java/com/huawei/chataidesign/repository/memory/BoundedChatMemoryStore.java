@@ -0,0 +1,227 @@
+package com.huawei.chataidesign.repository.memory;
+
+import com.huawei.chataidesign.utils.ChatMessageUtil;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 有界的本地会话记忆存储
+ *
+ * 按最近最少使用（LRU）顺序维护所有会话，同时受三类上限约束：
+ * - 最大会话数
+ * - 所有会话消息的估算总字节数
+ * - 会话空闲过期时间
+ * 任一上限被突破时淘汰最久未访问的会话，保证堆内存占用不随 memoryId 数量增长。
+ */
+@Slf4j
+public class BoundedChatMemoryStore implements ChatMemoryStore {
+
+    private final int maxConversations;
+    private final long maxBytes;
+    private final long ttlMillis;
+
+    /**
+     * accessOrder=true 的 LinkedHashMap，头部即最久未访问的会话
+     */
+    private final LinkedHashMap<Object, Conversation> conversations = new LinkedHashMap<>(256, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Consumer<Object>> evictionListeners = new CopyOnWriteArrayList<>();
+
+    private long totalBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter bytesEvictions;
+    private final Counter expiredEvictions;
+
+    public BoundedChatMemoryStore(int maxConversations, long maxBytes, long ttlMillis, MeterRegistry meterRegistry) {
+        this.maxConversations = maxConversations;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+        this.hits = meterRegistry.counter("chat.memory.local.requests", "result", "hit");
+        this.misses = meterRegistry.counter("chat.memory.local.requests", "result", "miss");
+        this.sizeEvictions = meterRegistry.counter("chat.memory.local.evictions", "cause", "size");
+        this.bytesEvictions = meterRegistry.counter("chat.memory.local.evictions", "cause", "bytes");
+        this.expiredEvictions = meterRegistry.counter("chat.memory.local.evictions", "cause", "expired");
+        Gauge.builder("chat.memory.local.conversations", this, BoundedChatMemoryStore::size)
+                .register(meterRegistry);
+        Gauge.builder("chat.memory.local.bytes", this, BoundedChatMemoryStore::totalBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 注册淘汰监听器，会话因容量或过期被淘汰时回调（不包括主动删除）
+     */
+    public void addEvictionListener(Consumer<Object> listener) {
+        evictionListeners.add(listener);
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        List<ChatMessage> messages = getIfPresent(memoryId);
+        return messages != null ? messages : new ArrayList<>();
+    }
+
+    /**
+     * 获取会话消息，未命中时返回 null 以区分"无此会话"与"空会话"
+     */
+    public List<ChatMessage> getIfPresent(Object memoryId) {
+        List<Object> evicted = new ArrayList<>(0);
+        List<ChatMessage> messages;
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            Conversation conversation = conversations.get(memoryId);
+            if (conversation != null && conversation.isExpired(now, ttlMillis)) {
+                remove(memoryId);
+                expiredEvictions.increment();
+                evicted.add(memoryId);
+                conversation = null;
+            }
+            if (conversation == null) {
+                misses.increment();
+                messages = null;
+            } else {
+                hits.increment();
+                conversation.lastAccessMillis = now;
+                messages = new ArrayList<>(conversation.messages);
+            }
+        } finally {
+            lock.unlock();
+        }
+        notifyEvicted(evicted);
+        return messages;
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        List<Object> evicted = new ArrayList<>(0);
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            Conversation conversation = new Conversation(List.copyOf(messages), ChatMessageUtil.estimateBytes(messages), now);
+            Conversation previous = conversations.put(memoryId, conversation);
+            if (previous != null) {
+                totalBytes -= previous.bytes;
+            }
+            totalBytes += conversation.bytes;
+            evict(now, evicted);
+        } finally {
+            lock.unlock();
+        }
+        notifyEvicted(evicted);
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        lock.lock();
+        try {
+            remove(memoryId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 当前缓存的会话数
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return conversations.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 当前缓存消息的估算总字节数
+     */
+    public long totalBytes() {
+        lock.lock();
+        try {
+            return totalBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 按过期、会话数、字节数的顺序从最久未访问的会话开始淘汰
+     * 最近写入的会话即使单独超过字节上限也会被保留
+     */
+    private void evict(long now, List<Object> evicted) {
+        Iterator<Map.Entry<Object, Conversation>> iterator = conversations.entrySet().iterator();
+        while (iterator.hasNext() && conversations.size() > 1) {
+            Map.Entry<Object, Conversation> eldest = iterator.next();
+            Counter cause;
+            if (eldest.getValue().isExpired(now, ttlMillis)) {
+                cause = expiredEvictions;
+            } else if (conversations.size() > maxConversations) {
+                cause = sizeEvictions;
+            } else if (totalBytes > maxBytes) {
+                cause = bytesEvictions;
+            } else {
+                break;
+            }
+            iterator.remove();
+            totalBytes -= eldest.getValue().bytes;
+            cause.increment();
+            evicted.add(eldest.getKey());
+        }
+    }
+
+    private void remove(Object memoryId) {
+        Conversation removed = conversations.remove(memoryId);
+        if (removed != null) {
+            totalBytes -= removed.bytes;
+        }
+    }
+
+    private void notifyEvicted(List<Object> evicted) {
+        for (Object memoryId : evicted) {
+            log.debug("Chat memory evicted for memoryId: {}", memoryId);
+            for (Consumer<Object> listener : evictionListeners) {
+                try {
+                    listener.accept(memoryId);
+                } catch (Exception e) {
+                    log.warn("Chat memory eviction listener failed for memoryId: {}", memoryId, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 单个会话的消息快照
+     */
+    private static class Conversation {
+        private final List<ChatMessage> messages;
+        private final long bytes;
+        private long lastAccessMillis;
+
+        Conversation(List<ChatMessage> messages, long bytes, long lastAccessMillis) {
+            this.messages = messages;
+            this.bytes = bytes;
+            this.lastAccessMillis = lastAccessMillis;
+        }
+
+        boolean isExpired(long now, long ttlMillis) {
+            return ttlMillis > 0 && now - lastAccessMillis > ttlMillis;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.huawei.chataidesign.repository.memory;
+
+import com.huawei.chataidesign.utils.TokenEstimator;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.service.memory.ChatMemoryAccess;
+import io.micrometer.core.instrument.DistributionSummary;
+
+import java.util.List;
+
+/**
+ * 记录每次请求提示词 token 数的 ChatMemory 装饰器
+ * AiServices 每次组装请求时读取一次 messages()，因此读取时的估算值即为本次请求的会话上下文大小
+ *
+ * 会话从本地热数据层淘汰时只需丢弃 AiServices 缓存的实例，见 {@link #evictCachedInstance}
+ */
+public class MeteredChatMemory implements ChatMemory {
+
+    private final ChatMemory delegate;
+    private final DistributionSummary promptTokens;
+    private volatile boolean detached;
+
+    public MeteredChatMemory(ChatMemory delegate, DistributionSummary promptTokens) {
+        this.delegate = delegate;
+        this.promptTokens = promptTokens;
+    }
+
+    @Override
+    public Object id() {
+        return delegate.id();
+    }
+
+    @Override
+    public void add(ChatMessage message) {
+        delegate.add(message);
+    }
+
+    @Override
+    public List<ChatMessage> messages() {
+        List<ChatMessage> messages = delegate.messages();
+        promptTokens.record(TokenEstimator.estimate(messages));
+        return messages;
+    }
+
+    @Override
+    public void clear() {
+        if (!detached) {
+            delegate.clear();
+        }
+    }
+
+    /**
+     * 让 AiServices 丢弃按 memoryId 缓存的 ChatMemory 实例，但保留存储中的会话
+     * AiServices 淘汰实例时会调用 clear()，先解除实例与存储的关联，否则两级存储会把热数据层的淘汰当作删除写回 Redis
+     *
+     * @return 是否有实例被丢弃
+     */
+    public static boolean evictCachedInstance(ChatMemoryAccess chatMemoryAccess, Object memoryId) {
+        if (chatMemoryAccess.getChatMemory(memoryId) instanceof MeteredChatMemory memory) {
+            memory.detached = true;
+        }
+        return chatMemoryAccess.evictChatMemory(memoryId);
+    }
+}
@@ -0,0 +1,241 @@
+package com.huawei.chataidesign.repository.memory;
+
+import com.huawei.chataidesign.repository.redis.RedisRepository;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 两级会话记忆存储：本地有界 LRU 热数据层 + Redis 持久层
+ *
+ * 写入先落本地热数据层，再登记到待刷写队列；同一会话在一个刷写周期内的多次写入只保留最新快照，
+ * 由后台线程按批次通过 Redis 管道异步写回，避免每条消息一次网络往返。
+ * 读取优先命中热数据层，其次是尚未刷写的快照，最后回源 Redis 并回填热数据层。
+ *
+ * 多节点部署时热数据层依赖会话粘滞或较短的空闲过期时间来控制数据陈旧。
+ */
+@Slf4j
+public class TieredChatMemoryStore implements ChatMemoryStore, AutoCloseable {
+
+    private final BoundedChatMemoryStore hotTier;
+    private final RedisRepository redisRepository;
+    private final String keyPrefix;
+    private final long ttlSeconds;
+    private final int batchSize;
+
+    /**
+     * 待刷写的会话快照，key 为 memoryId
+     */
+    private final ConcurrentHashMap<Object, PendingWrite> pendingWrites = new ConcurrentHashMap<>();
+
+    /**
+     * 正在刷写中的会话快照，刷写完成前仍可被读取，避免回源到 Redis 中的旧数据
+     */
+    private final ConcurrentHashMap<Object, PendingWrite> flushingWrites = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    private final Counter coalescedWrites;
+    private final Counter flushedConversations;
+    private final Counter flushBatches;
+    private final Counter flushFailures;
+    private final Counter redisLoads;
+
+    public TieredChatMemoryStore(BoundedChatMemoryStore hotTier,
+                                 RedisRepository redisRepository,
+                                 String keyPrefix,
+                                 long ttlSeconds,
+                                 int batchSize,
+                                 long flushIntervalMillis,
+                                 MeterRegistry meterRegistry) {
+        this.hotTier = hotTier;
+        this.redisRepository = redisRepository;
+        this.keyPrefix = keyPrefix;
+        this.ttlSeconds = ttlSeconds;
+        this.batchSize = batchSize;
+        this.coalescedWrites = meterRegistry.counter("chat.memory.redis.writes.coalesced");
+        this.flushedConversations = meterRegistry.counter("chat.memory.redis.flushed.conversations");
+        this.flushBatches = meterRegistry.counter("chat.memory.redis.flush.batches");
+        this.flushFailures = meterRegistry.counter("chat.memory.redis.flush.failures");
+        this.redisLoads = meterRegistry.counter("chat.memory.redis.loads");
+        Gauge.builder("chat.memory.redis.pending", pendingWrites, Map::size)
+                .register(meterRegistry);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "chat-memory-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (flushIntervalMillis > 0) {
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        List<ChatMessage> messages = hotTier.getIfPresent(memoryId);
+        if (messages != null) {
+            return messages;
+        }
+
+        // 热数据层已淘汰但尚未刷写到 Redis 的快照
+        PendingWrite pending = pendingWrites.get(memoryId);
+        if (pending == null) {
+            pending = flushingWrites.get(memoryId);
+        }
+        if (pending != null) {
+            return pending.deleted() ? new ArrayList<>() : new ArrayList<>(pending.messages());
+        }
+
+        try {
+            Object json = redisRepository.get(redisKey(memoryId));
+            if (json == null) {
+                return new ArrayList<>();
+            }
+            redisLoads.increment();
+            List<ChatMessage> loaded = ChatMessageDeserializer.messagesFromJson(json.toString());
+            hotTier.updateMessages(memoryId, loaded);
+            return new ArrayList<>(loaded);
+        } catch (Exception e) {
+            log.error("Failed to load chat memory from redis for memoryId: {}", memoryId, e);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        List<ChatMessage> snapshot = List.copyOf(messages);
+        hotTier.updateMessages(memoryId, snapshot);
+        enqueue(memoryId, new PendingWrite(snapshot, false));
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        hotTier.deleteMessages(memoryId);
+        enqueue(memoryId, new PendingWrite(List.of(), true));
+    }
+
+    /**
+     * 将待刷写队列分批写回 Redis
+     *
+     * @return 本次刷写的会话数
+     */
+    public int flush() {
+        int flushed = 0;
+        while (!pendingWrites.isEmpty()) {
+            Map<Object, PendingWrite> batch = drainBatch();
+            if (batch.isEmpty()) {
+                break;
+            }
+            Map<String, Object> updates = new HashMap<>();
+            List<String> deletes = new ArrayList<>();
+            batch.forEach((memoryId, pending) -> {
+                if (pending.deleted()) {
+                    deletes.add(redisKey(memoryId));
+                } else {
+                    updates.put(redisKey(memoryId), ChatMessageSerializer.messagesToJson(pending.messages()));
+                }
+            });
+
+            boolean success = redisRepository.pipelineSetEx(updates, ttlSeconds);
+            if (success && !deletes.isEmpty()) {
+                success = redisRepository.delete(deletes) >= 0;
+            }
+            if (!success) {
+                // 放回队列等待下个周期重试，不覆盖期间产生的更新快照
+                batch.forEach(pendingWrites::putIfAbsent);
+            }
+            batch.forEach(flushingWrites::remove);
+            if (!success) {
+                flushFailures.increment();
+                break;
+            }
+            flushBatches.increment();
+            flushedConversations.increment(batch.size());
+            flushed += batch.size();
+        }
+        return flushed;
+    }
+
+    /**
+     * 当前待刷写的会话数
+     */
+    public int pendingSize() {
+        return pendingWrites.size();
+    }
+
+    /**
+     * 停止后台刷写并写回剩余快照
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int flushed = flush();
+        log.info("Tiered chat memory store closed, flushed {} pending conversations", flushed);
+    }
+
+    private void enqueue(Object memoryId, PendingWrite pendingWrite) {
+        if (pendingWrites.put(memoryId, pendingWrite) != null) {
+            coalescedWrites.increment();
+        }
+    }
+
+    /**
+     * 取出一批待刷写快照并登记为刷写中
+     * 先登记再移出待刷写队列，读取方在任何时刻都能从两者之一读到最新快照，不会回源到 Redis 中的旧数据
+     */
+    private Map<Object, PendingWrite> drainBatch() {
+        Map<Object, PendingWrite> batch = new HashMap<>();
+        Iterator<Map.Entry<Object, PendingWrite>> iterator = pendingWrites.entrySet().iterator();
+        while (iterator.hasNext() && batch.size() < batchSize) {
+            Map.Entry<Object, PendingWrite> entry = iterator.next();
+            Object memoryId = entry.getKey();
+            PendingWrite pending = entry.getValue();
+            flushingWrites.put(memoryId, pending);
+            if (pendingWrites.remove(memoryId, pending)) {
+                batch.put(memoryId, pending);
+            } else {
+                // 期间有更新的快照入队，留给下一批写入
+                flushingWrites.remove(memoryId, pending);
+            }
+        }
+        return batch;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Failed to flush chat memory to redis", e);
+        }
+    }
+
+    private String redisKey(Object memoryId) {
+        return keyPrefix + memoryId;
+    }
+
+    /**
+     * 待刷写的会话快照
+     */
+    private record PendingWrite(List<ChatMessage> messages, boolean deleted) {
+    }
+}
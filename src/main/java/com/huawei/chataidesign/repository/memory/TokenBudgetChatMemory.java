@@ -0,0 +1,190 @@
+package com.huawei.chataidesign.repository.memory;
+
+import com.huawei.chataidesign.utils.ChatMessageUtil;
+import com.huawei.chataidesign.utils.TokenEstimator;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按 token 预算管理的会话记忆
+ *
+ * 系统提示与最近若干条消息原样保留；总 token 数超过预算时，
+ * 将更早的轮次抽取成一段紧凑摘要，并入最近窗口的第一条用户消息前部。
+ * 摘要在本地抽取生成，不额外调用模型，避免压缩本身增加首字延迟。
+ */
+@Slf4j
+public class TokenBudgetChatMemory implements ChatMemory {
+
+    static final String SUMMARY_HEADER = "[历史对话摘要]\n";
+    static final String SUMMARY_FOOTER = "\n[/历史对话摘要]\n\n";
+
+    /**
+     * 摘要中每条历史消息保留的最大字符数
+     */
+    private static final int SUMMARY_CHARS_PER_MESSAGE = 120;
+
+    private final Object id;
+    private final ChatMemoryStore store;
+    private final int maxTokens;
+    private final int keepRecentMessages;
+    private final int summaryMaxChars;
+    private final Counter compactions;
+
+    public TokenBudgetChatMemory(Object id,
+                                 ChatMemoryStore store,
+                                 int maxTokens,
+                                 int keepRecentMessages,
+                                 int summaryMaxChars,
+                                 Counter compactions) {
+        this.id = id;
+        this.store = store;
+        this.maxTokens = maxTokens;
+        this.keepRecentMessages = keepRecentMessages;
+        this.summaryMaxChars = summaryMaxChars;
+        this.compactions = compactions;
+    }
+
+    @Override
+    public Object id() {
+        return id;
+    }
+
+    @Override
+    public void add(ChatMessage message) {
+        List<ChatMessage> messages = new ArrayList<>(store.getMessages(id));
+        if (message instanceof SystemMessage) {
+            if (!messages.isEmpty() && message.equals(messages.get(0))) {
+                return;
+            }
+            messages.removeIf(SystemMessage.class::isInstance);
+            messages.add(0, message);
+        } else {
+            messages.add(message);
+        }
+        store.updateMessages(id, compact(messages));
+    }
+
+    @Override
+    public List<ChatMessage> messages() {
+        return new ArrayList<>(store.getMessages(id));
+    }
+
+    @Override
+    public void clear() {
+        store.deleteMessages(id);
+    }
+
+    /**
+     * 超出预算时将较早的轮次折叠为摘要
+     * 最近窗口总是从一条用户消息开始，保证折叠后仍是"用户-助手"交替的合法对话，也不会拆开工具调用
+     */
+    List<ChatMessage> compact(List<ChatMessage> messages) {
+        if (TokenEstimator.estimate(messages) <= maxTokens) {
+            return messages;
+        }
+        int head = !messages.isEmpty() && messages.get(0) instanceof SystemMessage ? 1 : 0;
+        int lastUser = lastUserMessageIndex(messages);
+        int windowStart = nextUserMessageIndex(messages, Math.max(head + 1, messages.size() - keepRecentMessages));
+        if (windowStart < 0) {
+            windowStart = lastUser;
+        }
+        if (windowStart <= head + 1) {
+            // 窗口之前没有可折叠的历史消息
+            return messages;
+        }
+
+        List<ChatMessage> compacted = fold(messages, head, windowStart);
+        // 最近窗口本身仍超出预算时继续后移，至少保留最后一轮用户消息
+        while (TokenEstimator.estimate(compacted) > maxTokens && windowStart < lastUser) {
+            windowStart = nextUserMessageIndex(messages, windowStart + 1);
+            compacted = fold(messages, head, windowStart);
+        }
+        compactions.increment();
+        log.debug("Chat memory {} compacted: {} messages -> {} messages, {} tokens",
+                id, messages.size(), compacted.size(), TokenEstimator.estimate(compacted));
+        return compacted;
+    }
+
+    private List<ChatMessage> fold(List<ChatMessage> messages, int head, int windowStart) {
+        String summary = summarize(messages.subList(head, windowStart));
+        List<ChatMessage> compacted = new ArrayList<>(messages.size() - windowStart + 2);
+        compacted.addAll(messages.subList(0, head));
+        UserMessage first = (UserMessage) messages.get(windowStart);
+        if (first.hasSingleText()) {
+            compacted.add(UserMessage.from(SUMMARY_HEADER + summary + SUMMARY_FOOTER + first.singleText()));
+        } else {
+            // 多模态消息无法合并文本，摘要单独作为一轮问答插入
+            compacted.add(UserMessage.from(SUMMARY_HEADER + summary + SUMMARY_FOOTER));
+            compacted.add(AiMessage.from("好的，我已了解之前的对话内容。"));
+            compacted.add(first);
+        }
+        compacted.addAll(messages.subList(windowStart + 1, messages.size()));
+        return compacted;
+    }
+
+    /**
+     * 抽取式摘要：沿用上一次的摘要，再为每条较早消息保留开头部分
+     * 超出摘要上限时优先保留最近的内容
+     */
+    private String summarize(List<ChatMessage> older) {
+        StringBuilder summary = new StringBuilder();
+        for (ChatMessage message : older) {
+            String text = ChatMessageUtil.textOf(message);
+            String role;
+            if (message instanceof UserMessage) {
+                role = "用户: ";
+            } else if (message instanceof AiMessage aiMessage && aiMessage.text() != null) {
+                role = "助手: ";
+                text = aiMessage.text();
+            } else {
+                continue;
+            }
+            if (text.startsWith(SUMMARY_HEADER)) {
+                int footer = text.indexOf(SUMMARY_FOOTER);
+                if (footer > 0) {
+                    summary.append(text, SUMMARY_HEADER.length(), footer).append('\n');
+                    text = text.substring(footer + SUMMARY_FOOTER.length());
+                }
+            }
+            summary.append(role).append(abbreviate(text)).append('\n');
+        }
+        if (summary.length() > summaryMaxChars) {
+            return "…" + summary.substring(summary.length() - summaryMaxChars);
+        }
+        return summary.toString().trim();
+    }
+
+    private static String abbreviate(String text) {
+        String singleLine = text.replace('\n', ' ').trim();
+        return singleLine.length() <= SUMMARY_CHARS_PER_MESSAGE
+                ? singleLine
+                : singleLine.substring(0, SUMMARY_CHARS_PER_MESSAGE) + "…";
+    }
+
+    private static int nextUserMessageIndex(List<ChatMessage> messages, int from) {
+        for (int i = Math.max(from, 0); i < messages.size(); i++) {
+            if (messages.get(i) instanceof UserMessage) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastUserMessageIndex(List<ChatMessage> messages) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i) instanceof UserMessage) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
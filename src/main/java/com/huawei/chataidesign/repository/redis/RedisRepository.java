@@ -2,14 +2,25 @@ package com.huawei.chataidesign.repository.redis;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 @Component
 @Slf4j
 public class RedisRepository {
+    private static final int SCAN_BATCH_SIZE = 500;
+
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
@@ -73,4 +84,75 @@ public class RedisRepository {
             return false;
         }
     }
+
+    /**
+     * 批量删除缓存
+     */
+    public long delete(Collection<String> keys) {
+        try {
+            Long deleted = redisTemplate.delete(keys);
+            return deleted != null ? deleted : 0;
+        } catch (Exception e) {
+            log.error("Error during deleting keys: ", e);
+            return -1;
+        }
+    }
+
+    /**
+     * 按模式删除缓存，使用 SCAN 分批遍历，不会像 KEYS 一样阻塞 Redis
+     *
+     * @param pattern 键模式，如 prefix*
+     * @return 删除的键数，失败时返回 -1
+     */
+    public long deleteByPattern(String pattern) {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(SCAN_BATCH_SIZE).build();
+        long deleted = 0;
+        List<String> batch = new ArrayList<>(SCAN_BATCH_SIZE);
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= SCAN_BATCH_SIZE) {
+                    deleted += Math.max(0, delete(batch));
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                deleted += Math.max(0, delete(batch));
+            }
+            return deleted;
+        } catch (Exception e) {
+            log.error("Error during deleting keys by pattern: ", e);
+            return -1;
+        }
+    }
+
+    /**
+     * 通过管道批量放入缓存并设置时间，所有写入在一次网络往返中完成
+     */
+    public boolean pipelineSetEx(Map<String, Object> entries, long time) {
+        if (entries.isEmpty()) {
+            return true;
+        }
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    entries.forEach((key, value) -> {
+                        if (time > 0) {
+                            ops.opsForValue().set(key, value, time, TimeUnit.SECONDS);
+                        } else {
+                            ops.opsForValue().set(key, value);
+                        }
+                    });
+                    return null;
+                }
+            });
+            return true;
+        } catch (Exception e) {
+            log.error("Error during pipelined setting keys: ", e);
+            return false;
+        }
+    }
 }
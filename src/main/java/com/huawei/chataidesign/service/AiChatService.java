@@ -3,13 +3,16 @@ package com.huawei.chataidesign.service;
 import dev.langchain4j.service.MemoryId;
 import dev.langchain4j.service.SystemMessage;
 import dev.langchain4j.service.UserMessage;
+import dev.langchain4j.service.V;
+import dev.langchain4j.service.memory.ChatMemoryAccess;
 import reactor.core.publisher.Flux;
 
 /**
  * AI聊天服务接口
  * 使用LangChain4j的AiServices动态代理实现
+ * 继承ChatMemoryAccess以便在会话淘汰时释放对应的ChatMemory
  */
-public interface AiChatService {
+public interface AiChatService extends ChatMemoryAccess {
 
 //    @SystemMessage(fromResource = "system-prompt.txt")
 //    String chat(String message);
@@ -20,4 +23,12 @@ public interface AiChatService {
 
     @SystemMessage(fromResource = "system-prompt.txt")
     Flux<String> chatWithStream(@MemoryId int memoryId, @UserMessage String message);
+
+    /**
+     * 带意图提示的流式聊天
+     * 意图提示拼在系统提示词后，用户消息保持原样，便于与预取的检索结果和语义缓存对齐
+     */
+    @SystemMessage(fromResource = "system-prompt-intent.txt")
+    Flux<String> chatWithStreamAndIntent(@MemoryId int memoryId, @UserMessage String message,
+                                         @V("intentHint") String intentHint);
 }
@@ -3,6 +3,10 @@ package com.huawei.chataidesign.service;
 import com.huawei.chataidesign.entity.IntentClassification;
 import com.huawei.chataidesign.entity.request.IntentPromptReq;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 /**
  * 意图识别服务接口
  * 提供意图分类的核心功能
@@ -24,6 +28,14 @@ public interface IntentRecognitionService {
      */
     IntentClassification recognizeIntent(IntentPromptReq promptReq);
     
+    /**
+     * 只查询识别结果缓存，不做识别，供不能等待识别的调用方使用
+     * @param userInput 用户输入文本
+     * @param context 上下文信息（可选）
+     * @return 缓存的意图分类结果，未缓存时返回 null
+     */
+    IntentClassification getCachedIntent(String userInput, String context);
+    
     /**
      * 批量识别多个用户输入的意图
      * @param userInputs 用户输入文本数组
@@ -31,6 +43,14 @@ public interface IntentRecognitionService {
      */
     IntentClassification[] recognizeIntents(String[] userInputs);
     
+    /**
+     * 流式批量识别，输入输出均为 NDJSON，适用于超出单次批量上限的离线任务
+     * @param input 每行一个 JSON 字符串或包含 prompt、context 字段的对象
+     * @param output 每行一个意图分类结果，顺序与输入一致
+     * @return 输出的结果行数
+     */
+    long recognizeIntents(InputStream input, OutputStream output) throws IOException;
+    
     /**
      * 验证意图识别结果的置信度
      * @param intentClassification 意图分类结果
@@ -0,0 +1,397 @@
+package com.huawei.chataidesign.service.chat;
+
+import com.huawei.chataidesign.config.ModelConcurrencyConfig;
+import com.huawei.chataidesign.exception.ChatAiDesignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 模型调用的自适应并发限流器
+ *
+ * 并发上限按 AIMD 调整：首字延迟低于阈值且并发已用到上限一半以上时，每次调用把上限增加 1/上限，
+ * 约每轮增加 1；调用超时、被模型服务限流或首字延迟超过阈值时，上限乘以回退系数。
+ * 超出上限的请求按用户分队等待，空出名额时优先分给进行中调用最少的用户，避免单个用户的突发请求占满名额；
+ * 等待队列排满、单个用户排队过多或等待超时时以 503 拒绝，不让请求在模型服务端排到超时。
+ */
+@Slf4j
+public class AdaptiveConcurrencyLimiter {
+
+    /**
+     * Reactor Context 中调用方用户名（JWT subject）的键
+     */
+    public static final String CALLER_KEY = AdaptiveConcurrencyLimiter.class.getName() + ".caller";
+
+    public static final String ANONYMOUS = "anonymous";
+
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final int maxQueueSize;
+    private final int maxQueuePerUser;
+    private final Duration maxQueueWait;
+
+    /**
+     * 以下状态均由 lock 保护
+     */
+    private final Object lock = new Object();
+    private double limit;
+    private int inFlight;
+    private int queued;
+    private long sequence;
+    private final Map<String, Integer> inFlightByUser = new HashMap<>();
+    private final Map<String, ArrayDeque<Waiter>> waitersByUser = new LinkedHashMap<>();
+
+    private final Counter admittedImmediately;
+    private final Counter admittedFromQueue;
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedUserQueueFull;
+    private final Counter rejectedTimeout;
+    private final Counter overloads;
+    private final Timer queueWait;
+
+    public AdaptiveConcurrencyLimiter(String name, ModelConcurrencyConfig config, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.minLimit = Math.max(1, config.getMinLimit());
+        this.maxLimit = Math.max(minLimit, config.getMaxLimit());
+        this.backoffRatio = config.getBackoffRatio();
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(config.getLatencyThresholdMillis());
+        this.maxQueueSize = config.getMaxQueueSize();
+        this.maxQueuePerUser = config.getMaxQueuePerUser();
+        this.maxQueueWait = Duration.ofMillis(config.getMaxQueueWaitMillis());
+        this.limit = Math.min(maxLimit, Math.max(minLimit, config.getInitialLimit()));
+
+        this.admittedImmediately = meterRegistry.counter("chat.model.limiter.admitted", "model", name, "queued", "false");
+        this.admittedFromQueue = meterRegistry.counter("chat.model.limiter.admitted", "model", name, "queued", "true");
+        this.rejectedQueueFull = meterRegistry.counter("chat.model.limiter.rejected", "model", name, "reason", "queue_full");
+        this.rejectedUserQueueFull = meterRegistry.counter("chat.model.limiter.rejected", "model", name,
+                "reason", "user_queue_full");
+        this.rejectedTimeout = meterRegistry.counter("chat.model.limiter.rejected", "model", name, "reason", "timeout");
+        this.overloads = meterRegistry.counter("chat.model.limiter.overloads", "model", name);
+        this.queueWait = Timer.builder("chat.model.limiter.queue.wait")
+                .tag("model", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("chat.model.limiter.limit", this, AdaptiveConcurrencyLimiter::limit)
+                .tag("model", name)
+                .register(meterRegistry);
+        Gauge.builder("chat.model.limiter.inflight", this, AdaptiveConcurrencyLimiter::inFlight)
+                .tag("model", name)
+                .register(meterRegistry);
+        Gauge.builder("chat.model.limiter.queued", this, AdaptiveConcurrencyLimiter::queued)
+                .tag("model", name)
+                .register(meterRegistry);
+        log.info("Model concurrency limiter [{}] initialized with limit={} ({}-{}), queue={}, per-user queue={}",
+                name, limit, minLimit, maxLimit, maxQueueSize, maxQueuePerUser);
+    }
+
+    /**
+     * 当前线程上已认证用户的用户名，即 JWT 的 subject；未认证时为 anonymous
+     */
+    public static String currentCaller() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return ANONYMOUS;
+        }
+        return authentication.getName();
+    }
+
+    /**
+     * 携带调用方的 Reactor Context，模型调用通常不在请求线程上订阅，需在请求线程上取出用户后随流传递
+     */
+    public static Context withCaller(String caller) {
+        return Context.of(CALLER_KEY, caller);
+    }
+
+    /**
+     * 从 Reactor Context 读取调用方，未设置时取当前线程上的用户
+     */
+    public static String callerOf(ContextView context) {
+        String caller = context.getOrDefault(CALLER_KEY, null);
+        return caller != null ? caller : currentCaller();
+    }
+
+    /**
+     * 申请一个调用名额：有空闲名额时立即返回，否则排队等待；排不上或等待超时时以 503 的
+     * ChatAiDesignException 结束。取消订阅会退出队列，拿到的名额必须调用 {@link Permit#release()} 归还
+     */
+    public Mono<Permit> acquire(String caller) {
+        return Mono.<Permit>create(sink -> {
+            Waiter waiter = new Waiter(caller, sink);
+            Counter rejection = offer(waiter);
+            if (rejection != null) {
+                rejection.increment();
+                sink.error(overloaded(rejection == rejectedQueueFull ? "queue is full" : "too many queued requests"));
+                return;
+            }
+            if (waiter.permit != null) {
+                admittedImmediately.increment();
+                sink.success(waiter.permit);
+                return;
+            }
+            sink.onCancel(() -> cancel(waiter));
+        }).timeout(maxQueueWait, Mono.defer(() -> {
+            rejectedTimeout.increment();
+            return Mono.error(overloaded("queue wait timed out"));
+        }));
+    }
+
+    /**
+     * 该用户此刻的请求是否会被直接拒绝，供接口在建立 SSE 响应前提前返回 503；判断条件与 offer 一致
+     */
+    public boolean wouldReject(String caller) {
+        synchronized (lock) {
+            if (waitersByUser.isEmpty() && inFlight < (int) limit) {
+                return false;
+            }
+            ArrayDeque<Waiter> userQueue = waitersByUser.get(caller);
+            return queued >= maxQueueSize || (userQueue != null && userQueue.size() >= maxQueuePerUser);
+        }
+    }
+
+    public double limit() {
+        synchronized (lock) {
+            return limit;
+        }
+    }
+
+    public int inFlight() {
+        synchronized (lock) {
+            return inFlight;
+        }
+    }
+
+    public int queued() {
+        synchronized (lock) {
+            return queued;
+        }
+    }
+
+    /**
+     * 判断调用失败是否因为模型服务过载：超时，或被限流（HTTP 429、DashScope 的 Throttling 错误码）
+     */
+    public static boolean isOverload(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof java.util.concurrent.TimeoutException
+                    || cause instanceof java.net.SocketTimeoutException
+                    || cause instanceof java.net.http.HttpTimeoutException) {
+                return true;
+            }
+            String message = cause.getMessage();
+            if (message != null && (message.contains("429") || message.contains("Throttling")
+                    || message.toLowerCase().contains("rate limit"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 放入请求：可立即执行时直接发放名额，否则入队；被拒绝时返回对应的拒绝计数器
+     */
+    private Counter offer(Waiter waiter) {
+        synchronized (lock) {
+            // 有人排队时说明名额已满，新请求不能插队
+            if (waitersByUser.isEmpty() && inFlight < (int) limit) {
+                waiter.permit = grant(waiter.caller);
+                return null;
+            }
+            if (queued >= maxQueueSize) {
+                return rejectedQueueFull;
+            }
+            ArrayDeque<Waiter> userQueue = waitersByUser.get(waiter.caller);
+            if ((userQueue != null ? userQueue.size() : 0) >= maxQueuePerUser) {
+                return rejectedUserQueueFull;
+            }
+            waiter.sequence = sequence++;
+            waitersByUser.computeIfAbsent(waiter.caller, key -> new ArrayDeque<>()).addLast(waiter);
+            queued++;
+            return null;
+        }
+    }
+
+    private void cancel(Waiter waiter) {
+        Permit granted;
+        synchronized (lock) {
+            granted = waiter.permit;
+            if (granted == null) {
+                ArrayDeque<Waiter> userQueue = waitersByUser.get(waiter.caller);
+                if (userQueue != null && userQueue.remove(waiter)) {
+                    queued--;
+                    if (userQueue.isEmpty()) {
+                        waitersByUser.remove(waiter.caller);
+                    }
+                }
+            }
+        }
+        // 名额已发放但还没送达就被取消
+        if (granted != null) {
+            granted.release();
+        }
+    }
+
+    private void sample(long latencyNanos, boolean overloaded) {
+        List<Waiter> granted;
+        synchronized (lock) {
+            if (overloaded || latencyNanos > latencyThresholdNanos) {
+                double previous = limit;
+                limit = Math.max(minLimit, limit * backoffRatio);
+                if ((int) previous != (int) limit) {
+                    log.info("Model [{}] overloaded, concurrency limit {} -> {}", name, (int) previous, (int) limit);
+                }
+            } else if (inFlight * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            granted = drain();
+        }
+        complete(granted);
+    }
+
+    private void release(String caller) {
+        List<Waiter> granted;
+        synchronized (lock) {
+            inFlight--;
+            inFlightByUser.computeIfPresent(caller, (key, count) -> count > 1 ? count - 1 : null);
+            granted = drain();
+        }
+        complete(granted);
+    }
+
+    private Permit grant(String caller) {
+        inFlight++;
+        inFlightByUser.merge(caller, 1, Integer::sum);
+        return new Permit(caller);
+    }
+
+    /**
+     * 按空闲名额从队列中放行：每次选进行中调用最少的用户，相同时先到先得
+     */
+    private List<Waiter> drain() {
+        List<Waiter> granted = null;
+        while (inFlight < (int) limit && !waitersByUser.isEmpty()) {
+            Waiter next = null;
+            int fewest = Integer.MAX_VALUE;
+            for (Map.Entry<String, ArrayDeque<Waiter>> entry : waitersByUser.entrySet()) {
+                int running = inFlightByUser.getOrDefault(entry.getKey(), 0);
+                Waiter head = entry.getValue().peekFirst();
+                if (running < fewest || (running == fewest && head.sequence < next.sequence)) {
+                    next = head;
+                    fewest = running;
+                }
+            }
+            ArrayDeque<Waiter> userQueue = waitersByUser.get(next.caller);
+            userQueue.pollFirst();
+            if (userQueue.isEmpty()) {
+                waitersByUser.remove(next.caller);
+            }
+            queued--;
+            next.permit = grant(next.caller);
+            if (granted == null) {
+                granted = new ArrayList<>();
+            }
+            granted.add(next);
+        }
+        return granted;
+    }
+
+    /**
+     * 在锁外通知排队的请求，订阅方可能同步开始模型调用
+     */
+    private void complete(List<Waiter> granted) {
+        if (granted == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (Waiter waiter : granted) {
+            admittedFromQueue.increment();
+            queueWait.record(now - waiter.enqueuedNanos, TimeUnit.NANOSECONDS);
+            waiter.sink.success(waiter.permit);
+        }
+    }
+
+    private ChatAiDesignException overloaded(String reason) {
+        return new ChatAiDesignException(SERVICE_UNAVAILABLE, "Model " + name + " is overloaded: " + reason);
+    }
+
+    /**
+     * 一次模型调用占用的名额
+     */
+    public final class Permit {
+        private final String caller;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean sampled = new AtomicBoolean();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(String caller) {
+            this.caller = caller;
+        }
+
+        /**
+         * 收到首个输出时调用，以首字延迟调整并发上限
+         */
+        public void onFirstOutput() {
+            if (sampled.compareAndSet(false, true)) {
+                sample(System.nanoTime() - startNanos, false);
+            }
+        }
+
+        /**
+         * 调用失败时调用，只有过载类错误会收缩并发上限
+         */
+        public void onError(Throwable error) {
+            if (isOverload(error) && sampled.compareAndSet(false, true)) {
+                overloads.increment();
+                sample(System.nanoTime() - startNanos, true);
+            }
+        }
+
+        /**
+         * 归还名额，重复调用无副作用
+         */
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                AdaptiveConcurrencyLimiter.this.release(caller);
+            }
+        }
+    }
+
+    /**
+     * 排队中的请求
+     */
+    private static final class Waiter {
+        private final String caller;
+        private final MonoSink<Permit> sink;
+        private final long enqueuedNanos = System.nanoTime();
+        private long sequence;
+        private Permit permit;
+
+        private Waiter(String caller, MonoSink<Permit> sink) {
+            this.caller = caller;
+            this.sink = sink;
+        }
+    }
+}
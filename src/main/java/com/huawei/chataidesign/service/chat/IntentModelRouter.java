@@ -0,0 +1,222 @@
+package com.huawei.chataidesign.service.chat;
+
+import com.huawei.chataidesign.config.ModelRoutingConfig;
+import com.huawei.chataidesign.entity.IntentClassification;
+import com.huawei.chataidesign.entity.IntentType;
+import com.huawei.chataidesign.entity.ModelRoute;
+import com.huawei.chataidesign.service.AiChatService;
+import com.huawei.chataidesign.service.rag.QueryRoutingContentRetriever;
+import com.huawei.chataidesign.utils.TextNormalizer;
+import com.huawei.chataidesign.utils.TokenEstimator;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 按意图路由模型
+ *
+ * 寒暄、意图不明确等只需引导用户的意图直接返回本地模板，简单问答交给小模型，
+ * 技术问题、代码审查等需要推理或知识库的意图交给大模型。置信度不足或未识别出意图时一律走大模型。
+ * 模板只用于较短的输入，"你好，Spring事务怎么回滚？" 这类寒暄开头的提问按真实问题走大模型。
+ * 按路由记录首字延迟、总耗时、估算 token 数和估算费用。
+ */
+@Slf4j
+@Component
+public class IntentModelRouter {
+
+    @Resource
+    private AiChatService aiChatService;
+
+    @Resource
+    private AiChatService smallAiChatService;
+
+    @Resource
+    private QueryRoutingContentRetriever contentRetriever;
+
+    @Resource
+    private ChatMemoryProvider chatMemoryProvider;
+
+    @Resource
+    private ModelRoutingConfig modelRoutingConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private String systemPrompt;
+    private final Map<ModelRoute, RouteMeters> meters = new EnumMap<>(ModelRoute.class);
+
+    @PostConstruct
+    public void init() {
+        try {
+            systemPrompt = new ClassPathResource("system-prompt.txt").getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to load system-prompt.txt", e);
+        }
+        for (ModelRoute route : ModelRoute.values()) {
+            meters.put(route, new RouteMeters(route, meterRegistry));
+        }
+        log.info("Intent model routing enabled={}, routes={}, small model={}",
+                modelRoutingConfig.isEnabled(), modelRoutingConfig.getRoutes(),
+                modelRoutingConfig.getSmallModel().getModelName());
+    }
+
+    /**
+     * 选择意图对应的路由
+     *
+     * @param intent 意图识别结果，为 null 表示未识别或识别超时
+     */
+    public ModelRoute route(IntentClassification intent) {
+        if (!modelRoutingConfig.isEnabled() || intent == null || intent.getPrimaryIntent() == null
+                || intent.getConfidence() < modelRoutingConfig.getMinConfidence()) {
+            return ModelRoute.LARGE;
+        }
+        ModelRoute route = modelRoutingConfig.routeOf(intent.getPrimaryIntent());
+        if (route == ModelRoute.TEMPLATE) {
+            if (!modelRoutingConfig.getTemplates().containsKey(intent.getPrimaryIntent())) {
+                return ModelRoute.SMALL;
+            }
+            if (!templateOnly(intent.getUserInput())) {
+                return ModelRoute.LARGE;
+            }
+        }
+        return route;
+    }
+
+    /**
+     * 输入是否短到只可能是寒暄或含糊的一句话，不夹带需要回答的问题
+     */
+    private boolean templateOnly(String userInput) {
+        String normalized = TextNormalizer.normalize(userInput);
+        return normalized.codePointCount(0, normalized.length()) <= modelRoutingConfig.getTemplateMaxChars();
+    }
+
+    /**
+     * 按路由流式回答
+     *
+     * @param memoryId 会话ID
+     * @param message 用户消息
+     * @param intent 意图识别结果，可为 null
+     * @param intentHint 拼入系统提示词的意图提示，可为 null
+     */
+    public Flux<String> stream(int memoryId, String message, IntentClassification intent, String intentHint) {
+        ModelRoute route = route(intent);
+        String intentCode = intent != null && intent.getPrimaryIntent() != null
+                ? intent.getPrimaryIntent().getCode() : "none";
+        meterRegistry.counter("chat.model.route.requests", "route", route.getCode(), "intent", intentCode).increment();
+        Flux<String> answer = switch (route) {
+            case TEMPLATE -> template(memoryId, message, modelRoutingConfig.getTemplates().get(intent.getPrimaryIntent()));
+            case SMALL -> chat(smallAiChatService, memoryId, message, intentHint);
+            case LARGE -> large(memoryId, message, intent != null ? intent.getPrimaryIntent() : null, intentHint);
+        };
+        return metered(route, message, intentHint, answer);
+    }
+
+    /**
+     * 本轮回答是否会检索知识库：只有大模型挂了检索，且意图的检索规则未关闭检索
+     */
+    public boolean usesRetrieval(IntentClassification intent) {
+        return route(intent) == ModelRoute.LARGE
+                && contentRetriever.retrievalEnabled(intent != null ? intent.getPrimaryIntent() : null);
+    }
+
+    /**
+     * 大模型回答：按意图决定本轮是否检索及检索范围，登记随本轮回答结束清除；
+     * 意图随 Reactor Context 传给语义缓存层，缓存层不再重新识别
+     */
+    private Flux<String> large(int memoryId, String message, IntentType intentType, String intentHint) {
+        return Flux.defer(() -> {
+            Runnable clearRoute = contentRetriever.routeNext(memoryId, message, intentType);
+            return chat(aiChatService, memoryId, message, intentHint).doFinally(signal -> clearRoute.run());
+        }).contextWrite(SemanticResponseCache.withIntent(intentType));
+    }
+
+    private Flux<String> chat(AiChatService service, int memoryId, String message, String intentHint) {
+        if (intentHint == null) {
+            return service.chatWithStream(memoryId, message);
+        }
+        return service.chatWithStreamAndIntent(memoryId, message, intentHint);
+    }
+
+    /**
+     * 返回模板回复，同时把本轮问答写入会话记忆，保证后续追问的上下文完整；
+     * 与模型调用一样经 ChatMemory 写入，受消息窗口或 token 预算约束
+     */
+    private Flux<String> template(int memoryId, String message, String reply) {
+        return Flux.defer(() -> {
+            ChatMemory memory = chatMemoryProvider.get(memoryId);
+            memory.add(SystemMessage.from(systemPrompt));
+            memory.add(UserMessage.from(message));
+            memory.add(AiMessage.from(reply));
+            return Flux.just(reply);
+        });
+    }
+
+    private Flux<String> metered(ModelRoute route, String message, String intentHint, Flux<String> answer) {
+        RouteMeters routeMeters = meters.get(route);
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean first = new AtomicBoolean(true);
+            StringBuilder output = new StringBuilder();
+            return answer
+                    .doOnNext(chunk -> {
+                        if (first.compareAndSet(true, false)) {
+                            routeMeters.ttft.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                        output.append(chunk);
+                    })
+                    .doOnComplete(() -> {
+                        routeMeters.latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        // 只估算本轮问题和回答，不含系统提示词、历史和检索片段
+                        int inputTokens = TokenEstimator.estimate(message) + TokenEstimator.estimate(intentHint);
+                        int outputTokens = TokenEstimator.estimate(output.toString());
+                        routeMeters.inputTokens.increment(inputTokens);
+                        routeMeters.outputTokens.increment(outputTokens);
+                        double costPerThousand = modelRoutingConfig.getCostPerThousandTokens().getOrDefault(route, 0.0);
+                        routeMeters.cost.increment((inputTokens + outputTokens) * costPerThousand / 1000);
+                    });
+        });
+    }
+
+    private static final class RouteMeters {
+        private final Timer ttft;
+        private final Timer latency;
+        private final Counter inputTokens;
+        private final Counter outputTokens;
+        private final Counter cost;
+
+        private RouteMeters(ModelRoute route, MeterRegistry meterRegistry) {
+            this.ttft = Timer.builder("chat.model.route.ttft")
+                    .tag("route", route.getCode())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            this.latency = Timer.builder("chat.model.route.latency")
+                    .tag("route", route.getCode())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            this.inputTokens = meterRegistry.counter("chat.model.route.tokens", "route", route.getCode(), "type", "input");
+            this.outputTokens = meterRegistry.counter("chat.model.route.tokens", "route", route.getCode(), "type", "output");
+            this.cost = Counter.builder("chat.model.route.cost")
+                    .tag("route", route.getCode())
+                    .description("Estimated upstream model cost")
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.huawei.chataidesign.service.chat;
+
+import com.huawei.chataidesign.entity.IntentClassification;
+import com.huawei.chataidesign.entity.IntentType;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 按意图定制提示词
+ *
+ * 各意图的回答提示在类加载时生成，定制时只做一次查表和一次字符串拼接。
+ */
+public final class IntentPromptCustomizer {
+
+    private static final String ORIGINAL_MESSAGE_PREFIX = "\n\n原始问题: ";
+    private static final Map<IntentType, String> HINTS = new EnumMap<>(IntentType.class);
+
+    static {
+        HINTS.put(IntentType.LEARNING_PATH,
+                "[学习咨询] 用户希望了解学习路线。请提供结构化的学习建议，包括阶段划分、重点知识点和技术栈推荐。");
+        HINTS.put(IntentType.PROJECT_GUIDANCE,
+                "[项目指导] 用户需要项目开发建议。请推荐合适的项目类型、技术选型和实现思路。");
+        HINTS.put(IntentType.TECHNICAL_QUESTION,
+                "[技术问题] 用户提出了具体的技术问题。请提供准确、详细的解答，并给出示例代码。");
+        HINTS.put(IntentType.INTERVIEW_PREPARATION,
+                "[面试准备] 用户在准备面试。请提供面试重点、常见问题和答题技巧。");
+        HINTS.put(IntentType.GREETING,
+                "[问候] 用户在打招呼。请友好回应并引导用户说明具体需求。");
+        HINTS.put(IntentType.UNCLEAR,
+                "[意图不明确] 用户意图不够清晰。请礼貌地询问更多细节信息。");
+    }
+
+    private IntentPromptCustomizer() {}
+
+    /**
+     * 根据意图类型生成回答提示，其他意图返回 null
+     */
+    public static String hint(IntentClassification intent) {
+        if (intent == null || intent.getPrimaryIntent() == null) {
+            return null;
+        }
+        return HINTS.get(intent.getPrimaryIntent());
+    }
+
+    /**
+     * 根据意图类型定制消息：回答提示后附原始问题，其他意图保持原消息
+     */
+    public static String customize(IntentClassification intent, String originalMessage) {
+        String hint = hint(intent);
+        if (hint == null) {
+            return originalMessage;
+        }
+        return new StringBuilder(hint.length() + ORIGINAL_MESSAGE_PREFIX.length() + originalMessage.length())
+                .append(hint)
+                .append(ORIGINAL_MESSAGE_PREFIX)
+                .append(originalMessage)
+                .toString();
+    }
+}
@@ -0,0 +1,479 @@
+package com.huawei.chataidesign.service.chat;
+
+import com.huawei.chataidesign.config.SseStreamConfig;
+import com.huawei.chataidesign.exception.ChatAiDesignException;
+import com.huawei.chataidesign.repository.redis.RedisRepository;
+import com.huawei.chataidesign.thread.ThreadPool;
+import com.huawei.chataidesign.utils.JacksonUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 可续传的流式回答
+ *
+ * 每路回答分配随机的流ID，生成的帧按序号缓存在该流的定长环形缓冲区中，事件ID为 流ID:序号。
+ * 上游生成独立于客户端连接运行，客户端断开后继续生成；客户端带 Last-Event-ID 重连时从下一帧开始补发，再接收后续实时帧。
+ * 流记录发起请求的用户，只有同一用户可以续传。
+ * 续传时同步校验事件ID、归属和补发范围，不可续传时直接抛出异常，接口可在建立 SSE 响应前返回对应的状态码。
+ * 生成结束的流保留一段时间后淘汰；缓存字符总数超出上限时先淘汰已结束的流，再淘汰无人接收的流并取消其生成。
+ */
+@Slf4j
+@Component
+public class ResumableStreamRegistry {
+
+    private static final char ID_SEPARATOR = ':';
+    private static final int GONE = 410;
+    private static final int BAD_REQUEST = 400;
+    private static final int FORBIDDEN = 403;
+
+    @Resource
+    private SseStreamConfig sseStreamConfig;
+
+    @Resource
+    private RedisRepository redisRepository;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, ResumableStream> streams = new ConcurrentHashMap<>();
+    private final AtomicLong totalChars = new AtomicLong();
+    private Disposable sweeper;
+
+    private Counter started;
+    private Counter resumed;
+    private Counter resumedFromRedis;
+    private Counter replayedFrames;
+    private Counter resumeMisses;
+    private Counter expired;
+    private Counter evicted;
+
+    @PostConstruct
+    public void init() {
+        started = meterRegistry.counter("chat.sse.replay.streams.started");
+        resumed = meterRegistry.counter("chat.sse.replay.resumes", "source", "local");
+        resumedFromRedis = meterRegistry.counter("chat.sse.replay.resumes", "source", "redis");
+        resumeMisses = meterRegistry.counter("chat.sse.replay.resumes", "source", "miss");
+        replayedFrames = meterRegistry.counter("chat.sse.replay.frames.replayed");
+        expired = meterRegistry.counter("chat.sse.replay.evictions", "reason", "expired");
+        evicted = meterRegistry.counter("chat.sse.replay.evictions", "reason", "memory");
+        Gauge.builder("chat.sse.replay.streams", streams, Map::size).register(meterRegistry);
+        Gauge.builder("chat.sse.replay.chars", totalChars, AtomicLong::get).register(meterRegistry);
+        sweeper = Schedulers.parallel().schedulePeriodically(this::sweepQuietly, 1, 1, TimeUnit.SECONDS);
+        SseStreamConfig.ReplayConfig replay = sseStreamConfig.getReplay();
+        log.info("Resumable SSE streams enabled={}, max frames per stream={}, retention={}s, max chars={}, redis={}",
+                replay.isEnabled(), replay.getMaxFramesPerStream(), replay.getRetentionSeconds(),
+                replay.getMaxTotalChars(), replay.isRedisEnabled());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (sweeper != null) {
+            sweeper.dispose();
+        }
+        streams.values().forEach(ResumableStream::cancel);
+        streams.clear();
+    }
+
+    public boolean isEnabled() {
+        return sseStreamConfig.getReplay().isEnabled();
+    }
+
+    /**
+     * 开始一路可续传的回答：客户端订阅时订阅上游，生成的帧写入缓冲区
+     *
+     * @param frames 上游帧流
+     * @param owner 发起请求的用户，即 JWT 的 subject
+     * @return 从第一帧开始的帧流，取消订阅不影响上游生成
+     */
+    public Flux<StreamFrame> start(Flux<String> frames, String owner) {
+        // 流ID即续传凭据，使用 SecureRandom 生成，不可被猜测
+        ResumableStream stream = new ResumableStream(UUID.randomUUID().toString(), owner,
+                sseStreamConfig.getReplay().getMaxFramesPerStream());
+        streams.put(stream.id, stream);
+        started.increment();
+        Flux<String> upstream = frames.timeout(Duration.ofMinutes(sseStreamConfig.getTimeoutMinutes()));
+        return stream.subscribe(0).doFirst(() -> stream.connect(upstream));
+    }
+
+    /**
+     * 按 Last-Event-ID 续传：补发之后的帧，流仍在生成时继续接收实时帧
+     *
+     * @param lastEventId 客户端收到的最后一个事件ID
+     * @param caller 发起续传的用户
+     * @throws ChatAiDesignException 事件ID格式错误（400）、流属于其他用户（403）、流已淘汰或超出补发范围（410）
+     */
+    public Flux<StreamFrame> resume(String lastEventId, String caller) {
+        int separator = lastEventId == null ? -1 : lastEventId.lastIndexOf(ID_SEPARATOR);
+        long lastSeq;
+        try {
+            lastSeq = separator > 0 ? Long.parseLong(lastEventId.substring(separator + 1)) : -1;
+        } catch (NumberFormatException e) {
+            lastSeq = -1;
+        }
+        if (lastSeq < 0) {
+            throw new ChatAiDesignException(BAD_REQUEST, "Invalid Last-Event-ID: " + lastEventId);
+        }
+        String streamId = lastEventId.substring(0, separator);
+        ResumableStream stream = streams.get(streamId);
+        if (stream != null) {
+            checkOwner(streamId, stream.owner, caller);
+            stream.checkResumable(lastSeq + 1);
+            resumed.increment();
+            return stream.subscribe(lastSeq + 1);
+        }
+        Flux<StreamFrame> fromRedis = loadFromRedis(streamId, lastSeq + 1, caller);
+        if (fromRedis != null) {
+            resumedFromRedis.increment();
+            return fromRedis;
+        }
+        resumeMisses.increment();
+        throw new ChatAiDesignException(GONE, "Stream expired: " + streamId);
+    }
+
+    /**
+     * 当前缓存的流数
+     */
+    public int size() {
+        return streams.size();
+    }
+
+    /**
+     * 当前缓存的字符总数
+     */
+    public long chars() {
+        return totalChars.get();
+    }
+
+    /**
+     * 淘汰过期的流，字符总数超限时继续按结束时间、创建时间从早到晚淘汰，不淘汰仍有客户端接收的流
+     */
+    void sweep() {
+        SseStreamConfig.ReplayConfig replay = sseStreamConfig.getReplay();
+        long now = System.currentTimeMillis();
+        long retentionMillis = TimeUnit.SECONDS.toMillis(replay.getRetentionSeconds());
+        for (ResumableStream stream : streams.values()) {
+            if (stream.expired(now, retentionMillis)) {
+                remove(stream);
+                expired.increment();
+            }
+        }
+        if (totalChars.get() <= replay.getMaxTotalChars()) {
+            return;
+        }
+        // 先取快照再排序，排序期间流的状态仍可能变化
+        List<EvictionCandidate> candidates = new ArrayList<>();
+        for (ResumableStream stream : streams.values()) {
+            EvictionCandidate candidate = stream.evictionCandidate();
+            if (candidate != null) {
+                candidates.add(candidate);
+            }
+        }
+        candidates.sort(Comparator.comparing((EvictionCandidate candidate) -> !candidate.done())
+                .thenComparingLong(EvictionCandidate::lastActivityMillis));
+        for (EvictionCandidate candidate : candidates) {
+            if (totalChars.get() <= replay.getMaxTotalChars()) {
+                break;
+            }
+            remove(candidate.stream());
+            evicted.increment();
+            log.debug("Evicted resumable stream {} to stay under {} chars", candidate.stream().id,
+                    replay.getMaxTotalChars());
+        }
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (Exception e) {
+            log.warn("Failed to sweep resumable streams", e);
+        }
+    }
+
+    private void remove(ResumableStream stream) {
+        if (streams.remove(stream.id, stream)) {
+            stream.cancel();
+        }
+    }
+
+    private static void checkOwner(String streamId, String owner, String caller) {
+        if (!Objects.equals(owner, caller)) {
+            log.warn("User {} tried to resume stream {} owned by another user", caller, streamId);
+            throw new ChatAiDesignException(FORBIDDEN, "Stream belongs to another user: " + streamId);
+        }
+    }
+
+    private void saveToRedis(String streamId, String owner, long firstSeq, List<String> frames) {
+        SseStreamConfig.ReplayConfig replay = sseStreamConfig.getReplay();
+        if (!replay.isRedisEnabled()) {
+            return;
+        }
+        String json = JacksonUtil.toJsonString(new RedisSnapshot(owner, firstSeq, frames));
+        ThreadPool.execute(() -> redisRepository.setEx(replay.getRedisKeyPrefix() + streamId, json,
+                replay.getRetentionSeconds()));
+    }
+
+    private Flux<StreamFrame> loadFromRedis(String streamId, long fromSeq, String caller) {
+        SseStreamConfig.ReplayConfig replay = sseStreamConfig.getReplay();
+        if (!replay.isRedisEnabled()) {
+            return null;
+        }
+        RedisSnapshot snapshot;
+        try {
+            Object value = redisRepository.get(replay.getRedisKeyPrefix() + streamId);
+            if (!(value instanceof String json)) {
+                return null;
+            }
+            snapshot = JacksonUtil.toObject(json, RedisSnapshot.class);
+        } catch (Exception e) {
+            log.warn("Failed to read resumable stream {} from Redis", streamId, e);
+            return null;
+        }
+        checkOwner(streamId, snapshot.owner(), caller);
+        if (fromSeq < snapshot.firstSeq()) {
+            throw new ChatAiDesignException(GONE, "Replay window exceeded: " + streamId);
+        }
+        List<StreamFrame> frames = new ArrayList<>();
+        for (long seq = fromSeq; seq < snapshot.firstSeq() + snapshot.frames().size(); seq++) {
+            frames.add(new StreamFrame(eventId(streamId, seq), snapshot.frames().get((int) (seq - snapshot.firstSeq()))));
+        }
+        replayedFrames.increment(frames.size());
+        return Flux.fromIterable(frames);
+    }
+
+    private static String eventId(String streamId, long seq) {
+        return streamId + ID_SEPARATOR + seq;
+    }
+
+    /**
+     * 带事件ID的帧
+     */
+    public record StreamFrame(String eventId, String data) {
+    }
+
+    private record EvictionCandidate(ResumableStream stream, boolean done, long lastActivityMillis) {
+    }
+
+    /**
+     * 写入 Redis 的完整回答
+     */
+    record RedisSnapshot(String owner, long firstSeq, List<String> frames) {
+    }
+
+    /**
+     * 单路回答的缓冲区和实时接收者，上游帧、续传订阅和淘汰可能来自不同线程，统一在锁内处理
+     */
+    private final class ResumableStream {
+        private final String id;
+        private final String owner;
+        private final String[] ring;
+        private final List<FluxSink<StreamFrame>> listeners = new CopyOnWriteArrayList<>();
+        private long firstSeq;
+        private long nextSeq;
+        private long chars;
+        private boolean done;
+        private boolean cancelled;
+        private Throwable error;
+        private long lastActivityMillis = System.currentTimeMillis();
+        private Disposable upstream;
+
+        private ResumableStream(String id, String owner, int capacity) {
+            this.id = id;
+            this.owner = owner;
+            this.ring = new String[Math.max(1, capacity)];
+        }
+
+        /**
+         * 订阅上游，只在第一次调用时生效
+         */
+        private void connect(Flux<String> frames) {
+            synchronized (this) {
+                if (upstream != null || cancelled) {
+                    return;
+                }
+                upstream = Disposables.single();
+            }
+            Disposable subscription = frames.subscribe(this::append, this::fail, this::complete);
+            synchronized (this) {
+                if (cancelled) {
+                    subscription.dispose();
+                } else {
+                    upstream = subscription;
+                }
+            }
+        }
+
+        private synchronized void append(String data) {
+            if (cancelled) {
+                return;
+            }
+            if (nextSeq - firstSeq == ring.length) {
+                release(ring[slot(firstSeq)]);
+                ring[slot(firstSeq)] = null;
+                firstSeq++;
+            }
+            long seq = nextSeq++;
+            ring[slot(seq)] = data;
+            chars += data.length();
+            totalChars.addAndGet(data.length());
+            lastActivityMillis = System.currentTimeMillis();
+            StreamFrame frame = new StreamFrame(eventId(id, seq), data);
+            for (FluxSink<StreamFrame> listener : listeners) {
+                listener.next(frame);
+            }
+        }
+
+        private synchronized void complete() {
+            finish(null);
+            List<String> frames = new ArrayList<>((int) (nextSeq - firstSeq));
+            for (long seq = firstSeq; seq < nextSeq; seq++) {
+                frames.add(ring[slot(seq)]);
+            }
+            saveToRedis(id, owner, firstSeq, frames);
+        }
+
+        private synchronized void fail(Throwable throwable) {
+            log.warn("Resumable stream {} failed after {} frames", id, nextSeq, throwable);
+            finish(throwable);
+        }
+
+        private void finish(Throwable throwable) {
+            done = true;
+            error = throwable;
+            lastActivityMillis = System.currentTimeMillis();
+            List<FluxSink<StreamFrame>> current = new ArrayList<>(listeners);
+            listeners.clear();
+            for (FluxSink<StreamFrame> listener : current) {
+                if (throwable != null) {
+                    listener.error(throwable);
+                } else {
+                    listener.complete();
+                }
+            }
+        }
+
+        /**
+         * 校验能否从指定序号续传；校验之后缓冲区仍可能继续滚动，订阅时会再次检查
+         */
+        private synchronized void checkResumable(long fromSeq) {
+            if (cancelled) {
+                throw new ChatAiDesignException(GONE, "Stream expired: " + id);
+            }
+            if (fromSeq < firstSeq) {
+                throw new ChatAiDesignException(GONE, "Replay window exceeded: " + id);
+            }
+        }
+
+        /**
+         * 从指定序号开始的帧流：先补发缓冲区中的帧，流未结束时登记为实时接收者
+         */
+        private Flux<StreamFrame> subscribe(long fromSeq) {
+            return Flux.create(sink -> {
+                synchronized (this) {
+                    if (cancelled) {
+                        sink.error(new ChatAiDesignException(GONE, "Stream expired: " + id));
+                        return;
+                    }
+                    if (fromSeq < firstSeq) {
+                        sink.error(new ChatAiDesignException(GONE, "Replay window exceeded: " + id));
+                        return;
+                    }
+                    long replayed = 0;
+                    for (long seq = fromSeq; seq < nextSeq; seq++) {
+                        sink.next(new StreamFrame(eventId(id, seq), ring[slot(seq)]));
+                        replayed++;
+                    }
+                    if (fromSeq > 0) {
+                        replayedFrames.increment(replayed);
+                    }
+                    if (done) {
+                        if (error != null) {
+                            sink.error(error);
+                        } else {
+                            sink.complete();
+                        }
+                        return;
+                    }
+                    listeners.add(sink);
+                    sink.onDispose(() -> detach(sink));
+                }
+            }, FluxSink.OverflowStrategy.BUFFER);
+        }
+
+        private synchronized void detach(FluxSink<StreamFrame> sink) {
+            listeners.remove(sink);
+            lastActivityMillis = System.currentTimeMillis();
+        }
+
+        /**
+         * 取消上游生成并释放缓冲区
+         */
+        private void cancel() {
+            Disposable subscription;
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+                totalChars.addAndGet(-chars);
+                chars = 0;
+                Arrays.fill(ring, null);
+                subscription = upstream;
+                if (!done) {
+                    finish(new ChatAiDesignException(GONE, "Stream evicted: " + id));
+                }
+            }
+            if (subscription != null) {
+                subscription.dispose();
+            }
+        }
+
+        /**
+         * 结束后超过保留时间，或一直没有客户端订阅
+         */
+        private synchronized boolean expired(long now, long retentionMillis) {
+            return (done || upstream == null) && listeners.isEmpty() && now - lastActivityMillis > retentionMillis;
+        }
+
+        /**
+         * 仍有客户端接收时返回 null
+         */
+        private synchronized EvictionCandidate evictionCandidate() {
+            return listeners.isEmpty() ? new EvictionCandidate(this, done, lastActivityMillis) : null;
+        }
+
+        private void release(String data) {
+            if (data != null) {
+                chars -= data.length();
+                totalChars.addAndGet(-data.length());
+            }
+        }
+
+        private int slot(long seq) {
+            return (int) (seq % ring.length);
+        }
+    }
+}
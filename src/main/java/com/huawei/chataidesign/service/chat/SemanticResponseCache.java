@@ -0,0 +1,263 @@
+package com.huawei.chataidesign.service.chat;
+
+import com.huawei.chataidesign.config.SemanticCacheConfig;
+import com.huawei.chataidesign.entity.IntentType;
+import com.huawei.chataidesign.utils.TextNormalizer;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 语义响应缓存
+ *
+ * 以问题的向量表示为键缓存模型的完整回答：
+ * 先按归一化文本精确匹配（不需要向量化），未命中再向量化问题并在已缓存问题中做最近邻查找，
+ * 相似度达到阈值即视为同一问题。缓存条目数有上限，按过期时间和最近访问时间淘汰。
+ * 带意图提示生成的回答只回放给带相同提示的请求。
+ */
+@Slf4j
+@Component
+public class SemanticResponseCache {
+
+    /**
+     * Reactor Context 中本轮提问意图的键，由已完成意图识别的调用方写入
+     */
+    public static final String INTENT_KEY = SemanticResponseCache.class.getName() + ".intent";
+
+    @Resource
+    private EmbeddingModel queryEmbeddingModel;
+
+    @Resource
+    private SemanticCacheConfig semanticCacheConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * key 为归一化后的问题文本和意图提示，见 {@link Lookup#key()}
+     */
+    private final Map<String, CachedAnswer> entries = new ConcurrentHashMap<>();
+
+    private Counter exactHits;
+    private Counter semanticHits;
+    private Counter misses;
+    private Counter evictions;
+
+    @PostConstruct
+    public void init() {
+        exactHits = meterRegistry.counter("chat.semantic.cache.requests", "result", "exact_hit");
+        semanticHits = meterRegistry.counter("chat.semantic.cache.requests", "result", "semantic_hit");
+        misses = meterRegistry.counter("chat.semantic.cache.requests", "result", "miss");
+        evictions = meterRegistry.counter("chat.semantic.cache.evictions");
+        Gauge.builder("chat.semantic.cache.entries", entries, Map::size).register(meterRegistry);
+        log.info("Semantic response cache initialized with threshold={}, maxEntries={}",
+                semanticCacheConfig.getSimilarityThreshold(), semanticCacheConfig.getMaxEntries());
+    }
+
+    /**
+     * 把已识别的意图写入 Reactor Context，供缓存层决定是否缓存及过期时间
+     */
+    public static Context withIntent(IntentType intentType) {
+        return intentType != null ? Context.of(INTENT_KEY, intentType) : Context.empty();
+    }
+
+    /**
+     * 从 Reactor Context 读取调用方写入的意图，未写入时返回 null
+     */
+    public static IntentType intentOf(ContextView context) {
+        return context.getOrDefault(INTENT_KEY, null);
+    }
+
+    /**
+     * 判断该意图的回答是否允许缓存
+     */
+    public boolean isCacheable(IntentType intentType) {
+        return semanticCacheConfig.ttlMinutesOf(intentType) > 0;
+    }
+
+    /**
+     * 查找语义相同问题的缓存回答
+     *
+     * @param prompt 用户问题
+     * @param intentHint 生成回答时拼入系统提示词的意图提示，可为 null
+     * @return 查找结果，包含命中的回答或已计算好的问题向量（供写入时复用）
+     */
+    public Lookup lookup(String prompt, String intentHint) {
+        String normalized = TextNormalizer.normalize(prompt);
+        long now = System.currentTimeMillis();
+        CachedAnswer exact = entries.get(Lookup.key(normalized, intentHint));
+        if (exact != null && !exact.isExpired(now)) {
+            exact.lastAccessMillis = now;
+            exactHits.increment();
+            return new Lookup(normalized, intentHint, null, exact.answer);
+        }
+
+        float[] vector = embed(prompt);
+        CachedAnswer best = null;
+        double bestScore = semanticCacheConfig.getSimilarityThreshold();
+        for (CachedAnswer candidate : entries.values()) {
+            if (candidate.isExpired(now) || !Objects.equals(candidate.intentHint, intentHint)) {
+                continue;
+            }
+            double score = dot(vector, candidate.vector);
+            if (score >= bestScore) {
+                best = candidate;
+                bestScore = score;
+            }
+        }
+        if (best == null) {
+            misses.increment();
+            return new Lookup(normalized, intentHint, vector, null);
+        }
+        best.lastAccessMillis = now;
+        semanticHits.increment();
+        log.debug("Semantic cache hit with similarity {} for prompt: {}", bestScore, prompt);
+        return new Lookup(normalized, intentHint, vector, best.answer);
+    }
+
+    /**
+     * 写入模型回答
+     *
+     * @param lookup 同一问题此前的查找结果
+     * @param answer 模型完整回答
+     * @param intentType 问题意图，决定过期时间
+     */
+    public void put(Lookup lookup, String answer, IntentType intentType) {
+        int ttlMinutes = semanticCacheConfig.ttlMinutesOf(intentType);
+        if (ttlMinutes <= 0 || answer == null || answer.isBlank()) {
+            return;
+        }
+        float[] vector = lookup.vector() != null ? lookup.vector() : embed(lookup.prompt());
+        long now = System.currentTimeMillis();
+        entries.put(lookup.key(), new CachedAnswer(vector, lookup.intentHint(), answer,
+                now + TimeUnit.MINUTES.toMillis(ttlMinutes), now));
+        evictIfNecessary(now);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * 淘汰过期条目，仍超出上限时淘汰最久未访问的条目
+     * 写入远少于读取，因此这里接受 O(n) 扫描
+     */
+    private void evictIfNecessary(long now) {
+        if (entries.size() <= semanticCacheConfig.getMaxEntries()) {
+            return;
+        }
+        entries.entrySet().removeIf(entry -> {
+            boolean expired = entry.getValue().isExpired(now);
+            if (expired) {
+                evictions.increment();
+            }
+            return expired;
+        });
+        while (entries.size() > semanticCacheConfig.getMaxEntries()) {
+            String eldestKey = null;
+            long eldestAccess = Long.MAX_VALUE;
+            for (Map.Entry<String, CachedAnswer> entry : entries.entrySet()) {
+                if (entry.getValue().lastAccessMillis < eldestAccess) {
+                    eldestAccess = entry.getValue().lastAccessMillis;
+                    eldestKey = entry.getKey();
+                }
+            }
+            if (eldestKey == null || entries.remove(eldestKey) == null) {
+                break;
+            }
+            evictions.increment();
+        }
+    }
+
+    /**
+     * 向量化并归一化为单位向量，之后余弦相似度即为点积
+     */
+    private float[] embed(String text) {
+        float[] vector = queryEmbeddingModel.embed(text).content().vector().clone();
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        if (norm > 0) {
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = (float) (vector[i] / norm);
+            }
+        }
+        return vector;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return -1;
+        }
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * 一次查找的结果
+     *
+     * @param prompt 归一化后的问题文本
+     * @param intentHint 意图提示，可为 null
+     * @param vector 问题的单位向量，精确命中时为 null
+     * @param answer 命中的回答，未命中时为 null
+     */
+    public record Lookup(String prompt, String intentHint, float[] vector, String answer) {
+        public boolean isHit() {
+            return answer != null;
+        }
+
+        /**
+         * 缓存条目的键
+         */
+        public String key() {
+            return key(prompt, intentHint);
+        }
+
+        private static String key(String prompt, String intentHint) {
+            return intentHint != null ? prompt + '\u0000' + intentHint : prompt;
+        }
+    }
+
+    /**
+     * 缓存的回答
+     */
+    private static class CachedAnswer {
+        private final float[] vector;
+        private final String intentHint;
+        private final String answer;
+        private final long expiresAtMillis;
+        private volatile long lastAccessMillis;
+
+        CachedAnswer(float[] vector, String intentHint, String answer, long expiresAtMillis, long lastAccessMillis) {
+            this.vector = vector;
+            this.intentHint = intentHint;
+            this.answer = answer;
+            this.expiresAtMillis = expiresAtMillis;
+            this.lastAccessMillis = lastAccessMillis;
+        }
+
+        boolean isExpired(long now) {
+            return now > expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.huawei.chataidesign.service.chat;
+
+import com.huawei.chataidesign.config.SseStreamConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SSE 帧合并
+ *
+ * 模型按 token 推送片段，逐个写成 SSE 事件时每个 token 都要一次写入和 flush。这里把片段合并成帧：
+ * 帧中第一个片段到达后最多等待一个时间窗口，或累计字符数达到上限时立即发送。
+ * 只在下游有请求量时发送，客户端读得慢时后续片段继续并入同一帧，不会为慢客户端积压大量事件。
+ */
+@Slf4j
+@Component
+public class SseFrameCoalescer {
+
+    @Resource
+    private SseStreamConfig sseStreamConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final Scheduler scheduler = Schedulers.parallel();
+
+    private Counter chunks;
+    private Counter frames;
+    private DistributionSummary frameBytes;
+    private Timer coalesceDelay;
+
+    @PostConstruct
+    public void init() {
+        chunks = meterRegistry.counter("chat.sse.chunks");
+        frames = meterRegistry.counter("chat.sse.frames");
+        frameBytes = DistributionSummary.builder("chat.sse.frame.bytes")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        coalesceDelay = Timer.builder("chat.sse.coalesce.delay")
+                .description("Time from the first chunk of a frame until the frame is emitted")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        log.info("SSE frame coalescing enabled={}, window={} ms, max frame chars={}",
+                sseStreamConfig.isCoalesceEnabled(), sseStreamConfig.getCoalesceWindowMillis(),
+                sseStreamConfig.getMaxFrameChars());
+    }
+
+    /**
+     * 合并片段
+     *
+     * @param source 模型输出的片段流
+     * @return 合并后的帧流，拼接结果与原片段拼接结果一致
+     */
+    public Flux<String> coalesce(Flux<String> source) {
+        if (!sseStreamConfig.isCoalesceEnabled() || sseStreamConfig.getCoalesceWindowMillis() <= 0) {
+            return source.doOnNext(chunk -> {
+                chunks.increment();
+                record(chunk, 0);
+            });
+        }
+        return Flux.create(sink -> {
+            Frame frame = new Frame(sink, sseStreamConfig.getCoalesceWindowMillis(), sseStreamConfig.getMaxFrameChars());
+            sink.onRequest(n -> frame.drain());
+            Disposable upstream = source.subscribe(frame::append, frame::error, frame::complete);
+            sink.onDispose(() -> {
+                upstream.dispose();
+                frame.cancelTimer();
+            });
+        });
+    }
+
+    private void record(String frame, long delayNanos) {
+        frames.increment();
+        frameBytes.record(utf8Length(frame));
+        coalesceDelay.record(delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * UTF-8 编码后的字节数，不实际编码
+     */
+    static int utf8Length(CharSequence text) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800 || Character.isSurrogate(c)) {
+                // 代理对的两个 char 合计 4 字节
+                bytes += 2;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 单个流的合并状态，上游片段、定时器和下游请求可能在不同线程上触发，统一在锁内处理
+     */
+    private final class Frame {
+        private final FluxSink<String> sink;
+        private final long windowMillis;
+        private final int maxChars;
+        private final StringBuilder text = new StringBuilder();
+        private long firstChunkNanos;
+        private boolean due;
+        private boolean done;
+        private Throwable error;
+        private Disposable timer;
+        private boolean terminated;
+        private boolean draining;
+        private boolean missed;
+
+        private Frame(FluxSink<String> sink, long windowMillis, int maxChars) {
+            this.sink = sink;
+            this.windowMillis = windowMillis;
+            this.maxChars = maxChars;
+        }
+
+        private void append(String chunk) {
+            chunks.increment();
+            if (chunk == null || chunk.isEmpty()) {
+                return;
+            }
+            synchronized (this) {
+                if (text.isEmpty()) {
+                    firstChunkNanos = System.nanoTime();
+                    timer = scheduler.schedule(this::windowElapsed, windowMillis, TimeUnit.MILLISECONDS);
+                }
+                text.append(chunk);
+            }
+            drain();
+        }
+
+        private void windowElapsed() {
+            synchronized (this) {
+                due = true;
+            }
+            drain();
+        }
+
+        private void error(Throwable throwable) {
+            synchronized (this) {
+                error = throwable;
+                done = true;
+            }
+            drain();
+        }
+
+        private void complete() {
+            synchronized (this) {
+                done = true;
+            }
+            drain();
+        }
+
+        private synchronized void cancelTimer() {
+            if (timer != null) {
+                timer.dispose();
+                timer = null;
+            }
+        }
+
+        /**
+         * 条件满足且下游有请求量时发送帧；发送可能同步触发新的请求，重入时只做标记由外层循环处理
+         */
+        private synchronized void drain() {
+            if (terminated) {
+                return;
+            }
+            if (draining) {
+                missed = true;
+                return;
+            }
+            draining = true;
+            try {
+                do {
+                    missed = false;
+                    if (!text.isEmpty() && (due || done || text.length() >= maxChars)
+                            && sink.requestedFromDownstream() > 0) {
+                        String frame = text.toString();
+                        text.setLength(0);
+                        due = false;
+                        cancelTimer();
+                        record(frame, System.nanoTime() - firstChunkNanos);
+                        sink.next(frame);
+                        missed = true;
+                    } else if (text.isEmpty() && done) {
+                        terminated = true;
+                        if (error != null) {
+                            sink.error(error);
+                        } else {
+                            sink.complete();
+                        }
+                        return;
+                    }
+                } while (missed);
+            } finally {
+                draining = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.huawei.chataidesign.service.impl;
+
+import com.huawei.chataidesign.service.AiChatService;
+import com.huawei.chataidesign.service.chat.AdaptiveConcurrencyLimiter;
+import dev.langchain4j.memory.ChatMemory;
+import reactor.core.publisher.Flux;
+
+import java.util.function.Supplier;
+
+/**
+ * 限制模型调用并发的AI聊天服务
+ * 装饰直接调用模型的聊天服务：每次调用先向限流器申请名额，流结束、出错或被取消时归还，
+ * 首个输出到达时把首字延迟反馈给限流器。调用方用户从 Reactor Context 读取，见
+ * {@link AdaptiveConcurrencyLimiter#withCaller(String)}
+ */
+public class ConcurrencyLimitedAiChatService implements AiChatService {
+
+    private final AiChatService delegate;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitedAiChatService(AiChatService delegate, AdaptiveConcurrencyLimiter limiter) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+    }
+
+    @Override
+    public String chat(String message) {
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire(AdaptiveConcurrencyLimiter.currentCaller()).block();
+        try {
+            String answer = delegate.chat(message);
+            permit.onFirstOutput();
+            return answer;
+        } catch (RuntimeException e) {
+            permit.onError(e);
+            throw e;
+        } finally {
+            permit.release();
+        }
+    }
+
+    @Override
+    public Flux<String> chatWithStream(int memoryId, String message) {
+        return limited(() -> delegate.chatWithStream(memoryId, message));
+    }
+
+    @Override
+    public Flux<String> chatWithStreamAndIntent(int memoryId, String message, String intentHint) {
+        return limited(() -> delegate.chatWithStreamAndIntent(memoryId, message, intentHint));
+    }
+
+    @Override
+    public ChatMemory getChatMemory(Object memoryId) {
+        return delegate.getChatMemory(memoryId);
+    }
+
+    @Override
+    public boolean evictChatMemory(Object memoryId) {
+        return delegate.evictChatMemory(memoryId);
+    }
+
+    private Flux<String> limited(Supplier<Flux<String>> model) {
+        return Flux.deferContextual(context -> limiter.acquire(AdaptiveConcurrencyLimiter.callerOf(context))
+                .flatMapMany(permit -> Flux.defer(model)
+                        .doOnNext(chunk -> permit.onFirstOutput())
+                        .doOnError(permit::onError)
+                        // 在结束信号传给下游之前归还，排队的请求可以尽早开始
+                        .doOnTerminate(permit::release)
+                        .doOnCancel(permit::release)));
+    }
+}
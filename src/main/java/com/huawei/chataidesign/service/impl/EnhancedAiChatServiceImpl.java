@@ -1,25 +1,45 @@
 package com.huawei.chataidesign.service.impl;
 
+import com.huawei.chataidesign.config.IntentRecognitionConfig;
 import com.huawei.chataidesign.entity.IntentClassification;
-import com.huawei.chataidesign.entity.IntentType;
 import com.huawei.chataidesign.entity.request.IntentPromptReq;
 import com.huawei.chataidesign.service.AiChatService;
 import com.huawei.chataidesign.service.EnhancedAiChatService;
 import com.huawei.chataidesign.service.IntentRecognitionService;
+import com.huawei.chataidesign.service.chat.IntentModelRouter;
+import com.huawei.chataidesign.service.chat.IntentPromptCustomizer;
+import com.huawei.chataidesign.service.rag.PrefetchingContentRetriever;
+import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.service.MemoryId;
 import dev.langchain4j.service.SystemMessage;
 import dev.langchain4j.service.UserMessage;
+import dev.langchain4j.service.V;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 增强版AI聊天服务实现
  * 集成意图识别功能
+ *
+ * 流式对话中意图识别与 RAG 检索并行：订阅时同时开始识别意图和预取检索结果，
+ * 意图识别在限定时间内未完成则按原始问题回答，不再阻塞首字返回。
+ * 意图提示拼入系统提示词，用户消息保持原样，模型调用时直接取用预取的检索结果。
+ * 识别出的意图再经 {@link IntentModelRouter} 选择模板、小模型或大模型回答。
  */
 @Slf4j
 @Service
@@ -30,9 +50,23 @@ public class EnhancedAiChatServiceImpl implements EnhancedAiChatService {
     @Resource
     private IntentRecognitionService intentRecognitionService;
     
+    @Resource
+    private IntentRecognitionConfig intentRecognitionConfig;
+    
+    @Resource
+    private PrefetchingContentRetriever prefetchingContentRetriever;
+    
+    @Resource
+    private IntentModelRouter intentModelRouter;
+    
+    @Resource
+    private MeterRegistry meterRegistry;
+    
     @Value("${intent.recognition.enabled:true}")
     private boolean intentRecognitionEnabled;
     
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    
     @Override
     @SystemMessage(fromResource = "system-prompt.txt")
     public String chat(String message) {
@@ -42,21 +76,37 @@ public class EnhancedAiChatServiceImpl implements EnhancedAiChatService {
     @Override
     @SystemMessage(fromResource = "system-prompt.txt")
     public Flux<String> chatWithStream(@MemoryId int memoryId, @UserMessage String message) {
-        // 如果启用了意图识别，则先进行意图识别再聊天
-        if (intentRecognitionEnabled) {
-            IntentPromptReq promptReq = new IntentPromptReq(message, memoryId);
-            IntentClassification intent = intentRecognitionService.recognizeIntent(promptReq);
-            
-            // 根据意图定制系统提示
-            String customizedMessage = customizeMessageByIntent(intent, message);
-            log.info("Intent recognized: {} with confidence: {}, customized message: {}", 
-                    intent.getPrimaryIntent(), intent.getConfidence(), customizedMessage);
-            
-            return aiChatService.chatWithStream(memoryId, customizedMessage);
+        if (!intentRecognitionEnabled) {
+            // 原有的流式聊天逻辑
+            return Flux.defer(() -> recordFirstToken(
+                    aiChatService.chatWithStream(memoryId, message), System.nanoTime(), "disabled"));
         }
         
-        // 原有的流式聊天逻辑
-        return aiChatService.chatWithStream(memoryId, message);
+        IntentPromptReq promptReq = new IntentPromptReq(message, memoryId);
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            return recognizeConcurrently(promptReq, start)
+                    .flatMapMany(intent -> recordFirstToken(
+                            streamWithIntent(memoryId, message, intent.orElse(null)),
+                            start, intent.isPresent() ? "recognized" : "degraded"));
+        });
+    }
+    
+    @Override
+    @SystemMessage(fromResource = "system-prompt-intent.txt")
+    public Flux<String> chatWithStreamAndIntent(@MemoryId int memoryId, @UserMessage String message,
+                                                @V("intentHint") String intentHint) {
+        return aiChatService.chatWithStreamAndIntent(memoryId, message, intentHint);
+    }
+    
+    @Override
+    public ChatMemory getChatMemory(Object memoryId) {
+        return aiChatService.getChatMemory(memoryId);
+    }
+    
+    @Override
+    public boolean evictChatMemory(Object memoryId) {
+        return aiChatService.evictChatMemory(memoryId);
     }
     
     @Override
@@ -66,32 +116,26 @@ public class EnhancedAiChatServiceImpl implements EnhancedAiChatService {
             return chatWithStream(promptReq.getMemoryId(), promptReq.getPrompt());
         }
         
-        try {
-            // 进行意图识别
-            IntentClassification intent = intentRecognitionService.recognizeIntent(promptReq);
-            log.info("Intent recognized: {} with confidence: {}", 
-                    intent.getPrimaryIntent(), intent.getConfidence());
-            
-            // 根据意图定制消息
-            String customizedMessage = customizeMessageByIntent(intent, promptReq.getPrompt());
-            
-            // 返回包含意图信息的流式响应
-            return Flux.concat(
-                Flux.just("[意图识别] 主要意图: " + intent.getPrimaryIntent().getDisplayName()),
-                Flux.just("[置信度] " + String.format("%.2f", intent.getConfidence())),
-                Flux.just("[建议动作] " + intent.getSuggestedAction()),
-                Flux.just("---"),
-                chatWithStream(promptReq.getMemoryId(), customizedMessage)
-            ).timeout(Duration.ofMinutes(5))
-             .onErrorResume(throwable -> {
-                 log.error("Error in intent-aware chat", throwable);
-                 return Flux.just("抱歉，在处理您的请求时发生了错误: " + throwable.getMessage());
-             });
-             
-        } catch (Exception e) {
-            log.error("Failed to perform intent recognition chat", e);
-            return Flux.just("意图识别服务暂时不可用，请稍后重试");
-        }
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            return recognizeConcurrently(promptReq, start).flatMapMany(result -> {
+                // 意图识别超时时不输出意图信息，直接按原始问题回答
+                Flux<String> intentInfo = result.map(intent -> Flux.just(
+                        "[意图识别] 主要意图: " + intent.getPrimaryIntent().getDisplayName(),
+                        "[置信度] " + String.format("%.2f", intent.getConfidence()),
+                        "[建议动作] " + intent.getSuggestedAction(),
+                        "---"
+                )).orElse(Flux.empty());
+                Flux<String> answer = recordFirstToken(
+                        streamWithIntent(promptReq.getMemoryId(), promptReq.getPrompt(), result.orElse(null)),
+                        start, result.isPresent() ? "recognized" : "degraded");
+                return Flux.concat(intentInfo, answer);
+            });
+        }).timeout(Duration.ofMinutes(5))
+          .onErrorResume(throwable -> {
+              log.error("Error in intent-aware chat", throwable);
+              return Flux.just("抱歉，在处理您的请求时发生了错误: " + throwable.getMessage());
+          });
     }
     
     @Override
@@ -118,53 +162,84 @@ public class EnhancedAiChatServiceImpl implements EnhancedAiChatService {
         return intentRecognitionService.getStatistics();
     }
     
+    /**
+     * 在弹性线程池上识别意图，同时开始预取检索结果；识别出的意图不需要检索时再丢弃预取
+     * 超时或失败时返回空，调用方按原始问题回答
+     */
+    private Mono<Optional<IntentClassification>> recognizeConcurrently(IntentPromptReq promptReq, long start) {
+        prefetchingContentRetriever.prefetch(promptReq.getPrompt());
+        return Mono.fromCallable(() -> intentRecognitionService.recognizeIntent(promptReq))
+                .subscribeOn(Schedulers.boundedElastic())
+                .timeout(Duration.ofMillis(intentRecognitionConfig.getStreamTimeoutMillis()))
+                .map(intent -> {
+                    stageTimer("intent").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    meterRegistry.counter("chat.pipeline.intent.requests", "result", "ok").increment();
+                    log.info("Intent recognized: {} with confidence: {}",
+                            intent.getPrimaryIntent(), intent.getConfidence());
+                    return Optional.of(intent);
+                })
+                .onErrorResume(e -> {
+                    boolean timedOut = e instanceof TimeoutException;
+                    stageTimer("intent").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    meterRegistry.counter("chat.pipeline.intent.requests",
+                            "result", timedOut ? "timeout" : "error").increment();
+                    if (timedOut) {
+                        log.warn("Intent recognition exceeded {} ms, answering the raw prompt",
+                                intentRecognitionConfig.getStreamTimeoutMillis());
+                    } else {
+                        log.warn("Intent recognition failed, answering the raw prompt", e);
+                    }
+                    return Mono.just(Optional.empty());
+                })
+                .defaultIfEmpty(Optional.empty());
+    }
+    
+    /**
+     * 按意图选择模板、小模型或大模型回答
+     */
+    private Flux<String> streamWithIntent(int memoryId, String message, IntentClassification intent) {
+        if (!intentModelRouter.usesRetrieval(intent)) {
+            // 模板、小模型或关闭检索的意图用不上预取结果，尚未执行的检索不再执行
+            prefetchingContentRetriever.cancel(message);
+        }
+        return intentModelRouter.stream(memoryId, message, intent, intentHint(intent));
+    }
+    
+    /**
+     * 记录从请求开始到模型返回第一个片段的耗时
+     */
+    private Flux<String> recordFirstToken(Flux<String> answer, long start, String intentOutcome) {
+        AtomicBoolean first = new AtomicBoolean(true);
+        return answer.doOnNext(chunk -> {
+            if (first.compareAndSet(true, false)) {
+                timer("chat.pipeline.ttft", "intent", intentOutcome)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+    
+    private Timer stageTimer(String stage) {
+        return timer("chat.pipeline.stage.latency", "stage", stage);
+    }
+    
+    private Timer timer(String name, String... tags) {
+        return timers.computeIfAbsent(name + String.join(",", tags), key -> Timer.builder(name)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+    
     /**
      * 根据意图类型定制消息
      */
     private String customizeMessageByIntent(IntentClassification intent, String originalMessage) {
-        if (intent == null || intent.getPrimaryIntent() == null) {
-            return originalMessage;
-        }
-        
-        StringBuilder customizedMessage = new StringBuilder();
-        
-        switch (intent.getPrimaryIntent()) {
-            case LEARNING_PATH:
-                customizedMessage.append("[学习咨询] ");
-                customizedMessage.append("用户希望了解学习路线。请提供结构化的学习建议，包括阶段划分、重点知识点和技术栈推荐。\n\n");
-                break;
-                
-            case PROJECT_GUIDANCE:
-                customizedMessage.append("[项目指导] ");
-                customizedMessage.append("用户需要项目开发建议。请推荐合适的项目类型、技术选型和实现思路。\n\n");
-                break;
-                
-            case TECHNICAL_QUESTION:
-                customizedMessage.append("[技术问题] ");
-                customizedMessage.append("用户提出了具体的技术问题。请提供准确、详细的解答，并给出示例代码。\n\n");
-                break;
-                
-            case INTERVIEW_PREPARATION:
-                customizedMessage.append("[面试准备] ");
-                customizedMessage.append("用户在准备面试。请提供面试重点、常见问题和答题技巧。\n\n");
-                break;
-                
-            case GREETING:
-                customizedMessage.append("[问候] ");
-                customizedMessage.append("用户在打招呼。请友好回应并引导用户说明具体需求。\n\n");
-                break;
-                
-            case UNCLEAR:
-                customizedMessage.append("[意图不明确] ");
-                customizedMessage.append("用户意图不够清晰。请礼貌地询问更多细节信息。\n\n");
-                break;
-                
-            default:
-                // 其他意图保持原消息
-                return originalMessage;
-        }
-        
-        customizedMessage.append("原始问题: ").append(originalMessage);
-        return customizedMessage.toString();
+        return IntentPromptCustomizer.customize(intent, originalMessage);
+    }
+    
+    /**
+     * 根据意图类型生成回答提示，其他意图返回 null
+     */
+    private String intentHint(IntentClassification intent) {
+        return IntentPromptCustomizer.hint(intent);
     }
-}
\ No newline at end of file
+}
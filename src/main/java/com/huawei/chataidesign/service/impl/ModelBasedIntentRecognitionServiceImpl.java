@@ -1,49 +1,136 @@
 package com.huawei.chataidesign.service.impl;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.huawei.chataidesign.config.IntentRecognitionConfig;
+import com.huawei.chataidesign.config.ModelConcurrencyConfig;
 import com.huawei.chataidesign.entity.IntentClassification;
 import com.huawei.chataidesign.entity.IntentType;
 import com.huawei.chataidesign.entity.request.IntentPromptReq;
 import com.huawei.chataidesign.service.IntentRecognitionService;
+import com.huawei.chataidesign.service.chat.AdaptiveConcurrencyLimiter;
+import com.huawei.chataidesign.service.intent.IntentBatchExecutor;
+import com.huawei.chataidesign.service.intent.IntentResultCache;
+import com.huawei.chataidesign.service.intent.IntentTelemetry;
+import com.huawei.chataidesign.service.intent.IntentTelemetry.Strategy;
+import com.huawei.chataidesign.service.intent.KeywordAutomaton;
+import com.huawei.chataidesign.service.intent.NgramIntentClassifier;
+import com.huawei.chataidesign.utils.IdGenerator;
+import com.huawei.chataidesign.utils.JacksonUtil;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.input.PromptTemplate;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.time.LocalDateTime;
-import java.util.UUID;
-import java.util.concurrent.atomic.AtomicLong;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
- * 简化版意图识别服务实现
- * 使用关键词匹配的临时解决方案
+ * 意图识别服务实现
+ * 优先使用本地 n-gram 分类模型和加权关键词规则，置信度低于阈值时才调用大模型
  */
 @Slf4j
 @Service
 public class ModelBasedIntentRecognitionServiceImpl implements IntentRecognitionService {
     
+    @Value("${intent.recognition.default-confidence-threshold:0.7}")
+    private double defaultConfidenceThreshold;
+    
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    private IntentRecognitionConfig intentRecognitionConfig;
     
-    @Value("${intent.recognition.cache.enabled:true}")
-    private boolean cacheEnabled;
+    @Resource
+    private IntentResultCache intentResultCache;
     
-    @Value("${intent.recognition.cache.ttl-minutes:30}")
-    private int cacheTtlMinutes;
+    @Resource
+    private IntentBatchExecutor intentBatchExecutor;
     
-    @Value("${intent.recognition.default-confidence-threshold:0.7}")
-    private double defaultConfidenceThreshold;
+    @Resource
+    private IntentTelemetry intentTelemetry;
+    
+    @Resource
+    private ChatModel qwenChatModel;
+    
+    @Resource
+    private ResourceLoader resourceLoader;
+    
+    @Resource
+    private ModelConcurrencyConfig modelConcurrencyConfig;
+    
+    @Resource
+    private MeterRegistry meterRegistry;
+    
+    private static final double NO_MATCH_CONFIDENCE = 0.5;
+    private static final double MIN_MATCH_CONFIDENCE = 0.6;
+    private static final double MAX_MATCH_CONFIDENCE = 0.95;
+    private static final String DEFAULT_SUGGESTED_ACTION = "已识别您的需求，正在为您准备相关回答";
+    private static final Map<IntentType, String> SUGGESTED_ACTIONS = Map.ofEntries(
+            Map.entry(IntentType.LEARNING_PATH, "检测到学习路线咨询，将为您提供个性化的学习建议"),
+            Map.entry(IntentType.PROJECT_GUIDANCE, "检测到项目指导需求，将为您推荐合适的项目方案"),
+            Map.entry(IntentType.SKILL_IMPROVEMENT, "检测到技能提升需求，将为您提供针对性的提升方法"),
+            Map.entry(IntentType.JOB_SEARCH, "检测到求职咨询，将为您分析求职方向和建议"),
+            Map.entry(IntentType.RESUME_OPTIMIZATION, "检测到简历优化需求，将为您提供简历修改建议"),
+            Map.entry(IntentType.INTERVIEW_PREPARATION, "检测到面试准备需求，将为您提供面试指导"),
+            Map.entry(IntentType.TECHNICAL_QUESTION, "检测到技术问题，将为您提供专业的技术解答"),
+            Map.entry(IntentType.CODE_REVIEW, "检测到代码审查需求，将为您检查代码并给出改进建议"),
+            Map.entry(IntentType.DEBUGGING_HELP, "检测到调试求助，将帮助您定位并解决问题"),
+            Map.entry(IntentType.SYSTEM_QUERY, "检测到系统功能咨询，将为您介绍相关功能"),
+            Map.entry(IntentType.FEEDBACK, "感谢您的反馈，我们会持续改进"),
+            Map.entry(IntentType.GREETING, "您好！我是您的编程学习助手，有什么可以帮助您的吗？"),
+            Map.entry(IntentType.UNCLEAR, "没有完全理解您的意思，能再具体描述一下吗？")
+    );
+    
+    /**
+     * 按意图序号预先生成的结果模板，各识别结果共享其中的描述和建议动作
+     */
+    private static final IntentTemplate[] TEMPLATES = Arrays.stream(IntentType.values())
+            .map(intent -> new IntentTemplate(intent.getDisplayName(),
+                    SUGGESTED_ACTIONS.getOrDefault(intent, DEFAULT_SUGGESTED_ACTION)))
+            .toArray(IntentTemplate[]::new);
+    
+    /**
+     * 由配置中的关键词规则编译而成的自动机
+     */
+    private KeywordAutomaton keywordAutomaton;
+    
+    /**
+     * 本地 n-gram 分类模型，未启用或加载失败时为 null
+     */
+    private NgramIntentClassifier classifier;
+    
+    private PromptTemplate classificationPrompt;
     
-    // 统计计数器
-    private final AtomicLong totalRequests = new AtomicLong(0);
-    private final AtomicLong cacheHits = new AtomicLong(0);
-    private final AtomicLong modelCalls = new AtomicLong(0);
+    /**
+     * 意图识别调用大模型的并发限流器，未启用限流时为 null
+     * 与聊天的大模型限流器分开计算名额：识别请求短且不流式，不应排在长对话之后；
+     * 聊天服务工厂依赖本服务，共用其限流器会形成循环依赖
+     */
+    private AdaptiveConcurrencyLimiter intentModelLimiter;
     
     @PostConstruct
     public void init() {
-        log.info("ModelBasedIntentRecognitionService initialized with cache={}, ttl={} minutes", 
-                cacheEnabled, cacheTtlMinutes);
+        keywordAutomaton = new KeywordAutomaton(intentRecognitionConfig.getKeywordRules());
+        classifier = loadClassifier(intentRecognitionConfig.getClassifier());
+        classificationPrompt = PromptTemplate.from(loadText("classpath:intent-classification-prompt.txt"));
+        if (modelConcurrencyConfig.isEnabled()) {
+            intentModelLimiter = new AdaptiveConcurrencyLimiter("intent", modelConcurrencyConfig, meterRegistry);
+        }
+        log.info("ModelBasedIntentRecognitionService initialized with cache={}, ttl={} minutes, {} keywords, classifier={}", 
+                intentRecognitionConfig.getCache().isEnabled(), intentRecognitionConfig.getCache().getTtlMinutes(),
+                keywordAutomaton.size(), classifier != null);
     }
     
     @Override
@@ -58,22 +145,38 @@ public class ModelBasedIntentRecognitionServiceImpl implements IntentRecognition
     
     @Override
     public IntentClassification recognizeIntent(IntentPromptReq promptReq) {
-        totalRequests.incrementAndGet();
         String userInput = promptReq.getPrompt();
         
-        // 简单的关键词匹配实现（临时方案），当前使用的是关键词匹配，企业级项目中可能会用机器学习、神经网络来做文本分类，泛化性会更好
-        IntentClassification result = performKeywordBasedRecognition(userInput);
+        long start = System.nanoTime();
+        IntentClassification cached = intentResultCache.get(userInput, promptReq.getContext());
+        intentTelemetry.recordLatency(Strategy.CACHE, System.nanoTime() - start);
+        if (cached != null) {
+            intentTelemetry.recordResult(Strategy.CACHE, cached.getPrimaryIntent(), cached.getConfidence(), userInput);
+            return cached;
+        }
+        
+        IntentClassification result = performRecognition(userInput, promptReq.getContext());
+        // 大模型调用失败时留下的待确认结果不缓存，下次仍尝试识别
+        if (!Boolean.TRUE.equals(result.getNeedsConfirmation())) {
+            intentResultCache.put(userInput, promptReq.getContext(), result);
+        }
         
         return result;
     }
     
+    @Override
+    public IntentClassification getCachedIntent(String userInput, String context) {
+        return intentResultCache.get(userInput, context);
+    }
+    
     @Override
     public IntentClassification[] recognizeIntents(String[] userInputs) {
-        IntentClassification[] results = new IntentClassification[userInputs.length];
-        for (int i = 0; i < userInputs.length; i++) {
-            results[i] = recognizeIntent(userInputs[i], null);
-        }
-        return results;
+        return intentBatchExecutor.recognizeAll(userInputs, this::recognizeIntent);
+    }
+    
+    @Override
+    public long recognizeIntents(InputStream input, OutputStream output) throws IOException {
+        return intentBatchExecutor.recognizeStream(input, output, this::recognizeIntent);
     }
     
     @Override
@@ -85,65 +188,166 @@ public class ModelBasedIntentRecognitionServiceImpl implements IntentRecognition
     
     @Override
     public String getStatistics() {
-        long total = totalRequests.get();
-        long hits = cacheHits.get();
-        long calls = modelCalls.get();
+        long total = intentTelemetry.total();
+        long hits = intentTelemetry.count(Strategy.CACHE);
+        long calls = intentTelemetry.attempts(Strategy.MODEL);
         double cacheHitRate = total > 0 ? (double) hits / total * 100 : 0;
         
         return String.format(
-            "意图识别统计 - 总请求数: %d, 缓存命中: %d, 模型调用: %d, 缓存命中率: %.2f%%",
-            total, hits, calls, cacheHitRate
+            "意图识别统计 - 总请求数: %d, 缓存命中: %d (本地: %d, Redis: %d), 模型调用: %d, 缓存命中率: %.2f%%, 缓存条目数: %d",
+            total, hits, intentResultCache.getLocalHits(), intentResultCache.getRedisHits(), calls, cacheHitRate,
+            intentResultCache.size()
         );
     }
     
     @Override
     public void clearCache() {
-        log.info("Intent recognition cache cleared");
+        long cleared = intentResultCache.clear();
+        log.info("Intent recognition cache cleared, {} entries removed", cleared);
+    }
+    
+    /**
+     * 分级识别：先用本地分类模型，置信度不足时参考关键词规则，仍不足时才调用大模型
+     */
+    private IntentClassification performRecognition(String userInput, String context) {
+        Strategy strategy = classifier != null ? Strategy.CLASSIFIER : Strategy.KEYWORD;
+        IntentClassification local = classifier != null
+                ? performClassifierRecognition(userInput)
+                : performKeywordBasedRecognition(userInput);
+        if (local.getConfidence() < defaultConfidenceThreshold && classifier != null) {
+            IntentClassification keyword = performKeywordBasedRecognition(userInput);
+            if (keyword.getConfidence() > local.getConfidence()) {
+                local = keyword;
+                strategy = Strategy.KEYWORD;
+            }
+        }
+        if (local.getConfidence() >= defaultConfidenceThreshold
+                || !intentRecognitionConfig.getClassifier().isLlmFallbackEnabled()) {
+            return recorded(strategy, local, userInput);
+        }
+        IntentClassification escalated = performModelRecognition(userInput, context);
+        if (escalated != null) {
+            return recorded(Strategy.MODEL, escalated, userInput);
+        }
+        local.setNeedsConfirmation(true);
+        return recorded(strategy, local, userInput);
+    }
+    
+    private IntentClassification recorded(Strategy strategy, IntentClassification classification, String userInput) {
+        intentTelemetry.recordResult(strategy, classification.getPrimaryIntent(), classification.getConfidence(), userInput);
+        return classification;
+    }
+    
+    /**
+     * 基于本地 n-gram 分类模型的意图识别，置信度为模型输出的概率
+     */
+    private IntentClassification performClassifierRecognition(String userInput) {
+        long start = System.nanoTime();
+        NgramIntentClassifier.Prediction prediction = classifier.classify(userInput);
+        intentTelemetry.recordLatency(Strategy.CLASSIFIER, System.nanoTime() - start);
+        log.debug("Classifier intent recognition result: {} (p={}) for input: {}", 
+                prediction.intent(), prediction.probability(), userInput);
+        return newClassification(userInput, prediction.intent(), prediction.probability());
     }
     
     /**
-     * 基于关键词的简单意图识别（临时实现）
+     * 基于关键词自动机的意图识别
+     * 一次扫描得到各意图的关键词得分，取最高分意图；领先次高分越多、得分越接近满分置信度越高，
+     * 只命中一个低权重关键词时置信度不会越过阈值
      */
     private IntentClassification performKeywordBasedRecognition(String userInput) {
-        IntentClassification classification = new IntentClassification();
-        classification.setIntentId(UUID.randomUUID().toString());
-        classification.setUserInput(userInput);
-        classification.setProcessedAt(LocalDateTime.now());
-        classification.setConfidence(0.8); // 默认置信度
-        classification.setNeedsConfirmation(false);
-        
-        String lowerInput = userInput.toLowerCase();
-        
-        // 简单的关键词匹配逻辑
-        if (lowerInput.contains("学习") || lowerInput.contains("学") || lowerInput.contains("路线")) {
-            classification.setPrimaryIntent(IntentType.LEARNING_PATH);
-            classification.setIntentDescription("学习路线规划");
-            classification.setSuggestedAction("检测到学习路线咨询，将为您提供个性化的学习建议");
-        } else if (lowerInput.contains("项目") || lowerInput.contains("练手")) {
-            classification.setPrimaryIntent(IntentType.PROJECT_GUIDANCE);
-            classification.setIntentDescription("项目指导");
-            classification.setSuggestedAction("检测到项目指导需求，将为您推荐合适的项目方案");
-        } else if (lowerInput.contains("面试") || lowerInput.contains("求职")) {
-            classification.setPrimaryIntent(IntentType.INTERVIEW_PREPARATION);
-            classification.setIntentDescription("面试准备");
-            classification.setSuggestedAction("检测到面试准备需求，将为您提供面试指导");
-        } else if (lowerInput.contains("技术") || lowerInput.contains("问题") || lowerInput.contains("怎么") || lowerInput.contains("如何")) {
-            classification.setPrimaryIntent(IntentType.TECHNICAL_QUESTION);
-            classification.setIntentDescription("技术问题");
-            classification.setSuggestedAction("检测到技术问题，将为您提供专业的技术解答");
-        } else if (lowerInput.contains("你好") || lowerInput.contains("hello") || lowerInput.contains("hi")) {
-            classification.setPrimaryIntent(IntentType.GREETING);
-            classification.setIntentDescription("问候");
-            classification.setSuggestedAction("您好！我是您的编程学习助手，有什么可以帮助您的吗？");
+        long start = System.nanoTime();
+        KeywordAutomaton.Scores scores = keywordAutomaton.scan(userInput);
+        intentTelemetry.recordLatency(Strategy.KEYWORD, System.nanoTime() - start);
+        IntentType intent = scores.best();
+        IntentClassification classification;
+        if (intent == null) {
+            classification = newClassification(userInput, IntentType.OTHER, NO_MATCH_CONFIDENCE);
         } else {
-            classification.setPrimaryIntent(IntentType.OTHER);
-            classification.setIntentDescription("其他");
-            classification.setSuggestedAction("已识别您的需求，正在为您准备相关回答");
+            double margin = (scores.bestScore() - scores.runnerUpScore()) / scores.bestScore();
+            double strength = Math.min(1.0, scores.bestScore() / intentRecognitionConfig.getKeywordFullConfidenceScore());
+            classification = newClassification(userInput, intent,
+                    MIN_MATCH_CONFIDENCE + (MAX_MATCH_CONFIDENCE - MIN_MATCH_CONFIDENCE) * margin * strength);
         }
         
-        log.debug("Keyword-based intent recognition result: {} for input: {}", 
-                classification.getPrimaryIntent(), userInput);
+        log.debug("Keyword-based intent recognition result: {} (score {}) for input: {}", 
+                classification.getPrimaryIntent(), scores.bestScore(), userInput);
         
         return classification;
     }
+    
+    /**
+     * 调用大模型识别意图，只用于本地识别置信度不足的输入
+     * 调用先申请限流名额，再在弹性线程池上执行，排队和调用合计最多等待 llmFallbackTimeoutMillis
+     *
+     * @return 识别结果，被限流拒绝、调用失败、超时或解析失败时返回 null
+     */
+    private IntentClassification performModelRecognition(String userInput, String context) {
+        long start = System.nanoTime();
+        try {
+            String prompt = classificationPrompt.apply(Map.of(
+                    "intents", IntentType.getAllIntentDescriptions(),
+                    "context", context == null ? "无" : context,
+                    "input", userInput)).text();
+            Mono<String> call = Mono.fromCallable(() -> qwenChatModel.chat(prompt))
+                    .subscribeOn(Schedulers.boundedElastic());
+            if (intentModelLimiter != null) {
+                Mono<String> model = call;
+                call = intentModelLimiter.acquire(AdaptiveConcurrencyLimiter.currentCaller())
+                        .flatMap(permit -> model
+                                .doOnSuccess(answer -> permit.onFirstOutput())
+                                .doOnError(permit::onError)
+                                .doOnTerminate(permit::release)
+                                .doOnCancel(permit::release));
+            }
+            String reply = call
+                    .timeout(Duration.ofMillis(intentRecognitionConfig.getClassifier().getLlmFallbackTimeoutMillis()))
+                    .block();
+            JsonNode json = JacksonUtil.toJson(reply.substring(reply.indexOf('{'), reply.lastIndexOf('}') + 1));
+            IntentType intent = IntentType.fromCode(json.path("intent").asText());
+            double confidence = Math.max(0.0, Math.min(1.0, json.path("confidence").asDouble(defaultConfidenceThreshold)));
+            log.debug("Model intent recognition result: {} (confidence {}) for input: {}", intent, confidence, userInput);
+            return newClassification(userInput, intent, confidence);
+        } catch (Exception e) {
+            log.warn("Model intent recognition failed, using local result for input: {}", userInput, e);
+            return null;
+        } finally {
+            intentTelemetry.recordLatency(Strategy.MODEL, System.nanoTime() - start);
+        }
+    }
+    
+    private IntentClassification newClassification(String userInput, IntentType intent, double confidence) {
+        IntentTemplate template = TEMPLATES[intent.ordinal()];
+        return new IntentClassification(IdGenerator.fastUuid(), intent, confidence, userInput,
+                template.description(), template.suggestedAction());
+    }
+    
+    private NgramIntentClassifier loadClassifier(IntentRecognitionConfig.ClassifierConfig classifierConfig) {
+        if (!classifierConfig.isEnabled()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        try (InputStream input = new BufferedInputStream(
+                resourceLoader.getResource(classifierConfig.getModelPath()).getInputStream())) {
+            NgramIntentClassifier loaded = NgramIntentClassifier.load(input);
+            log.info("Loaded intent classifier {} with {} intents in {} ms", classifierConfig.getModelPath(),
+                    loaded.getClasses().size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return loaded;
+        } catch (IOException e) {
+            log.warn("Failed to load intent classifier {}, falling back to keyword rules", 
+                    classifierConfig.getModelPath(), e);
+            return null;
+        }
+    }
+    
+    private record IntentTemplate(String description, String suggestedAction) {
+    }
+    
+    private String loadText(String location) {
+        try {
+            return resourceLoader.getResource(location).getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to load " + location, e);
+        }
+    }
 }
\ No newline at end of file
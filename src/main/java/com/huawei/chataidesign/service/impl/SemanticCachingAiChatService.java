@@ -0,0 +1,155 @@
+package com.huawei.chataidesign.service.impl;
+
+import com.huawei.chataidesign.entity.IntentClassification;
+import com.huawei.chataidesign.entity.IntentType;
+import com.huawei.chataidesign.service.AiChatService;
+import com.huawei.chataidesign.service.IntentRecognitionService;
+import com.huawei.chataidesign.service.chat.SemanticResponseCache;
+import com.huawei.chataidesign.utils.ChatMessageUtil;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 带语义缓存的AI聊天服务
+ * 装饰 AiServices 生成的代理：新会话中与已回答问题语义相同的提问直接回放缓存答案，不再调用模型
+ *
+ * 只对没有历史轮次的会话生效，避免个性化上下文下的回答被复用；
+ * 命中时仍把本轮问答写入会话记忆，保证后续追问的上下文完整。
+ *
+ * 意图取自调用方写入 Reactor Context 的识别结果（见 {@link SemanticResponseCache#withIntent}），
+ * 没有时只查意图识别结果缓存，不在这里同步识别；意图未知的提问不缓存。
+ */
+@Slf4j
+public class SemanticCachingAiChatService implements AiChatService {
+
+    /**
+     * AiServices 对未声明 @MemoryId 的方法使用的默认会话ID
+     */
+    private static final String DEFAULT_MEMORY_ID = "default";
+
+    private final AiChatService delegate;
+    private final SemanticResponseCache semanticResponseCache;
+    private final IntentRecognitionService intentRecognitionService;
+    private final ChatMemoryStore chatMemoryStore;
+    private final String systemPrompt;
+    private final int replayChunkChars;
+
+    public SemanticCachingAiChatService(AiChatService delegate,
+                                        SemanticResponseCache semanticResponseCache,
+                                        IntentRecognitionService intentRecognitionService,
+                                        ChatMemoryStore chatMemoryStore,
+                                        String systemPrompt,
+                                        int replayChunkChars) {
+        this.delegate = delegate;
+        this.semanticResponseCache = semanticResponseCache;
+        this.intentRecognitionService = intentRecognitionService;
+        this.chatMemoryStore = chatMemoryStore;
+        this.systemPrompt = systemPrompt;
+        this.replayChunkChars = Math.max(1, replayChunkChars);
+    }
+
+    @Override
+    public String chat(String message) {
+        IntentType intent = cacheableIntent(DEFAULT_MEMORY_ID, message, null);
+        if (intent == null) {
+            return delegate.chat(message);
+        }
+        SemanticResponseCache.Lookup lookup = semanticResponseCache.lookup(message, null);
+        if (lookup.isHit()) {
+            remember(DEFAULT_MEMORY_ID, message, lookup.answer());
+            return lookup.answer();
+        }
+        String answer = delegate.chat(message);
+        semanticResponseCache.put(lookup, answer, intent);
+        return answer;
+    }
+
+    @Override
+    public Flux<String> chatWithStream(int memoryId, String message) {
+        return cachedStream(memoryId, message, null, () -> delegate.chatWithStream(memoryId, message));
+    }
+
+    @Override
+    public Flux<String> chatWithStreamAndIntent(int memoryId, String message, String intentHint) {
+        return cachedStream(memoryId, message, intentHint,
+                () -> delegate.chatWithStreamAndIntent(memoryId, message, intentHint));
+    }
+
+    @Override
+    public ChatMemory getChatMemory(Object memoryId) {
+        return delegate.getChatMemory(memoryId);
+    }
+
+    @Override
+    public boolean evictChatMemory(Object memoryId) {
+        return delegate.evictChatMemory(memoryId);
+    }
+
+    private Flux<String> cachedStream(int memoryId, String message, String intentHint, Supplier<Flux<String>> model) {
+        // 查找涉及向量化远程调用，推迟到订阅时执行
+        return Flux.deferContextual(context -> {
+            IntentType intent;
+            SemanticResponseCache.Lookup lookup;
+            try {
+                intent = cacheableIntent(memoryId, message, SemanticResponseCache.intentOf(context));
+                if (intent == null) {
+                    return model.get();
+                }
+                lookup = semanticResponseCache.lookup(message, intentHint);
+            } catch (Exception e) {
+                log.warn("Semantic cache lookup failed, falling back to model", e);
+                return model.get();
+            }
+            if (lookup.isHit()) {
+                remember(memoryId, message, lookup.answer());
+                return Flux.fromIterable(split(lookup.answer()));
+            }
+            StringBuilder answer = new StringBuilder();
+            // 只缓存完整生成的回答，出错或被取消的不缓存
+            return model.get()
+                    .doOnNext(answer::append)
+                    .doOnComplete(() -> semanticResponseCache.put(lookup, answer.toString(), intent));
+        });
+    }
+
+    /**
+     * 新会话且意图允许缓存时返回意图，否则返回 null
+     *
+     * @param knownIntent 调用方已识别的意图，为 null 时查意图识别结果缓存
+     */
+    private IntentType cacheableIntent(Object memoryId, String message, IntentType knownIntent) {
+        boolean freshConversation = chatMemoryStore.getMessages(memoryId).stream()
+                .noneMatch(UserMessage.class::isInstance);
+        if (!freshConversation) {
+            return null;
+        }
+        IntentType intent = knownIntent;
+        if (intent == null) {
+            IntentClassification cached = intentRecognitionService.getCachedIntent(message, null);
+            intent = cached != null ? cached.getPrimaryIntent() : null;
+        }
+        return intent != null && semanticResponseCache.isCacheable(intent) ? intent : null;
+    }
+
+    /**
+     * 将命中缓存的一轮问答写入会话记忆
+     */
+    private void remember(Object memoryId, String message, String answer) {
+        ChatMessageUtil.appendTurn(chatMemoryStore, memoryId, systemPrompt, message, answer);
+    }
+
+    private List<String> split(String answer) {
+        List<String> chunks = new ArrayList<>(answer.length() / replayChunkChars + 1);
+        for (int start = 0; start < answer.length(); start += replayChunkChars) {
+            chunks.add(answer.substring(start, Math.min(answer.length(), start + replayChunkChars)));
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,165 @@
+package com.huawei.chataidesign.service.impl;
+
+import com.huawei.chataidesign.service.AiChatService;
+import com.huawei.chataidesign.utils.ChatMessageUtil;
+import com.huawei.chataidesign.utils.TextNormalizer;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 合并相同提问的AI聊天服务
+ * 装饰聊天服务：新会话中归一化后相同、意图提示相同的并发流式提问只触发一次上游生成，结果广播给所有请求，
+ * 生成途中加入的请求先回放已生成的部分再接收后续内容
+ *
+ * 只对没有历史轮次的会话生效，避免个性化上下文下的回答被复用；上游生成写入首个请求的会话记忆，
+ * 其余请求在收完回答后把本轮问答写入各自的会话记忆。生成结束后即移出，之后的相同提问由语义缓存处理。
+ * 合并键只用调用方已有的信息，不在这里重新识别意图，避免在生成前多一次可能调用模型的阻塞识别。
+ */
+@Slf4j
+public class SingleFlightAiChatService implements AiChatService {
+
+    private final AiChatService delegate;
+    private final ChatMemoryStore chatMemoryStore;
+    private final String systemPrompt;
+    private final int maxInFlight;
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter leaders;
+    private final Counter followers;
+    private final Counter bypassed;
+
+    public SingleFlightAiChatService(AiChatService delegate,
+                                     ChatMemoryStore chatMemoryStore,
+                                     String systemPrompt,
+                                     int maxInFlight,
+                                     MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.chatMemoryStore = chatMemoryStore;
+        this.systemPrompt = systemPrompt;
+        this.maxInFlight = maxInFlight;
+        this.leaders = meterRegistry.counter("chat.singleflight.requests", "result", "leader");
+        this.followers = meterRegistry.counter("chat.singleflight.requests", "result", "follower");
+        this.bypassed = meterRegistry.counter("chat.singleflight.requests", "result", "bypass");
+        Gauge.builder("chat.singleflight.inflight", inFlight, Map::size).register(meterRegistry);
+        Gauge.builder("chat.singleflight.dedup.ratio", this, SingleFlightAiChatService::dedupRatio)
+                .description("Share of coalescable requests served by another request's generation")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String chat(String message) {
+        return delegate.chat(message);
+    }
+
+    @Override
+    public Flux<String> chatWithStream(int memoryId, String message) {
+        return singleFlight(memoryId, message, null, () -> delegate.chatWithStream(memoryId, message));
+    }
+
+    @Override
+    public Flux<String> chatWithStreamAndIntent(int memoryId, String message, String intentHint) {
+        return singleFlight(memoryId, message, intentHint,
+                () -> delegate.chatWithStreamAndIntent(memoryId, message, intentHint));
+    }
+
+    @Override
+    public ChatMemory getChatMemory(Object memoryId) {
+        return delegate.getChatMemory(memoryId);
+    }
+
+    @Override
+    public boolean evictChatMemory(Object memoryId) {
+        return delegate.evictChatMemory(memoryId);
+    }
+
+    /**
+     * 跟随其他请求生成结果的请求占可合并请求的比例
+     */
+    public double dedupRatio() {
+        double total = leaders.count() + followers.count();
+        return total == 0 ? 0 : followers.count() / total;
+    }
+
+    /**
+     * 当前进行中的合并生成数
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private Flux<String> singleFlight(int memoryId, String message, String intentHint, Supplier<Flux<String>> model) {
+        // 读取会话记忆可能阻塞，推迟到订阅时执行
+        return Flux.defer(() -> {
+            String key;
+            try {
+                key = key(memoryId, message, intentHint);
+            } catch (Exception e) {
+                log.warn("Single-flight key computation failed, calling model directly", e);
+                key = null;
+            }
+            if (key == null || (inFlight.size() >= maxInFlight && !inFlight.containsKey(key))) {
+                bypassed.increment();
+                return model.get();
+            }
+            // 先建好共享的流再登记，后加入的请求拿到的一定是完整的 Flight；上游调用在首次订阅时才发生
+            Flight created = new Flight(key, memoryId, model);
+            Flight flight = inFlight.putIfAbsent(key, created);
+            if (flight == null) {
+                leaders.increment();
+                return created.shared;
+            }
+            followers.increment();
+            log.debug("Joined in-flight generation for memoryId {} from memoryId {}", memoryId, flight.leaderMemoryId);
+            return follow(flight, memoryId, message);
+        });
+    }
+
+    private Flux<String> follow(Flight flight, int memoryId, String message) {
+        if (flight.leaderMemoryId == memoryId) {
+            return flight.shared;
+        }
+        StringBuilder answer = new StringBuilder();
+        return flight.shared
+                .doOnNext(answer::append)
+                .doOnComplete(() -> ChatMessageUtil.appendTurn(chatMemoryStore, memoryId, systemPrompt, message,
+                        answer.toString()));
+    }
+
+    /**
+     * 新会话时返回合并键，否则返回 null；意图提示由识别出的意图生成，相同问题带不同提示的请求不合并
+     */
+    private String key(int memoryId, String message, String intentHint) {
+        boolean freshConversation = chatMemoryStore.getMessages(memoryId).stream()
+                .noneMatch(UserMessage.class::isInstance);
+        if (!freshConversation) {
+            return null;
+        }
+        return TextNormalizer.normalize(message) + '\u0000' + (intentHint != null ? intentHint : "");
+    }
+
+    /**
+     * 一次进行中的上游生成
+     */
+    private final class Flight {
+        private final int leaderMemoryId;
+        private final Flux<String> shared;
+
+        private Flight(String key, int leaderMemoryId, Supplier<Flux<String>> model) {
+            this.leaderMemoryId = leaderMemoryId;
+            // cache() 回放已生成的部分给后加入的请求，所有请求都取消后上游仍继续生成并写入首个请求的会话记忆
+            this.shared = Flux.defer(model)
+                    .doFinally(signal -> inFlight.remove(key, this))
+                    .cache();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.huawei.chataidesign.service.intent;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.huawei.chataidesign.config.IntentRecognitionConfig;
+import com.huawei.chataidesign.entity.IntentClassification;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * 批量意图识别执行器
+ *
+ * 把输入切成固定大小的分片，提交到有界线程池并行识别，结果按输入顺序返回。
+ * 线程池队列满时由提交线程自己执行分片，批量请求之间共享线程数上限。
+ * 流式接口按 NDJSON 逐行读取、逐分片写出，同时在途的分片数有上限，内存占用与总行数无关。
+ */
+@Slf4j
+@Component
+public class IntentBatchExecutor {
+
+    @Resource
+    private IntentRecognitionConfig intentRecognitionConfig;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        IntentRecognitionConfig.BatchConfig batchConfig = intentRecognitionConfig.getBatch();
+        int parallelism = Math.max(1, batchConfig.getParallelism());
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, batchConfig.getQueueCapacity())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "intent-batch-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        log.info("Intent batch executor initialized with parallelism={}, chunkSize={}, maxBatchSize={}",
+                parallelism, batchConfig.getChunkSize(), batchConfig.getMaxBatchSize());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 并行识别一批输入
+     *
+     * @param userInputs 用户输入
+     * @param recognizer 单条识别函数，参数为输入和上下文
+     * @return 与输入顺序一致的识别结果
+     * @throws IllegalArgumentException 输入条数超过 maxBatchSize
+     */
+    public IntentClassification[] recognizeAll(String[] userInputs,
+                                               BiFunction<String, String, IntentClassification> recognizer) {
+        IntentRecognitionConfig.BatchConfig batchConfig = intentRecognitionConfig.getBatch();
+        if (userInputs.length > batchConfig.getMaxBatchSize()) {
+            throw new IllegalArgumentException("批量识别最多支持 " + batchConfig.getMaxBatchSize()
+                    + " 条输入，当前 " + userInputs.length + " 条，请使用流式接口");
+        }
+        IntentClassification[] results = new IntentClassification[userInputs.length];
+        int chunkSize = Math.max(1, batchConfig.getChunkSize());
+        if (userInputs.length <= chunkSize) {
+            for (int i = 0; i < userInputs.length; i++) {
+                results[i] = recognizer.apply(userInputs[i], null);
+            }
+            return results;
+        }
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int from = 0; from < userInputs.length; from += chunkSize) {
+            int start = from;
+            int end = Math.min(userInputs.length, from + chunkSize);
+            futures.add(executor.submit(() -> {
+                for (int i = start; i < end; i++) {
+                    results[i] = recognizer.apply(userInputs[i], null);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            await(future, futures);
+        }
+        return results;
+    }
+
+    /**
+     * 流式识别 NDJSON 输入
+     *
+     * 每行是一个 JSON 字符串，或包含 prompt、context 字段的对象；空行忽略。
+     * 每个输入行输出一行识别结果，解析失败的行输出包含 line 和 error 字段的对象，输出顺序与输入一致。
+     *
+     * @param input NDJSON 输入
+     * @param output NDJSON 输出
+     * @param recognizer 单条识别函数，参数为输入和上下文
+     * @return 输出的行数
+     */
+    public long recognizeStream(InputStream input,
+                                OutputStream output,
+                                BiFunction<String, String, IntentClassification> recognizer) throws IOException {
+        IntentRecognitionConfig.BatchConfig batchConfig = intentRecognitionConfig.getBatch();
+        int chunkSize = Math.max(1, batchConfig.getChunkSize());
+        int maxInFlight = Math.max(1, batchConfig.getParallelism()) * 2;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+
+        Deque<Future<List<String>>> inFlight = new ArrayDeque<>();
+        List<String> chunk = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        long chunkFirstLine = 1;
+        long written = 0;
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                chunk.add(line);
+                if (chunk.size() >= chunkSize) {
+                    inFlight.add(submitChunk(chunk, chunkFirstLine, recognizer));
+                    chunk = new ArrayList<>(chunkSize);
+                    chunkFirstLine = lineNumber + 1;
+                    if (inFlight.size() >= maxInFlight) {
+                        written += write(writer, inFlight);
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                inFlight.add(submitChunk(chunk, chunkFirstLine, recognizer));
+            }
+            while (!inFlight.isEmpty()) {
+                written += write(writer, inFlight);
+            }
+        } finally {
+            // 客户端断开等异常时不再继续识别剩余分片
+            inFlight.forEach(future -> future.cancel(true));
+        }
+        return written;
+    }
+
+    private Future<List<String>> submitChunk(List<String> lines,
+                                             long firstLine,
+                                             BiFunction<String, String, IntentClassification> recognizer) {
+        return executor.submit(() -> {
+            List<String> results = new ArrayList<>(lines.size());
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i);
+                if (line.isBlank()) {
+                    continue;
+                }
+                results.add(recognizeLine(line, firstLine + i, recognizer));
+            }
+            return results;
+        });
+    }
+
+    private String recognizeLine(String line, long lineNumber, BiFunction<String, String, IntentClassification> recognizer) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            String prompt = node.isTextual() ? node.asText() : node.path("prompt").asText(null);
+            if (prompt == null) {
+                throw new IllegalArgumentException("缺少 prompt 字段");
+            }
+            String context = node.isObject() ? node.path("context").asText(null) : null;
+            return objectMapper.writeValueAsString(recognizer.apply(prompt, context));
+        } catch (Exception e) {
+            ObjectNode error = objectMapper.createObjectNode();
+            error.put("line", lineNumber);
+            error.put("error", e instanceof JsonProcessingException json ? json.getOriginalMessage() : e.getMessage());
+            return error.toString();
+        }
+    }
+
+    private int write(BufferedWriter writer, Deque<Future<List<String>>> inFlight) throws IOException {
+        Future<List<String>> head = inFlight.poll();
+        List<String> results = await(head, inFlight);
+        for (String result : results) {
+            writer.write(result);
+            writer.write('\n');
+        }
+        // 每个分片写完即刷新，客户端可以边发送边接收
+        writer.flush();
+        return results.size();
+    }
+
+    private <T> T await(Future<T> future, Iterable<? extends Future<?>> pending) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            pending.forEach(other -> other.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch intent recognition interrupted", e);
+        } catch (ExecutionException e) {
+            pending.forEach(other -> other.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Batch intent recognition failed", e.getCause());
+        }
+    }
+}
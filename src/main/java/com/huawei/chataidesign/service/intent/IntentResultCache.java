@@ -0,0 +1,246 @@
+package com.huawei.chataidesign.service.intent;
+
+import com.huawei.chataidesign.config.IntentRecognitionConfig;
+import com.huawei.chataidesign.entity.IntentClassification;
+import com.huawei.chataidesign.entity.IntentType;
+import com.huawei.chataidesign.repository.redis.RedisRepository;
+import com.huawei.chataidesign.thread.ThreadPool;
+import com.huawei.chataidesign.utils.IdGenerator;
+import com.huawei.chataidesign.utils.JacksonUtil;
+import com.huawei.chataidesign.utils.TextNormalizer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 意图识别结果缓存
+ *
+ * 以归一化后的输入和上下文为键，本地按 LRU 加过期时间淘汰，条目数和过期时间取自 intent.recognition.cache；
+ * 可选 Redis 作为第二级缓存供多实例共享。缓存的是识别结论，命中时按本次输入生成新的识别结果。
+ */
+@Slf4j
+@Component
+public class IntentResultCache {
+
+    @Resource
+    private IntentRecognitionConfig intentRecognitionConfig;
+
+    @Resource
+    private RedisRepository redisRepository;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, CachedIntent> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private Counter localHits;
+    private Counter redisHits;
+    private Counter misses;
+    private Counter evictions;
+
+    @PostConstruct
+    public void init() {
+        localHits = meterRegistry.counter("intent.cache.requests", "result", "local_hit");
+        redisHits = meterRegistry.counter("intent.cache.requests", "result", "redis_hit");
+        misses = meterRegistry.counter("intent.cache.requests", "result", "miss");
+        evictions = meterRegistry.counter("intent.cache.evictions");
+        Gauge.builder("intent.cache.entries", this, IntentResultCache::size).register(meterRegistry);
+    }
+
+    /**
+     * 查找缓存的识别结果
+     *
+     * @param userInput 用户输入
+     * @param context 上下文，可为 null
+     * @return 按本次输入生成的识别结果，未命中或未启用缓存时返回 null
+     */
+    public IntentClassification get(String userInput, String context) {
+        IntentRecognitionConfig.CacheConfig cacheConfig = intentRecognitionConfig.getCache();
+        if (!cacheConfig.isEnabled()) {
+            return null;
+        }
+        String key = key(userInput, context);
+        long now = System.currentTimeMillis();
+        CachedIntent cached = getLocal(key, now);
+        if (cached != null) {
+            localHits.increment();
+            return cached.toClassification(userInput);
+        }
+        cached = getRedis(key, cacheConfig);
+        if (cached != null) {
+            redisHits.increment();
+            putLocal(key, cached.withExpiry(now + ttlMillis(cacheConfig)), cacheConfig);
+            return cached.toClassification(userInput);
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * 写入识别结果
+     */
+    public void put(String userInput, String context, IntentClassification classification) {
+        IntentRecognitionConfig.CacheConfig cacheConfig = intentRecognitionConfig.getCache();
+        if (!cacheConfig.isEnabled() || classification == null || classification.getPrimaryIntent() == null) {
+            return;
+        }
+        String key = key(userInput, context);
+        CachedIntent cached = CachedIntent.of(classification, System.currentTimeMillis() + ttlMillis(cacheConfig));
+        putLocal(key, cached, cacheConfig);
+        if (cacheConfig.isRedisEnabled()) {
+            String json = JacksonUtil.toJsonString(cached);
+            ThreadPool.execute(() -> redisRepository.setEx(redisKey(key, cacheConfig), json,
+                    TimeUnit.MINUTES.toSeconds(cacheConfig.getTtlMinutes())));
+        }
+    }
+
+    /**
+     * 清除本地缓存以及 Redis 中的共享缓存
+     *
+     * @return 清除的条目数
+     */
+    public long clear() {
+        long cleared;
+        lock.lock();
+        try {
+            cleared = entries.size();
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+        IntentRecognitionConfig.CacheConfig cacheConfig = intentRecognitionConfig.getCache();
+        if (cacheConfig.isRedisEnabled()) {
+            cleared += Math.max(0, redisRepository.deleteByPattern(cacheConfig.getRedisKeyPrefix() + "*"));
+        }
+        return cleared;
+    }
+
+    /**
+     * 本地缓存的条目数
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getLocalHits() {
+        return (long) localHits.count();
+    }
+
+    public long getRedisHits() {
+        return (long) redisHits.count();
+    }
+
+    public long getMisses() {
+        return (long) misses.count();
+    }
+
+    private CachedIntent getLocal(String key, long now) {
+        lock.lock();
+        try {
+            CachedIntent cached = entries.get(key);
+            if (cached == null) {
+                return null;
+            }
+            if (now > cached.expiresAtMillis()) {
+                entries.remove(key);
+                return null;
+            }
+            return cached;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void putLocal(String key, CachedIntent cached, IntentRecognitionConfig.CacheConfig cacheConfig) {
+        lock.lock();
+        try {
+            entries.put(key, cached);
+            // 访问顺序的 LinkedHashMap 头部即最久未访问的条目
+            while (entries.size() > cacheConfig.getMaxSize()) {
+                entries.remove(entries.keySet().iterator().next());
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private CachedIntent getRedis(String key, IntentRecognitionConfig.CacheConfig cacheConfig) {
+        if (!cacheConfig.isRedisEnabled()) {
+            return null;
+        }
+        try {
+            Object value = redisRepository.get(redisKey(key, cacheConfig));
+            return value instanceof String json ? JacksonUtil.toObject(json, CachedIntent.class) : null;
+        } catch (Exception e) {
+            log.warn("Failed to read intent result from Redis", e);
+            return null;
+        }
+    }
+
+    private static long ttlMillis(IntentRecognitionConfig.CacheConfig cacheConfig) {
+        return TimeUnit.MINUTES.toMillis(cacheConfig.getTtlMinutes());
+    }
+
+    private static String key(String userInput, String context) {
+        return TextNormalizer.normalize(userInput) + '\u0000' + TextNormalizer.normalize(context);
+    }
+
+    private static String redisKey(String key, IntentRecognitionConfig.CacheConfig cacheConfig) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return cacheConfig.getRedisKeyPrefix() + HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * 缓存的识别结论，不含每次请求各不相同的ID、输入和处理时间
+     */
+    record CachedIntent(IntentType primaryIntent,
+                        Double confidence,
+                        String intentDescription,
+                        String entities,
+                        Boolean needsConfirmation,
+                        String suggestedAction,
+                        long expiresAtMillis) {
+
+        static CachedIntent of(IntentClassification classification, long expiresAtMillis) {
+            return new CachedIntent(classification.getPrimaryIntent(), classification.getConfidence(),
+                    classification.getIntentDescription(), classification.getEntities(),
+                    classification.getNeedsConfirmation(), classification.getSuggestedAction(), expiresAtMillis);
+        }
+
+        CachedIntent withExpiry(long expiresAtMillis) {
+            return new CachedIntent(primaryIntent, confidence, intentDescription, entities,
+                    needsConfirmation, suggestedAction, expiresAtMillis);
+        }
+
+        IntentClassification toClassification(String userInput) {
+            IntentClassification classification = new IntentClassification(IdGenerator.fastUuid(), primaryIntent,
+                    confidence, userInput, intentDescription, suggestedAction);
+            classification.setEntities(entities);
+            classification.setNeedsConfirmation(needsConfirmation);
+            return classification;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.huawei.chataidesign.service.intent;
+
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * 低置信度意图样本导出端点，名称为 intentsamples
+ *
+ * 样本包含其他用户的原始输入，因此不作为业务接口开放，默认也不在 management.endpoints.web.exposure 中暴露；
+ * 需要导出时只在独立的管理端口上开启，由运维人员访问。
+ */
+@Slf4j
+@Component
+@Endpoint(id = "intentsamples")
+public class IntentSamplesEndpoint {
+
+    @Resource
+    private IntentTelemetry intentTelemetry;
+
+    /**
+     * 以训练样本 TSV 格式导出采样的低置信度输入，供重新标注
+     */
+    @ReadOperation(produces = "text/tab-separated-values;charset=UTF-8")
+    public String lowConfidenceSamples() throws IOException {
+        StringWriter writer = new StringWriter();
+        int count = intentTelemetry.exportLowConfidenceSamples(writer);
+        log.info("Exported {} low-confidence intent samples", count);
+        return writer.toString();
+    }
+}
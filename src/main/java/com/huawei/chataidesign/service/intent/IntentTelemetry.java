@@ -0,0 +1,290 @@
+package com.huawei.chataidesign.service.intent;
+
+import com.huawei.chataidesign.config.IntentRecognitionConfig;
+import com.huawei.chataidesign.entity.IntentType;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 意图识别遥测
+ *
+ * 按 意图 × 识别策略 统计结果数，按策略记录耗时直方图，按十个区间统计置信度分布，
+ * 并按采样率把低置信度输入写入定长环形缓冲区，供导出后人工重新标注。
+ * 计数使用分段的 LongAdder，环形缓冲区预先分配，记录路径上不分配对象。
+ */
+@Slf4j
+@Component
+public class IntentTelemetry {
+
+    /**
+     * 识别策略
+     */
+    public enum Strategy {
+        CACHE, CLASSIFIER, KEYWORD, MODEL;
+
+        private final String tag = name().toLowerCase();
+    }
+
+    private static final IntentType[] INTENTS = IntentType.values();
+    private static final Strategy[] STRATEGIES = Strategy.values();
+    private static final int CONFIDENCE_BUCKETS = 10;
+    private static final long EMPTY = -1;
+    private static final long WRITING = -2;
+
+    @Resource
+    private IntentRecognitionConfig intentRecognitionConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 下标为 策略序号 × 意图数 + 意图序号
+     */
+    private final LongAdder[] results = new LongAdder[STRATEGIES.length * INTENTS.length];
+    private final LongAdder[] confidenceBuckets = new LongAdder[CONFIDENCE_BUCKETS];
+    private final Timer[] latencies = new Timer[STRATEGIES.length];
+    private DistributionSummary confidence;
+
+    private double lowConfidenceThreshold;
+    private int sampleRate;
+
+    /**
+     * 低置信度样本环形缓冲区，容量为 2 的幂；sequences 中为写入该槽位时的序号，
+     * EMPTY 表示为空，WRITING 表示已被某个写入者占用；写入者通过 CAS 占用槽位，占用失败则丢弃本次样本
+     */
+    private int mask;
+    private String[] sampleInputs;
+    private IntentType[] sampleIntents;
+    private Strategy[] sampleStrategies;
+    private double[] sampleConfidences;
+    private long[] sampleTimestamps;
+    private AtomicLongArray sequences;
+    private final AtomicLong cursor = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        IntentRecognitionConfig.TelemetryConfig telemetry = intentRecognitionConfig.getTelemetry();
+        lowConfidenceThreshold = telemetry.getLowConfidenceThreshold();
+        sampleRate = Math.max(1, telemetry.getSampleRate());
+        int capacity = Integer.highestOneBit(Math.max(1, telemetry.getRingBufferSize() - 1)) << 1;
+        mask = capacity - 1;
+        sampleInputs = new String[capacity];
+        sampleIntents = new IntentType[capacity];
+        sampleStrategies = new Strategy[capacity];
+        sampleConfidences = new double[capacity];
+        sampleTimestamps = new long[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, EMPTY);
+        }
+
+        for (Strategy strategy : STRATEGIES) {
+            latencies[strategy.ordinal()] = Timer.builder("intent.recognition.latency")
+                    .tag("strategy", strategy.tag)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            for (IntentType intent : INTENTS) {
+                LongAdder adder = new LongAdder();
+                results[strategy.ordinal() * INTENTS.length + intent.ordinal()] = adder;
+                FunctionCounter.builder("intent.recognition.results", adder, LongAdder::sum)
+                        .tag("strategy", strategy.tag)
+                        .tag("intent", intent.getCode())
+                        .register(meterRegistry);
+            }
+        }
+        double[] boundaries = new double[CONFIDENCE_BUCKETS];
+        for (int i = 0; i < CONFIDENCE_BUCKETS; i++) {
+            confidenceBuckets[i] = new LongAdder();
+            boundaries[i] = (i + 1) / (double) CONFIDENCE_BUCKETS;
+        }
+        confidence = DistributionSummary.builder("intent.recognition.confidence")
+                .serviceLevelObjectives(boundaries)
+                .register(meterRegistry);
+        log.info("Intent telemetry initialized with low-confidence threshold={}, sample rate=1/{}, ring buffer={}",
+                lowConfidenceThreshold, sampleRate, capacity);
+    }
+
+    /**
+     * 记录一次策略调用的耗时，包括结果未被采用的策略
+     */
+    public void recordLatency(Strategy strategy, long elapsedNanos) {
+        latencies[strategy.ordinal()].record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录最终采用的识别结果
+     *
+     * @param strategy 产生结果的策略
+     * @param intent 识别出的意图
+     * @param confidence 置信度
+     * @param input 用户输入，低置信度且被采样时写入环形缓冲区
+     */
+    public void recordResult(Strategy strategy, IntentType intent, double confidence, String input) {
+        results[strategy.ordinal() * INTENTS.length + intent.ordinal()].increment();
+        int bucket = Math.min(CONFIDENCE_BUCKETS - 1, Math.max(0, (int) (confidence * CONFIDENCE_BUCKETS)));
+        confidenceBuckets[bucket].increment();
+        this.confidence.record(confidence);
+        if (confidence < lowConfidenceThreshold
+                && (sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0)) {
+            sample(strategy, intent, confidence, input);
+        }
+    }
+
+    /**
+     * 某策略产生的结果总数
+     */
+    public long count(Strategy strategy) {
+        long total = 0;
+        int offset = strategy.ordinal() * INTENTS.length;
+        for (int i = 0; i < INTENTS.length; i++) {
+            total += results[offset + i].sum();
+        }
+        return total;
+    }
+
+    /**
+     * 某策略的调用次数，包括结果未被采用或调用失败的情况
+     */
+    public long attempts(Strategy strategy) {
+        return latencies[strategy.ordinal()].count();
+    }
+
+    /**
+     * 所有策略产生的结果总数
+     */
+    public long total() {
+        long total = 0;
+        for (LongAdder adder : results) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    /**
+     * 当前的统计快照
+     */
+    public Snapshot snapshot() {
+        Map<String, Map<String, Long>> byStrategy = new LinkedHashMap<>();
+        Map<String, Double> meanLatencyMillis = new LinkedHashMap<>();
+        for (Strategy strategy : STRATEGIES) {
+            Map<String, Long> byIntent = new LinkedHashMap<>();
+            for (IntentType intent : INTENTS) {
+                long count = results[strategy.ordinal() * INTENTS.length + intent.ordinal()].sum();
+                if (count > 0) {
+                    byIntent.put(intent.getCode(), count);
+                }
+            }
+            byStrategy.put(strategy.tag, byIntent);
+            meanLatencyMillis.put(strategy.tag, latencies[strategy.ordinal()].mean(TimeUnit.MILLISECONDS));
+        }
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        for (int i = 0; i < CONFIDENCE_BUCKETS; i++) {
+            buckets.put(String.format("%.1f-%.1f", i / (double) CONFIDENCE_BUCKETS, (i + 1) / (double) CONFIDENCE_BUCKETS),
+                    confidenceBuckets[i].sum());
+        }
+        return new Snapshot(total(), byStrategy, meanLatencyMillis, buckets, lowConfidenceSamples().size());
+    }
+
+    /**
+     * 环形缓冲区中的低置信度样本，按写入顺序从旧到新
+     */
+    public List<LowConfidenceSample> lowConfidenceSamples() {
+        long end = cursor.get();
+        long start = Math.max(0, end - (mask + 1));
+        List<LowConfidenceSample> samples = new ArrayList<>((int) (end - start));
+        for (long ticket = start; ticket < end; ticket++) {
+            int slot = (int) (ticket & mask);
+            if (sequences.get(slot) != ticket) {
+                continue;
+            }
+            LowConfidenceSample sample = new LowConfidenceSample(sampleInputs[slot], sampleIntents[slot],
+                    sampleStrategies[slot].tag, sampleConfidences[slot], Instant.ofEpochMilli(sampleTimestamps[slot]));
+            // 读取期间槽位被覆盖则丢弃；屏障保证字段读取不会重排到复查之后
+            VarHandle.acquireFence();
+            if (sequences.get(slot) == ticket) {
+                samples.add(sample);
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * 以训练样本格式导出低置信度样本：每行 意图编码<TAB>用户输入，上一行注释记录置信度和策略，
+     * 重新标注后可直接追加到 intent-training.tsv
+     */
+    public int exportLowConfidenceSamples(Writer writer) throws IOException {
+        List<LowConfidenceSample> samples = lowConfidenceSamples();
+        writer.write("# 低置信度意图样本：修正每行的意图编码后追加到 intent-training.tsv\n");
+        for (LowConfidenceSample sample : samples) {
+            writer.write(String.format("# %s %s p=%.3f%n", sample.recordedAt(), sample.strategy(), sample.confidence()));
+            writer.write(sample.intent().getCode());
+            writer.write('\t');
+            writer.write(sample.input().replaceAll("[\\t\\r\\n]+", " "));
+            writer.write('\n');
+        }
+        writer.flush();
+        return samples.size();
+    }
+
+    private void sample(Strategy strategy, IntentType intent, double confidence, String input) {
+        if (input == null) {
+            return;
+        }
+        long ticket = cursor.getAndIncrement();
+        int slot = (int) (ticket & mask);
+        long current = sequences.get(slot);
+        // 回绕到同一槽位的写入者正在写入，或槽位已写入更新的样本时，丢弃本次样本，避免字段交错
+        if (current == WRITING || current > ticket || !sequences.compareAndSet(slot, current, WRITING)) {
+            return;
+        }
+        sampleInputs[slot] = input;
+        sampleIntents[slot] = intent;
+        sampleStrategies[slot] = strategy;
+        sampleConfidences[slot] = confidence;
+        sampleTimestamps[slot] = System.currentTimeMillis();
+        sequences.set(slot, ticket);
+    }
+
+    /**
+     * 统计快照
+     *
+     * @param total 识别结果总数
+     * @param resultsByStrategy 策略 -> 意图编码 -> 结果数
+     * @param meanLatencyMillis 各策略平均耗时
+     * @param confidenceBuckets 置信度区间 -> 结果数
+     * @param lowConfidenceSamples 缓冲区中的低置信度样本数
+     */
+    public record Snapshot(long total,
+                           Map<String, Map<String, Long>> resultsByStrategy,
+                           Map<String, Double> meanLatencyMillis,
+                           Map<String, Long> confidenceBuckets,
+                           int lowConfidenceSamples) {
+    }
+
+    /**
+     * 低置信度样本
+     */
+    public record LowConfidenceSample(String input, IntentType intent, String strategy, double confidence,
+                                      Instant recordedAt) {
+    }
+}
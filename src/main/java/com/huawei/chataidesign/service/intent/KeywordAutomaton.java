@@ -0,0 +1,309 @@
+package com.huawei.chataidesign.service.intent;
+
+import com.huawei.chataidesign.config.IntentRecognitionConfig.KeywordRule;
+import com.huawei.chataidesign.entity.IntentType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 意图关键词自动机
+ *
+ * 把所有意图的关键词编译成一个 Aho-Corasick 自动机，对输入只扫描一遍即可找出全部命中的关键词，
+ * 耗时与关键词数量基本无关。每个命中的关键词（同一关键词只计一次）把权重累加到所属意图上，
+ * 由调用方按得分选出主要意图。
+ *
+ * 匹配忽略大小写；首尾是英文字母或数字的关键词要求在单词边界上命中，避免 "hi" 命中 "github"。
+ * 编译后的自动机只读，可以被多个线程共享。
+ */
+public class KeywordAutomaton {
+
+    private static final IntentType[] INTENTS = IntentType.values();
+
+    /**
+     * 根节点的完整转移表，绝大多数字符都停留在根节点，用数组直接寻址
+     */
+    private final int[] rootTransitions = new int[Character.MAX_VALUE + 1];
+
+    /**
+     * 非根节点的转移按节点连续存放，节点 n 的边位于 [edgeOffsets[n], edgeOffsets[n + 1])，按字符升序
+     */
+    private final int[] edgeOffsets;
+    private final char[] edgeLabels;
+    private final int[] edgeTargets;
+    private final int[] failures;
+
+    /**
+     * 每个节点可输出的关键词编号，已合并失败链上的输出
+     */
+    private final int[][] outputs;
+
+    private final int[] keywordLengths;
+    private final int[] keywordIntents;
+    private final double[] keywordWeights;
+    private final boolean[] leftBoundaries;
+    private final boolean[] rightBoundaries;
+
+    /**
+     * 意图得分相同时的优先级，数值越小越优先，按意图在规则中首次出现的顺序
+     */
+    private final int[] intentPriorities = new int[INTENTS.length];
+
+    /**
+     * 编译关键词规则
+     *
+     * @param rules 关键词规则，规则顺序决定得分相同时的意图优先级
+     */
+    public KeywordAutomaton(List<KeywordRule> rules) {
+        List<String> keywords = new ArrayList<>();
+        List<Integer> intents = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        Arrays.fill(intentPriorities, Integer.MAX_VALUE);
+        int priority = 0;
+        for (KeywordRule rule : rules) {
+            int ordinal = rule.getIntent().ordinal();
+            if (intentPriorities[ordinal] == Integer.MAX_VALUE) {
+                intentPriorities[ordinal] = priority++;
+            }
+            for (String keyword : rule.getKeywords()) {
+                if (keyword == null || keyword.isBlank()) {
+                    continue;
+                }
+                keywords.add(lowerCase(keyword.strip()));
+                intents.add(ordinal);
+                weights.add(rule.getWeight());
+            }
+        }
+
+        int count = keywords.size();
+        keywordLengths = new int[count];
+        keywordIntents = new int[count];
+        keywordWeights = new double[count];
+        leftBoundaries = new boolean[count];
+        rightBoundaries = new boolean[count];
+
+        // 构建字典树
+        List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        List<List<Integer>> terminals = new ArrayList<>();
+        children.add(new TreeMap<>());
+        terminals.add(new ArrayList<>());
+        for (int k = 0; k < count; k++) {
+            String keyword = keywords.get(k);
+            keywordLengths[k] = keyword.length();
+            keywordIntents[k] = intents.get(k);
+            keywordWeights[k] = weights.get(k);
+            leftBoundaries[k] = isWordChar(keyword.charAt(0));
+            rightBoundaries[k] = isWordChar(keyword.charAt(keyword.length() - 1));
+            int node = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                Integer next = children.get(node).get(keyword.charAt(i));
+                if (next == null) {
+                    next = children.size();
+                    children.get(node).put(keyword.charAt(i), next);
+                    children.add(new TreeMap<>());
+                    terminals.add(new ArrayList<>());
+                }
+                node = next;
+            }
+            terminals.get(node).add(k);
+        }
+
+        // 压缩转移表
+        int nodes = children.size();
+        edgeOffsets = new int[nodes + 1];
+        edgeLabels = new char[nodes - 1];
+        edgeTargets = new int[nodes - 1];
+        int edge = 0;
+        for (int node = 0; node < nodes; node++) {
+            edgeOffsets[node] = edge;
+            for (Map.Entry<Character, Integer> entry : children.get(node).entrySet()) {
+                if (node == 0) {
+                    rootTransitions[entry.getKey()] = entry.getValue();
+                }
+                edgeLabels[edge] = entry.getKey();
+                edgeTargets[edge] = entry.getValue();
+                edge++;
+            }
+        }
+        edgeOffsets[nodes] = edge;
+
+        // 按层计算失败指针并合并输出
+        failures = new int[nodes];
+        outputs = new int[nodes][];
+        outputs[0] = new int[0];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : children.get(0).values()) {
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            List<Integer> own = terminals.get(node);
+            int[] inherited = outputs[failures[node]];
+            int[] merged = new int[own.size() + inherited.length];
+            for (int i = 0; i < own.size(); i++) {
+                merged[i] = own.get(i);
+            }
+            System.arraycopy(inherited, 0, merged, own.size(), inherited.length);
+            outputs[node] = merged;
+            for (Map.Entry<Character, Integer> entry : children.get(node).entrySet()) {
+                int child = entry.getValue();
+                failures[child] = next(failures[node], entry.getKey());
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * 扫描输入并为每个意图累计关键词权重
+     *
+     * @param text 用户输入
+     * @return 各意图得分
+     */
+    public Scores scan(CharSequence text) {
+        double[] scores = new double[INTENTS.length];
+        long[] seen = null;
+        int state = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            state = next(state, Character.toLowerCase(text.charAt(i)));
+            int[] matched = outputs[state];
+            for (int keyword : matched) {
+                if (!onBoundary(text, keyword, i)) {
+                    continue;
+                }
+                if (seen == null) {
+                    seen = new long[(keywordLengths.length + 63) >>> 6];
+                }
+                long bit = 1L << keyword;
+                if ((seen[keyword >>> 6] & bit) == 0) {
+                    seen[keyword >>> 6] |= bit;
+                    scores[keywordIntents[keyword]] += keywordWeights[keyword];
+                }
+            }
+        }
+        return new Scores(scores, intentPriorities);
+    }
+
+    /**
+     * 已编译的关键词数
+     */
+    public int size() {
+        return keywordLengths.length;
+    }
+
+    private int next(int state, char c) {
+        while (state != 0) {
+            int target = child(state, c);
+            if (target >= 0) {
+                return target;
+            }
+            state = failures[state];
+        }
+        return rootTransitions[c];
+    }
+
+    private int child(int node, char c) {
+        int low = edgeOffsets[node];
+        int high = edgeOffsets[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char label = edgeLabels[mid];
+            if (label < c) {
+                low = mid + 1;
+            } else if (label > c) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+
+    private boolean onBoundary(CharSequence text, int keyword, int end) {
+        if (leftBoundaries[keyword]) {
+            int before = end - keywordLengths[keyword];
+            if (before >= 0 && isWordChar(Character.toLowerCase(text.charAt(before)))) {
+                return false;
+            }
+        }
+        if (rightBoundaries[keyword]) {
+            int after = end + 1;
+            return after >= text.length() || !isWordChar(Character.toLowerCase(text.charAt(after)));
+        }
+        return true;
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+    }
+
+    private static String lowerCase(String keyword) {
+        char[] chars = keyword.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 一次扫描的意图得分
+     */
+    public static final class Scores {
+
+        private final double[] scores;
+        private final int[] priorities;
+        private final int best;
+
+        private Scores(double[] scores, int[] priorities) {
+            this.scores = scores;
+            this.priorities = priorities;
+            int best = -1;
+            for (int i = 0; i < scores.length; i++) {
+                if (scores[i] > 0 && (best < 0 || scores[i] > scores[best]
+                        || (scores[i] == scores[best] && priorities[i] < priorities[best]))) {
+                    best = i;
+                }
+            }
+            this.best = best;
+        }
+
+        /**
+         * 得分最高的意图，没有命中任何关键词时返回 null
+         */
+        public IntentType best() {
+            return best < 0 ? null : INTENTS[best];
+        }
+
+        /**
+         * 最高得分
+         */
+        public double bestScore() {
+            return best < 0 ? 0 : scores[best];
+        }
+
+        /**
+         * 除最高得分意图外的次高得分
+         */
+        public double runnerUpScore() {
+            double runnerUp = 0;
+            for (int i = 0; i < scores.length; i++) {
+                if (i != best && scores[i] > runnerUp) {
+                    runnerUp = scores[i];
+                }
+            }
+            return runnerUp;
+        }
+
+        /**
+         * 指定意图的得分
+         */
+        public double score(IntentType intent) {
+            return scores[intent.ordinal()];
+        }
+    }
+}
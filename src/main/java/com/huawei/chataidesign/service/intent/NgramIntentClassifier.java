@@ -0,0 +1,309 @@
+package com.huawei.chataidesign.service.intent;
+
+import com.huawei.chataidesign.entity.IntentType;
+import com.huawei.chataidesign.utils.TextNormalizer;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 字符 n-gram 意图分类器
+ *
+ * 把归一化后的输入切成 1 到 3 字的 n-gram，哈希到固定数量的桶中作为特征（L2 归一化的词频），
+ * 用多项逻辑回归（softmax）给出各意图的概率。模型只有一个权重矩阵，纯 JVM 实现，单次分类为微秒级。
+ * 训练见测试源码中的离线工具 IntentClassifierTrainer，模型文件只保存非零权重的桶。
+ * 加载后的模型只读，可以被多个线程共享。
+ */
+public class NgramIntentClassifier {
+
+    private static final int MAGIC = 0x494E544D;
+    private static final int VERSION = 1;
+    private static final int MAX_N = 3;
+    private static final char BEGIN = '\u0002';
+    private static final char END = '\u0003';
+
+    private final int buckets;
+    private final IntentType[] classes;
+
+    /**
+     * 权重按桶连续存放，桶 b 对类别 c 的权重为 weights[b * classes.length + c]
+     */
+    private final float[] weights;
+    private final float[] biases;
+
+    private NgramIntentClassifier(int buckets, IntentType[] classes, float[] weights, float[] biases) {
+        this.buckets = buckets;
+        this.classes = classes;
+        this.weights = weights;
+        this.biases = biases;
+    }
+
+    /**
+     * 分类
+     *
+     * @param text 用户输入
+     * @return 概率最高的意图及各意图的概率
+     */
+    public Prediction classify(String text) {
+        Features features = features(text, buckets);
+        double[] probabilities = probabilities(features, weights, biases, classes.length);
+        int best = 0;
+        for (int c = 1; c < probabilities.length; c++) {
+            if (probabilities[c] > probabilities[best]) {
+                best = c;
+            }
+        }
+        return new Prediction(classes[best], probabilities[best], classes, probabilities);
+    }
+
+    /**
+     * 模型支持的意图
+     */
+    public List<IntentType> getClasses() {
+        return List.of(classes);
+    }
+
+    /**
+     * 训练
+     *
+     * @param examples 标注样本
+     * @param options 训练参数
+     * @return 训练好的模型
+     */
+    public static NgramIntentClassifier train(List<Example> examples, TrainingOptions options) {
+        Set<IntentType> labels = new LinkedHashSet<>();
+        examples.forEach(example -> labels.add(example.intent()));
+        IntentType[] classes = labels.stream().sorted().toArray(IntentType[]::new);
+        int classCount = classes.length;
+        int[] classIndex = new int[IntentType.values().length];
+        for (int c = 0; c < classCount; c++) {
+            classIndex[classes[c].ordinal()] = c;
+        }
+
+        List<Features> featureList = new ArrayList<>(examples.size());
+        int[] targets = new int[examples.size()];
+        for (int i = 0; i < examples.size(); i++) {
+            featureList.add(features(examples.get(i).text(), options.buckets()));
+            targets[i] = classIndex[examples.get(i).intent().ordinal()];
+        }
+
+        float[] weights = new float[options.buckets() * classCount];
+        float[] biases = new float[classCount];
+        int[] order = new int[examples.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Random random = new Random(options.seed());
+        for (int epoch = 0; epoch < options.epochs(); epoch++) {
+            shuffle(order, random);
+            double learningRate = options.learningRate() / (1 + epoch * 0.1);
+            for (int i : order) {
+                Features features = featureList.get(i);
+                double[] probabilities = probabilities(features, weights, biases, classCount);
+                for (int c = 0; c < classCount; c++) {
+                    double gradient = probabilities[c] - (c == targets[i] ? 1 : 0);
+                    biases[c] -= (float) (learningRate * gradient);
+                    for (int f = 0; f < features.buckets.length; f++) {
+                        int w = features.buckets[f] * classCount + c;
+                        weights[w] -= (float) (learningRate * (gradient * features.values[f] + options.l2() * weights[w]));
+                    }
+                }
+            }
+        }
+        return new NgramIntentClassifier(options.buckets(), classes, weights, biases);
+    }
+
+    /**
+     * 从模型文件加载
+     */
+    public static NgramIntentClassifier load(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not an intent classifier model");
+        }
+        int buckets = in.readInt();
+        IntentType[] classes = new IntentType[in.readInt()];
+        for (int c = 0; c < classes.length; c++) {
+            classes[c] = IntentType.valueOf(in.readUTF());
+        }
+        float[] biases = new float[classes.length];
+        for (int c = 0; c < classes.length; c++) {
+            biases[c] = in.readFloat();
+        }
+        float[] weights = new float[buckets * classes.length];
+        int nonZeroBuckets = in.readInt();
+        for (int i = 0; i < nonZeroBuckets; i++) {
+            int offset = in.readInt() * classes.length;
+            for (int c = 0; c < classes.length; c++) {
+                weights[offset + c] = in.readFloat();
+            }
+        }
+        return new NgramIntentClassifier(buckets, classes, weights, biases);
+    }
+
+    /**
+     * 保存为模型文件，只写出有非零权重的桶
+     */
+    public void save(OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(buckets);
+        out.writeInt(classes.length);
+        for (IntentType intent : classes) {
+            out.writeUTF(intent.name());
+        }
+        for (float bias : biases) {
+            out.writeFloat(bias);
+        }
+        List<Integer> nonZero = new ArrayList<>();
+        for (int b = 0; b < buckets; b++) {
+            for (int c = 0; c < classes.length; c++) {
+                if (weights[b * classes.length + c] != 0) {
+                    nonZero.add(b);
+                    break;
+                }
+            }
+        }
+        out.writeInt(nonZero.size());
+        for (int b : nonZero) {
+            out.writeInt(b);
+            for (int c = 0; c < classes.length; c++) {
+                out.writeFloat(weights[b * classes.length + c]);
+            }
+        }
+        out.flush();
+    }
+
+    private static double[] probabilities(Features features, float[] weights, float[] biases, int classCount) {
+        double[] scores = new double[classCount];
+        for (int c = 0; c < classCount; c++) {
+            scores[c] = biases[c];
+        }
+        for (int f = 0; f < features.buckets.length; f++) {
+            int offset = features.buckets[f] * classCount;
+            float value = features.values[f];
+            for (int c = 0; c < classCount; c++) {
+                scores[c] += value * weights[offset + c];
+            }
+        }
+        double max = Double.NEGATIVE_INFINITY;
+        for (double score : scores) {
+            max = Math.max(max, score);
+        }
+        double sum = 0;
+        for (int c = 0; c < classCount; c++) {
+            scores[c] = Math.exp(scores[c] - max);
+            sum += scores[c];
+        }
+        for (int c = 0; c < classCount; c++) {
+            scores[c] /= sum;
+        }
+        return scores;
+    }
+
+    /**
+     * 提取哈希 n-gram 特征：首尾加边界符，同一个桶的词频合并后做 L2 归一化
+     */
+    static Features features(String text, int buckets) {
+        String normalized = TextNormalizer.normalize(text);
+        int length = normalized.length() + 2;
+        char[] chars = new char[length];
+        chars[0] = BEGIN;
+        normalized.getChars(0, normalized.length(), chars, 1);
+        chars[length - 1] = END;
+
+        int[] hashes = new int[length * MAX_N];
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            int hash = 0;
+            for (int n = 1; n <= MAX_N && i + n <= length; n++) {
+                hash = hash * 31 + chars[i + n - 1];
+                if (n == 1 && (chars[i] == BEGIN || chars[i] == END)) {
+                    continue;
+                }
+                hashes[count++] = Math.floorMod(mix(hash * 4 + n), buckets);
+            }
+        }
+        Arrays.sort(hashes, 0, count);
+
+        int[] featureBuckets = new int[count];
+        float[] values = new float[count];
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique > 0 && featureBuckets[unique - 1] == hashes[i]) {
+                values[unique - 1]++;
+            } else {
+                featureBuckets[unique] = hashes[i];
+                values[unique++] = 1;
+            }
+        }
+        double norm = 0;
+        for (int i = 0; i < unique; i++) {
+            norm += values[i] * values[i];
+        }
+        float scale = norm == 0 ? 0 : (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < unique; i++) {
+            values[i] *= scale;
+        }
+        return new Features(Arrays.copyOf(featureBuckets, unique), Arrays.copyOf(values, unique));
+    }
+
+    /**
+     * murmur3 的 32 位收尾混合，打散相近的 n-gram 哈希
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    private static void shuffle(int[] order, Random random) {
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+    }
+
+    record Features(int[] buckets, float[] values) {
+    }
+
+    /**
+     * 标注样本
+     */
+    public record Example(IntentType intent, String text) {
+    }
+
+    /**
+     * 训练参数
+     */
+    public record TrainingOptions(int buckets, int epochs, double learningRate, double l2, long seed) {
+
+        public static TrainingOptions defaults() {
+            return new TrainingOptions(1 << 16, 30, 0.5, 1e-5, 42);
+        }
+    }
+
+    /**
+     * 分类结果
+     *
+     * @param intent 概率最高的意图
+     * @param probability 该意图的概率
+     */
+    public record Prediction(IntentType intent, double probability, IntentType[] classes, double[] probabilities) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.huawei.chataidesign.service.rag;
+
+import com.huawei.chataidesign.repository.lexical.Bm25Index;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+
+import java.util.List;
+
+/**
+ * 基于 BM25 倒排索引的关键词检索器
+ * 弥补向量检索对框架名、报错信息等精确关键词不敏感的问题
+ */
+public class Bm25ContentRetriever implements ContentRetriever {
+
+    private final Bm25Index index;
+    private final int maxResults;
+    private final double minScore;
+
+    public Bm25ContentRetriever(Bm25Index index, int maxResults, double minScore) {
+        this.index = index;
+        this.maxResults = maxResults;
+        this.minScore = minScore;
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        return index.search(query.text(), maxResults, minScore).stream()
+                .map(match -> Content.from(match.segment()))
+                .toList();
+    }
+}
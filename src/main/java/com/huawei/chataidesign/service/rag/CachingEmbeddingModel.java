@@ -0,0 +1,251 @@
+package com.huawei.chataidesign.service.rag;
+
+import com.huawei.chataidesign.repository.redis.RedisRepository;
+import com.huawei.chataidesign.thread.ThreadPool;
+import com.huawei.chataidesign.utils.TextNormalizer;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 带缓存的查询向量化模型
+ *
+ * 装饰向量模型的单条文本向量化：以归一化后的文本为键缓存向量，本地按 LRU 加过期时间淘汰，
+ * 可选 Redis 作为第二级缓存供多实例共享。批量向量化（入库）不经过缓存。
+ * 每次命中按最近的模型调用平均耗时累计节省的时间。
+ */
+@Slf4j
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final RedisRepository redisRepository;
+    private final String redisKeyPrefix;
+    private final long redisTtlSeconds;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, CachedVector> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Counter localHits;
+    private final Counter redisHits;
+    private final Counter misses;
+    private final Timer modelLatency;
+    private final AtomicLong savedNanos = new AtomicLong();
+
+    /**
+     * 模型调用耗时的指数滑动平均，用于估算命中节省的时间
+     */
+    private volatile double averageModelNanos;
+
+    /**
+     * @param delegate 实际的向量模型
+     * @param maxEntries 本地最多缓存的向量数
+     * @param ttlMillis 本地缓存过期时间
+     * @param redisRepository Redis 仓库，为 null 时不启用第二级缓存
+     * @param redisKeyPrefix Redis 键前缀
+     * @param redisTtlSeconds Redis 缓存过期时间
+     * @param meterRegistry 指标注册表
+     */
+    public CachingEmbeddingModel(EmbeddingModel delegate,
+                                 int maxEntries,
+                                 long ttlMillis,
+                                 RedisRepository redisRepository,
+                                 String redisKeyPrefix,
+                                 long redisTtlSeconds,
+                                 MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.redisRepository = redisRepository;
+        this.redisKeyPrefix = redisKeyPrefix;
+        this.redisTtlSeconds = redisTtlSeconds;
+        this.localHits = meterRegistry.counter("rag.query.embedding.cache.requests", "result", "local_hit");
+        this.redisHits = meterRegistry.counter("rag.query.embedding.cache.requests", "result", "redis_hit");
+        this.misses = meterRegistry.counter("rag.query.embedding.cache.requests", "result", "miss");
+        this.modelLatency = Timer.builder("rag.query.embedding.model.latency")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        FunctionCounter.builder("rag.query.embedding.cache.saved", savedNanos,
+                        nanos -> nanos.get() / (double) TimeUnit.SECONDS.toNanos(1))
+                .description("Estimated embedding latency saved by cache hits")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("rag.query.embedding.cache.hit.ratio", this, CachingEmbeddingModel::hitRatio)
+                .register(meterRegistry);
+        Gauge.builder("rag.query.embedding.cache.entries", this, CachingEmbeddingModel::size)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Response<Embedding> embed(String text) {
+        String key = TextNormalizer.normalize(text);
+        long now = System.currentTimeMillis();
+        float[] cached = getLocal(key, now);
+        if (cached != null) {
+            localHits.increment();
+            recordSaved();
+            return Response.from(Embedding.from(cached.clone()));
+        }
+        cached = getRedis(key);
+        if (cached != null) {
+            redisHits.increment();
+            recordSaved();
+            putLocal(key, cached, now);
+            return Response.from(Embedding.from(cached.clone()));
+        }
+
+        misses.increment();
+        long start = System.nanoTime();
+        Response<Embedding> response = delegate.embed(text);
+        long elapsed = System.nanoTime() - start;
+        modelLatency.record(elapsed, TimeUnit.NANOSECONDS);
+        double average = averageModelNanos;
+        averageModelNanos = average == 0 ? elapsed : average * 0.9 + elapsed * 0.1;
+
+        float[] vector = response.content().vector().clone();
+        putLocal(key, vector, now);
+        putRedis(key, vector);
+        return response;
+    }
+
+    @Override
+    public Response<Embedding> embed(TextSegment textSegment) {
+        return embed(textSegment.text());
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        return delegate.embedAll(textSegments);
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    /**
+     * 本地缓存的向量数
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 命中率
+     */
+    public double hitRatio() {
+        double hits = localHits.count() + redisHits.count();
+        double total = hits + misses.count();
+        return total == 0 ? 0 : hits / total;
+    }
+
+    private void recordSaved() {
+        savedNanos.addAndGet((long) averageModelNanos);
+    }
+
+    private float[] getLocal(String key, long now) {
+        lock.lock();
+        try {
+            CachedVector cached = entries.get(key);
+            if (cached == null) {
+                return null;
+            }
+            if (now > cached.expiresAtMillis()) {
+                entries.remove(key);
+                return null;
+            }
+            return cached.vector();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void putLocal(String key, float[] vector, long now) {
+        lock.lock();
+        try {
+            entries.put(key, new CachedVector(vector, now + ttlMillis));
+            // 访问顺序的 LinkedHashMap 头部即最久未访问的条目
+            while (entries.size() > maxEntries) {
+                String eldest = entries.keySet().iterator().next();
+                entries.remove(eldest);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private float[] getRedis(String key) {
+        if (redisRepository == null) {
+            return null;
+        }
+        try {
+            Object value = redisRepository.get(redisKey(key));
+            return value instanceof String encoded ? decode(encoded) : null;
+        } catch (Exception e) {
+            log.warn("Failed to read query embedding from Redis", e);
+            return null;
+        }
+    }
+
+    private void putRedis(String key, float[] vector) {
+        if (redisRepository == null) {
+            return;
+        }
+        // 写 Redis 不阻塞首字返回
+        ThreadPool.execute(() -> redisRepository.setEx(redisKey(key), encode(vector), redisTtlSeconds));
+    }
+
+    private String redisKey(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return redisKeyPrefix + HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * 向量按小端 float32 编码为 Base64，比 JSON 数组小约 60%
+     */
+    static String encode(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return Base64.getEncoder().encodeToString(buffer.array());
+    }
+
+    static float[] decode(String encoded) {
+        ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(encoded)).order(ByteOrder.LITTLE_ENDIAN);
+        float[] vector = new float[buffer.remaining() / Float.BYTES];
+        buffer.asFloatBuffer().get(vector);
+        return vector;
+    }
+
+    private record CachedVector(float[] vector, long expiresAtMillis) {
+    }
+}
@@ -0,0 +1,214 @@
+package com.huawei.chataidesign.service.rag;
+
+import com.huawei.chataidesign.config.RagIngestionConfig;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 向量化流水线
+ *
+ * 先按文本去重，再按批次大小切分，以有限并发调用向量模型；
+ * 请求按固定速率放行，失败的批次按指数退避重试。每完成一个批次回调一次，调用方可边向量化边入库。
+ */
+@Slf4j
+public class EmbeddingPipeline {
+
+    private final EmbeddingModel embeddingModel;
+    private final RagIngestionConfig.EmbeddingConfig config;
+    private final ExecutorService executor;
+
+    /**
+     * 下一个请求允许发出的时间（纳秒）
+     */
+    private final AtomicLong nextPermitNanos = new AtomicLong(System.nanoTime());
+
+    private final Counter embeddedSegments;
+    private final Counter deduplicatedSegments;
+    private final Counter retries;
+    private final Counter failures;
+    private final Timer batchLatency;
+    private final AtomicLong lastThroughput = new AtomicLong();
+
+    public EmbeddingPipeline(EmbeddingModel embeddingModel,
+                             RagIngestionConfig.EmbeddingConfig config,
+                             MeterRegistry meterRegistry) {
+        this.embeddingModel = embeddingModel;
+        this.config = config;
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, config.getParallelism()), runnable -> {
+            Thread thread = new Thread(runnable, "rag-embedding-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.embeddedSegments = meterRegistry.counter("rag.embedding.segments");
+        this.deduplicatedSegments = meterRegistry.counter("rag.embedding.deduplicated");
+        this.retries = meterRegistry.counter("rag.embedding.batches", "result", "retry");
+        this.failures = meterRegistry.counter("rag.embedding.batches", "result", "failure");
+        this.batchLatency = Timer.builder("rag.embedding.batch.latency")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("rag.embedding.throughput", lastThroughput, AtomicLong::get)
+                .description("Segments per second of the last embedding run")
+                .baseUnit("segments/s")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 向量化一组片段
+     *
+     * @param segments 待向量化的片段
+     * @param listener 批次完成回调，参数为本批次覆盖的原始下标（含重复文本），回调串行执行
+     * @return 与输入一一对应的向量
+     */
+    public List<float[]> embedAll(List<TextSegment> segments, BatchListener listener) {
+        long start = System.nanoTime();
+        // key 为片段文本，value 为该文本在输入中的全部下标
+        Map<String, List<Integer>> unique = new LinkedHashMap<>();
+        for (int i = 0; i < segments.size(); i++) {
+            unique.computeIfAbsent(segments.get(i).text(), text -> new ArrayList<>(1)).add(i);
+        }
+        deduplicatedSegments.increment(segments.size() - unique.size());
+
+        List<String> texts = new ArrayList<>(unique.keySet());
+        List<TextSegment> representatives = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            representatives.add(segments.get(unique.get(text).get(0)));
+        }
+
+        int batchSize = Math.max(1, config.getBatchSize());
+        CompletionService<Integer> completion = new ExecutorCompletionService<>(executor);
+        List<Future<Integer>> futures = new ArrayList<>();
+        float[][] vectors = new float[segments.size()][];
+        for (int from = 0; from < representatives.size(); from += batchSize) {
+            int batchStart = from;
+            List<TextSegment> batch = representatives.subList(from, Math.min(representatives.size(), from + batchSize));
+            futures.add(completion.submit(() -> {
+                List<Embedding> embeddings = embedWithRetry(batch);
+                for (int i = 0; i < batch.size(); i++) {
+                    for (int index : unique.get(texts.get(batchStart + i))) {
+                        vectors[index] = embeddings.get(i).vector();
+                    }
+                }
+                return batchStart;
+            }));
+        }
+
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                int batchStart = completion.take().get();
+                List<Integer> indices = new ArrayList<>();
+                for (int j = batchStart; j < Math.min(texts.size(), batchStart + batchSize); j++) {
+                    indices.addAll(unique.get(texts.get(j)));
+                }
+                // take() 建立了 happens-before 关系，回调在调用线程中串行执行即可看到本批次写入的向量
+                listener.onBatch(indices, vectors);
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Embedding interrupted", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Embedding failed after retries", e.getCause());
+        }
+
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        long throughput = segments.size() * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        lastThroughput.set(throughput);
+        if (!segments.isEmpty()) {
+            log.info("Embedded {} segments ({} unique) in {} ms, {} segments/s",
+                    segments.size(), texts.size(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos), throughput);
+        }
+        List<float[]> result = new ArrayList<>(vectors.length);
+        for (float[] vector : vectors) {
+            result.add(vector);
+        }
+        return result;
+    }
+
+    /**
+     * 关闭工作线程
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private List<Embedding> embedWithRetry(List<TextSegment> batch) throws InterruptedException {
+        long backoff = config.getInitialBackoffMillis();
+        for (int attempt = 1; ; attempt++) {
+            acquirePermit();
+            long start = System.nanoTime();
+            try {
+                List<Embedding> embeddings = embeddingModel.embedAll(batch).content();
+                if (embeddings.size() != batch.size()) {
+                    throw new IllegalStateException("Expected " + batch.size() + " embeddings but got " + embeddings.size());
+                }
+                batchLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                embeddedSegments.increment(batch.size());
+                return embeddings;
+            } catch (RuntimeException e) {
+                if (attempt >= config.getMaxAttempts()) {
+                    failures.increment();
+                    throw e;
+                }
+                retries.increment();
+                // 加入随机抖动，避免并发批次同时重试
+                long sleep = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+                log.warn("Embedding batch of {} failed (attempt {}/{}), retrying in {} ms: {}",
+                        batch.size(), attempt, config.getMaxAttempts(), sleep, e.getMessage());
+                TimeUnit.MILLISECONDS.sleep(sleep);
+                backoff = Math.min(config.getMaxBackoffMillis(), backoff * 2);
+            }
+        }
+    }
+
+    /**
+     * 按固定间隔放行请求
+     */
+    private void acquirePermit() throws InterruptedException {
+        if (config.getRequestsPerSecond() <= 0) {
+            return;
+        }
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / config.getRequestsPerSecond());
+        long now = System.nanoTime();
+        long permit = nextPermitNanos.getAndAccumulate(now, (next, current) -> Math.max(next, current) + interval);
+        long wait = Math.max(permit, now) - now;
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * 批次完成回调
+     */
+    @FunctionalInterface
+    public interface BatchListener {
+
+        /**
+         * @param indices 本批次完成的原始下标
+         * @param vectors 与输入一一对应的向量数组，仅保证 indices 对应位置已写入
+         */
+        void onBatch(List<Integer> indices, float[][] vectors);
+    }
+}
@@ -0,0 +1,99 @@
+package com.huawei.chataidesign.service.rag;
+
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 混合检索器
+ *
+ * 依次调用多路检索器，按倒数排名融合（RRF）合并结果：每个片段得分为各路排名 1/(k + rank) 之和，
+ * 不依赖各路分数的量纲。同一片段以文本为键去重。单路检索失败时忽略该路结果。
+ */
+@Slf4j
+public class HybridContentRetriever implements ContentRetriever {
+
+    private final Map<String, ContentRetriever> retrievers;
+    private final int maxResults;
+    private final int rrfK;
+    private final Map<String, Timer> latencies = new HashMap<>();
+    private final Map<String, Counter> hits = new HashMap<>();
+    private final Map<String, Counter> misses = new HashMap<>();
+    private final Map<String, Counter> errors = new HashMap<>();
+
+    /**
+     * @param retrievers 检索器名称到检索器的映射，名称用作指标标签
+     * @param maxResults 融合后返回的最大片段数
+     * @param rrfK 倒数排名融合的平滑常数
+     * @param meterRegistry 指标注册表
+     */
+    public HybridContentRetriever(Map<String, ContentRetriever> retrievers,
+                                  int maxResults,
+                                  int rrfK,
+                                  MeterRegistry meterRegistry) {
+        this.retrievers = new LinkedHashMap<>(retrievers);
+        this.maxResults = maxResults;
+        this.rrfK = rrfK;
+        List<String> names = new ArrayList<>(retrievers.keySet());
+        names.add("hybrid");
+        for (String name : names) {
+            latencies.put(name, Timer.builder("rag.retriever.latency")
+                    .tag("retriever", name)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+            hits.put(name, meterRegistry.counter("rag.retriever.requests", "retriever", name, "result", "hit"));
+            misses.put(name, meterRegistry.counter("rag.retriever.requests", "retriever", name, "result", "miss"));
+            errors.put(name, meterRegistry.counter("rag.retriever.requests", "retriever", name, "result", "error"));
+        }
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        long start = System.nanoTime();
+        Map<String, Double> scores = new HashMap<>();
+        Map<String, Content> contents = new LinkedHashMap<>();
+        for (Map.Entry<String, ContentRetriever> entry : retrievers.entrySet()) {
+            List<Content> results = timed(entry.getKey(), entry.getValue(), query);
+            for (int rank = 0; rank < results.size(); rank++) {
+                Content content = results.get(rank);
+                String key = content.textSegment().text();
+                contents.putIfAbsent(key, content);
+                scores.merge(key, 1.0 / (rrfK + rank + 1), Double::sum);
+            }
+        }
+        List<Content> fused = contents.keySet().stream()
+                .sorted((a, b) -> Double.compare(scores.get(b), scores.get(a)))
+                .limit(maxResults)
+                .map(contents::get)
+                .toList();
+        latencies.get("hybrid").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        (fused.isEmpty() ? misses : hits).get("hybrid").increment();
+        return fused;
+    }
+
+    private List<Content> timed(String name, ContentRetriever retriever, Query query) {
+        long start = System.nanoTime();
+        try {
+            List<Content> results = retriever.retrieve(query);
+            (results.isEmpty() ? misses : hits).get(name).increment();
+            return results;
+        } catch (RuntimeException e) {
+            errors.get(name).increment();
+            log.warn("Retriever {} failed, fusing remaining results", name, e);
+            return List.of();
+        } finally {
+            latencies.get(name).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.huawei.chataidesign.service.rag;
+
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 支持预取的内容检索器
+ *
+ * 对话入口在意图识别的同时调用 {@link #prefetch(String)} 提前在后台检索，
+ * 模型调用时 {@link #retrieve(Query)} 直接取用同一问题的预取结果，检索不再位于首字延迟的关键路径上。
+ * 等待预取结果超时则不带上下文继续对话；没有预取的查询按原方式同步检索。
+ */
+@Slf4j
+public class PrefetchingContentRetriever implements ContentRetriever {
+
+    private final ContentRetriever delegate;
+    private final Executor executor;
+    private final long timeoutMillis;
+    private final long retentionMillis;
+    private final Map<String, CompletableFuture<List<Content>>> prefetched = new ConcurrentHashMap<>();
+
+    private final Counter prefetchHits;
+    private final Counter directRequests;
+    private final Counter timeouts;
+    private final Counter cancelled;
+    private final Timer retrievalLatency;
+    private final Timer waitLatency;
+
+    /**
+     * @param delegate 实际的检索器
+     * @param executor 执行预取的线程池
+     * @param timeoutMillis 等待预取结果的最长时间
+     * @param retentionMillis 未被消费的预取结果保留时间
+     * @param meterRegistry 指标注册表
+     */
+    public PrefetchingContentRetriever(ContentRetriever delegate,
+                                       Executor executor,
+                                       long timeoutMillis,
+                                       long retentionMillis,
+                                       MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+        this.retentionMillis = retentionMillis;
+        this.prefetchHits = meterRegistry.counter("rag.prefetch.requests", "result", "prefetched");
+        this.directRequests = meterRegistry.counter("rag.prefetch.requests", "result", "direct");
+        this.timeouts = meterRegistry.counter("rag.prefetch.requests", "result", "timeout");
+        this.cancelled = meterRegistry.counter("rag.prefetch.requests", "result", "cancelled");
+        this.retrievalLatency = Timer.builder("chat.pipeline.stage.latency")
+                .tag("stage", "retrieval")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.waitLatency = Timer.builder("chat.pipeline.stage.latency")
+                .tag("stage", "retrieval_wait")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * 在后台开始检索，同一问题已在预取时不重复检索
+     *
+     * @param text 用户问题，须与随后传给模型的用户消息一致
+     */
+    public void prefetch(String text) {
+        if (text == null || text.isBlank()) {
+            return;
+        }
+        prefetched.computeIfAbsent(text, key -> {
+            CompletableFuture<List<Content>> future =
+                    CompletableFuture.supplyAsync(() -> timedRetrieve(Query.from(key)), executor);
+            // 问题命中语义缓存等情况下预取结果不会被消费，保留一段时间后丢弃
+            future.whenComplete((contents, error) -> CompletableFuture
+                    .delayedExecutor(retentionMillis, TimeUnit.MILLISECONDS)
+                    .execute(() -> prefetched.remove(key, future)));
+            return future;
+        });
+    }
+
+    /**
+     * 丢弃该问题尚未被消费的预取，供本轮确定不检索时调用；尚未开始执行的检索不再执行
+     */
+    public void cancel(String text) {
+        if (text == null) {
+            return;
+        }
+        CompletableFuture<List<Content>> future = prefetched.remove(text);
+        if (future != null && future.cancel(false)) {
+            cancelled.increment();
+        }
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        CompletableFuture<List<Content>> future = prefetched.remove(query.text());
+        if (future == null) {
+            directRequests.increment();
+            return timedRetrieve(query);
+        }
+        prefetchHits.increment();
+        long start = System.nanoTime();
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            log.warn("Prefetched retrieval not ready within {} ms, answering without context", timeoutMillis);
+            return List.of();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return List.of();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Prefetched retrieval failed", e.getCause());
+        } finally {
+            waitLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 尚未被消费的预取数
+     */
+    public int pendingPrefetches() {
+        return prefetched.size();
+    }
+
+    private List<Content> timedRetrieve(Query query) {
+        long start = System.nanoTime();
+        try {
+            return delegate.retrieve(query);
+        } finally {
+            retrievalLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
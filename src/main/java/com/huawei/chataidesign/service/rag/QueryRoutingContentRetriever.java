@@ -0,0 +1,159 @@
+package com.huawei.chataidesign.service.rag;
+
+import com.huawei.chataidesign.config.RagRetrievalConfig;
+import com.huawei.chataidesign.entity.IntentType;
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按意图路由的内容检索器
+ *
+ * 对话入口在调用模型前通过 {@link #routeNext(Object, String, IntentType)} 登记本轮识别出的意图，
+ * 检索时按会话ID和问题取出意图：不需要知识库的意图直接跳过检索，其余意图按规则限制返回片段数和文档范围。
+ * 登记只对同一会话中同一问题的检索生效，本轮结束时由对话入口清除，不会被后续其他问题的检索取用。
+ * 未登记意图的查询按默认片段数检索全部文档。
+ */
+@Slf4j
+public class QueryRoutingContentRetriever implements ContentRetriever {
+
+    /**
+     * 登记后未被检索消费的意图保留时间
+     */
+    private static final long PENDING_TTL_MILLIS = 60_000;
+    private static final int PURGE_THRESHOLD = 1024;
+    private static final String NO_INTENT = "none";
+
+    private final ContentRetriever delegate;
+    private final RagRetrievalConfig config;
+    private final Map<PendingKey, PendingIntent> pending = new ConcurrentHashMap<>();
+    private final Map<String, Counter> retrieved = new HashMap<>();
+    private final Map<String, Counter> skipped = new HashMap<>();
+    private final Map<String, Timer> latencies = new HashMap<>();
+
+    /**
+     * @param delegate 实际的检索器，返回的候选数应不少于各意图的返回片段数
+     * @param config 检索配置
+     * @param meterRegistry 指标注册表
+     */
+    public QueryRoutingContentRetriever(ContentRetriever delegate, RagRetrievalConfig config, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.config = config;
+        for (IntentType intentType : IntentType.values()) {
+            registerMeters(intentType.getCode(), meterRegistry);
+        }
+        registerMeters(NO_INTENT, meterRegistry);
+    }
+
+    /**
+     * 登记会话中该问题的下一次检索对应的意图
+     *
+     * @param memoryId 会话ID
+     * @param text 用户问题，须与随后传给模型的用户消息一致
+     * @param intentType 识别出的意图
+     * @return 清除本次登记，本轮回答结束时调用；命中语义缓存、合并到其他请求等情况下登记不会被检索消费
+     */
+    public Runnable routeNext(Object memoryId, String text, IntentType intentType) {
+        if (memoryId == null || text == null || intentType == null) {
+            return () -> {
+            };
+        }
+        long now = System.currentTimeMillis();
+        if (pending.size() > PURGE_THRESHOLD) {
+            // 兜底：未正常清除的登记
+            pending.values().removeIf(entry -> now - entry.registeredAtMillis() > PENDING_TTL_MILLIS);
+        }
+        PendingKey key = new PendingKey(memoryId, text);
+        PendingIntent entry = new PendingIntent(intentType, now);
+        pending.put(key, entry);
+        return () -> pending.remove(key, entry);
+    }
+
+    /**
+     * 该意图是否需要检索知识库
+     */
+    public boolean retrievalEnabled(IntentType intentType) {
+        if (intentType == null || !config.getIntentRouting().isEnabled()) {
+            return true;
+        }
+        RagRetrievalConfig.IntentRetrievalRule rule = config.getIntentRouting().getRules().get(intentType);
+        return rule == null || rule.isEnabled();
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        IntentType intentType = takeIntent(query);
+        String tag = intentType != null ? intentType.getCode() : NO_INTENT;
+        RagRetrievalConfig.IntentRetrievalRule rule = intentType != null && config.getIntentRouting().isEnabled()
+                ? config.getIntentRouting().getRules().get(intentType) : null;
+        if (rule != null && !rule.isEnabled()) {
+            skipped.get(tag).increment();
+            return List.of();
+        }
+
+        long start = System.nanoTime();
+        try {
+            List<Content> candidates = delegate.retrieve(query);
+            retrieved.get(tag).increment();
+            int maxResults = rule != null && rule.getMaxResults() != null ? rule.getMaxResults() : config.getMaxResults();
+            if (rule == null || rule.getFileNames().isEmpty()) {
+                return limit(candidates, maxResults);
+            }
+            Set<String> fileNames = new HashSet<>(rule.getFileNames());
+            List<Content> scoped = candidates.stream()
+                    .filter(content -> fileNames.contains(
+                            content.textSegment().metadata().getString(Document.FILE_NAME)))
+                    .toList();
+            if (scoped.isEmpty()) {
+                log.debug("No candidates from {} for intent {}, using all documents", fileNames, intentType);
+                return limit(candidates, maxResults);
+            }
+            return limit(scoped, maxResults);
+        } finally {
+            latencies.get(tag).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private IntentType takeIntent(Query query) {
+        if (query.metadata() == null || query.metadata().chatMemoryId() == null) {
+            return null;
+        }
+        PendingIntent entry = pending.remove(new PendingKey(query.metadata().chatMemoryId(), query.text()));
+        if (entry == null || System.currentTimeMillis() - entry.registeredAtMillis() > PENDING_TTL_MILLIS) {
+            return null;
+        }
+        return entry.intentType();
+    }
+
+    private static List<Content> limit(List<Content> contents, int maxResults) {
+        return contents.size() > maxResults ? contents.subList(0, maxResults) : contents;
+    }
+
+    private void registerMeters(String intent, MeterRegistry meterRegistry) {
+        retrieved.put(intent, meterRegistry.counter("rag.intent.retrieval.requests", "intent", intent, "result", "retrieved"));
+        skipped.put(intent, meterRegistry.counter("rag.intent.retrieval.requests", "intent", intent, "result", "skipped"));
+        latencies.put(intent, Timer.builder("rag.intent.retrieval.latency")
+                .tag("intent", intent)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private record PendingKey(Object memoryId, String text) {
+    }
+
+    private record PendingIntent(IntentType intentType, long registeredAtMillis) {
+    }
+}
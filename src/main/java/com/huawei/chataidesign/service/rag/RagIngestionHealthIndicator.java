@@ -0,0 +1,38 @@
+package com.huawei.chataidesign.service.rag;
+
+import com.huawei.chataidesign.config.RagIngestionConfig;
+import jakarta.annotation.Resource;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+/**
+ * RAG 入库健康检查，名称为 ragIngestion
+ *
+ * 默认只展示进度、始终为 UP，滚动发布不受向量化耗时影响；
+ * 开启 rag.ingestion.gate-readiness 后，入库完成前为 OUT_OF_SERVICE，入库失败为 DOWN。
+ */
+@Component
+public class RagIngestionHealthIndicator implements HealthIndicator {
+
+    @Resource
+    private RagIngestionService ragIngestionService;
+
+    @Resource
+    private RagIngestionConfig ragIngestionConfig;
+
+    @Override
+    public Health health() {
+        RagIngestionProgress progress = ragIngestionService.getProgress();
+        Status status = Status.UP;
+        if (ragIngestionConfig.isGateReadiness()) {
+            status = switch (progress.getState()) {
+                case READY -> Status.UP;
+                case FAILED -> Status.DOWN;
+                default -> Status.OUT_OF_SERVICE;
+            };
+        }
+        return Health.status(status).withDetails(progress.toDetails()).build();
+    }
+}
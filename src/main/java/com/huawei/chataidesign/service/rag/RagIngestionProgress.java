@@ -0,0 +1,107 @@
+package com.huawei.chataidesign.service.rag;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RAG 入库进度
+ * 由入库线程更新，健康检查与检索线程读取
+ */
+public class RagIngestionProgress {
+
+    public enum State {
+        PENDING, RUNNING, READY, FAILED
+    }
+
+    private volatile State state = State.PENDING;
+    private volatile long startedAtMillis;
+    private volatile long finishedAtMillis;
+    private volatile String error;
+    private final AtomicInteger documentsTotal = new AtomicInteger();
+    private final AtomicInteger documentsDone = new AtomicInteger();
+    private final AtomicInteger segmentsTotal = new AtomicInteger();
+    private final AtomicInteger segmentsDone = new AtomicInteger();
+
+    void start() {
+        documentsTotal.set(0);
+        documentsDone.set(0);
+        segmentsTotal.set(0);
+        segmentsDone.set(0);
+        error = null;
+        finishedAtMillis = 0;
+        startedAtMillis = System.currentTimeMillis();
+        state = State.RUNNING;
+    }
+
+    void documentsTotal(int total) {
+        documentsTotal.set(total);
+    }
+
+    void documentDone() {
+        documentsDone.incrementAndGet();
+    }
+
+    void segmentsTotal(int total) {
+        segmentsTotal.set(total);
+    }
+
+    void segmentsDone(int count) {
+        segmentsDone.addAndGet(count);
+    }
+
+    void ready() {
+        finishedAtMillis = System.currentTimeMillis();
+        state = State.READY;
+    }
+
+    void failed(Throwable cause) {
+        finishedAtMillis = System.currentTimeMillis();
+        error = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+        state = State.FAILED;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isReady() {
+        return state == State.READY;
+    }
+
+    /**
+     * 按已完成片段的平均速度估算剩余秒数，无法估算时返回 -1
+     */
+    public long etaSeconds() {
+        if (state != State.RUNNING) {
+            return state == State.READY ? 0 : -1;
+        }
+        int done = segmentsDone.get();
+        int total = segmentsTotal.get();
+        if (done == 0 || total == 0) {
+            return -1;
+        }
+        long elapsed = System.currentTimeMillis() - startedAtMillis;
+        return elapsed * (total - done) / done / 1000;
+    }
+
+    /**
+     * 健康检查详情
+     */
+    public Map<String, Object> toDetails() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("state", state);
+        details.put("documentsDone", documentsDone.get());
+        details.put("documentsTotal", documentsTotal.get());
+        details.put("segmentsDone", segmentsDone.get());
+        details.put("segmentsTotal", segmentsTotal.get());
+        details.put("etaSeconds", etaSeconds());
+        if (finishedAtMillis > 0) {
+            details.put("elapsedMillis", finishedAtMillis - startedAtMillis);
+        }
+        if (error != null) {
+            details.put("error", error);
+        }
+        return details;
+    }
+}
@@ -0,0 +1,66 @@
+package com.huawei.chataidesign.service.rag;
+
+import com.huawei.chataidesign.config.RagIngestionConfig;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * RAG 入库生命周期阶段
+ *
+ * 上下文刷新完成后在独立线程中执行入库，不阻塞 Web 服务启动；
+ * 入库期间检索返回部分结果或不带上下文，进度通过健康检查展示。
+ */
+@Slf4j
+@Component
+public class RagIngestionRunner implements SmartLifecycle {
+
+    @Resource
+    private RagIngestionService ragIngestionService;
+
+    @Resource
+    private RagIngestionConfig ragIngestionConfig;
+
+    private volatile ExecutorService executor;
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        running = true;
+        if (!ragIngestionConfig.isAsync()) {
+            ragIngestionService.ingest();
+            return;
+        }
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rag-ingestion");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(() -> {
+            try {
+                ragIngestionService.ingest();
+            } catch (Exception e) {
+                log.error("RAG ingestion failed, retrieval will run without context", e);
+            }
+        });
+        executor.shutdown();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,359 @@
+package com.huawei.chataidesign.service.rag;
+
+import com.huawei.chataidesign.config.RagIngestionConfig;
+import com.huawei.chataidesign.repository.lexical.Bm25Index;
+import com.huawei.chataidesign.utils.JacksonUtil;
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
+import dev.langchain4j.data.document.splitter.DocumentByParagraphSplitter;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * RAG 文档增量入库服务
+ *
+ * 对每个文档和文本片段计算内容哈希，并在本地保存入库清单（manifest.json）和向量快照（vectors.bin）：
+ * 文档未变化时直接复用清单中的片段，片段未变化时直接复用快照中的向量，只有新增或修改的片段才交给向量化流水线。
+ * 语料未变化时冷启动不产生任何向量化请求。片段同时写入向量库和关键词倒排索引。
+ */
+@Slf4j
+public class RagIngestionService {
+
+    static final String MANIFEST_FILE = "manifest.json";
+    static final String VECTORS_FILE = "vectors.bin";
+
+    /**
+     * 向量快照文件头："RAGV"
+     */
+    private static final int VECTORS_MAGIC = 0x52414756;
+    private static final int VECTORS_VERSION = 1;
+    private static final int MANIFEST_VERSION = 1;
+
+    private final EmbeddingPipeline embeddingPipeline;
+    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final Bm25Index lexicalIndex;
+    private final RagIngestionConfig config;
+    private final RagIngestionProgress progress = new RagIngestionProgress();
+
+    public RagIngestionService(EmbeddingPipeline embeddingPipeline,
+                               EmbeddingStore<TextSegment> embeddingStore,
+                               Bm25Index lexicalIndex,
+                               RagIngestionConfig config) {
+        this.embeddingPipeline = embeddingPipeline;
+        this.embeddingStore = embeddingStore;
+        this.lexicalIndex = lexicalIndex;
+        this.config = config;
+    }
+
+    /**
+     * 增量入库知识库目录下的全部文档
+     * 已有向量的片段先行写入向量库，新片段边向量化边写入，入库过程中检索即可返回部分结果
+     *
+     * @return 本次入库统计
+     */
+    public IngestionResult ingest() {
+        progress.start();
+        try {
+            IngestionResult result = doIngest();
+            progress.ready();
+            log.info("RAG ingestion finished: {}", result);
+            return result;
+        } catch (RuntimeException e) {
+            progress.failed(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 入库进度，供健康检查展示
+     */
+    public RagIngestionProgress getProgress() {
+        return progress;
+    }
+
+    private IngestionResult doIngest() {
+        long start = System.currentTimeMillis();
+        Path snapshotDir = Paths.get(config.getSnapshotDir());
+        Manifest previous = loadManifest(snapshotDir);
+        Map<String, float[]> vectors = loadVectors(snapshotDir);
+        String splitter = config.getMaxSegmentChars() + "/" + config.getMaxOverlapChars();
+        boolean sameSplitter = splitter.equals(previous.getSplitter());
+
+        List<Document> documents = FileSystemDocumentLoader.loadDocuments(config.getDocsPath());
+        progress.documentsTotal(documents.size());
+        Manifest current = new Manifest();
+        current.setSplitter(splitter);
+        int changedDocuments = 0;
+        for (Document document : documents) {
+            String fileName = document.metadata().getString(Document.FILE_NAME);
+            String documentHash = sha256(document.text());
+            DocumentEntry entry = previous.getDocuments().get(fileName);
+            if (entry == null || !sameSplitter || !documentHash.equals(entry.getHash())) {
+                entry = split(document, documentHash);
+                changedDocuments++;
+            }
+            current.getDocuments().put(fileName, entry);
+            progress.documentDone();
+        }
+
+        // 按片段ID去重，同一片段只入库一次
+        Map<String, SegmentEntry> segments = new LinkedHashMap<>();
+        for (DocumentEntry entry : current.getDocuments().values()) {
+            for (SegmentEntry segment : entry.getSegments()) {
+                segments.putIfAbsent(segment.getId(), segment);
+            }
+        }
+        progress.segmentsTotal(segments.size());
+
+        Set<String> staleIds = previous.getDocuments().values().stream()
+                .flatMap(entry -> entry.getSegments().stream())
+                .map(SegmentEntry::getId)
+                .filter(id -> !segments.containsKey(id))
+                .collect(Collectors.toSet());
+        removeStale(staleIds);
+        vectors.keySet().retainAll(segments.keySet());
+
+        List<SegmentEntry> reused = new ArrayList<>();
+        List<SegmentEntry> missing = new ArrayList<>();
+        for (SegmentEntry segment : segments.values()) {
+            (vectors.containsKey(segment.getId()) ? reused : missing).add(segment);
+        }
+        addToStore(reused, vectors);
+        progress.segmentsDone(reused.size());
+
+        embeddingPipeline.embedAll(missing.stream().map(SegmentEntry::toTextSegment).toList(),
+                (indices, embedded) -> {
+                    List<SegmentEntry> batch = new ArrayList<>(indices.size());
+                    for (int index : indices) {
+                        SegmentEntry segment = missing.get(index);
+                        vectors.put(segment.getId(), embedded[index]);
+                        batch.add(segment);
+                    }
+                    addToStore(batch, vectors);
+                    progress.segmentsDone(batch.size());
+                });
+
+        boolean changed = changedDocuments > 0 || !staleIds.isEmpty()
+                || previous.getDocuments().size() != current.getDocuments().size();
+        if (changed || !missing.isEmpty()) {
+            saveSnapshot(snapshotDir, current, vectors);
+        }
+        return new IngestionResult(documents.size(), changedDocuments, segments.size(),
+                missing.size(), staleIds.size(), System.currentTimeMillis() - start);
+    }
+
+    private void addToStore(List<SegmentEntry> segments, Map<String, float[]> vectors) {
+        if (segments.isEmpty()) {
+            return;
+        }
+        List<String> ids = new ArrayList<>(segments.size());
+        List<Embedding> embeddings = new ArrayList<>(segments.size());
+        List<TextSegment> textSegments = new ArrayList<>(segments.size());
+        for (SegmentEntry segment : segments) {
+            ids.add(segment.getId());
+            embeddings.add(Embedding.from(vectors.get(segment.getId())));
+            textSegments.add(segment.toTextSegment());
+        }
+        embeddingStore.addAll(ids, embeddings, textSegments);
+        for (int i = 0; i < ids.size(); i++) {
+            lexicalIndex.add(ids.get(i), textSegments.get(i));
+        }
+    }
+
+    /**
+     * 切分单个文档，片段ID由片段内容确定，内容不变则ID不变
+     */
+    private DocumentEntry split(Document document, String documentHash) {
+        String fileName = document.metadata().getString(Document.FILE_NAME);
+        DocumentByParagraphSplitter splitter =
+                new DocumentByParagraphSplitter(config.getMaxSegmentChars(), config.getMaxOverlapChars());
+        DocumentEntry entry = new DocumentEntry();
+        entry.setHash(documentHash);
+        for (TextSegment textSegment : splitter.split(document)) {
+            // 为了提高搜索质量，为每个 TextSegment 添加文档名称
+            String text = fileName + "\n" + textSegment.text();
+            SegmentEntry segment = new SegmentEntry();
+            segment.setId(UUID.nameUUIDFromBytes(text.getBytes(StandardCharsets.UTF_8)).toString());
+            segment.setText(text);
+            segment.setMetadata(new HashMap<>(textSegment.metadata().toMap()));
+            entry.getSegments().add(segment);
+        }
+        return entry;
+    }
+
+    private void removeStale(Set<String> staleIds) {
+        if (staleIds.isEmpty()) {
+            return;
+        }
+        lexicalIndex.removeAll(staleIds);
+        try {
+            embeddingStore.removeAll(staleIds);
+        } catch (RuntimeException e) {
+            // 部分向量库不支持按ID删除，残留片段会在下次全量重建时清除
+            log.warn("Failed to remove {} stale segments from embedding store", staleIds.size(), e);
+        }
+    }
+
+    private Manifest loadManifest(Path snapshotDir) {
+        Path file = snapshotDir.resolve(MANIFEST_FILE);
+        if (!Files.exists(file)) {
+            return new Manifest();
+        }
+        try {
+            Manifest manifest = JacksonUtil.OBJECT_MAPPER.readValue(file.toFile(), Manifest.class);
+            if (manifest.getVersion() == MANIFEST_VERSION) {
+                return manifest;
+            }
+            log.warn("Ignoring RAG manifest with unsupported version {}", manifest.getVersion());
+        } catch (IOException e) {
+            log.warn("Failed to read RAG manifest {}, re-ingesting all documents", file, e);
+        }
+        return new Manifest();
+    }
+
+    private Map<String, float[]> loadVectors(Path snapshotDir) {
+        Path file = snapshotDir.resolve(VECTORS_FILE);
+        Map<String, float[]> vectors = new HashMap<>();
+        if (!Files.exists(file)) {
+            return vectors;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != VECTORS_MAGIC || in.readInt() != VECTORS_VERSION) {
+                log.warn("Ignoring RAG vector snapshot {} with unknown format", file);
+                return vectors;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String id = in.readUTF();
+                float[] vector = new float[in.readInt()];
+                for (int j = 0; j < vector.length; j++) {
+                    vector[j] = in.readFloat();
+                }
+                vectors.put(id, vector);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read RAG vector snapshot {}, re-embedding all segments", file, e);
+            vectors.clear();
+        }
+        return vectors;
+    }
+
+    /**
+     * 先写临时文件再原子替换，进程中途退出不会留下损坏的快照
+     */
+    private void saveSnapshot(Path snapshotDir, Manifest manifest, Map<String, float[]> vectors) {
+        try {
+            Files.createDirectories(snapshotDir);
+            Path vectorsTmp = snapshotDir.resolve(VECTORS_FILE + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(vectorsTmp)))) {
+                out.writeInt(VECTORS_MAGIC);
+                out.writeInt(VECTORS_VERSION);
+                out.writeInt(vectors.size());
+                for (Map.Entry<String, float[]> entry : vectors.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().length);
+                    for (float v : entry.getValue()) {
+                        out.writeFloat(v);
+                    }
+                }
+            }
+            Path manifestTmp = snapshotDir.resolve(MANIFEST_FILE + ".tmp");
+            JacksonUtil.OBJECT_MAPPER.writeValue(manifestTmp.toFile(), manifest);
+            // 先替换向量快照：清单引用的片段向量必须已经存在
+            Files.move(vectorsTmp, snapshotDir.resolve(VECTORS_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(manifestTmp, snapshotDir.resolve(MANIFEST_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to save RAG snapshot to {}", snapshotDir, e);
+        }
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * 入库清单
+     */
+    @Data
+    public static class Manifest {
+        private int version = MANIFEST_VERSION;
+        /**
+         * 切分参数，变化后所有文档重新切分
+         */
+        private String splitter;
+        /**
+         * key 为文档文件名
+         */
+        private Map<String, DocumentEntry> documents = new LinkedHashMap<>();
+    }
+
+    /**
+     * 清单中的文档
+     */
+    @Data
+    public static class DocumentEntry {
+        private String hash;
+        private List<SegmentEntry> segments = new ArrayList<>();
+    }
+
+    /**
+     * 清单中的文本片段
+     */
+    @Data
+    public static class SegmentEntry {
+        private String id;
+        private String text;
+        private Map<String, Object> metadata = new HashMap<>();
+
+        TextSegment toTextSegment() {
+            return TextSegment.from(text, Metadata.from(metadata));
+        }
+    }
+
+    /**
+     * 入库统计
+     *
+     * @param documents 文档总数
+     * @param changedDocuments 新增或修改的文档数
+     * @param segments 片段总数
+     * @param embeddedSegments 本次调用向量模型的片段数
+     * @param removedSegments 删除的过期片段数
+     * @param elapsedMillis 耗时
+     */
+    public record IngestionResult(int documents, int changedDocuments, int segments,
+                                  int embeddedSegments, int removedSegments, long elapsedMillis) {
+    }
+}
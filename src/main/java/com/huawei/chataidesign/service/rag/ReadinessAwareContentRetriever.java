@@ -0,0 +1,38 @@
+package com.huawei.chataidesign.service.rag;
+
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * 感知入库状态的内容检索器
+ * 入库完成前返回向量库中已有的部分结果；入库未完成或失败时检索出错则不带上下文继续对话
+ */
+@Slf4j
+public class ReadinessAwareContentRetriever implements ContentRetriever {
+
+    private final ContentRetriever delegate;
+    private final RagIngestionProgress progress;
+
+    public ReadinessAwareContentRetriever(ContentRetriever delegate, RagIngestionProgress progress) {
+        this.delegate = delegate;
+        this.progress = progress;
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        if (progress.isReady()) {
+            return delegate.retrieve(query);
+        }
+        try {
+            return delegate.retrieve(query);
+        } catch (RuntimeException e) {
+            log.warn("Retrieval failed while RAG ingestion is {}, answering without context",
+                    progress.getState(), e);
+            return List.of();
+        }
+    }
+}
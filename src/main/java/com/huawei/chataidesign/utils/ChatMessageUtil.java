@@ -0,0 +1,80 @@
+package com.huawei.chataidesign.utils;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 会话消息工具类
+ */
+public class ChatMessageUtil {
+
+    /**
+     * 单条消息的固定开销估算（对象头、引用、元数据等）
+     */
+    private static final int MESSAGE_OVERHEAD_BYTES = 64;
+
+    private ChatMessageUtil() {}
+
+    /**
+     * 提取消息的文本内容
+     *
+     * @param message 会话消息
+     * @return 文本内容，不会返回 null
+     */
+    public static String textOf(ChatMessage message) {
+        if (message instanceof SystemMessage systemMessage) {
+            return systemMessage.text();
+        }
+        if (message instanceof UserMessage userMessage) {
+            return userMessage.hasSingleText() ? userMessage.singleText() : String.valueOf(userMessage.contents());
+        }
+        if (message instanceof AiMessage aiMessage) {
+            String text = aiMessage.text() != null ? aiMessage.text() : "";
+            return aiMessage.hasToolExecutionRequests() ? text + aiMessage.toolExecutionRequests() : text;
+        }
+        if (message instanceof ToolExecutionResultMessage toolMessage) {
+            return toolMessage.text();
+        }
+        return String.valueOf(message);
+    }
+
+    /**
+     * 估算单条消息占用的堆内存字节数
+     */
+    public static long estimateBytes(ChatMessage message) {
+        return MESSAGE_OVERHEAD_BYTES + 2L * textOf(message).length();
+    }
+
+    /**
+     * 估算消息列表占用的堆内存字节数
+     */
+    public static long estimateBytes(List<ChatMessage> messages) {
+        long bytes = 0;
+        for (ChatMessage message : messages) {
+            bytes += estimateBytes(message);
+        }
+        return bytes;
+    }
+
+    /**
+     * 把未经模型生成的一轮问答（缓存回放、模板回复等）写入会话记忆，会话中没有系统提示词时补在开头，
+     * 保证后续追问的上下文完整
+     */
+    public static void appendTurn(ChatMemoryStore chatMemoryStore, Object memoryId, String systemPrompt,
+                                  String userMessage, String answer) {
+        List<ChatMessage> messages = new ArrayList<>(chatMemoryStore.getMessages(memoryId));
+        if (messages.stream().noneMatch(SystemMessage.class::isInstance)) {
+            messages.add(0, SystemMessage.from(systemPrompt));
+        }
+        messages.add(UserMessage.from(userMessage));
+        messages.add(AiMessage.from(answer));
+        chatMemoryStore.updateMessages(memoryId, messages);
+    }
+}
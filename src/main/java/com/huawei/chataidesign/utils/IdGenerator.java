@@ -0,0 +1,25 @@
+package com.huawei.chataidesign.utils;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 非加密ID生成工具
+ *
+ * UUID.randomUUID() 基于共享的 SecureRandom，高并发下会争用；这里用线程本地随机数生成同样格式的第 4 版 UUID，
+ * 只用于识别结果等不需要防猜测的标识。
+ */
+public class IdGenerator {
+
+    private IdGenerator() {}
+
+    /**
+     * 生成随机 UUID 字符串
+     */
+    public static String fastUuid() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long leastSigBits = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+}
@@ -0,0 +1,75 @@
+package com.huawei.chataidesign.utils;
+
+/**
+ * 文本归一化工具
+ * 用于生成缓存键：忽略大小写、多余空白以及句末标点的差异
+ */
+public class TextNormalizer {
+
+    private TextNormalizer() {}
+
+    /**
+     * 归一化文本
+     *
+     * @param text 原始文本
+     * @return 归一化后的文本，输入为 null 时返回空串，已是归一化形式时返回原字符串
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        if (isNormalized(text)) {
+            return text;
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = sb.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+            }
+            sb.append(Character.toLowerCase(c));
+        }
+        // 句末标点前的空白一并去掉，保证 "hello ?" 与 "hello?" 结果相同
+        int end = sb.length();
+        while (end > 0 && (isTrailingPunctuation(sb.charAt(end - 1)) || sb.charAt(end - 1) == ' ')) {
+            end--;
+        }
+        sb.setLength(end);
+        return sb.toString();
+    }
+
+    /**
+     * 无大写字母、无首尾空白和连续空白、无句末标点，大部分中文输入直接满足
+     */
+    private static boolean isNormalized(String text) {
+        int length = text.length();
+        if (length > 0 && (isTrailingPunctuation(text.charAt(length - 1)) || text.charAt(0) == ' ')) {
+            return false;
+        }
+        boolean previousSpace = false;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == ' ') {
+                if (previousSpace) {
+                    return false;
+                }
+                previousSpace = true;
+            } else if (Character.isWhitespace(c) || Character.toLowerCase(c) != c) {
+                return false;
+            } else {
+                previousSpace = false;
+            }
+        }
+        return !previousSpace;
+    }
+
+    private static boolean isTrailingPunctuation(char c) {
+        return c == '?' || c == '？' || c == '!' || c == '！' || c == '.' || c == '。' || c == '~' || c == '～';
+    }
+}
@@ -0,0 +1,80 @@
+package com.huawei.chataidesign.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 面向检索的轻量分词工具
+ *
+ * 不依赖词典：英文、数字及 "c++"、"spring-boot"、"java.lang" 这类技术词按连续字符切为一个词，
+ * 中日韩文字按相邻两字切分（单字成段时保留单字），兼顾中文召回与索引体积。
+ */
+public class TextTokenizer {
+
+    private TextTokenizer() {}
+
+    /**
+     * 分词
+     *
+     * @param text 原始文本
+     * @return 小写后的词项列表，保留重复词项
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isCjk(c)) {
+                int start = i;
+                while (i < length && isCjk(text.charAt(i))) {
+                    i++;
+                }
+                if (i - start == 1) {
+                    tokens.add(String.valueOf(c));
+                } else {
+                    for (int j = start; j + 1 < i; j++) {
+                        tokens.add(text.substring(j, j + 2));
+                    }
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                int start = i;
+                while (i < length && (Character.isLetterOrDigit(text.charAt(i)) && !isCjk(text.charAt(i))
+                        || isWordJoiner(text, i))) {
+                    i++;
+                }
+                // 去掉词尾的连接符，例如句末的 "."
+                int end = i;
+                while (end > start && !Character.isLetterOrDigit(text.charAt(end - 1)) && text.charAt(end - 1) != '+'
+                        && text.charAt(end - 1) != '#') {
+                    end--;
+                }
+                tokens.add(text.substring(start, end).toLowerCase());
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 技术词内部允许出现的连接字符
+     */
+    private static boolean isWordJoiner(String text, int i) {
+        char c = text.charAt(i);
+        if (c == '+' || c == '#') {
+            return true;
+        }
+        if (c == '-' || c == '_' || c == '.') {
+            return i + 1 < text.length() && Character.isLetterOrDigit(text.charAt(i + 1)) && !isCjk(text.charAt(i + 1));
+        }
+        return false;
+    }
+
+    private static boolean isCjk(char c) {
+        return c >= '⺀' && Character.isLetter(c);
+    }
+}
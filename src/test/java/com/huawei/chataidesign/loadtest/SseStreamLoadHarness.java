@@ -0,0 +1,209 @@
+package com.huawei.chataidesign.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SSE 流式接口压测工具
+ *
+ * 按设定速率逐步建立并发流，统计首字延迟（从发出请求到收到第一条 data 行）分布、流总耗时、
+ * 同时保持的最大流数和失败原因。不是单元测试，需要先启动服务，再用 IDE 或 java 命令运行 main：
+ * <pre>
+ * java -cp target/test-classes -Dbase.url=http://localhost:8080 -Dtoken=$TOKEN -Dstreams=2000 -Dramp.seconds=20 \
+ *     com.huawei.chataidesign.loadtest.SseStreamLoadHarness
+ * </pre>
+ * 对比改动前后时，分别对两个版本（或 chat.sse.offload-enabled、chat.sse.writer.* 的不同取值）各跑一次，
+ * 比较最后一行的汇总。压测真实模型会产生费用，建议把服务的模型地址指向本地模拟服务。
+ *
+ * 接口需要登录，token 取登录接口返回的 JWT，以 Bearer 方式发送；未提供时所有流都会以 401/403 失败，
+ * 测到的只是安全过滤器。
+ *
+ * 可用系统属性：base.url、path（默认 /api/ai/stream）、token、streams、ramp.seconds、timeout.seconds、prompt、label。
+ */
+public class SseStreamLoadHarness {
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = System.getProperty("base.url", "http://localhost:8080");
+        String path = System.getProperty("path", "/api/ai/stream");
+        int streams = Integer.getInteger("streams", 500);
+        int rampSeconds = Integer.getInteger("ramp.seconds", 10);
+        int timeoutSeconds = Integer.getInteger("timeout.seconds", 300);
+        String prompt = System.getProperty("prompt", "用三句话介绍一下 Java 的垃圾回收");
+        String label = System.getProperty("label", "run");
+        String token = System.getProperty("token");
+        if (token == null || token.isBlank()) {
+            System.err.println("No -Dtoken given, requests will be rejected by authentication");
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors())))
+                .build();
+        Stats stats = new Stats(streams);
+        long rampNanos = TimeUnit.SECONDS.toNanos(rampSeconds);
+        long start = System.nanoTime();
+        List<CompletableFuture<?>> futures = new ArrayList<>(streams);
+        for (int i = 0; i < streams; i++) {
+            long due = start + rampNanos * i / streams;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(timeoutSeconds))
+                    .header("Content-Type", "application/json")
+                    .header("Accept", "text/event-stream")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"memory_id\":" + (100_000 + i) + ",\"prompt\":\"" + escape(prompt) + "\"}"));
+            if (token != null && !token.isBlank()) {
+                builder.header("Authorization", "Bearer " + token);
+            }
+            HttpRequest request = builder.build();
+            StreamSubscriber subscriber = new StreamSubscriber(stats, System.nanoTime());
+            futures.add(client.sendAsync(request, HttpResponse.BodyHandlers.fromLineSubscriber(subscriber))
+                    .orTimeout(timeoutSeconds + 30L, TimeUnit.SECONDS)
+                    .whenComplete((response, error) -> subscriber.finish(
+                            response != null ? response.statusCode() : -1, error)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .exceptionally(e -> null)
+                .join();
+        stats.report(label, streams, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        System.exit(0);
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * 单路流的逐行订阅者
+     */
+    private static final class StreamSubscriber implements Flow.Subscriber<String> {
+        private final Stats stats;
+        private final long startNanos;
+        private long firstDataNanos;
+        private boolean errorEvent;
+
+        private StreamSubscriber(Stats stats, long startNanos) {
+            this.stats = stats;
+            this.startNanos = startNanos;
+            stats.opened();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (line.startsWith("event:error")) {
+                errorEvent = true;
+            } else if (firstDataNanos == 0 && line.startsWith("data:")) {
+                firstDataNanos = System.nanoTime();
+                stats.firstToken(firstDataNanos - startNanos);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        private void finish(int status, Throwable error) {
+            long duration = System.nanoTime() - startNanos;
+            String failure = null;
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                failure = cause.getClass().getSimpleName();
+            } else if (status != 200) {
+                failure = "http_" + status;
+            } else if (errorEvent) {
+                failure = "error_event";
+            } else if (firstDataNanos == 0) {
+                failure = "no_data";
+            }
+            stats.closed(duration, failure);
+        }
+    }
+
+    /**
+     * 汇总统计
+     */
+    private static final class Stats {
+        private final long[] ttftNanos;
+        private final long[] durationNanos;
+        private final AtomicInteger ttftCount = new AtomicInteger();
+        private final AtomicInteger durationCount = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger peakActive = new AtomicInteger();
+        private final LongAdder succeeded = new LongAdder();
+        private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+        private Stats(int streams) {
+            this.ttftNanos = new long[streams];
+            this.durationNanos = new long[streams];
+        }
+
+        private void opened() {
+            peakActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+        }
+
+        private void firstToken(long nanos) {
+            ttftNanos[ttftCount.getAndIncrement()] = nanos;
+        }
+
+        private void closed(long nanos, String failure) {
+            active.decrementAndGet();
+            if (failure == null) {
+                succeeded.increment();
+                durationNanos[durationCount.getAndIncrement()] = nanos;
+            } else {
+                failures.computeIfAbsent(failure, key -> new LongAdder()).increment();
+            }
+        }
+
+        private void report(String label, int streams, long elapsedMillis) {
+            long[] ttft = Arrays.copyOf(ttftNanos, ttftCount.get());
+            long[] durations = Arrays.copyOf(durationNanos, durationCount.get());
+            Arrays.sort(ttft);
+            Arrays.sort(durations);
+            System.out.printf("streams=%d succeeded=%d peak_concurrent=%d elapsed=%d ms%n",
+                    streams, succeeded.sum(), peakActive.get(), elapsedMillis);
+            System.out.printf("ttft ms: p50=%d p90=%d p99=%d max=%d%n",
+                    percentile(ttft, 0.50), percentile(ttft, 0.90), percentile(ttft, 0.99), percentile(ttft, 1.0));
+            System.out.printf("duration ms: p50=%d p99=%d%n", percentile(durations, 0.50), percentile(durations, 0.99));
+            failures.forEach((reason, count) -> System.out.printf("failed %s=%d%n", reason, count.sum()));
+            // 便于多次运行结果对比的单行汇总
+            System.out.printf("SUMMARY\t%s\t%d\t%d\t%d\t%d\t%d%n", label, streams, succeeded.sum(), peakActive.get(),
+                    percentile(ttft, 0.50), percentile(ttft, 0.99));
+        }
+
+        private static long percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return -1;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, Math.min(sorted.length - 1, index))]);
+        }
+    }
+}
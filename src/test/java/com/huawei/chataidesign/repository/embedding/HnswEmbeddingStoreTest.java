@@ -0,0 +1,175 @@
+package com.huawei.chataidesign.repository.embedding;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HNSW 向量库测试类
+ */
+public class HnswEmbeddingStoreTest {
+
+    private static final int DIMENSION = 32;
+
+    @TempDir
+    Path tempDir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void testRecallAgainstBruteForce() {
+        HnswEmbeddingStore store = new HnswEmbeddingStore(16, 200, 64, null, meterRegistry);
+        List<float[]> vectors = randomVectors(3000, 1);
+        addAll(store, vectors);
+
+        List<float[]> queries = randomVectors(50, 2);
+        int hits = 0;
+        for (float[] query : queries) {
+            Set<String> expected = bruteForce(vectors, query, 10);
+            Set<String> actual = search(store, query, 10).stream()
+                    .map(EmbeddingMatch::embeddingId)
+                    .collect(Collectors.toSet());
+            actual.retainAll(expected);
+            hits += actual.size();
+        }
+        double recall = hits / (50.0 * 10);
+        assertTrue(recall >= 0.9, "recall@10 was " + recall);
+    }
+
+    @Test
+    public void testDeletedVectorsAreNotReturned() {
+        HnswEmbeddingStore store = new HnswEmbeddingStore(8, 100, 32, null, meterRegistry);
+        List<float[]> vectors = randomVectors(200, 3);
+        addAll(store, vectors);
+
+        store.removeAll(List.of("0", "1", "2"));
+
+        assertEquals(197, store.size());
+        List<EmbeddingMatch<TextSegment>> matches = search(store, vectors.get(0), 5);
+        assertEquals(5, matches.size());
+        assertTrue(matches.stream().noneMatch(match -> Set.of("0", "1", "2").contains(match.embeddingId())));
+    }
+
+    @Test
+    public void testReAddingSameVectorIsNoOp() {
+        HnswEmbeddingStore store = new HnswEmbeddingStore(8, 100, 32, null, meterRegistry);
+        List<float[]> vectors = randomVectors(50, 4);
+        addAll(store, vectors);
+        addAll(store, vectors);
+
+        assertEquals(50, store.size());
+        assertEquals("0", search(store, vectors.get(0), 1).get(0).embeddingId());
+    }
+
+    @Test
+    public void testFilterAndMinScore() {
+        HnswEmbeddingStore store = new HnswEmbeddingStore(8, 100, 32, null, meterRegistry);
+        List<float[]> vectors = randomVectors(100, 5);
+        addAll(store, vectors);
+
+        List<EmbeddingMatch<TextSegment>> matches = store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(vectors.get(1)))
+                .maxResults(3)
+                .filter(metadataKey("file_name").isEqualTo("doc-0.md"))
+                .build()).matches();
+        assertEquals(3, matches.size());
+        assertTrue(matches.stream().allMatch(match -> "doc-0.md".equals(match.embedded().metadata().getString("file_name"))));
+
+        List<EmbeddingMatch<TextSegment>> exact = store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(vectors.get(7)))
+                .maxResults(5)
+                .minScore(0.9999)
+                .build()).matches();
+        assertEquals(1, exact.size());
+        assertEquals("7", exact.get(0).embeddingId());
+    }
+
+    @Test
+    public void testIndexSurvivesSaveAndLoad() throws IOException {
+        Path indexPath = tempDir.resolve("hnsw.idx");
+        HnswEmbeddingStore store = new HnswEmbeddingStore(16, 100, 64, indexPath, meterRegistry);
+        List<float[]> vectors = randomVectors(500, 6);
+        addAll(store, vectors);
+        store.removeAll(List.of("3"));
+        store.save();
+
+        HnswEmbeddingStore reloaded = new HnswEmbeddingStore(16, 100, 64, indexPath, meterRegistry);
+        assertTrue(reloaded.load());
+        assertEquals(499, reloaded.size());
+        EmbeddingMatch<TextSegment> match = search(reloaded, vectors.get(42), 1).get(0);
+        assertEquals("42", match.embeddingId());
+        assertEquals("segment 42", match.embedded().text());
+        assertEquals("doc-2.md", match.embedded().metadata().getString("file_name"));
+    }
+
+    private static void addAll(HnswEmbeddingStore store, List<float[]> vectors) {
+        List<String> ids = new ArrayList<>();
+        List<Embedding> embeddings = new ArrayList<>();
+        List<TextSegment> segments = new ArrayList<>();
+        for (int i = 0; i < vectors.size(); i++) {
+            ids.add(String.valueOf(i));
+            embeddings.add(Embedding.from(vectors.get(i)));
+            segments.add(TextSegment.from("segment " + i, Metadata.from("file_name", "doc-" + (i % 4) + ".md")));
+        }
+        store.addAll(ids, embeddings, segments);
+    }
+
+    private static List<EmbeddingMatch<TextSegment>> search(HnswEmbeddingStore store, float[] query, int maxResults) {
+        return store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(query))
+                .maxResults(maxResults)
+                .build()).matches();
+    }
+
+    private static Set<String> bruteForce(List<float[]> vectors, float[] query, int k) {
+        return IntStream.range(0, vectors.size()).boxed()
+                .sorted(Comparator.comparingDouble(i -> -cosine(vectors.get(i), query)))
+                .limit(k)
+                .map(String::valueOf)
+                .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+
+    private static List<float[]> randomVectors(int count, long seed) {
+        Random random = new Random(seed);
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] vector = new float[DIMENSION];
+            for (int j = 0; j < DIMENSION; j++) {
+                vector[j] = (float) random.nextGaussian();
+            }
+            vectors.add(vector);
+        }
+        return vectors;
+    }
+}
@@ -0,0 +1,52 @@
+package com.huawei.chataidesign.repository.lexical;
+
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BM25 倒排索引测试类
+ */
+public class Bm25IndexTest {
+
+    @Test
+    public void testExactKeywordRanksFirst() {
+        Bm25Index index = new Bm25Index();
+        index.add("1", TextSegment.from("Java 并发编程：线程池与 CompletableFuture 的使用"));
+        index.add("2", TextSegment.from("Spring Boot 启动时报 NullPointerException 的排查思路"));
+        index.add("3", TextSegment.from("大模型 Agent 的常见面试题与学习路线"));
+
+        List<Bm25Index.Match> matches = index.search("NullPointerException 怎么排查", 3, 0);
+
+        assertFalse(matches.isEmpty());
+        assertEquals("2", matches.get(0).id());
+    }
+
+    @Test
+    public void testChineseQueryMatchesByBigrams() {
+        Bm25Index index = new Bm25Index();
+        index.add("1", TextSegment.from("程序员常见面试题汇总"));
+        index.add("2", TextSegment.from("求职指南：简历与作品集"));
+
+        List<Bm25Index.Match> matches = index.search("有哪些面试题", 3, 0);
+
+        assertEquals(1, matches.size());
+        assertEquals("1", matches.get(0).id());
+    }
+
+    @Test
+    public void testRemovedAndReplacedSegmentsAreNotReturned() {
+        Bm25Index index = new Bm25Index();
+        index.add("1", TextSegment.from("Redis 缓存击穿"));
+        index.add("2", TextSegment.from("Redis 持久化"));
+        index.removeAll(List.of("1"));
+        index.add("2", TextSegment.from("MySQL 索引优化"));
+
+        assertEquals(1, index.size());
+        assertTrue(index.search("Redis", 3, 0).isEmpty());
+        assertEquals("2", index.search("mysql 索引", 3, 0).get(0).id());
+    }
+}
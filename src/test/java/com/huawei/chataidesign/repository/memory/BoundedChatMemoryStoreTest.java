@@ -0,0 +1,79 @@
+package com.huawei.chataidesign.repository.memory;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 有界会话记忆存储测试类
+ */
+public class BoundedChatMemoryStoreTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void testEvictLeastRecentlyUsedWhenMaxConversationsExceeded() {
+        BoundedChatMemoryStore store = new BoundedChatMemoryStore(2, Long.MAX_VALUE, 0, meterRegistry);
+        List<Object> evicted = new ArrayList<>();
+        store.addEvictionListener(evicted::add);
+
+        store.updateMessages(1, conversation("第一个会话"));
+        store.updateMessages(2, conversation("第二个会话"));
+        // 访问会话1，使会话2成为最久未使用的会话
+        store.getMessages(1);
+        store.updateMessages(3, conversation("第三个会话"));
+
+        assertEquals(2, store.size());
+        assertEquals(List.of(2), evicted);
+        assertFalse(store.getMessages(1).isEmpty());
+        assertTrue(store.getMessages(2).isEmpty());
+        assertEquals(1.0, meterRegistry.get("chat.memory.local.evictions").tag("cause", "size").counter().count());
+    }
+
+    @Test
+    public void testHeapStaysBoundedForManyConversations() {
+        BoundedChatMemoryStore store = new BoundedChatMemoryStore(100, 64 * 1024, 0, meterRegistry);
+        for (int memoryId = 0; memoryId < 10_000; memoryId++) {
+            store.updateMessages(memoryId, conversation("会话内容 " + memoryId));
+        }
+
+        assertTrue(store.size() <= 100);
+        assertTrue(store.totalBytes() <= 64 * 1024);
+    }
+
+    @Test
+    public void testIdleConversationExpires() throws InterruptedException {
+        BoundedChatMemoryStore store = new BoundedChatMemoryStore(100, Long.MAX_VALUE, 20, meterRegistry);
+        store.updateMessages(1, conversation("即将过期的会话"));
+        Thread.sleep(50);
+
+        assertTrue(store.getMessages(1).isEmpty());
+        assertEquals(0, store.size());
+        assertEquals(1.0, meterRegistry.get("chat.memory.local.evictions").tag("cause", "expired").counter().count());
+    }
+
+    @Test
+    public void testDeleteDoesNotNotifyListeners() {
+        BoundedChatMemoryStore store = new BoundedChatMemoryStore(10, Long.MAX_VALUE, 0, meterRegistry);
+        List<Object> evicted = new ArrayList<>();
+        store.addEvictionListener(evicted::add);
+
+        store.updateMessages("default", conversation("你好"));
+        store.deleteMessages("default");
+
+        assertEquals(0, store.size());
+        assertEquals(0, store.totalBytes());
+        assertTrue(evicted.isEmpty());
+    }
+
+    private static List<ChatMessage> conversation(String text) {
+        return List.of(UserMessage.from(text), AiMessage.from("回复: " + text));
+    }
+}
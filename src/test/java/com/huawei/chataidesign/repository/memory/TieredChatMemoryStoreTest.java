@@ -0,0 +1,175 @@
+package com.huawei.chataidesign.repository.memory;
+
+import com.huawei.chataidesign.repository.redis.RedisRepository;
+import com.huawei.chataidesign.service.AiChatService;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.service.AiServices;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 两级会话记忆存储测试类
+ * 使用内存版 RedisRepository 替身，不依赖真实 Redis
+ */
+public class TieredChatMemoryStoreTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InMemoryRedisRepository redis = new InMemoryRedisRepository();
+    private BoundedChatMemoryStore hotTier;
+    private TieredChatMemoryStore store;
+
+    @AfterEach
+    public void tearDown() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testWritesAreCoalescedIntoOnePipelinedFlush() {
+        store = newStore(100);
+        List<ChatMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            messages.add(UserMessage.from("问题 " + i));
+            messages.add(AiMessage.from("回答 " + i));
+            store.updateMessages(1, messages);
+        }
+        store.updateMessages(2, List.of(UserMessage.from("你好")));
+
+        assertEquals(0, redis.pipelineCalls.get());
+        assertEquals(2, store.flush());
+        assertEquals(1, redis.pipelineCalls.get());
+        assertEquals(2, redis.data.size());
+        assertEquals(0, store.pendingSize());
+    }
+
+    @Test
+    public void testColdReadFallsBackToRedis() {
+        store = newStore(1);
+        store.updateMessages(1, List.of(UserMessage.from("第一个会话")));
+        store.flush();
+        // 写入会话2使会话1被挤出热数据层
+        store.updateMessages(2, List.of(UserMessage.from("第二个会话")));
+
+        List<ChatMessage> messages = store.getMessages(1);
+        assertEquals(1, messages.size());
+        assertEquals("第一个会话", ((UserMessage) messages.get(0)).singleText());
+    }
+
+    @Test
+    public void testUnflushedSnapshotIsReadableAfterHotEviction() {
+        store = newStore(1);
+        store.updateMessages(1, List.of(UserMessage.from("尚未刷写")));
+        store.updateMessages(2, List.of(UserMessage.from("挤出会话1")));
+
+        assertEquals(1, store.getMessages(1).size());
+        assertTrue(redis.data.isEmpty());
+    }
+
+    @Test
+    public void testDeleteIsPropagatedOnFlush() {
+        store = newStore(100);
+        store.updateMessages(1, List.of(UserMessage.from("待删除")));
+        store.flush();
+        store.deleteMessages(1);
+        store.flush();
+
+        assertTrue(redis.data.isEmpty());
+        assertTrue(store.getMessages(1).isEmpty());
+    }
+
+    @Test
+    public void testHotEvictionThroughAiServicesKeepsConversationInRedis() {
+        store = newStore(1);
+        AiChatService service = AiServices.builder(AiChatService.class)
+                .streamingChatModel(new EchoStreamingChatModel())
+                .chatMemoryProvider(memoryId -> new MeteredChatMemory(
+                        MessageWindowChatMemory.builder().id(memoryId).maxMessages(20).chatMemoryStore(store).build(),
+                        meterRegistry.summary("test.prompt.tokens")))
+                .build();
+        hotTier.addEvictionListener(memoryId -> MeteredChatMemory.evictCachedInstance(service, memoryId));
+
+        service.chatWithStream(1, "第一个问题").blockLast();
+        store.flush();
+        // 会话2挤出热数据层，会话1的 ChatMemory 实例随之被丢弃
+        service.chatWithStream(2, "另一个会话").blockLast();
+        store.flush();
+
+        assertTrue(redis.data.containsKey("test:memory:1"));
+        service.chatWithStream(1, "第二个问题").blockLast();
+
+        List<ChatMessage> messages = store.getMessages(1);
+        assertEquals(5, messages.size());
+        assertEquals("第一个问题", ((UserMessage) messages.get(1)).singleText());
+        assertEquals("第二个问题", ((UserMessage) messages.get(3)).singleText());
+    }
+
+    private TieredChatMemoryStore newStore(int hotConversations) {
+        hotTier = new BoundedChatMemoryStore(hotConversations, Long.MAX_VALUE, 0, meterRegistry);
+        // 刷写间隔为0时不启动后台刷写，由测试手动触发
+        return new TieredChatMemoryStore(hotTier, redis, "test:memory:", 60, 100, 0, meterRegistry);
+    }
+
+    /**
+     * 原样返回用户消息的流式模型替身
+     */
+    private static class EchoStreamingChatModel implements StreamingChatModel {
+
+        @Override
+        public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+            String reply = "收到：" + ((UserMessage) chatRequest.messages().get(chatRequest.messages().size() - 1)).singleText();
+            handler.onPartialResponse(reply);
+            handler.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from(reply)).build());
+        }
+    }
+
+    /**
+     * 基于内存 Map 的 RedisRepository 替身
+     */
+    private static class InMemoryRedisRepository extends RedisRepository {
+        private final Map<String, Object> data = new ConcurrentHashMap<>();
+        private final AtomicInteger pipelineCalls = new AtomicInteger();
+
+        @Override
+        public Object get(String key) {
+            return key == null ? null : data.get(key);
+        }
+
+        @Override
+        public boolean pipelineSetEx(Map<String, Object> entries, long time) {
+            if (!entries.isEmpty()) {
+                pipelineCalls.incrementAndGet();
+                data.putAll(entries);
+            }
+            return true;
+        }
+
+        @Override
+        public long delete(Collection<String> keys) {
+            long deleted = 0;
+            for (String key : keys) {
+                if (data.remove(key) != null) {
+                    deleted++;
+                }
+            }
+            return deleted;
+        }
+    }
+}
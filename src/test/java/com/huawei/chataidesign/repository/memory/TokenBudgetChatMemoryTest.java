@@ -0,0 +1,58 @@
+package com.huawei.chataidesign.repository.memory;
+
+import com.huawei.chataidesign.utils.TokenEstimator;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * token 预算会话记忆测试类
+ */
+public class TokenBudgetChatMemoryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void testLongConversationIsFoldedIntoSummary() {
+        BoundedChatMemoryStore store = new BoundedChatMemoryStore(10, Long.MAX_VALUE, 0, meterRegistry);
+        TokenBudgetChatMemory memory = new TokenBudgetChatMemory(
+                1, store, 600, 4, 200, meterRegistry.counter("chat.memory.compactions"));
+
+        memory.add(SystemMessage.from("你是编程领域的小助手"));
+        for (int i = 0; i < 20; i++) {
+            memory.add(UserMessage.from("第" + i + "个问题：" + "如何学习Java并发编程？".repeat(10)));
+            memory.add(AiMessage.from("第" + i + "个回答：" + "先掌握线程基础，再学习JUC工具类。".repeat(10)));
+        }
+
+        List<ChatMessage> messages = memory.messages();
+        assertTrue(TokenEstimator.estimate(messages) <= 600);
+        assertInstanceOf(SystemMessage.class, messages.get(0));
+        assertInstanceOf(UserMessage.class, messages.get(1));
+        assertTrue(((UserMessage) messages.get(1)).singleText().startsWith(TokenBudgetChatMemory.SUMMARY_HEADER));
+        // 最后一轮问答原样保留
+        assertTrue(((AiMessage) messages.get(messages.size() - 1)).text().startsWith("第19个回答"));
+        assertTrue(meterRegistry.counter("chat.memory.compactions").count() > 0);
+    }
+
+    @Test
+    public void testShortConversationIsKeptVerbatim() {
+        BoundedChatMemoryStore store = new BoundedChatMemoryStore(10, Long.MAX_VALUE, 0, meterRegistry);
+        TokenBudgetChatMemory memory = new TokenBudgetChatMemory(
+                1, store, 4000, 6, 800, meterRegistry.counter("chat.memory.compactions"));
+
+        memory.add(SystemMessage.from("你是编程领域的小助手"));
+        memory.add(UserMessage.from("你好"));
+        memory.add(AiMessage.from("你好，有什么可以帮你？"));
+        memory.add(SystemMessage.from("你是编程领域的小助手"));
+
+        assertEquals(3, memory.messages().size());
+        assertEquals(0.0, meterRegistry.counter("chat.memory.compactions").count());
+    }
+}
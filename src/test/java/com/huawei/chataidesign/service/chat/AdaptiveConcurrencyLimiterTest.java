@@ -0,0 +1,213 @@
+package com.huawei.chataidesign.service.chat;
+
+import com.huawei.chataidesign.config.ModelConcurrencyConfig;
+import com.huawei.chataidesign.exception.ChatAiDesignException;
+import com.huawei.chataidesign.service.AiChatService;
+import com.huawei.chataidesign.service.chat.AdaptiveConcurrencyLimiter.Permit;
+import com.huawei.chataidesign.service.impl.ConcurrencyLimitedAiChatService;
+import dev.langchain4j.memory.ChatMemory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 模型调用自适应并发限流测试类
+ * 使用注入延迟的模型替身，不调用真实模型
+ */
+public class AdaptiveConcurrencyLimiterTest {
+
+    private final ModelConcurrencyConfig config = new ModelConcurrencyConfig();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    public AdaptiveConcurrencyLimiterTest() {
+        config.setInitialLimit(2);
+        config.setMinLimit(1);
+        config.setMaxQueueSize(3);
+        config.setMaxQueuePerUser(2);
+        config.setMaxQueueWaitMillis(1000);
+    }
+
+    @Test
+    public void testRequestsBeyondLimitWaitForReleasedPermits() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter();
+        Permit first = limiter.acquire("alice").block();
+        limiter.acquire("bob").block();
+        List<Permit> waiting = new CopyOnWriteArrayList<>();
+        limiter.acquire("carol").subscribe(waiting::add);
+
+        assertEquals(2, limiter.inFlight());
+        assertEquals(1, limiter.queued());
+        assertTrue(waiting.isEmpty());
+
+        first.release();
+        first.release();
+
+        assertEquals(1, waiting.size());
+        assertEquals(2, limiter.inFlight());
+        assertEquals(0, limiter.queued());
+    }
+
+    @Test
+    public void testFullQueueIsRejectedImmediately() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter();
+        limiter.acquire("alice").block();
+        limiter.acquire("alice").block();
+        limiter.acquire("alice").subscribe();
+        limiter.acquire("alice").subscribe();
+
+        assertTrue(limiter.wouldReject("alice"));
+        assertFalse(limiter.wouldReject("bob"));
+        ChatAiDesignException error = assertThrows(ChatAiDesignException.class,
+                () -> limiter.acquire("alice").block());
+        assertEquals(503, error.getErrorCode());
+
+        limiter.acquire("bob").subscribe();
+        assertTrue(limiter.wouldReject("bob"));
+        assertThrows(ChatAiDesignException.class, () -> limiter.acquire("carol").block());
+        assertEquals(1.0, meterRegistry.counter("chat.model.limiter.rejected",
+                "model", "test", "reason", "queue_full").count());
+    }
+
+    @Test
+    public void testWouldRejectMatchesAcquireOutcome() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter();
+        List<String> callers = List.of("alice", "alice", "bob", "alice", "alice", "bob", "carol", "carol");
+        for (String caller : callers) {
+            boolean predicted = limiter.wouldReject(caller);
+            List<Throwable> errors = new CopyOnWriteArrayList<>();
+            limiter.acquire(caller).subscribe(permit -> { }, errors::add);
+            assertEquals(predicted, !errors.isEmpty(), "prediction for " + caller);
+        }
+        assertEquals(2, limiter.inFlight());
+        assertEquals(3, limiter.queued());
+    }
+
+    @Test
+    public void testReleasedPermitGoesToUserWithFewestCallsInFlight() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter();
+        Permit alice = limiter.acquire("alice").block();
+        limiter.acquire("alice").block();
+        List<String> order = new CopyOnWriteArrayList<>();
+        limiter.acquire("alice").subscribe(permit -> order.add("alice"));
+        limiter.acquire("bob").subscribe(permit -> order.add("bob"));
+
+        alice.release();
+
+        assertEquals(List.of("bob"), order);
+    }
+
+    @Test
+    public void testQueueWaitTimesOutWith503() {
+        config.setMaxQueueWaitMillis(50);
+        AdaptiveConcurrencyLimiter limiter = newLimiter();
+        limiter.acquire("alice").block();
+        limiter.acquire("alice").block();
+
+        ChatAiDesignException error = assertThrows(ChatAiDesignException.class,
+                () -> limiter.acquire("bob").block());
+
+        assertEquals(503, error.getErrorCode());
+        assertEquals(0, limiter.queued());
+    }
+
+    @Test
+    public void testLimitShrinksOnOverloadAndGrowsWhenHealthy() {
+        config.setInitialLimit(10);
+        AdaptiveConcurrencyLimiter limiter = newLimiter();
+
+        Permit throttled = limiter.acquire("alice").block();
+        throttled.onError(new RuntimeException("Throttling.RateQuota: Requests rate limit exceeded"));
+        throttled.release();
+        assertEquals(9.0, limiter.limit(), 1e-9);
+
+        Permit other = limiter.acquire("alice").block();
+        other.onError(new IllegalArgumentException("bad request"));
+        other.release();
+        assertEquals(9.0, limiter.limit(), 1e-9);
+
+        List<Permit> permits = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            permits.add(limiter.acquire("user" + i).block());
+        }
+        permits.forEach(Permit::onFirstOutput);
+        permits.forEach(Permit::release);
+        assertTrue(limiter.limit() > 9.9, "limit should grow by about one per full round");
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    public void testLimitedServiceBacksOffOnSlowFirstToken() {
+        config.setInitialLimit(4);
+        config.setLatencyThresholdMillis(20);
+        AdaptiveConcurrencyLimiter limiter = newLimiter();
+        AiChatService service = new ConcurrencyLimitedAiChatService(new DelayedChatService(Duration.ofMillis(60)), limiter);
+
+        List<String> chunks = service.chatWithStream(1, "你好")
+                .contextWrite(AdaptiveConcurrencyLimiter.withCaller("alice"))
+                .collectList().block();
+
+        assertEquals(List.of("你好", "！"), chunks);
+        assertEquals(3.6, limiter.limit(), 1e-9);
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    public void testLimitedServiceReleasesPermitOnTimeout() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter();
+        AiChatService service = new ConcurrencyLimitedAiChatService(new DelayedChatService(Duration.ofSeconds(5)), limiter);
+
+        assertThrows(RuntimeException.class, () -> service.chatWithStream(1, "你好")
+                .timeout(Duration.ofMillis(20))
+                .blockLast());
+
+        assertEquals(0, limiter.inFlight());
+        assertTrue(AdaptiveConcurrencyLimiter.isOverload(new TimeoutException()));
+    }
+
+    private AdaptiveConcurrencyLimiter newLimiter() {
+        return new AdaptiveConcurrencyLimiter("test", config, meterRegistry);
+    }
+
+    /**
+     * 首个输出前有固定延迟的模型替身
+     */
+    private static class DelayedChatService implements AiChatService {
+        private final Duration latency;
+
+        private DelayedChatService(Duration latency) {
+            this.latency = latency;
+        }
+
+        @Override
+        public String chat(String message) {
+            return message;
+        }
+
+        @Override
+        public Flux<String> chatWithStream(int memoryId, String message) {
+            return Flux.just(message, "！").delaySubscription(latency);
+        }
+
+        @Override
+        public Flux<String> chatWithStreamAndIntent(int memoryId, String message, String intentHint) {
+            return chatWithStream(memoryId, message);
+        }
+
+        @Override
+        public ChatMemory getChatMemory(Object memoryId) {
+            return null;
+        }
+
+        @Override
+        public boolean evictChatMemory(Object memoryId) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.huawei.chataidesign.service.chat;
+
+import com.huawei.chataidesign.config.ModelRoutingConfig;
+import com.huawei.chataidesign.config.RagRetrievalConfig;
+import com.huawei.chataidesign.entity.IntentClassification;
+import com.huawei.chataidesign.entity.IntentType;
+import com.huawei.chataidesign.entity.ModelRoute;
+import com.huawei.chataidesign.repository.memory.BoundedChatMemoryStore;
+import com.huawei.chataidesign.service.AiChatService;
+import com.huawei.chataidesign.service.rag.QueryRoutingContentRetriever;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 按意图路由模型测试类
+ * 使用记录调用的聊天服务替身，不调用真实模型
+ */
+public class IntentModelRouterTest {
+
+    private final ModelRoutingConfig config = new ModelRoutingConfig();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BoundedChatMemoryStore chatMemoryStore = new BoundedChatMemoryStore(100, Long.MAX_VALUE, 0, meterRegistry);
+    private final RecordingChatService large = new RecordingChatService("large");
+    private final RecordingChatService small = new RecordingChatService("small");
+
+    @Test
+    public void testRoutesByIntent() {
+        IntentModelRouter router = newRouter();
+
+        assertEquals(ModelRoute.TEMPLATE, router.route(intent(IntentType.GREETING, 0.9)));
+        assertEquals(ModelRoute.SMALL, router.route(intent(IntentType.FEEDBACK, 0.9)));
+        assertEquals(ModelRoute.LARGE, router.route(intent(IntentType.CODE_REVIEW, 0.9)));
+        assertEquals(ModelRoute.LARGE, router.route(intent(IntentType.LEARNING_PATH, 0.9)));
+    }
+
+    @Test
+    public void testLowConfidenceOrMissingIntentUsesLargeModel() {
+        IntentModelRouter router = newRouter();
+
+        assertEquals(ModelRoute.LARGE, router.route(intent(IntentType.GREETING, 0.5)));
+        assertEquals(ModelRoute.LARGE, router.route(null));
+    }
+
+    @Test
+    public void testGreetingFollowedByQuestionIsAnsweredByLargeModel() {
+        IntentModelRouter router = newRouter();
+        IntentClassification greetingWithQuestion = new IntentClassification(IntentType.GREETING, 0.95,
+                "你好，请问HashMap扩容机制是什么");
+
+        assertEquals(ModelRoute.TEMPLATE, router.route(new IntentClassification(IntentType.GREETING, 0.95, "你好！")));
+        assertEquals(ModelRoute.LARGE, router.route(greetingWithQuestion));
+        List<String> chunks = router.stream(1, "你好，Spring事务怎么回滚？",
+                new IntentClassification(IntentType.GREETING, 0.95, "你好，Spring事务怎么回滚？"), null)
+                .collectList().block();
+
+        assertEquals(List.of("large", " answer"), chunks);
+        assertEquals(List.of("plain"), large.calls);
+    }
+
+    @Test
+    public void testTemplateRouteWithoutTemplateFallsBackToSmallModel() {
+        config.getRoutes().put(IntentType.FEEDBACK, ModelRoute.TEMPLATE);
+        IntentModelRouter router = newRouter();
+
+        assertEquals(ModelRoute.SMALL, router.route(intent(IntentType.FEEDBACK, 0.9)));
+    }
+
+    @Test
+    public void testDisabledRoutingAlwaysUsesLargeModel() {
+        config.setEnabled(false);
+        IntentModelRouter router = newRouter();
+
+        assertEquals(ModelRoute.LARGE, router.route(intent(IntentType.GREETING, 0.9)));
+    }
+
+    @Test
+    public void testTemplateReplyIsWrittenToMemoryWithoutModelCall() {
+        IntentModelRouter router = newRouter();
+
+        List<String> chunks = router.stream(1, "你好", intent(IntentType.GREETING, 0.9), "[问候]").collectList().block();
+
+        assertEquals(List.of(config.getTemplates().get(IntentType.GREETING)), chunks);
+        assertTrue(large.calls.isEmpty());
+        assertTrue(small.calls.isEmpty());
+        List<ChatMessage> messages = chatMemoryStore.getMessages(1);
+        assertEquals(3, messages.size());
+        assertInstanceOf(SystemMessage.class, messages.get(0));
+        assertInstanceOf(AiMessage.class, messages.get(2));
+        assertEquals(1.0, meterRegistry.counter("chat.model.route.requests",
+                "route", "template", "intent", "greeting").count());
+    }
+
+    @Test
+    public void testTemplateRepliesRespectMemoryWindow() {
+        IntentModelRouter router = newRouter();
+
+        for (int i = 0; i < 3; i++) {
+            router.stream(1, "你好" + i, intent(IntentType.GREETING, 0.9), null).blockLast();
+        }
+
+        List<ChatMessage> messages = chatMemoryStore.getMessages(1);
+        assertEquals(4, messages.size());
+        assertInstanceOf(SystemMessage.class, messages.get(0));
+        assertInstanceOf(AiMessage.class, messages.get(3));
+    }
+
+    @Test
+    public void testModelRoutesPassIntentHint() {
+        IntentModelRouter router = newRouter();
+
+        router.stream(1, "有什么建议", intent(IntentType.FEEDBACK, 0.9), "[反馈]").blockLast();
+        router.stream(2, "这段代码有什么问题", intent(IntentType.CODE_REVIEW, 0.9), null).blockLast();
+
+        assertEquals(List.of("hint:[反馈]"), small.calls);
+        assertEquals(List.of("plain"), large.calls);
+        assertTrue(meterRegistry.counter("chat.model.route.tokens", "route", "small", "type", "output").count() > 0);
+        assertTrue(meterRegistry.counter("chat.model.route.cost", "route", "large").count() > 0);
+    }
+
+    private IntentModelRouter newRouter() {
+        IntentModelRouter router = new IntentModelRouter();
+        ReflectionTestUtils.setField(router, "aiChatService", large);
+        ReflectionTestUtils.setField(router, "smallAiChatService", small);
+        ReflectionTestUtils.setField(router, "contentRetriever",
+                new QueryRoutingContentRetriever(query -> List.of(), new RagRetrievalConfig(), meterRegistry));
+        ReflectionTestUtils.setField(router, "chatMemoryProvider", (ChatMemoryProvider) memoryId ->
+                MessageWindowChatMemory.builder().id(memoryId).maxMessages(4).chatMemoryStore(chatMemoryStore).build());
+        ReflectionTestUtils.setField(router, "modelRoutingConfig", config);
+        ReflectionTestUtils.setField(router, "meterRegistry", meterRegistry);
+        router.init();
+        return router;
+    }
+
+    private static IntentClassification intent(IntentType intentType, double confidence) {
+        return new IntentClassification(intentType, confidence, "test");
+    }
+
+    private static class RecordingChatService implements AiChatService {
+        private final String name;
+        private final List<String> calls = new ArrayList<>();
+
+        private RecordingChatService(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String chat(String message) {
+            return name;
+        }
+
+        @Override
+        public Flux<String> chatWithStream(int memoryId, String message) {
+            calls.add("plain");
+            return Flux.just(name, " answer");
+        }
+
+        @Override
+        public Flux<String> chatWithStreamAndIntent(int memoryId, String message, String intentHint) {
+            calls.add("hint:" + intentHint);
+            return Flux.just(name, " answer");
+        }
+
+        @Override
+        public ChatMemory getChatMemory(Object memoryId) {
+            return null;
+        }
+
+        @Override
+        public boolean evictChatMemory(Object memoryId) {
+            return false;
+        }
+    }
+}
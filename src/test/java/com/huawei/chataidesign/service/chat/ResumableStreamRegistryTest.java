@@ -0,0 +1,185 @@
+package com.huawei.chataidesign.service.chat;
+
+import com.huawei.chataidesign.config.SseStreamConfig;
+import com.huawei.chataidesign.exception.ChatAiDesignException;
+import com.huawei.chataidesign.repository.redis.RedisRepository;
+import com.huawei.chataidesign.service.chat.ResumableStreamRegistry.StreamFrame;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 可续传流式回答测试类
+ * 使用内存版 RedisRepository 替身，不依赖真实 Redis
+ */
+public class ResumableStreamRegistryTest {
+
+    private static final String OWNER = "alice";
+
+    private final SseStreamConfig config = new SseStreamConfig();
+    private final InMemoryRedisRepository redis = new InMemoryRedisRepository();
+    private final List<ResumableStreamRegistry> registries = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        registries.forEach(ResumableStreamRegistry::destroy);
+    }
+
+    @Test
+    public void testReconnectResumesFromNextFrameWhileGenerationContinues() {
+        ResumableStreamRegistry registry = newRegistry();
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        List<StreamFrame> received = new CopyOnWriteArrayList<>();
+        Disposable client = registry.start(upstream.asFlux(), OWNER).subscribe(received::add);
+
+        upstream.tryEmitNext("第一段");
+        upstream.tryEmitNext("第二段");
+        client.dispose();
+        upstream.tryEmitNext("第三段");
+
+        assertEquals(1, upstream.currentSubscriberCount());
+        assertEquals(2, received.size());
+        assertTrue(received.get(0).eventId().endsWith(":0"));
+
+        List<String> resumed = new CopyOnWriteArrayList<>();
+        registry.resume(received.get(0).eventId(), OWNER).subscribe(frame -> resumed.add(frame.data()));
+        upstream.tryEmitNext("第四段");
+        upstream.tryEmitComplete();
+
+        assertEquals(List.of("第二段", "第三段", "第四段"), resumed);
+    }
+
+    @Test
+    public void testResumeBeyondReplayWindowFails() {
+        config.getReplay().setMaxFramesPerStream(2);
+        ResumableStreamRegistry registry = newRegistry();
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        List<StreamFrame> received = new CopyOnWriteArrayList<>();
+        registry.start(upstream.asFlux(), OWNER).subscribe(received::add);
+        for (int i = 0; i < 4; i++) {
+            upstream.tryEmitNext("帧" + i);
+        }
+
+        ChatAiDesignException error = assertThrows(ChatAiDesignException.class,
+                () -> registry.resume(received.get(0).eventId(), OWNER).blockLast());
+        assertEquals(410, error.getErrorCode());
+        assertEquals(List.of("帧3"), registry.resume(received.get(2).eventId(), OWNER)
+                .map(StreamFrame::data).take(1).collectList().block());
+        assertEquals(4, registry.chars());
+    }
+
+    @Test
+    public void testInvalidLastEventIdIsRejected() {
+        ResumableStreamRegistry registry = newRegistry();
+
+        ChatAiDesignException error = assertThrows(ChatAiDesignException.class,
+                () -> registry.resume("not-an-event-id", OWNER).blockLast());
+        assertEquals(400, error.getErrorCode());
+    }
+
+    @Test
+    public void testOtherUserCannotResume() {
+        ResumableStreamRegistry registry = newRegistry();
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        List<StreamFrame> received = new CopyOnWriteArrayList<>();
+        registry.start(upstream.asFlux(), OWNER).subscribe(received::add);
+        upstream.tryEmitNext("第一段");
+
+        ChatAiDesignException error = assertThrows(ChatAiDesignException.class,
+                () -> registry.resume(received.get(0).eventId(), "mallory"));
+        assertEquals(403, error.getErrorCode());
+    }
+
+    @Test
+    public void testCompletedStreamExpiresAfterRetention() throws InterruptedException {
+        config.getReplay().setRetentionSeconds(0);
+        ResumableStreamRegistry registry = newRegistry();
+        List<StreamFrame> frames = registry.start(Flux.just("a", "b"), OWNER).collectList().block();
+        assertEquals(1, registry.size());
+
+        Thread.sleep(5);
+        registry.sweep();
+
+        assertEquals(0, registry.size());
+        assertEquals(0, registry.chars());
+        ChatAiDesignException error = assertThrows(ChatAiDesignException.class,
+                () -> registry.resume(frames.get(0).eventId(), OWNER).blockLast());
+        assertEquals(410, error.getErrorCode());
+    }
+
+    @Test
+    public void testMemoryCapEvictsStreamsWithoutListeners() {
+        config.getReplay().setMaxTotalChars(8);
+        ResumableStreamRegistry registry = newRegistry();
+        Sinks.Many<String> abandoned = Sinks.many().unicast().onBackpressureBuffer();
+        Sinks.Many<String> watched = Sinks.many().unicast().onBackpressureBuffer();
+        registry.start(abandoned.asFlux(), OWNER).subscribe().dispose();
+        registry.start(watched.asFlux(), OWNER).subscribe();
+        abandoned.tryEmitNext("abandoned");
+        watched.tryEmitNext("watched");
+
+        registry.sweep();
+
+        assertEquals(1, registry.size());
+        assertEquals("watched".length(), registry.chars());
+        assertEquals(0, abandoned.currentSubscriberCount());
+        assertEquals(1, watched.currentSubscriberCount());
+    }
+
+    @Test
+    public void testCompletedStreamResumesFromRedisOnAnotherInstance() throws InterruptedException {
+        config.getReplay().setRedisEnabled(true);
+        ResumableStreamRegistry writer = newRegistry();
+        List<StreamFrame> frames = writer.start(Flux.just("一", "二", "三"), OWNER).collectList().block();
+        // Redis 写入是异步的
+        for (int i = 0; i < 100 && redis.data.isEmpty(); i++) {
+            Thread.sleep(20);
+        }
+
+        ResumableStreamRegistry reader = newRegistry();
+        List<StreamFrame> resumed = reader.resume(frames.get(0).eventId(), OWNER).collectList().block();
+
+        assertEquals(List.of("二", "三"), resumed.stream().map(StreamFrame::data).toList());
+        assertEquals(frames.get(2).eventId(), resumed.get(1).eventId());
+        ChatAiDesignException error = assertThrows(ChatAiDesignException.class,
+                () -> reader.resume(frames.get(0).eventId(), "mallory"));
+        assertEquals(403, error.getErrorCode());
+    }
+
+    private ResumableStreamRegistry newRegistry() {
+        ResumableStreamRegistry registry = new ResumableStreamRegistry();
+        ReflectionTestUtils.setField(registry, "sseStreamConfig", config);
+        ReflectionTestUtils.setField(registry, "redisRepository", redis);
+        ReflectionTestUtils.setField(registry, "meterRegistry", new SimpleMeterRegistry());
+        registry.init();
+        registries.add(registry);
+        return registry;
+    }
+
+    private static class InMemoryRedisRepository extends RedisRepository {
+        private final Map<String, Object> data = new ConcurrentHashMap<>();
+
+        @Override
+        public Object get(String key) {
+            return key == null ? null : data.get(key);
+        }
+
+        @Override
+        public boolean setEx(String key, Object value, long time) {
+            data.put(key, value);
+            return true;
+        }
+    }
+}
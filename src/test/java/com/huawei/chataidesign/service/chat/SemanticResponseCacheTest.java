@@ -0,0 +1,140 @@
+package com.huawei.chataidesign.service.chat;
+
+import com.huawei.chataidesign.config.SemanticCacheConfig;
+import com.huawei.chataidesign.entity.IntentType;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 语义响应缓存测试类
+ * 使用按文本返回固定向量的向量模型替身，不调用真实模型
+ */
+public class SemanticResponseCacheTest {
+
+    private final SemanticCacheConfig config = new SemanticCacheConfig();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FixedEmbeddingModel embeddingModel = new FixedEmbeddingModel();
+
+    @Test
+    public void testExactHitSkipsEmbedding() {
+        SemanticResponseCache cache = newCache();
+        embeddingModel.vectors.put("什么是 JVM？", new float[]{1, 0, 0});
+        cache.put(cache.lookup("什么是 JVM？", null), "Java 虚拟机", IntentType.TECHNICAL_QUESTION);
+        int embeddings = embeddingModel.calls.get();
+
+        SemanticResponseCache.Lookup lookup = cache.lookup("什么是  jvm?", null);
+
+        assertTrue(lookup.isHit());
+        assertEquals("Java 虚拟机", lookup.answer());
+        assertEquals(embeddings, embeddingModel.calls.get());
+        assertEquals(1.0, meterRegistry.counter("chat.semantic.cache.requests", "result", "exact_hit").count());
+    }
+
+    @Test
+    public void testSemanticHitRequiresSimilarityThreshold() {
+        config.setSimilarityThreshold(0.95);
+        SemanticResponseCache cache = newCache();
+        embeddingModel.vectors.put("什么是 JVM", new float[]{1, 0, 0});
+        embeddingModel.vectors.put("JVM 是什么", unit(0.951));
+        embeddingModel.vectors.put("JVM 怎么调优", unit(0.949));
+        cache.put(cache.lookup("什么是 JVM", null), "Java 虚拟机", IntentType.TECHNICAL_QUESTION);
+
+        SemanticResponseCache.Lookup similar = cache.lookup("JVM 是什么", null);
+        SemanticResponseCache.Lookup different = cache.lookup("JVM 怎么调优", null);
+
+        assertEquals("Java 虚拟机", similar.answer());
+        assertFalse(different.isHit());
+        assertNotNull(different.vector());
+        assertEquals(1.0, meterRegistry.counter("chat.semantic.cache.requests", "result", "semantic_hit").count());
+    }
+
+    @Test
+    public void testIntentWithZeroTtlIsNeverCached() {
+        SemanticResponseCache cache = newCache();
+        embeddingModel.vectors.put("帮我看看这段代码", new float[]{1, 0, 0});
+
+        cache.put(cache.lookup("帮我看看这段代码", null), "代码有问题", IntentType.CODE_REVIEW);
+
+        assertFalse(cache.isCacheable(IntentType.CODE_REVIEW));
+        assertTrue(cache.isCacheable(IntentType.TECHNICAL_QUESTION));
+        assertFalse(cache.lookup("帮我看看这段代码", null).isHit());
+    }
+
+    @Test
+    public void testLeastRecentlyAccessedEntryIsEvicted() throws InterruptedException {
+        config.setMaxEntries(2);
+        SemanticResponseCache cache = newCache();
+        embeddingModel.vectors.put("问题一", new float[]{1, 0, 0});
+        embeddingModel.vectors.put("问题二", new float[]{0, 1, 0});
+        embeddingModel.vectors.put("问题三", new float[]{0, 0, 1});
+        cache.put(cache.lookup("问题一", null), "回答一", IntentType.TECHNICAL_QUESTION);
+        Thread.sleep(5);
+        cache.put(cache.lookup("问题二", null), "回答二", IntentType.TECHNICAL_QUESTION);
+        Thread.sleep(5);
+        // 访问问题一后，问题二成为最久未访问的条目
+        assertTrue(cache.lookup("问题一", null).isHit());
+        Thread.sleep(5);
+
+        cache.put(cache.lookup("问题三", null), "回答三", IntentType.TECHNICAL_QUESTION);
+
+        assertTrue(cache.lookup("问题一", null).isHit());
+        assertFalse(cache.lookup("问题二", null).isHit());
+        assertTrue(cache.lookup("问题三", null).isHit());
+        assertEquals(1.0, meterRegistry.counter("chat.semantic.cache.evictions").count());
+    }
+
+    @Test
+    public void testAnswersAreScopedByIntentHint() {
+        SemanticResponseCache cache = newCache();
+        embeddingModel.vectors.put("如何学习 Java", new float[]{1, 0, 0});
+        cache.put(cache.lookup("如何学习 Java", "[学习路线]"), "先学基础语法", IntentType.LEARNING_PATH);
+
+        assertFalse(cache.lookup("如何学习 Java", null).isHit());
+        assertFalse(cache.lookup("如何学习 Java", "[技术问题]").isHit());
+        assertEquals("先学基础语法", cache.lookup("如何学习 Java", "[学习路线]").answer());
+    }
+
+    private SemanticResponseCache newCache() {
+        SemanticResponseCache cache = new SemanticResponseCache();
+        ReflectionTestUtils.setField(cache, "queryEmbeddingModel", embeddingModel);
+        ReflectionTestUtils.setField(cache, "semanticCacheConfig", config);
+        ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+        cache.init();
+        return cache;
+    }
+
+    /**
+     * 与 (1, 0, 0) 的余弦相似度为 similarity 的单位向量
+     */
+    private static float[] unit(double similarity) {
+        return new float[]{(float) similarity, (float) Math.sqrt(1 - similarity * similarity), 0};
+    }
+
+    /**
+     * 按文本返回预设向量的向量模型替身，未预设的文本返回与预设向量都正交的向量
+     */
+    private static class FixedEmbeddingModel implements EmbeddingModel {
+        private final Map<String, float[]> vectors = new HashMap<>();
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+            calls.incrementAndGet();
+            return Response.from(textSegments.stream()
+                    .map(segment -> Embedding.from(vectors.getOrDefault(segment.text(), new float[]{0, 0, 0})))
+                    .toList());
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.huawei.chataidesign.service.chat;
+
+import com.huawei.chataidesign.config.SseStreamConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SSE 帧合并测试类
+ */
+public class SseFrameCoalescerTest {
+
+    private final SseStreamConfig config = new SseStreamConfig();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void testChunksWithinWindowAreMergedIntoOneFrame() {
+        SseFrameCoalescer coalescer = newCoalescer();
+
+        List<String> frames = coalescer.coalesce(Flux.just("你", "好", "，", "世界")).collectList().block();
+
+        assertEquals(List.of("你好，世界"), frames);
+        assertEquals(4.0, meterRegistry.counter("chat.sse.chunks").count());
+        assertEquals(1.0, meterRegistry.counter("chat.sse.frames").count());
+        assertEquals(15.0, meterRegistry.get("chat.sse.frame.bytes").summary().totalAmount());
+    }
+
+    @Test
+    public void testFrameIsSentWhenWindowElapses() {
+        config.setCoalesceWindowMillis(20);
+        SseFrameCoalescer coalescer = newCoalescer();
+        Flux<String> source = Flux.concat(Flux.just("a", "b"), Flux.just("c").delaySubscription(Duration.ofMillis(200)));
+
+        List<String> frames = coalescer.coalesce(source).collectList().block();
+
+        assertEquals(List.of("ab", "c"), frames);
+        assertTrue(meterRegistry.get("chat.sse.coalesce.delay").timer().max(TimeUnit.MILLISECONDS) < 200);
+    }
+
+    @Test
+    public void testFrameIsSentWhenSizeLimitReached() {
+        config.setCoalesceWindowMillis(60_000);
+        config.setMaxFrameChars(4);
+        SseFrameCoalescer coalescer = newCoalescer();
+        Sinks.Many<String> source = Sinks.many().unicast().onBackpressureBuffer();
+        List<String> frames = new CopyOnWriteArrayList<>();
+        coalescer.coalesce(source.asFlux()).subscribe(frames::add);
+
+        source.tryEmitNext("ab");
+        source.tryEmitNext("cd");
+        source.tryEmitNext("e");
+
+        assertEquals(List.of("abcd"), frames);
+        source.tryEmitComplete();
+        assertEquals(List.of("abcd", "e"), frames);
+    }
+
+    @Test
+    public void testSlowConsumerReceivesMergedFrame() throws InterruptedException {
+        config.setCoalesceWindowMillis(5);
+        SseFrameCoalescer coalescer = newCoalescer();
+        Sinks.Many<String> source = Sinks.many().unicast().onBackpressureBuffer();
+        ManualSubscriber subscriber = new ManualSubscriber();
+        coalescer.coalesce(source.asFlux()).subscribe(subscriber);
+
+        subscriber.request(1);
+        source.tryEmitNext("first");
+        Thread.sleep(100);
+        assertEquals(List.of("first"), subscriber.frames);
+
+        // 下游未再请求，期间到达的片段都并入下一帧
+        for (int i = 0; i < 10; i++) {
+            source.tryEmitNext(String.valueOf(i));
+            Thread.sleep(10);
+        }
+        assertEquals(1, subscriber.frames.size());
+        subscriber.request(1);
+        assertEquals(List.of("first", "0123456789"), subscriber.frames);
+    }
+
+    @Test
+    public void testPendingTextIsFlushedBeforeError() {
+        config.setCoalesceWindowMillis(60_000);
+        SseFrameCoalescer coalescer = newCoalescer();
+        Flux<String> source = Flux.concat(Flux.just("部分", "回答"), Flux.error(new IllegalStateException("boom")));
+
+        List<String> frames = coalescer.coalesce(source)
+                .onErrorResume(e -> Flux.just("error:" + e.getMessage()))
+                .collectList()
+                .block();
+
+        assertEquals(List.of("部分回答", "error:boom"), frames);
+    }
+
+    @Test
+    public void testDisabledCoalescingPassesChunksThrough() {
+        config.setCoalesceEnabled(false);
+        SseFrameCoalescer coalescer = newCoalescer();
+
+        List<String> frames = coalescer.coalesce(Flux.just("a", "b")).collectList().block();
+
+        assertEquals(List.of("a", "b"), frames);
+        assertEquals(2.0, meterRegistry.counter("chat.sse.frames").count());
+    }
+
+    private SseFrameCoalescer newCoalescer() {
+        SseFrameCoalescer coalescer = new SseFrameCoalescer();
+        ReflectionTestUtils.setField(coalescer, "sseStreamConfig", config);
+        ReflectionTestUtils.setField(coalescer, "meterRegistry", meterRegistry);
+        coalescer.init();
+        return coalescer;
+    }
+
+    private static class ManualSubscriber extends BaseSubscriber<String> {
+        private final List<String> frames = new CopyOnWriteArrayList<>();
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+        }
+
+        @Override
+        protected void hookOnNext(String value) {
+            frames.add(value);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.huawei.chataidesign.service.impl;
+
+import com.huawei.chataidesign.config.IntentRecognitionConfig;
+import com.huawei.chataidesign.config.ModelConcurrencyConfig;
+import com.huawei.chataidesign.entity.IntentClassification;
+import com.huawei.chataidesign.entity.IntentType;
+import com.huawei.chataidesign.repository.redis.RedisRepository;
+import com.huawei.chataidesign.service.chat.AdaptiveConcurrencyLimiter;
+import com.huawei.chataidesign.service.intent.IntentResultCache;
+import com.huawei.chataidesign.service.intent.IntentTelemetry;
+import dev.langchain4j.model.chat.ChatModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 意图识别服务分级识别测试类
+ * 不加载本地分类模型，只使用关键词规则；大模型由可注入延迟的替身代替
+ */
+public class ModelBasedIntentRecognitionServiceImplTest {
+
+    private final IntentRecognitionConfig config = new IntentRecognitionConfig();
+    private final ModelConcurrencyConfig concurrencyConfig = new ModelConcurrencyConfig();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StubChatModel chatModel = new StubChatModel();
+
+    public ModelBasedIntentRecognitionServiceImplTest() {
+        config.getClassifier().setEnabled(false);
+        config.getClassifier().setLlmFallbackEnabled(false);
+    }
+
+    @Test
+    public void testStrongKeywordEvidenceIsConfident() {
+        ModelBasedIntentRecognitionServiceImpl service = newService();
+
+        IntentClassification result = service.recognizeIntent("帮我规划学习路线", null);
+
+        assertEquals(IntentType.LEARNING_PATH, result.getPrimaryIntent());
+        assertEquals(0.95, result.getConfidence(), 1e-9);
+    }
+
+    @Test
+    public void testSingleWeakKeywordStaysBelowThreshold() {
+        ModelBasedIntentRecognitionServiceImpl service = newService();
+
+        IntentClassification result = service.recognizeIntent("这个怎么弄", null);
+
+        assertEquals(IntentType.TECHNICAL_QUESTION, result.getPrimaryIntent());
+        assertTrue(result.getConfidence() < 0.7, "confidence " + result.getConfidence());
+    }
+
+    @Test
+    public void testKeywordWeightAffectsConfidence() {
+        ModelBasedIntentRecognitionServiceImpl service = newService();
+
+        double weak = service.recognizeIntent("这个怎么弄", null).getConfidence();
+        double single = service.recognizeIntent("这个技术", null).getConfidence();
+        double strong = service.recognizeIntent("技术问题怎么解决，如何排查", null).getConfidence();
+
+        assertTrue(weak < single, weak + " < " + single);
+        assertTrue(single < strong, single + " < " + strong);
+    }
+
+    @Test
+    public void testGreetingFollowedByQuestionIsNotConfidentGreeting() {
+        ModelBasedIntentRecognitionServiceImpl service = newService();
+
+        IntentClassification result = service.recognizeIntent("你好，Spring事务怎么回滚？", null);
+
+        assertEquals(IntentType.GREETING, result.getPrimaryIntent());
+        assertTrue(result.getConfidence() < 0.7, "confidence " + result.getConfidence());
+    }
+
+    @Test
+    public void testFallbackIsDisabledByDefault() {
+        assertFalse(new IntentRecognitionConfig().getClassifier().isLlmFallbackEnabled());
+    }
+
+    @Test
+    public void testLowConfidenceInputEscalatesToModelAndIsCached() {
+        config.getClassifier().setLlmFallbackEnabled(true);
+        ModelBasedIntentRecognitionServiceImpl service = newService();
+
+        IntentClassification first = service.recognizeIntent("MySQL 索引失效有哪些场景", null);
+        IntentClassification second = service.recognizeIntent("MySQL 索引失效有哪些场景", null);
+
+        assertEquals(IntentType.TECHNICAL_QUESTION, first.getPrimaryIntent());
+        assertEquals(0.9, first.getConfidence(), 1e-9);
+        assertEquals(IntentType.TECHNICAL_QUESTION, second.getPrimaryIntent());
+        assertEquals(1, chatModel.calls.get());
+    }
+
+    @Test
+    public void testSlowModelIsBoundedByTimeoutAndResultIsNotCached() throws InterruptedException {
+        config.getClassifier().setLlmFallbackEnabled(true);
+        config.getClassifier().setLlmFallbackTimeoutMillis(50);
+        chatModel.delayMillis = 2000;
+        ModelBasedIntentRecognitionServiceImpl service = newService();
+
+        long start = System.nanoTime();
+        IntentClassification result = service.recognizeIntent("MySQL 索引失效有哪些场景", null);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < 1000, "took " + elapsedMillis + " ms");
+        assertEquals(IntentType.OTHER, result.getPrimaryIntent());
+        assertTrue(result.getNeedsConfirmation());
+        service.recognizeIntent("MySQL 索引失效有哪些场景", null);
+        // 模型调用在弹性线程池上开始，等待计数落定
+        for (int i = 0; i < 50 && chatModel.calls.get() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, chatModel.calls.get());
+    }
+
+    @Test
+    public void testEscalationIsShedWhenModelLimiterIsFull() {
+        config.getClassifier().setLlmFallbackEnabled(true);
+        concurrencyConfig.setInitialLimit(1);
+        concurrencyConfig.setMinLimit(1);
+        concurrencyConfig.setMaxQueueSize(0);
+        ModelBasedIntentRecognitionServiceImpl service = newService();
+        AdaptiveConcurrencyLimiter limiter =
+                (AdaptiveConcurrencyLimiter) ReflectionTestUtils.getField(service, "intentModelLimiter");
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire("other").block();
+
+        IntentClassification shed = service.recognizeIntent("MySQL 索引失效有哪些场景", null);
+        permit.release();
+        IntentClassification escalated = service.recognizeIntent("MySQL 索引失效有哪些场景", null);
+
+        assertTrue(shed.getNeedsConfirmation());
+        assertEquals(0.9, escalated.getConfidence(), 1e-9);
+        assertEquals(1, chatModel.calls.get());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    private ModelBasedIntentRecognitionServiceImpl newService() {
+        IntentResultCache intentResultCache = new IntentResultCache();
+        ReflectionTestUtils.setField(intentResultCache, "intentRecognitionConfig", config);
+        ReflectionTestUtils.setField(intentResultCache, "redisRepository", new RedisRepository());
+        ReflectionTestUtils.setField(intentResultCache, "meterRegistry", meterRegistry);
+        intentResultCache.init();
+        IntentTelemetry intentTelemetry = new IntentTelemetry();
+        ReflectionTestUtils.setField(intentTelemetry, "intentRecognitionConfig", config);
+        ReflectionTestUtils.setField(intentTelemetry, "meterRegistry", meterRegistry);
+        intentTelemetry.init();
+
+        ModelBasedIntentRecognitionServiceImpl service = new ModelBasedIntentRecognitionServiceImpl();
+        ReflectionTestUtils.setField(service, "defaultConfidenceThreshold", config.getDefaultConfidenceThreshold());
+        ReflectionTestUtils.setField(service, "intentRecognitionConfig", config);
+        ReflectionTestUtils.setField(service, "intentResultCache", intentResultCache);
+        ReflectionTestUtils.setField(service, "intentTelemetry", intentTelemetry);
+        ReflectionTestUtils.setField(service, "qwenChatModel", chatModel);
+        ReflectionTestUtils.setField(service, "resourceLoader", new DefaultResourceLoader());
+        ReflectionTestUtils.setField(service, "modelConcurrencyConfig", concurrencyConfig);
+        ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+        service.init();
+        return service;
+    }
+
+    /**
+     * 返回固定回复的大模型替身
+     */
+    private static class StubChatModel implements ChatModel {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final String reply = "{\"intent\": \"technical_question\", \"confidence\": 0.9}";
+        private volatile long delayMillis;
+
+        @Override
+        public String chat(String userMessage) {
+            calls.incrementAndGet();
+            if (delayMillis > 0) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return reply;
+        }
+    }
+}
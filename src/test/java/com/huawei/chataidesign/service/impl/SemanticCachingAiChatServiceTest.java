@@ -0,0 +1,228 @@
+package com.huawei.chataidesign.service.impl;
+
+import com.huawei.chataidesign.config.SemanticCacheConfig;
+import com.huawei.chataidesign.entity.IntentClassification;
+import com.huawei.chataidesign.entity.IntentType;
+import com.huawei.chataidesign.entity.request.IntentPromptReq;
+import com.huawei.chataidesign.repository.memory.BoundedChatMemoryStore;
+import com.huawei.chataidesign.service.AiChatService;
+import com.huawei.chataidesign.service.IntentRecognitionService;
+import com.huawei.chataidesign.service.chat.SemanticResponseCache;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 带语义缓存的聊天服务测试类
+ * 使用固定回答的聊天服务替身和固定向量的向量模型替身，不调用真实模型
+ */
+public class SemanticCachingAiChatServiceTest {
+
+    private static final String ANSWER = "JVM 是 Java 虚拟机";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BoundedChatMemoryStore chatMemoryStore = new BoundedChatMemoryStore(100, Long.MAX_VALUE, 0, meterRegistry);
+    private final CountingChatService upstream = new CountingChatService();
+    private final CachedOnlyIntentService intentService = new CachedOnlyIntentService();
+
+    @Test
+    public void testHitIsReplayedInChunksAndWrittenToMemory() {
+        AiChatService service = newService(4);
+        ask(service, 1, IntentType.TECHNICAL_QUESTION);
+
+        List<String> chunks = ask(service, 2, IntentType.TECHNICAL_QUESTION);
+
+        assertEquals(1, upstream.calls.get());
+        assertEquals(List.of("JVM ", "是 Ja", "va 虚", "拟机"), chunks);
+        List<ChatMessage> messages = chatMemoryStore.getMessages(2);
+        assertEquals(3, messages.size());
+        assertInstanceOf(SystemMessage.class, messages.get(0));
+        assertEquals("什么是 JVM", ((UserMessage) messages.get(1)).singleText());
+        assertEquals(ANSWER, ((AiMessage) messages.get(2)).text());
+    }
+
+    @Test
+    public void testFailedOrCancelledStreamIsNotCached() {
+        AiChatService service = newService(16);
+        upstream.answer = () -> Flux.concat(Flux.just("JVM 是"), Flux.error(new IllegalStateException("upstream failed")));
+        assertThrows(IllegalStateException.class, () -> ask(service, 1, IntentType.TECHNICAL_QUESTION));
+
+        upstream.answer = () -> Flux.just("JVM 是", " Java 虚拟机");
+        service.chatWithStream(2, "什么是 JVM")
+                .contextWrite(SemanticResponseCache.withIntent(IntentType.TECHNICAL_QUESTION))
+                .take(1)
+                .blockLast();
+        ask(service, 3, IntentType.TECHNICAL_QUESTION);
+
+        assertEquals(3, upstream.calls.get());
+    }
+
+    @Test
+    public void testZeroTtlIntentIsNotCached() {
+        AiChatService service = newService(16);
+
+        ask(service, 1, IntentType.CODE_REVIEW);
+        ask(service, 2, IntentType.CODE_REVIEW);
+
+        assertEquals(2, upstream.calls.get());
+    }
+
+    @Test
+    public void testUnknownIntentBypassesCacheWithoutClassifying() {
+        AiChatService service = newService(16);
+
+        service.chatWithStream(1, "什么是 JVM").blockLast();
+        service.chatWithStream(2, "什么是 JVM").blockLast();
+
+        assertEquals(2, upstream.calls.get());
+        assertEquals(2, intentService.cacheLookups.get());
+    }
+
+    @Test
+    public void testCachedIntentResultIsUsedWithoutContext() {
+        intentService.cached = IntentType.TECHNICAL_QUESTION;
+        AiChatService service = newService(16);
+
+        service.chatWithStream(1, "什么是 JVM").blockLast();
+        service.chatWithStream(2, "什么是 JVM").blockLast();
+
+        assertEquals(1, upstream.calls.get());
+    }
+
+    @Test
+    public void testHintedAnswerIsNotReplayedWithoutHint() {
+        AiChatService service = newService(16);
+
+        service.chatWithStreamAndIntent(1, "什么是 JVM", "[技术问题]")
+                .contextWrite(SemanticResponseCache.withIntent(IntentType.TECHNICAL_QUESTION))
+                .blockLast();
+        ask(service, 2, IntentType.TECHNICAL_QUESTION);
+        service.chatWithStreamAndIntent(3, "什么是 JVM", "[技术问题]")
+                .contextWrite(SemanticResponseCache.withIntent(IntentType.TECHNICAL_QUESTION))
+                .blockLast();
+
+        assertEquals(2, upstream.calls.get());
+    }
+
+    private List<String> ask(AiChatService service, int memoryId, IntentType intent) {
+        return service.chatWithStream(memoryId, "什么是 JVM")
+                .contextWrite(SemanticResponseCache.withIntent(intent))
+                .collectList().block();
+    }
+
+    private AiChatService newService(int replayChunkChars) {
+        SemanticResponseCache cache = new SemanticResponseCache();
+        ReflectionTestUtils.setField(cache, "queryEmbeddingModel", new ConstantEmbeddingModel());
+        ReflectionTestUtils.setField(cache, "semanticCacheConfig", new SemanticCacheConfig());
+        ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+        cache.init();
+        return new SemanticCachingAiChatService(upstream, cache, intentService, chatMemoryStore, "system",
+                replayChunkChars);
+    }
+
+    private static class CountingChatService implements AiChatService {
+        private final AtomicInteger calls = new AtomicInteger();
+        private Supplier<Flux<String>> answer = () -> Flux.just("JVM 是", " Java 虚拟机");
+
+        @Override
+        public String chat(String message) {
+            calls.incrementAndGet();
+            return ANSWER;
+        }
+
+        @Override
+        public Flux<String> chatWithStream(int memoryId, String message) {
+            calls.incrementAndGet();
+            return answer.get();
+        }
+
+        @Override
+        public Flux<String> chatWithStreamAndIntent(int memoryId, String message, String intentHint) {
+            return chatWithStream(memoryId, message);
+        }
+
+        @Override
+        public ChatMemory getChatMemory(Object memoryId) {
+            return null;
+        }
+
+        @Override
+        public boolean evictChatMemory(Object memoryId) {
+            return false;
+        }
+    }
+
+    private static class ConstantEmbeddingModel implements EmbeddingModel {
+
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+            return Response.from(textSegments.stream().map(segment -> Embedding.from(new float[]{1, 0})).toList());
+        }
+    }
+
+    /**
+     * 只提供结果缓存查询的意图识别替身，同步识别视为错误
+     */
+    private static class CachedOnlyIntentService implements IntentRecognitionService {
+        private final AtomicInteger cacheLookups = new AtomicInteger();
+        private IntentType cached;
+
+        @Override
+        public IntentClassification recognizeIntent(String userInput, String context) {
+            throw new AssertionError("semantic cache must not classify intents");
+        }
+
+        @Override
+        public IntentClassification recognizeIntent(IntentPromptReq promptReq) {
+            throw new AssertionError("semantic cache must not classify intents");
+        }
+
+        @Override
+        public IntentClassification getCachedIntent(String userInput, String context) {
+            cacheLookups.incrementAndGet();
+            return cached != null ? new IntentClassification(cached, 0.9, userInput) : null;
+        }
+
+        @Override
+        public IntentClassification[] recognizeIntents(String[] userInputs) {
+            return new IntentClassification[0];
+        }
+
+        @Override
+        public long recognizeIntents(InputStream input, OutputStream output) {
+            return 0;
+        }
+
+        @Override
+        public boolean validateConfidence(IntentClassification intentClassification, double minConfidence) {
+            return true;
+        }
+
+        @Override
+        public String getStatistics() {
+            return "";
+        }
+
+        @Override
+        public void clearCache() {
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.huawei.chataidesign.service.impl;
+
+import com.huawei.chataidesign.repository.memory.BoundedChatMemoryStore;
+import com.huawei.chataidesign.service.AiChatService;
+import com.huawei.chataidesign.utils.ChatMessageUtil;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 相同提问合并生成测试类
+ * 使用由 Sinks 驱动的聊天服务替身，不调用真实模型
+ */
+public class SingleFlightAiChatServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BoundedChatMemoryStore chatMemoryStore = new BoundedChatMemoryStore(100, Long.MAX_VALUE, 0, meterRegistry);
+    private final SinkChatService upstream = new SinkChatService();
+
+    @Test
+    public void testConcurrentIdenticalPromptsShareOneGeneration() {
+        SingleFlightAiChatService service = newService(16);
+        List<String> first = new CopyOnWriteArrayList<>();
+        List<String> second = new CopyOnWriteArrayList<>();
+
+        service.chatWithStream(1, "什么是 JVM？").subscribe(first::add);
+        upstream.sink.tryEmitNext("JVM 是");
+        service.chatWithStream(2, "什么是 jvm?").subscribe(second::add);
+        upstream.sink.tryEmitNext("Java 虚拟机");
+        upstream.sink.tryEmitComplete();
+
+        assertEquals(1, upstream.calls.get());
+        assertEquals(List.of("JVM 是", "Java 虚拟机"), first);
+        assertEquals(first, second);
+        assertEquals(0, service.inFlight());
+        assertEquals(0.5, meterRegistry.get("chat.singleflight.dedup.ratio").gauge().value(), 1e-9);
+    }
+
+    @Test
+    public void testConcurrentSubscribersRacingOnSameKeyShareOneGeneration() throws InterruptedException {
+        // 上游在订阅时阻塞一段时间，模拟加载会话记忆，后到的请求此时已能看到登记的 Flight
+        upstream.subscribeDelayMillis = 50;
+        SingleFlightAiChatService service = newService(16);
+        List<List<String>> received = List.of(new CopyOnWriteArrayList<>(), new CopyOnWriteArrayList<>());
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        for (int i = 0; i < 2; i++) {
+            int memoryId = i + 1;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    service.chatWithStream(memoryId, "什么是 JVM").subscribe(received.get(memoryId - 1)::add, errors::add);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        upstream.sink.tryEmitNext("JVM 是 Java 虚拟机");
+        upstream.sink.tryEmitComplete();
+
+        assertEquals(List.of(), errors);
+        assertEquals(1, upstream.calls.get());
+        assertEquals(List.of("JVM 是 Java 虚拟机"), received.get(0));
+        assertEquals(received.get(0), received.get(1));
+        assertEquals(0, service.inFlight());
+    }
+
+    @Test
+    public void testFollowerTurnIsWrittenToItsOwnMemory() {
+        SingleFlightAiChatService service = newService(16);
+        service.chatWithStream(1, "你好").subscribe();
+        service.chatWithStream(2, "你好").subscribe();
+        upstream.sink.tryEmitNext("你好，有什么可以帮你？");
+        upstream.sink.tryEmitComplete();
+
+        List<ChatMessage> messages = chatMemoryStore.getMessages(2);
+        assertEquals(3, messages.size());
+        assertEquals("你好", ((UserMessage) messages.get(1)).singleText());
+        assertEquals("你好，有什么可以帮你？", ((AiMessage) messages.get(2)).text());
+        // 首个请求的会话记忆由上游模型调用负责写入
+        assertTrue(chatMemoryStore.getMessages(1).isEmpty());
+    }
+
+    @Test
+    public void testConversationWithHistoryIsNotCoalesced() {
+        ChatMessageUtil.appendTurn(chatMemoryStore, 2, "system", "之前的问题", "之前的回答");
+        SingleFlightAiChatService service = newService(16);
+
+        service.chatWithStream(1, "什么是 JVM").subscribe();
+        service.chatWithStream(2, "什么是 JVM").subscribe();
+
+        assertEquals(2, upstream.calls.get());
+        assertEquals(1.0, meterRegistry.counter("chat.singleflight.requests", "result", "bypass").count());
+    }
+
+    @Test
+    public void testDifferentIntentHintsAreNotCoalesced() {
+        SingleFlightAiChatService service = newService(16);
+
+        service.chatWithStreamAndIntent(1, "什么是 JVM", "[技术问题]").subscribe();
+        service.chatWithStreamAndIntent(2, "什么是 JVM", "[学习路线]").subscribe();
+
+        assertEquals(2, upstream.calls.get());
+        assertEquals(2, service.inFlight());
+    }
+
+    @Test
+    public void testGenerationContinuesAfterLeaderCancels() {
+        SingleFlightAiChatService service = newService(16);
+        service.chatWithStream(1, "什么是 JVM").subscribe().dispose();
+        upstream.sink.tryEmitNext("JVM 是");
+
+        List<String> late = service.chatWithStream(2, "什么是 JVM")
+                .doOnSubscribe(s -> upstream.sink.tryEmitComplete())
+                .collectList().block();
+
+        assertEquals(1, upstream.calls.get());
+        assertEquals(List.of("JVM 是"), late);
+    }
+
+    @Test
+    public void testInFlightLimitBypassesNewKeys() {
+        SingleFlightAiChatService service = newService(1);
+
+        service.chatWithStream(1, "问题一").subscribe();
+        service.chatWithStream(2, "问题二").subscribe();
+
+        assertEquals(2, upstream.calls.get());
+        assertEquals(1, service.inFlight());
+    }
+
+    private SingleFlightAiChatService newService(int maxInFlight) {
+        return new SingleFlightAiChatService(upstream, chatMemoryStore, "system", maxInFlight, meterRegistry);
+    }
+
+    private static class SinkChatService implements AiChatService {
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile Sinks.Many<String> sink;
+        private volatile long subscribeDelayMillis;
+
+        @Override
+        public String chat(String message) {
+            return message;
+        }
+
+        @Override
+        public Flux<String> chatWithStream(int memoryId, String message) {
+            calls.incrementAndGet();
+            if (subscribeDelayMillis > 0) {
+                try {
+                    Thread.sleep(subscribeDelayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            sink = Sinks.many().unicast().onBackpressureBuffer();
+            return sink.asFlux();
+        }
+
+        @Override
+        public Flux<String> chatWithStreamAndIntent(int memoryId, String message, String intentHint) {
+            return chatWithStream(memoryId, message);
+        }
+
+        @Override
+        public ChatMemory getChatMemory(Object memoryId) {
+            return null;
+        }
+
+        @Override
+        public boolean evictChatMemory(Object memoryId) {
+            return false;
+        }
+    }
+}
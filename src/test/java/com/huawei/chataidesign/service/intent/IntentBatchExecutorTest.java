@@ -0,0 +1,108 @@
+package com.huawei.chataidesign.service.intent;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.huawei.chataidesign.config.IntentRecognitionConfig;
+import com.huawei.chataidesign.entity.IntentClassification;
+import com.huawei.chataidesign.entity.IntentType;
+import com.huawei.chataidesign.utils.JacksonUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量意图识别执行器测试类
+ */
+public class IntentBatchExecutorTest {
+
+    private final IntentRecognitionConfig config = new IntentRecognitionConfig();
+    private final Set<String> threads = ConcurrentHashMap.newKeySet();
+    private final BiFunction<String, String, IntentClassification> recognizer = (input, context) -> {
+        threads.add(Thread.currentThread().getName());
+        IntentClassification classification = new IntentClassification(IntentType.OTHER, 0.5, input);
+        classification.setEntities(context);
+        return classification;
+    };
+    private IntentBatchExecutor executor;
+
+    @BeforeEach
+    public void setUp() {
+        config.getBatch().setChunkSize(8);
+        config.getBatch().setParallelism(4);
+        config.getBatch().setMaxBatchSize(2000);
+        executor = new IntentBatchExecutor();
+        ReflectionTestUtils.setField(executor, "intentRecognitionConfig", config);
+        ReflectionTestUtils.setField(executor, "objectMapper", JacksonUtil.OBJECT_MAPPER);
+        executor.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testResultsKeepInputOrder() {
+        String[] inputs = new String[1000];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = "输入 " + i;
+        }
+
+        IntentClassification[] results = executor.recognizeAll(inputs, recognizer);
+
+        assertEquals(inputs.length, results.length);
+        for (int i = 0; i < inputs.length; i++) {
+            assertEquals(inputs[i], results[i].getUserInput());
+        }
+        assertTrue(threads.stream().anyMatch(name -> name.startsWith("intent-batch-")));
+    }
+
+    @Test
+    public void testSmallBatchRunsOnCallerThread() {
+        executor.recognizeAll(new String[]{"你好", "如何学习"}, recognizer);
+
+        assertEquals(Set.of(Thread.currentThread().getName()), threads);
+    }
+
+    @Test
+    public void testOversizedBatchIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> executor.recognizeAll(new String[2001], recognizer));
+    }
+
+    @Test
+    public void testNdjsonStreamKeepsOrderAndReportsBadLines() throws Exception {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            input.append('"').append("问题 ").append(i).append('"').append('\n');
+        }
+        input.append("{\"prompt\":\"怎么入门\",\"context\":\"初学者\"}\n");
+        input.append('\n');
+        input.append("not json\n");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long written = executor.recognizeStream(
+                new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.UTF_8)), output, recognizer);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(102, written);
+        assertEquals(102, lines.length);
+        for (int i = 0; i < 100; i++) {
+            assertEquals("问题 " + i, JacksonUtil.toJson(lines[i]).get("userInput").asText());
+        }
+        JsonNode withContext = JacksonUtil.toJson(lines[100]);
+        assertEquals("怎么入门", withContext.get("userInput").asText());
+        assertEquals("初学者", withContext.get("entities").asText());
+        JsonNode error = JacksonUtil.toJson(lines[101]);
+        assertEquals(103, error.get("line").asLong());
+        assertTrue(error.has("error"));
+    }
+}
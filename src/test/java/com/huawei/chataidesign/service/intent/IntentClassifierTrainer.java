@@ -0,0 +1,109 @@
+package com.huawei.chataidesign.service.intent;
+
+import com.huawei.chataidesign.entity.IntentType;
+import com.huawei.chataidesign.service.intent.NgramIntentClassifier.Example;
+import com.huawei.chataidesign.service.intent.NgramIntentClassifier.TrainingOptions;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 意图分类器离线训练入口
+ *
+ * 读取 意图编码<TAB>文本 格式的标注文件，先做 5 折交叉验证输出准确率，再用全部样本训练并保存模型。
+ * 用法：IntentClassifierTrainer &lt;训练文件&gt; &lt;模型输出路径&gt; [训练轮数]
+ * 离线工具，放在测试源码中，不随应用打包
+ */
+public class IntentClassifierTrainer {
+
+    private static final int FOLDS = 5;
+
+    private IntentClassifierTrainer() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: IntentClassifierTrainer <training.tsv> <model.bin> [epochs]");
+            System.exit(1);
+        }
+        List<Example> examples;
+        try (Reader reader = Files.newBufferedReader(Path.of(args[0]), StandardCharsets.UTF_8)) {
+            examples = readExamples(reader);
+        }
+        TrainingOptions defaults = TrainingOptions.defaults();
+        TrainingOptions options = args.length > 2
+                ? new TrainingOptions(defaults.buckets(), Integer.parseInt(args[2]), defaults.learningRate(),
+                        defaults.l2(), defaults.seed())
+                : defaults;
+
+        System.out.printf("Loaded %d examples, %d-fold cross-validation accuracy: %.3f%n",
+                examples.size(), FOLDS, crossValidate(examples, options));
+
+        long start = System.nanoTime();
+        NgramIntentClassifier classifier = NgramIntentClassifier.train(examples, options);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        Path output = Path.of(args[1]);
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (OutputStream out = Files.newOutputStream(output)) {
+            classifier.save(out);
+        }
+        System.out.printf("Trained %d intents in %d ms, model written to %s (%d bytes)%n",
+                classifier.getClasses().size(), elapsedMillis, output, Files.size(output));
+    }
+
+    /**
+     * 读取标注样本，忽略空行和 # 开头的注释行
+     */
+    public static List<Example> readExamples(Reader reader) throws IOException {
+        List<Example> examples = new ArrayList<>();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            int tab = line.indexOf('\t');
+            if (tab <= 0) {
+                throw new IOException("Line " + lineNumber + " is not <intent>\\t<text>");
+            }
+            IntentType intent = IntentType.fromCode(line.substring(0, tab).strip());
+            examples.add(new Example(intent, line.substring(tab + 1).strip()));
+        }
+        return examples;
+    }
+
+    /**
+     * k 折交叉验证准确率
+     */
+    static double crossValidate(List<Example> examples, TrainingOptions options) {
+        List<Example> shuffled = new ArrayList<>(examples);
+        Collections.shuffle(shuffled, new Random(options.seed()));
+        int correct = 0;
+        for (int fold = 0; fold < FOLDS; fold++) {
+            List<Example> train = new ArrayList<>();
+            List<Example> test = new ArrayList<>();
+            for (int i = 0; i < shuffled.size(); i++) {
+                (i % FOLDS == fold ? test : train).add(shuffled.get(i));
+            }
+            NgramIntentClassifier classifier = NgramIntentClassifier.train(train, options);
+            for (Example example : test) {
+                if (classifier.classify(example.text()).intent() == example.intent()) {
+                    correct++;
+                }
+            }
+        }
+        return shuffled.isEmpty() ? 0 : (double) correct / shuffled.size();
+    }
+}
@@ -0,0 +1,148 @@
+package com.huawei.chataidesign.service.intent;
+
+import com.huawei.chataidesign.config.IntentRecognitionConfig;
+import com.huawei.chataidesign.entity.IntentClassification;
+import com.huawei.chataidesign.entity.IntentType;
+import com.huawei.chataidesign.repository.redis.RedisRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 意图识别结果缓存测试类
+ * 使用内存版 RedisRepository 替身，不依赖真实 Redis
+ */
+public class IntentResultCacheTest {
+
+    private final IntentRecognitionConfig config = new IntentRecognitionConfig();
+    private final InMemoryRedisRepository redis = new InMemoryRedisRepository();
+
+    @Test
+    public void testNormalizedInputHitsWithOwnUserInput() {
+        IntentResultCache cache = newCache();
+        cache.put("如何准备面试？", null, classification(IntentType.INTERVIEW_PREPARATION, "如何准备面试？"));
+
+        IntentClassification hit = cache.get("如何准备面试", null);
+
+        assertNotNull(hit);
+        assertEquals(IntentType.INTERVIEW_PREPARATION, hit.getPrimaryIntent());
+        assertEquals(0.9, hit.getConfidence());
+        assertEquals("如何准备面试", hit.getUserInput());
+        assertNotNull(hit.getIntentId());
+        assertEquals(1, cache.getLocalHits());
+    }
+
+    @Test
+    public void testEachHitGetsOwnIdAndProcessedAt() {
+        IntentResultCache cache = newCache();
+        cache.put("你好", null, classification(IntentType.GREETING, "你好"));
+
+        IntentClassification first = cache.get("你好", null);
+        IntentClassification second = cache.get("你好", null);
+
+        assertNotEquals(first.getIntentId(), second.getIntentId());
+        assertEquals(4, UUID.fromString(first.getIntentId()).version());
+        assertNotNull(first.getProcessedAt());
+        assertSame(first.getProcessedAt(), first.getProcessedAt());
+    }
+
+    @Test
+    public void testContextIsPartOfKey() {
+        IntentResultCache cache = newCache();
+        cache.put("怎么入门", "用户是编程初学者", classification(IntentType.LEARNING_PATH, "怎么入门"));
+
+        assertNull(cache.get("怎么入门", null));
+        assertNotNull(cache.get("怎么入门", "用户是编程初学者"));
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testMaxSizeEvictsLeastRecentlyUsed() {
+        config.getCache().setMaxSize(2);
+        IntentResultCache cache = newCache();
+        cache.put("a", null, classification(IntentType.GREETING, "a"));
+        cache.put("b", null, classification(IntentType.GREETING, "b"));
+        cache.get("a", null);
+        cache.put("c", null, classification(IntentType.GREETING, "c"));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a", null));
+        assertNull(cache.get("b", null));
+    }
+
+    @Test
+    public void testDisabledCacheNeverHits() {
+        config.getCache().setEnabled(false);
+        IntentResultCache cache = newCache();
+        cache.put("你好", null, classification(IntentType.GREETING, "你好"));
+
+        assertNull(cache.get("你好", null));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testRedisTierIsSharedAndCleared() throws InterruptedException {
+        config.getCache().setRedisEnabled(true);
+        IntentResultCache writer = newCache();
+        writer.put("项目推荐", null, classification(IntentType.PROJECT_GUIDANCE, "项目推荐"));
+        // Redis 写入是异步的
+        for (int i = 0; i < 100 && redis.data.isEmpty(); i++) {
+            Thread.sleep(20);
+        }
+
+        IntentResultCache reader = newCache();
+        IntentClassification hit = reader.get("项目推荐", null);
+        assertNotNull(hit);
+        assertEquals(IntentType.PROJECT_GUIDANCE, hit.getPrimaryIntent());
+        assertEquals(1, reader.getRedisHits());
+        assertEquals(1, reader.size());
+
+        assertEquals(2, reader.clear());
+        assertTrue(redis.data.isEmpty());
+        assertEquals(0, reader.size());
+    }
+
+    private IntentResultCache newCache() {
+        IntentResultCache cache = new IntentResultCache();
+        ReflectionTestUtils.setField(cache, "intentRecognitionConfig", config);
+        ReflectionTestUtils.setField(cache, "redisRepository", redis);
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        cache.init();
+        return cache;
+    }
+
+    private static IntentClassification classification(IntentType intent, String userInput) {
+        IntentClassification classification = new IntentClassification(intent, 0.9, userInput);
+        classification.setIntentDescription(intent.getDisplayName());
+        return classification;
+    }
+
+    private static class InMemoryRedisRepository extends RedisRepository {
+        private final Map<String, Object> data = new ConcurrentHashMap<>();
+
+        @Override
+        public Object get(String key) {
+            return key == null ? null : data.get(key);
+        }
+
+        @Override
+        public boolean setEx(String key, Object value, long time) {
+            data.put(key, value);
+            return true;
+        }
+
+        @Override
+        public long deleteByPattern(String pattern) {
+            String prefix = pattern.substring(0, pattern.length() - 1);
+            long before = data.size();
+            data.keySet().removeIf(key -> key.startsWith(prefix));
+            return before - data.size();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.huawei.chataidesign.service.intent;
+
+import com.huawei.chataidesign.config.IntentRecognitionConfig;
+import com.huawei.chataidesign.entity.IntentType;
+import com.huawei.chataidesign.service.intent.IntentTelemetry.Strategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 低置信度意图样本导出端点测试类
+ */
+public class IntentSamplesEndpointTest {
+
+    @Test
+    public void testSamplesAreExportedInTrainingFormat() throws IOException {
+        IntentTelemetry telemetry = new IntentTelemetry();
+        ReflectionTestUtils.setField(telemetry, "intentRecognitionConfig", new IntentRecognitionConfig());
+        ReflectionTestUtils.setField(telemetry, "meterRegistry", new SimpleMeterRegistry());
+        telemetry.init();
+        telemetry.recordResult(Strategy.KEYWORD, IntentType.OTHER, 0.5, "随便聊聊");
+        IntentSamplesEndpoint endpoint = new IntentSamplesEndpoint();
+        ReflectionTestUtils.setField(endpoint, "intentTelemetry", telemetry);
+
+        List<String> rows = endpoint.lowConfidenceSamples().lines().filter(line -> !line.startsWith("#")).toList();
+
+        assertEquals(List.of("other\t随便聊聊"), rows);
+    }
+}
@@ -0,0 +1,152 @@
+package com.huawei.chataidesign.service.intent;
+
+import com.huawei.chataidesign.config.IntentRecognitionConfig;
+import com.huawei.chataidesign.entity.IntentType;
+import com.huawei.chataidesign.service.intent.IntentTelemetry.Strategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 意图识别遥测测试类
+ */
+public class IntentTelemetryTest {
+
+    private final IntentRecognitionConfig config = new IntentRecognitionConfig();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void testResultsAreCountedPerStrategyAndIntent() {
+        IntentTelemetry telemetry = newTelemetry();
+        telemetry.recordResult(Strategy.CLASSIFIER, IntentType.LEARNING_PATH, 0.92, "怎么学 Java");
+        telemetry.recordResult(Strategy.CLASSIFIER, IntentType.LEARNING_PATH, 0.81, "学习路线");
+        telemetry.recordResult(Strategy.CACHE, IntentType.GREETING, 0.95, "你好");
+
+        assertEquals(3, telemetry.total());
+        assertEquals(2, telemetry.count(Strategy.CLASSIFIER));
+        assertEquals(2.0, meterRegistry.get("intent.recognition.results")
+                .tags("strategy", "classifier", "intent", "learning_path").functionCounter().count());
+        IntentTelemetry.Snapshot snapshot = telemetry.snapshot();
+        assertEquals(2L, snapshot.confidenceBuckets().get("0.9-1.0"));
+        assertEquals(1L, snapshot.confidenceBuckets().get("0.8-0.9"));
+    }
+
+    @Test
+    public void testLatencyIsRecordedPerStrategy() {
+        IntentTelemetry telemetry = newTelemetry();
+        telemetry.recordLatency(Strategy.MODEL, 2_000_000);
+        telemetry.recordLatency(Strategy.MODEL, 4_000_000);
+
+        assertEquals(2, telemetry.attempts(Strategy.MODEL));
+        assertEquals(3.0, telemetry.snapshot().meanLatencyMillis().get("model"), 1e-9);
+    }
+
+    @Test
+    public void testOnlyLowConfidenceInputsAreSampled() {
+        IntentTelemetry telemetry = newTelemetry();
+        telemetry.recordResult(Strategy.KEYWORD, IntentType.OTHER, 0.5, "随便聊聊");
+        telemetry.recordResult(Strategy.CLASSIFIER, IntentType.TECHNICAL_QUESTION, 0.9, "什么是 JVM");
+
+        List<IntentTelemetry.LowConfidenceSample> samples = telemetry.lowConfidenceSamples();
+        assertEquals(1, samples.size());
+        assertEquals("随便聊聊", samples.get(0).input());
+        assertEquals("keyword", samples.get(0).strategy());
+    }
+
+    @Test
+    public void testRingBufferKeepsMostRecentSamples() {
+        config.getTelemetry().setRingBufferSize(4);
+        IntentTelemetry telemetry = newTelemetry();
+        for (int i = 0; i < 10; i++) {
+            telemetry.recordResult(Strategy.CLASSIFIER, IntentType.OTHER, 0.3, "输入" + i);
+        }
+
+        List<String> inputs = telemetry.lowConfidenceSamples().stream()
+                .map(IntentTelemetry.LowConfidenceSample::input)
+                .toList();
+        assertEquals(List.of("输入6", "输入7", "输入8", "输入9"), inputs);
+    }
+
+    @Test
+    public void testConcurrentWritersNeverInterleaveSampleFields() throws InterruptedException {
+        config.getTelemetry().setRingBufferSize(4);
+        IntentTelemetry telemetry = newTelemetry();
+        IntentType[] intents = IntentType.values();
+        int writers = 8;
+        int perWriter = 5000;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean done = new AtomicBoolean();
+        List<String> violations = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int base = w * perWriter;
+            threads.add(new Thread(() -> {
+                awaitQuietly(start);
+                for (int i = base; i < base + perWriter; i++) {
+                    telemetry.recordResult(Strategy.CLASSIFIER, intents[i % intents.length], i / 1_000_000.0, "输入" + i);
+                }
+            }));
+        }
+        Thread reader = new Thread(() -> {
+            awaitQuietly(start);
+            while (!done.get()) {
+                for (IntentTelemetry.LowConfidenceSample sample : telemetry.lowConfidenceSamples()) {
+                    int i = Integer.parseInt(sample.input().substring(2));
+                    if (sample.intent() != intents[i % intents.length] || sample.confidence() != i / 1_000_000.0) {
+                        synchronized (violations) {
+                            violations.add(sample.toString());
+                        }
+                    }
+                }
+            }
+        });
+        threads.forEach(Thread::start);
+        reader.start();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        done.set(true);
+        reader.join();
+
+        assertEquals(List.of(), violations);
+        assertTrue(telemetry.lowConfidenceSamples().size() <= 4);
+    }
+
+    @Test
+    public void testExportUsesTrainingFormat() throws IOException {
+        IntentTelemetry telemetry = newTelemetry();
+        telemetry.recordResult(Strategy.MODEL, IntentType.UNCLEAR, 0.4, "这个\t怎么\n弄");
+
+        StringWriter writer = new StringWriter();
+        assertEquals(1, telemetry.exportLowConfidenceSamples(writer));
+
+        List<String> rows = writer.toString().lines().filter(line -> !line.startsWith("#")).toList();
+        assertEquals(List.of("unclear\t这个 怎么 弄"), rows);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private IntentTelemetry newTelemetry() {
+        IntentTelemetry telemetry = new IntentTelemetry();
+        ReflectionTestUtils.setField(telemetry, "intentRecognitionConfig", config);
+        ReflectionTestUtils.setField(telemetry, "meterRegistry", meterRegistry);
+        telemetry.init();
+        return telemetry;
+    }
+}
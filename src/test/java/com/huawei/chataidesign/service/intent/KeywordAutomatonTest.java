@@ -0,0 +1,68 @@
+package com.huawei.chataidesign.service.intent;
+
+import com.huawei.chataidesign.config.IntentRecognitionConfig;
+import com.huawei.chataidesign.config.IntentRecognitionConfig.KeywordRule;
+import com.huawei.chataidesign.entity.IntentType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 意图关键词自动机测试类
+ */
+public class KeywordAutomatonTest {
+
+    private final KeywordAutomaton automaton = new KeywordAutomaton(new IntentRecognitionConfig().getKeywordRules());
+
+    @Test
+    public void testWeightsDecideIntentInsteadOfRuleOrder() {
+        // 旧实现按 if/else 顺序会判为技术问题，加权后面试关键词胜出
+        KeywordAutomaton.Scores scores = automaton.scan("如何准备技术面试？");
+
+        assertEquals(IntentType.INTERVIEW_PREPARATION, scores.best());
+        assertEquals(2.0, scores.bestScore());
+        assertEquals(1.5, scores.runnerUpScore());
+    }
+
+    @Test
+    public void testTieFallsBackToRuleOrder() {
+        KeywordAutomaton.Scores scores = automaton.scan("面试项目");
+
+        assertEquals(IntentType.PROJECT_GUIDANCE, scores.best());
+        assertEquals(scores.bestScore(), scores.runnerUpScore());
+    }
+
+    @Test
+    public void testOverlappingKeywordsAreAllFound() {
+        KeywordAutomaton overlapping = new KeywordAutomaton(List.of(
+                KeywordRule.of(IntentType.TECHNICAL_QUESTION, 1.0, "spring", "spring boot", "boot"),
+                KeywordRule.of(IntentType.DEBUGGING_HELP, 1.0, "ring")));
+
+        KeywordAutomaton.Scores scores = overlapping.scan("Spring Boot 启动报错");
+
+        assertEquals(3.0, scores.score(IntentType.TECHNICAL_QUESTION));
+        assertEquals(0.0, scores.score(IntentType.DEBUGGING_HELP));
+    }
+
+    @Test
+    public void testRepeatedKeywordCountsOnce() {
+        assertEquals(2.0, automaton.scan("项目项目项目").score(IntentType.PROJECT_GUIDANCE));
+    }
+
+    @Test
+    public void testLatinKeywordsRespectWordBoundaries() {
+        assertEquals(IntentType.GREETING, automaton.scan("Hi，在吗").best());
+        assertEquals(IntentType.GREETING, automaton.scan("say HELLO").best());
+        assertNull(automaton.scan("this is github").best());
+    }
+
+    @Test
+    public void testNoMatch() {
+        KeywordAutomaton.Scores scores = automaton.scan("asdfghjkl");
+
+        assertNull(scores.best());
+        assertEquals(0.0, scores.bestScore());
+    }
+}
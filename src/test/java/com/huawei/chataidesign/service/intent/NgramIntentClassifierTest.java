@@ -0,0 +1,86 @@
+package com.huawei.chataidesign.service.intent;
+
+import com.huawei.chataidesign.entity.IntentType;
+import com.huawei.chataidesign.service.intent.NgramIntentClassifier.Example;
+import com.huawei.chataidesign.service.intent.NgramIntentClassifier.Prediction;
+import com.huawei.chataidesign.service.intent.NgramIntentClassifier.TrainingOptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * n-gram 意图分类器测试类
+ */
+public class NgramIntentClassifierTest {
+
+    private static List<Example> examples;
+    private static NgramIntentClassifier classifier;
+
+    @BeforeAll
+    public static void train() throws Exception {
+        try (Reader reader = new InputStreamReader(
+                new ClassPathResource("intent/intent-training.tsv").getInputStream(), StandardCharsets.UTF_8)) {
+            examples = IntentClassifierTrainer.readExamples(reader);
+        }
+        classifier = NgramIntentClassifier.train(examples, TrainingOptions.defaults());
+    }
+
+    @Test
+    public void testCoversEveryIntentInTrainingData() {
+        assertEquals(IntentType.values().length, classifier.getClasses().size());
+    }
+
+    @Test
+    public void testFitsTrainingData() {
+        long correct = examples.stream()
+                .filter(example -> classifier.classify(example.text()).intent() == example.intent())
+                .count();
+
+        assertTrue(correct >= examples.size() * 0.95, "training accuracy " + correct + "/" + examples.size());
+    }
+
+    @Test
+    public void testProbabilitiesAreNormalized() {
+        Prediction prediction = classifier.classify("简历上的项目经历怎么写");
+
+        assertEquals(IntentType.RESUME_OPTIMIZATION, prediction.intent());
+        assertEquals(1.0, Arrays.stream(prediction.probabilities()).sum(), 1e-9);
+        assertEquals(Arrays.stream(prediction.probabilities()).max().orElseThrow(), prediction.probability());
+    }
+
+    @Test
+    public void testUnseenInputHasLowConfidence() {
+        assertTrue(classifier.classify("qwerty").probability() < 0.5);
+    }
+
+    @Test
+    public void testSaveAndLoadRoundTrip() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        classifier.save(output);
+        NgramIntentClassifier loaded = NgramIntentClassifier.load(new ByteArrayInputStream(output.toByteArray()));
+
+        for (String text : List.of("如何准备面试", "帮我review下这段代码", "端口被占用了")) {
+            assertArrayEquals(classifier.classify(text).probabilities(), loaded.classify(text).probabilities(), 1e-6);
+        }
+    }
+
+    @Test
+    public void testBundledModelLoads() throws Exception {
+        try (InputStream input = new ClassPathResource("intent/intent-model.bin").getInputStream()) {
+            NgramIntentClassifier bundled = NgramIntentClassifier.load(input);
+
+            assertEquals(IntentType.DEBUGGING_HELP, bundled.classify("接口报错NullPointerException").intent());
+        }
+    }
+}
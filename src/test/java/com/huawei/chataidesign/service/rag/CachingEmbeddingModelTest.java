@@ -0,0 +1,76 @@
+package com.huawei.chataidesign.service.rag;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 查询向量缓存测试类
+ */
+public class CachingEmbeddingModelTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountingEmbeddingModel delegate = new CountingEmbeddingModel();
+
+    @Test
+    public void testNormalizedQueriesShareOneEmbedding() {
+        CachingEmbeddingModel model = new CachingEmbeddingModel(delegate, 100, 60_000, null, "", 0, meterRegistry);
+
+        float[] first = model.embed("如何学习 Java？").content().vector();
+        float[] second = model.embed("如何学习  java").content().vector();
+
+        assertEquals(1, delegate.calls.get());
+        assertArrayEquals(first, second);
+        assertEquals(0.5, model.hitRatio());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        CachingEmbeddingModel model = new CachingEmbeddingModel(delegate, 2, 60_000, null, "", 0, meterRegistry);
+        model.embed("a");
+        model.embed("b");
+        model.embed("a");
+        model.embed("c");
+
+        model.embed("a");
+        assertEquals(3, delegate.calls.get());
+        model.embed("b");
+        assertEquals(4, delegate.calls.get());
+    }
+
+    @Test
+    public void testExpiredEntryIsReEmbedded() {
+        CachingEmbeddingModel model = new CachingEmbeddingModel(delegate, 100, -1, null, "", 0, meterRegistry);
+        model.embed("a");
+        model.embed("a");
+
+        assertEquals(2, delegate.calls.get());
+    }
+
+    @Test
+    public void testVectorEncodingRoundTrip() {
+        float[] vector = {0.1f, -2.5f, 3.25f, Float.MIN_VALUE};
+
+        assertArrayEquals(vector, CachingEmbeddingModel.decode(CachingEmbeddingModel.encode(vector)));
+    }
+
+    private static class CountingEmbeddingModel implements EmbeddingModel {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+            calls.incrementAndGet();
+            return Response.from(textSegments.stream()
+                    .map(segment -> Embedding.from(new float[]{segment.text().length(), calls.get()}))
+                    .toList());
+        }
+    }
+}
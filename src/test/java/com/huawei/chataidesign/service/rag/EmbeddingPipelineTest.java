@@ -0,0 +1,107 @@
+package com.huawei.chataidesign.service.rag;
+
+import com.huawei.chataidesign.config.RagIngestionConfig;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 向量化流水线测试类
+ */
+public class EmbeddingPipelineTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private EmbeddingPipeline pipeline;
+
+    @AfterEach
+    public void tearDown() {
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void testIdenticalTextsAreEmbeddedOnce() {
+        FlakyEmbeddingModel model = new FlakyEmbeddingModel(0);
+        pipeline = new EmbeddingPipeline(model, config(), meterRegistry);
+        List<TextSegment> segments = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            segments.add(TextSegment.from("片段 " + (i % 5)));
+        }
+        AtomicInteger completed = new AtomicInteger();
+
+        List<float[]> vectors = pipeline.embedAll(segments, (indices, embedded) -> completed.addAndGet(indices.size()));
+
+        assertEquals(5, model.embedded.get());
+        assertEquals(25, completed.get());
+        assertEquals(25, vectors.size());
+        assertSame(vectors.get(0), vectors.get(5));
+        assertEquals(20.0, meterRegistry.counter("rag.embedding.deduplicated").count());
+    }
+
+    @Test
+    public void testFailedBatchIsRetriedWithBackoff() {
+        FlakyEmbeddingModel model = new FlakyEmbeddingModel(2);
+        pipeline = new EmbeddingPipeline(model, config(), meterRegistry);
+
+        List<float[]> vectors = pipeline.embedAll(List.of(TextSegment.from("Java 并发")), (indices, embedded) -> {
+        });
+
+        assertNotNull(vectors.get(0));
+        assertEquals(2.0, meterRegistry.counter("rag.embedding.batches", "result", "retry").count());
+    }
+
+    @Test
+    public void testBatchFailsAfterMaxAttempts() {
+        pipeline = new EmbeddingPipeline(new FlakyEmbeddingModel(10), config(), meterRegistry);
+
+        assertThrows(IllegalStateException.class,
+                () -> pipeline.embedAll(List.of(TextSegment.from("Java 并发")), (indices, embedded) -> {
+                }));
+        assertEquals(1.0, meterRegistry.counter("rag.embedding.batches", "result", "failure").count());
+    }
+
+    private static RagIngestionConfig.EmbeddingConfig config() {
+        RagIngestionConfig.EmbeddingConfig config = new RagIngestionConfig.EmbeddingConfig();
+        config.setBatchSize(2);
+        config.setParallelism(2);
+        config.setRequestsPerSecond(0);
+        config.setMaxAttempts(3);
+        config.setInitialBackoffMillis(1);
+        config.setMaxBackoffMillis(2);
+        return config;
+    }
+
+    /**
+     * 前若干次调用失败的假向量模型
+     */
+    private static class FlakyEmbeddingModel implements EmbeddingModel {
+        private final AtomicInteger remainingFailures;
+        private final AtomicInteger embedded = new AtomicInteger();
+
+        FlakyEmbeddingModel(int failures) {
+            this.remainingFailures = new AtomicInteger(failures);
+        }
+
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+            if (remainingFailures.getAndDecrement() > 0) {
+                throw new RuntimeException("429 Too Many Requests");
+            }
+            embedded.addAndGet(textSegments.size());
+            return Response.from(textSegments.stream()
+                    .map(segment -> Embedding.from(new float[]{segment.text().hashCode(), 1f}))
+                    .toList());
+        }
+    }
+}
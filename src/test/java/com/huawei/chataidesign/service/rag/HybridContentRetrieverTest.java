@@ -0,0 +1,57 @@
+package com.huawei.chataidesign.service.rag;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 混合检索器测试类
+ */
+public class HybridContentRetrieverTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void testResultsFoundByBothRetrieversRankFirst() {
+        Map<String, ContentRetriever> retrievers = new LinkedHashMap<>();
+        retrievers.put("vector", query -> contents("A", "B", "C"));
+        retrievers.put("bm25", query -> contents("D", "C"));
+        HybridContentRetriever retriever = new HybridContentRetriever(retrievers, 3, 60, meterRegistry);
+
+        List<String> texts = retriever.retrieve(Query.from("问题")).stream()
+                .map(content -> content.textSegment().text())
+                .toList();
+
+        assertEquals(List.of("C", "A", "D"), texts);
+        assertEquals(1.0, meterRegistry.counter("rag.retriever.requests",
+                "retriever", "bm25", "result", "hit").count());
+    }
+
+    @Test
+    public void testFailingRetrieverIsSkipped() {
+        Map<String, ContentRetriever> retrievers = new LinkedHashMap<>();
+        retrievers.put("vector", query -> {
+            throw new IllegalStateException("embedding service unavailable");
+        });
+        retrievers.put("bm25", query -> contents("A"));
+        HybridContentRetriever retriever = new HybridContentRetriever(retrievers, 5, 60, meterRegistry);
+
+        assertEquals(1, retriever.retrieve(Query.from("问题")).size());
+        assertEquals(1.0, meterRegistry.counter("rag.retriever.requests",
+                "retriever", "vector", "result", "error").count());
+    }
+
+    private static List<Content> contents(String... texts) {
+        return Arrays.stream(texts).map(text -> Content.from(TextSegment.from(text))).toList();
+    }
+}
@@ -0,0 +1,130 @@
+package com.huawei.chataidesign.service.rag;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.query.Query;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 预取检索器测试类
+ */
+public class PrefetchingContentRetrieverTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testRetrieveUsesPrefetchedResult() {
+        AtomicInteger calls = new AtomicInteger();
+        PrefetchingContentRetriever retriever = new PrefetchingContentRetriever(query -> {
+            calls.incrementAndGet();
+            return List.of(Content.from(TextSegment.from(query.text())));
+        }, executor, 1000, 30000, meterRegistry);
+
+        retriever.prefetch("如何学习 Java");
+        retriever.prefetch("如何学习 Java");
+        List<Content> contents = retriever.retrieve(Query.from("如何学习 Java"));
+
+        assertEquals("如何学习 Java", contents.get(0).textSegment().text());
+        assertEquals(1, calls.get());
+        assertEquals(0, retriever.pendingPrefetches());
+        assertEquals(1.0, meterRegistry.counter("rag.prefetch.requests", "result", "prefetched").count());
+    }
+
+    @Test
+    public void testRetrieveWithoutPrefetchRunsDirectly() {
+        PrefetchingContentRetriever retriever = new PrefetchingContentRetriever(
+                query -> List.of(Content.from(TextSegment.from("A"))), executor, 1000, 30000, meterRegistry);
+
+        assertEquals(1, retriever.retrieve(Query.from("问题")).size());
+        assertEquals(1.0, meterRegistry.counter("rag.prefetch.requests", "result", "direct").count());
+    }
+
+    @Test
+    public void testSlowPrefetchTimesOutWithoutContext() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        PrefetchingContentRetriever retriever = new PrefetchingContentRetriever(query -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of(Content.from(TextSegment.from("A")));
+        }, executor, 50, 30000, meterRegistry);
+
+        retriever.prefetch("问题");
+        assertTrue(retriever.retrieve(Query.from("问题")).isEmpty());
+        assertEquals(1.0, meterRegistry.counter("rag.prefetch.requests", "result", "timeout").count());
+        release.countDown();
+    }
+
+    @Test
+    public void testPrefetchFailurePropagates() {
+        PrefetchingContentRetriever retriever = new PrefetchingContentRetriever(query -> {
+            throw new IllegalStateException("embedding service unavailable");
+        }, executor, 1000, 30000, meterRegistry);
+
+        retriever.prefetch("问题");
+        assertThrows(IllegalStateException.class, () -> retriever.retrieve(Query.from("问题")));
+    }
+
+    @Test
+    public void testCancelledPrefetchDoesNotRetrieve() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch busy = new CountDownLatch(1);
+        // 占满线程池，预取排在队列中
+        executor.execute(() -> awaitQuietly(busy));
+        executor.execute(() -> awaitQuietly(busy));
+        PrefetchingContentRetriever retriever = new PrefetchingContentRetriever(query -> {
+            calls.incrementAndGet();
+            return List.of();
+        }, executor, 1000, 30000, meterRegistry);
+
+        retriever.prefetch("你好");
+        retriever.cancel("你好");
+        busy.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.SECONDS));
+
+        assertEquals(0, calls.get());
+        assertEquals(0, retriever.pendingPrefetches());
+        assertEquals(1.0, meterRegistry.counter("rag.prefetch.requests", "result", "cancelled").count());
+    }
+
+    @Test
+    public void testUnconsumedPrefetchIsDiscarded() throws InterruptedException {
+        PrefetchingContentRetriever retriever = new PrefetchingContentRetriever(
+                query -> List.of(), executor, 1000, 10, meterRegistry);
+
+        retriever.prefetch("问题");
+        long deadline = System.currentTimeMillis() + 2000;
+        while (retriever.pendingPrefetches() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, retriever.pendingPrefetches());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.huawei.chataidesign.service.rag;
+
+import com.huawei.chataidesign.config.RagRetrievalConfig;
+import com.huawei.chataidesign.entity.IntentType;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.query.Query;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 按意图路由的内容检索器测试类
+ */
+public class QueryRoutingContentRetrieverTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RagRetrievalConfig config = new RagRetrievalConfig();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    public void testIntentWithoutKnowledgeSkipsRetrieval() {
+        QueryRoutingContentRetriever retriever = newRetriever();
+        retriever.routeNext(1, "你好", IntentType.GREETING);
+
+        assertTrue(retriever.retrieve(query("你好", 1)).isEmpty());
+        assertEquals(0, calls.get());
+        assertEquals(1.0, meterRegistry.counter("rag.intent.retrieval.requests",
+                "intent", "greeting", "result", "skipped").count());
+    }
+
+    @Test
+    public void testIntentScopesDocumentsAndLimitsResults() {
+        QueryRoutingContentRetriever retriever = newRetriever();
+        retriever.routeNext(1, "怎么投简历", IntentType.JOB_SEARCH);
+
+        List<String> files = retriever.retrieve(query("怎么投简历", 1)).stream()
+                .map(content -> content.textSegment().metadata().getString("file_name"))
+                .toList();
+
+        assertEquals(List.of("求职指南.md", "求职指南.md", "求职指南.md"), files);
+    }
+
+    @Test
+    public void testEmptyScopeFallsBackToAllDocuments() {
+        config.getIntentRouting().getRules().get(IntentType.JOB_SEARCH).setFileNames(List.of("不存在.md"));
+        QueryRoutingContentRetriever retriever = newRetriever();
+        retriever.routeNext(1, "怎么投简历", IntentType.JOB_SEARCH);
+
+        assertEquals(3, retriever.retrieve(query("怎么投简历", 1)).size());
+    }
+
+    @Test
+    public void testQueryWithoutRegisteredIntentUsesDefaults() {
+        QueryRoutingContentRetriever retriever = newRetriever();
+        retriever.routeNext(2, "什么是 Spring", IntentType.GREETING);
+
+        assertEquals(config.getMaxResults(), retriever.retrieve(query("什么是 Spring", 1)).size());
+        assertEquals(config.getMaxResults(), retriever.retrieve(Query.from("什么是 Spring")).size());
+    }
+
+    @Test
+    public void testRegisteredIntentIsUsedOnce() {
+        QueryRoutingContentRetriever retriever = newRetriever();
+        retriever.routeNext(1, "你好", IntentType.GREETING);
+
+        assertTrue(retriever.retrieve(query("你好", 1)).isEmpty());
+        assertFalse(retriever.retrieve(query("你好", 1)).isEmpty());
+    }
+
+    @Test
+    public void testRegisteredIntentOnlyAppliesToSameQuestion() {
+        QueryRoutingContentRetriever retriever = newRetriever();
+        retriever.routeNext(1, "你好", IntentType.GREETING);
+
+        assertFalse(retriever.retrieve(query("什么是 Spring", 1)).isEmpty());
+        assertTrue(retriever.retrieve(query("你好", 1)).isEmpty());
+    }
+
+    @Test
+    public void testClearedRegistrationIsNotApplied() {
+        QueryRoutingContentRetriever retriever = newRetriever();
+        Runnable clear = retriever.routeNext(1, "你好", IntentType.GREETING);
+
+        clear.run();
+
+        assertFalse(retriever.retrieve(query("你好", 1)).isEmpty());
+        assertFalse(retriever.retrievalEnabled(IntentType.GREETING));
+        assertTrue(retriever.retrievalEnabled(IntentType.TECHNICAL_QUESTION));
+    }
+
+    private QueryRoutingContentRetriever newRetriever() {
+        return new QueryRoutingContentRetriever(query -> {
+            calls.incrementAndGet();
+            return List.of(
+                    content("Java 基础", "java编程学习路线.md"),
+                    content("简历", "求职指南.md"),
+                    content("面试题", "程序员常见面试题.md"),
+                    content("投递", "求职指南.md"),
+                    content("Agent", "大模型Agent学习路线.md"),
+                    content("内推", "求职指南.md"),
+                    content("谈薪", "求职指南.md"));
+        }, config, meterRegistry);
+    }
+
+    private static Query query(String text, int memoryId) {
+        return Query.from(text, dev.langchain4j.rag.query.Metadata.from(UserMessage.from(text), memoryId, List.of()));
+    }
+
+    private static Content content(String text, String fileName) {
+        return Content.from(TextSegment.from(text, Metadata.from("file_name", fileName)));
+    }
+}
@@ -0,0 +1,113 @@
+package com.huawei.chataidesign.service.rag;
+
+import com.huawei.chataidesign.config.RagIngestionConfig;
+import com.huawei.chataidesign.repository.lexical.Bm25Index;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RAG 增量入库测试类
+ * 使用计数的假向量模型，不依赖真实模型服务
+ */
+public class RagIngestionServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final CountingEmbeddingModel embeddingModel = new CountingEmbeddingModel();
+    private RagIngestionConfig config;
+    private EmbeddingPipeline pipeline;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Path docs = Files.createDirectories(tempDir.resolve("docs"));
+        Files.writeString(docs.resolve("java.md"), "Java 基础\n\n集合与并发");
+        Files.writeString(docs.resolve("agent.md"), "Agent 学习路线");
+        config = new RagIngestionConfig();
+        config.setDocsPath(docs.toString());
+        config.setSnapshotDir(tempDir.resolve("snapshot").toString());
+        pipeline = new EmbeddingPipeline(embeddingModel, config.getEmbedding(), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pipeline.shutdown();
+    }
+
+    @Test
+    public void testUnchangedCorpusNeedsNoEmbeddingRequests() {
+        RagIngestionService service = newService();
+        RagIngestionService.IngestionResult first = service.ingest();
+        assertTrue(first.embeddedSegments() > 0);
+        assertTrue(service.getProgress().isReady());
+        assertEquals(first.segments(), service.getProgress().toDetails().get("segmentsDone"));
+        int calls = embeddingModel.embeddedSegments.get();
+
+        RagIngestionService.IngestionResult second = newService().ingest();
+        assertEquals(0, second.changedDocuments());
+        assertEquals(0, second.embeddedSegments());
+        assertEquals(first.segments(), second.segments());
+        assertEquals(calls, embeddingModel.embeddedSegments.get());
+    }
+
+    @Test
+    public void testOnlyChangedDocumentIsReEmbedded() throws IOException {
+        newService().ingest();
+        Files.writeString(Path.of(config.getDocsPath()).resolve("agent.md"), "Agent 常见面试题");
+
+        InMemoryEmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
+        RagIngestionService.IngestionResult result =
+                new RagIngestionService(pipeline, store, new Bm25Index(), config).ingest();
+        assertEquals(1, result.changedDocuments());
+        assertEquals(1, result.embeddedSegments());
+        assertEquals(1, result.removedSegments());
+        assertEquals(2, store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(embeddingModel.embed("Agent").content())
+                .maxResults(10)
+                .build()).matches().size());
+    }
+
+    @Test
+    public void testRetrievalFailureBeforeReadyFallsBackToNoContext() {
+        RagIngestionProgress progress = newService().getProgress();
+        ReadinessAwareContentRetriever retriever = new ReadinessAwareContentRetriever(query -> {
+            throw new IllegalStateException("embedding store not initialized");
+        }, progress);
+
+        assertTrue(retriever.retrieve(Query.from("Java 学习路线")).isEmpty());
+    }
+
+    private RagIngestionService newService() {
+        return new RagIngestionService(pipeline, new InMemoryEmbeddingStore<>(), new Bm25Index(), config);
+    }
+
+    private static class CountingEmbeddingModel implements EmbeddingModel {
+        private final AtomicInteger embeddedSegments = new AtomicInteger();
+
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+            embeddedSegments.addAndGet(textSegments.size());
+            return Response.from(textSegments.stream()
+                    .map(segment -> Embedding.from(new float[]{segment.text().length(), 1f, 0.5f}))
+                    .toList());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.huawei.chataidesign.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 文本归一化测试类
+ */
+public class TextNormalizerTest {
+
+    @Test
+    public void testSpacingBeforeTrailingPunctuationIsIgnored() {
+        assertEquals("hello", TextNormalizer.normalize("hello ?"));
+        assertEquals("hello", TextNormalizer.normalize("hello?"));
+        assertEquals("什么是 jvm", TextNormalizer.normalize(" 什么是  JVM ？ "));
+        assertEquals("a", TextNormalizer.normalize("a . ?"));
+        assertEquals("", TextNormalizer.normalize(" ? "));
+        assertEquals("", TextNormalizer.normalize(null));
+    }
+
+    @Test
+    public void testNormalizeIsIdempotent() {
+        for (String text : List.of("hello ?", "Hello  World ！ ？", "\t如何学习 Java。\n", "什么是 JVM", "a ~ ！")) {
+            String normalized = TextNormalizer.normalize(text);
+            assertEquals(normalized, TextNormalizer.normalize(normalized), text);
+        }
+    }
+
+    @Test
+    public void testNormalizedInputIsReturnedAsIs() {
+        String text = "如何学习 java";
+
+        assertSame(text, TextNormalizer.normalize(text));
+    }
+}